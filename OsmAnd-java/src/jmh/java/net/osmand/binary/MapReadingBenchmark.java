@@ -0,0 +1,123 @@
+package net.osmand.binary;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.osmand.ResultMatcher;
+import net.osmand.binary.BinaryMapIndexReader.MapIndex;
+import net.osmand.binary.BinaryMapIndexReader.MapRoot;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+import net.osmand.data.Amenity;
+
+/**
+ * Raw OBF reading: map objects, POI and route data in a window around the center of the file
+ * (window covers ~ one tile of given zoom). Reader is opened once, so operation measures decoding only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class MapReadingBenchmark {
+
+	@Param("src/test/resources/routing/Routing_test_archive.obf")
+	public String obfFile;
+
+	@Param({ "10", "13", "15", "17" })
+	public int zoom;
+
+	private BinaryMapIndexReader reader;
+	private int left, right, top, bottom;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		reader = new BinaryMapIndexReader(new RandomAccessFile(obfFile, "r"), new File(obfFile));
+		long cx = 0, cy = 0;
+		int cnt = 0;
+		for (MapIndex mi : reader.getMapIndexes()) {
+			for (MapRoot root : mi.getRoots()) {
+				cx += (root.getLeft() / 2 + root.getRight() / 2);
+				cy += (root.getTop() / 2 + root.getBottom() / 2);
+				cnt++;
+			}
+		}
+		for (RouteRegion rr : reader.getRoutingIndexes()) {
+			for (RouteSubregion s : rr.getSubregions()) {
+				cx += (s.left / 2 + s.right / 2);
+				cy += (s.top / 2 + s.bottom / 2);
+				cnt++;
+			}
+		}
+		if (cnt == 0) {
+			throw new IllegalStateException("No map or routing sections in " + obfFile);
+		}
+		int half = 1 << (31 - zoom - 1);
+		left = (int) (cx / cnt) - half;
+		right = (int) (cx / cnt) + half;
+		top = (int) (cy / cnt) - half;
+		bottom = (int) (cy / cnt) + half;
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		reader.close();
+	}
+
+	@Benchmark
+	public int mapObjects() throws Exception {
+		SearchRequest<BinaryMapDataObject> req = BinaryMapIndexReader.buildSearchRequest(left, right, top, bottom,
+				zoom, null);
+		return reader.searchMapIndex(req).size();
+	}
+
+	@Benchmark
+	public int poiObjects() throws Exception {
+		SearchRequest<Amenity> req = BinaryMapIndexReader.buildSearchPoiRequest(left, right, top, bottom, zoom,
+				BinaryMapIndexReader.ACCEPT_ALL_POI_TYPE_FILTER, null);
+		return reader.searchPoi(req).size();
+	}
+
+	@Benchmark
+	public int routeObjects() throws Exception {
+		final int[] count = new int[1];
+		SearchRequest<RouteDataObject> req = BinaryMapIndexReader.buildSearchRouteRequest(left, right, top, bottom,
+				null);
+		List<RouteSubregion> regions = new ArrayList<>();
+		for (RouteRegion rr : reader.getRoutingIndexes()) {
+			regions.addAll(reader.searchRouteIndexTree(req, rr.getSubregions()));
+		}
+		reader.loadRouteIndexData(regions, new ResultMatcher<RouteDataObject>() {
+			@Override
+			public boolean publish(RouteDataObject object) {
+				count[0]++;
+				return false;
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return false;
+			}
+		});
+		return count[0];
+	}
+}
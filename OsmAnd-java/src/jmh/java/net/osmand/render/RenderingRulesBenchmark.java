@@ -0,0 +1,89 @@
+package net.osmand.render;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Rendering rules search by rules tree walk and by compiled rules (see RenderingRulesCompiled).
+ * One operation searches all (tag, value) rules of state for zooms 1-21.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class RenderingRulesBenchmark {
+
+	private static final int MIN_ZOOM = 1;
+	private static final int MAX_ZOOM = 21;
+
+	// style from resources (see collectRenderingStylesResources task)
+	@Param("default.render.xml")
+	public String style;
+
+	@Param({ "point", "line", "polygon", "text", "order" })
+	public String rules;
+
+	private RenderingRulesStorage storage;
+	private RenderingRuleSearchRequest tree;
+	private RenderingRuleSearchRequest compiled;
+	private int state;
+	private int[] keys;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		storage = RenderingRulesStorage.initWithStylesFromResources(style);
+		if (storage == null) {
+			throw new IllegalStateException("Style is not loaded " + style);
+		}
+		String[] names = { "point", "line", "polygon", "text", "order" };
+		int[] states = { RenderingRulesStorage.POINT_RULES, RenderingRulesStorage.LINE_RULES,
+				RenderingRulesStorage.POLYGON_RULES, RenderingRulesStorage.TEXT_RULES, RenderingRulesStorage.ORDER_RULES };
+		state = states[Arrays.asList(names).indexOf(rules)];
+		tree = new RenderingRuleSearchRequest(storage);
+		tree.setCompiledRules(null);
+		compiled = new RenderingRuleSearchRequest(storage);
+		compiled.setCompiledRules(storage.compileRules());
+		keys = storage.tagValueGlobalRules[state] == null ? new int[0] : storage.tagValueGlobalRules[state].keys();
+		Arrays.sort(keys);
+	}
+
+	@Benchmark
+	public int treeWalk() {
+		return search(tree);
+	}
+
+	@Benchmark
+	public int compiledRules() {
+		return search(compiled);
+	}
+
+	private int search(RenderingRuleSearchRequest req) {
+		int found = 0;
+		for (int key : keys) {
+			String tag = storage.getTagString(key);
+			String value = storage.getValueString(key);
+			for (int z = MIN_ZOOM; z <= MAX_ZOOM; z++) {
+				req.setInitialTagValueZoom(tag, value, z, null);
+				if (req.search(state)) {
+					found++;
+				}
+			}
+		}
+		return found;
+	}
+}
@@ -0,0 +1,112 @@
+package net.osmand.router;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.Gson;
+
+import net.osmand.LocationsHolder;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.gpx.GPXFile;
+import net.osmand.gpx.GPXUtilities;
+import net.osmand.gpx.GPXUtilities.WptPt;
+import net.osmand.router.RoutingConfiguration.RoutingMemoryLimits;
+
+/**
+ * Routing based GPX approximation of tracks from approximation/test.json (see ApproximationTest).
+ * One operation approximates all selected tracks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class ApproximationBenchmark {
+
+	private static final String FILES_PATH = "src/test/resources/approximation/";
+
+	// substring of gpx file name, empty - all not ignored tracks
+	@Param("")
+	public String testFilter;
+
+	@Param("car")
+	public String profile;
+
+	private static class Entry {
+		String gpxFile;
+		String obfFile;
+		boolean ignore;
+	}
+
+	private final List<Entry> entries = new ArrayList<>();
+	private final Map<String, BinaryMapIndexReader> readers = new HashMap<>();
+	private final Map<String, List<WptPt>> tracks = new HashMap<>();
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		try (Reader reader = new FileReader(new File(FILES_PATH + "test.json"))) {
+			for (Entry e : new Gson().fromJson(reader, Entry[].class)) {
+				if (e.ignore || !e.gpxFile.contains(testFilter)) {
+					continue;
+				}
+				entries.add(e);
+				if (!readers.containsKey(e.obfFile)) {
+					String path = FILES_PATH + e.obfFile;
+					readers.put(e.obfFile, new BinaryMapIndexReader(new RandomAccessFile(path, "r"), new File(path)));
+				}
+				GPXFile gpxFile = GPXUtilities.loadGPXFile(new File(FILES_PATH + e.gpxFile));
+				tracks.put(e.gpxFile, gpxFile.tracks.get(0).segments.get(0).points);
+			}
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		for (BinaryMapIndexReader reader : readers.values()) {
+			reader.close();
+		}
+	}
+
+	@Benchmark
+	public int routingApproximation() throws Exception {
+		int segments = 0;
+		for (Entry e : entries) {
+			RoutePlannerFrontEnd router = new RoutePlannerFrontEnd();
+			router.setUseGeometryBasedApproximation(false);
+			RoutingMemoryLimits memoryLimits = new RoutingMemoryLimits(RoutingConfiguration.DEFAULT_MEMORY_LIMIT * 3,
+					RoutingConfiguration.DEFAULT_NATIVE_MEMORY_LIMIT);
+			RoutingConfiguration config = RoutingConfiguration.getDefault().build(profile, memoryLimits,
+					new HashMap<String, String>());
+			RoutingContext ctx = router.buildRoutingContext(config, null,
+					new BinaryMapIndexReader[] { readers.get(e.obfFile) }, RoutePlannerFrontEnd.RouteCalculationMode.NORMAL);
+			GpxRouteApproximation gctx = new GpxRouteApproximation(ctx);
+			List<RoutePlannerFrontEnd.GpxPoint> gpxPoints = router.generateGpxPoints(gctx,
+					new LocationsHolder(tracks.get(e.gpxFile)));
+			GpxRouteApproximation r = router.searchGpxRoute(gctx, gpxPoints, null, false);
+			segments += r.collectFinalPointsAsRoute().size();
+		}
+		return segments;
+	}
+}
@@ -0,0 +1,134 @@
+package net.osmand.router;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.Gson;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.router.HHRouteDataStructure.HHRoutingConfig;
+import net.osmand.router.RoutingConfiguration.RoutingMemoryLimits;
+
+/**
+ * Point to point routing (A* and HH) over routes of test_routing.json (see RouteTestingTest).
+ * One operation calculates all selected routes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class RoutingBenchmark {
+
+	private static final String ROUTING_PATH = "src/test/resources/routing/";
+
+	// substring of test name, empty - all not ignored tests
+	@Param("")
+	public String testFilter;
+
+	private final List<TestEntry> entries = new ArrayList<>();
+	private final Map<String, BinaryMapIndexReader> readers = new HashMap<>();
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		RoutePlannerFrontEnd.CALCULATE_MISSING_MAPS = false;
+		try (Reader reader = new FileReader(new File("src/test/resources/test_routing.json"))) {
+			for (TestEntry te : new Gson().fromJson(reader, TestEntry[].class)) {
+				if (!te.isIgnore() && te.getExpectedResults() != null && te.getTestName().contains(testFilter)) {
+					entries.add(te);
+				}
+			}
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		for (BinaryMapIndexReader reader : readers.values()) {
+			reader.close();
+		}
+	}
+
+	private BinaryMapIndexReader[] readers(TestEntry te) throws Exception {
+		List<BinaryMapIndexReader> list = new ArrayList<>();
+		Map<String, String> params = te.getParams();
+		if (params.containsKey("map")) {
+			list.add(open(ROUTING_PATH + params.get("map")));
+		}
+		list.add(open(ROUTING_PATH + "Routing_test_archive.obf"));
+		return list.toArray(new BinaryMapIndexReader[0]);
+	}
+
+	private BinaryMapIndexReader open(String path) throws Exception {
+		BinaryMapIndexReader reader = readers.get(path);
+		if (reader == null) {
+			reader = new BinaryMapIndexReader(new RandomAccessFile(path, "r"), new File(path));
+			readers.put(path, reader);
+		}
+		return reader;
+	}
+
+	private RoutingContext buildContext(RoutePlannerFrontEnd fe, TestEntry te) throws Exception {
+		Map<String, String> params = te.getParams();
+		RoutingMemoryLimits memoryLimits = new RoutingMemoryLimits(RoutingConfiguration.DEFAULT_MEMORY_LIMIT * 3,
+				RoutingConfiguration.DEFAULT_NATIVE_MEMORY_LIMIT);
+		RoutingConfiguration config = RoutingConfiguration.getDefault().build(
+				params.containsKey("vehicle") ? params.get("vehicle") : "car", memoryLimits, params);
+		return fe.buildRoutingContext(config, null, readers(te), RoutePlannerFrontEnd.RouteCalculationMode.NORMAL);
+	}
+
+	@Benchmark
+	public int binaryRoutePlanner() throws Exception {
+		int segments = 0;
+		for (TestEntry te : entries) {
+			if ("true".equals(te.getParams().get("hh"))) {
+				continue;
+			}
+			RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd();
+			fe.disableHHRoutingConfig();
+			RoutingContext ctx = buildContext(fe, te);
+			List<RouteSegmentResult> res = fe.searchRoute(ctx, te.getStartPoint(), te.getEndPoint(),
+					te.getTransitPoint()).detailed;
+			segments += res == null ? 0 : res.size();
+		}
+		return segments;
+	}
+
+	@Benchmark
+	public int hhRoutePlanner() throws Exception {
+		int segments = 0;
+		for (TestEntry te : entries) {
+			if (!"true".equals(te.getParams().get("hh")) || !te.getTransitPoint().isEmpty()) {
+				continue;
+			}
+			RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd();
+			RoutingContext ctx = buildContext(fe, te);
+			HHRoutePlanner<?> planner = HHRoutePlanner.create(ctx);
+			HHRoutingConfig cfg = HHRoutingConfig.astar(0).calcDetailed(HHRoutingConfig.CALCULATE_ALL_DETAILED);
+			HHRouteDataStructure.HHNetworkRouteRes res = planner.runRouting(te.getStartPoint(), te.getEndPoint(), cfg);
+			segments += res == null || res.detailed == null ? 0 : res.detailed.size();
+		}
+		return segments;
+	}
+}
@@ -0,0 +1,147 @@
+package net.osmand.search;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.osmand.ResultMatcher;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.osm.MapPoiTypes;
+import net.osmand.search.SearchUICore.SearchResultMatcher;
+import net.osmand.search.core.SearchPhrase;
+import net.osmand.search.core.SearchResult;
+import net.osmand.search.core.SearchSettings;
+import net.osmand.util.Algorithms;
+
+/**
+ * Offline search of phrases from search/*.json (see SearchUICoreTest). One operation runs all phrases.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class SearchBenchmark {
+
+	private static final String SEARCH_RESOURCES_PATH = "src/test/resources/search/";
+
+	// substring of test file name, empty - all tests
+	@Param("")
+	public String testFilter;
+
+	private static class SearchCase {
+		SearchSettings settings;
+		List<String> phrases = new ArrayList<>();
+		BinaryMapIndexReader reader;
+		File obfFile;
+	}
+
+	private final List<SearchCase> cases = new ArrayList<>();
+	private SearchUICore core;
+
+	private final ResultMatcher<SearchResult> rm = new ResultMatcher<SearchResult>() {
+		@Override
+		public boolean publish(SearchResult object) {
+			return true;
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return false;
+		}
+	};
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		SearchUICoreTest.defaultSetup();
+		core = new SearchUICore(MapPoiTypes.getDefault(), "en", false);
+		core.init();
+		File[] files = new File(SEARCH_RESOURCES_PATH).listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File file : files) {
+			if (!file.getName().endsWith(".json") || !file.getName().contains(testFilter)) {
+				continue;
+			}
+			JSONObject json = new JSONObject(Algorithms.getFileAsString(file));
+			JSONObject settingsJson = json.getJSONObject("settings");
+			if (settingsJson.optBoolean("disabled", false)) {
+				continue;
+			}
+			SearchCase c = new SearchCase();
+			String phrase = json.optString("phrase", null);
+			if (phrase != null) {
+				c.phrases.add(phrase);
+			}
+			JSONArray phrasesJson = json.optJSONArray("phrases");
+			for (int i = 0; phrasesJson != null && i < phrasesJson.length(); i++) {
+				c.phrases.add(phrasesJson.optString(i));
+			}
+			c.settings = SearchSettings.parseJSON(settingsJson);
+			if (settingsJson.optBoolean("useData", true)) {
+				File obfZipFile = new File(file.getParentFile(), file.getName().replace(".json", ".obf.gz"));
+				if (!obfZipFile.exists()) {
+					continue;
+				}
+				c.obfFile = new File(file.getParentFile(), file.getName().replace(".json", ".obf"));
+				try (GZIPInputStream gzin = new GZIPInputStream(new FileInputStream(obfZipFile));
+						FileOutputStream fous = new FileOutputStream(c.obfFile)) {
+					Algorithms.streamCopy(gzin, fous);
+				}
+				c.reader = new BinaryMapIndexReader(new RandomAccessFile(c.obfFile, "r"), c.obfFile);
+				c.settings.setOfflineIndexes(Collections.singletonList(c.reader));
+			}
+			cases.add(c);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		for (SearchCase c : cases) {
+			if (c.reader != null) {
+				c.reader.close();
+				c.obfFile.delete();
+			}
+		}
+	}
+
+	@Benchmark
+	public int search() {
+		int results = 0;
+		for (SearchCase c : cases) {
+			SearchPhrase emptyPhrase = SearchPhrase.emptyPhrase(c.settings);
+			for (String text : c.phrases) {
+				SearchPhrase phrase = emptyPhrase.generateNewPhrase(text, c.settings);
+				SearchResultMatcher matcher = new SearchResultMatcher(rm, phrase, 1, new AtomicInteger(1), -1);
+				core.searchInternal(phrase, matcher);
+				results += matcher.getRequestResults().size();
+			}
+		}
+		return results;
+	}
+}
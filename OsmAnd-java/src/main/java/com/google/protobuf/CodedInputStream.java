@@ -33,6 +33,9 @@ package com.google.protobuf;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -68,6 +71,41 @@ public final class CodedInputStream {
     return new CodedInputStream(raf);
   }
 
+  /**
+   * Create a new CodedInputStream reading from memory mapped chunks of a file
+   * (see {@link #mapReadOnly(FileChannel)}). Buffer refills and seeks are served
+   * from the page cache without read/seek system calls. Chunks are duplicated, so
+   * the same mapping could be shared by several streams.
+   */
+  public static CodedInputStream newInstance(ByteBuffer[] mappedChunks) {
+    return new CodedInputStream(mappedChunks);
+  }
+
+  /**
+   * Create a new CodedInputStream reading the file with positional reads (pread).
+   * Channel position is not changed, so several streams could read the same
+   * channel concurrently.
+   */
+  public static CodedInputStream newInstance(FileChannel channel) throws IOException {
+    return new CodedInputStream(channel);
+  }
+
+  /**
+   * Maps the whole file read-only in chunks of {@code 1 << MAPPED_CHUNK_SHIFT} bytes,
+   * so files larger than 2 GB could be mapped as well.
+   */
+  public static ByteBuffer[] mapReadOnly(FileChannel channel) throws IOException {
+    long length = channel.size();
+    int chunks = (int) ((length + MAPPED_CHUNK_SIZE - 1) >>> MAPPED_CHUNK_SHIFT);
+    ByteBuffer[] mappedChunks = new ByteBuffer[chunks];
+    for (int i = 0; i < chunks; i++) {
+      long start = ((long) i) << MAPPED_CHUNK_SHIFT;
+      mappedChunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+          Math.min(MAPPED_CHUNK_SIZE, length - start));
+    }
+    return mappedChunks;
+  }
+
   /**
    * Create a new CodedInputStream wrapping the given byte array slice.
    */
@@ -539,6 +577,12 @@ public final class CodedInputStream {
 
   private final byte[] buffer;
   private RandomAccessFile raf;
+  // osmand change: memory mapped and positional read modes
+  private ByteBuffer[] mappedChunks;
+  private FileChannel channel;
+  private boolean positionalRead;
+  private long fileLength;
+  private long filePointer;
   private int bufferSize;
   private int bufferSizeAfterLimit;
   private int bufferPos;
@@ -570,6 +614,9 @@ public final class CodedInputStream {
   public static final long DEFAULT_SIZE_LIMIT = Integer.MAX_VALUE;// 64 << 20;  // 64MB
   public static final long MAX_DEFAULT_SIZE_LIMIT = 8l << 40; // 8 TB
   private static final int BUFFER_SIZE = 5 * 1024;
+  public static final int MAPPED_CHUNK_SHIFT = 30;
+  private static final long MAPPED_CHUNK_SIZE = 1L << MAPPED_CHUNK_SHIFT;
+  private static final long MAPPED_CHUNK_MASK = MAPPED_CHUNK_SIZE - 1;
 
   private CodedInputStream(final byte[] buffer, final int off, final int len) {
     this.buffer = buffer;
@@ -589,6 +636,35 @@ public final class CodedInputStream {
 		input = null;
 	}
 
+   // osmand change
+   private CodedInputStream(final ByteBuffer[] mappedChunks) {
+		buffer = new byte[BUFFER_SIZE];
+		this.bufferSize = 0;
+		bufferPos = 0;
+		totalBytesRetired = 0;
+		this.mappedChunks = new ByteBuffer[mappedChunks.length];
+		for (int i = 0; i < mappedChunks.length; i++) {
+			this.mappedChunks[i] = mappedChunks[i].duplicate();
+			fileLength += mappedChunks[i].capacity();
+		}
+		positionalRead = true;
+		filePointer = 0;
+		input = null;
+	}
+
+   // osmand change
+   private CodedInputStream(final FileChannel channel) throws IOException {
+		buffer = new byte[BUFFER_SIZE];
+		this.bufferSize = 0;
+		bufferPos = 0;
+		totalBytesRetired = 0;
+		this.channel = channel;
+		fileLength = channel.size();
+		positionalRead = true;
+		filePointer = 0;
+		input = null;
+	}
+
   private CodedInputStream(final InputStream input) {
     buffer = new byte[BUFFER_SIZE];
     bufferSize = 0;
@@ -777,6 +853,15 @@ public final class CodedInputStream {
     	} else {
     		bufferSize = -1;
     	}
+    } else if (positionalRead) {
+    	// osmand change
+    	totalBytesRetired = filePointer;
+    	bufferSize = (int) Math.min(fileLength - filePointer, buffer.length);
+    	if (bufferSize > 0) {
+    		readPositional(buffer, 0, bufferSize);
+    	} else {
+    		bufferSize = -1;
+    	}
     } else {
     	bufferSize = (input == null) ? -1 : input.read(buffer);
     }
@@ -898,6 +983,12 @@ public final class CodedInputStream {
         	if(raf != null) {
         		raf.readFully(chunk, pos, chunk.length - pos);
         		n = chunk.length - pos;
+        	} else if (positionalRead) {
+        		if (filePointer + chunk.length - pos > fileLength) {
+        			throw InvalidProtocolBufferException.truncatedMessage();
+        		}
+        		readPositional(chunk, pos, chunk.length - pos);
+        		n = chunk.length - pos;
         	} else {
         		n = (input == null) ? -1 :
         	    input.read(chunk, pos, chunk.length - pos);
@@ -962,6 +1053,11 @@ public final class CodedInputStream {
          bufferSize = 0;
          raf.seek(raf.getFilePointer() + (size - pos));
          totalBytesRetired = raf.getFilePointer();
+      } else if (positionalRead) {
+         bufferPos = 0;
+         bufferSize = 0;
+         filePointer += size - pos;
+         totalBytesRetired = filePointer;
       } else {
         // Keep refilling the buffer until we get to the point we wanted to skip
         // to.  This has the side effect of ensuring the limits are updated
@@ -987,9 +1083,38 @@ public final class CodedInputStream {
 	  } else {
 		  totalBytesRetired = pointer;
 		  bufferSizeAfterLimit = 0;
-		  raf.seek(pointer);
+		  if (positionalRead) {
+			  filePointer = pointer;
+		  } else {
+			  raf.seek(pointer);
+		  }
 		  bufferPos = 0;
 		  bufferSize = 0;
 	  }
   }
+
+  // osmand change
+  private void readPositional(byte[] dst, int off, int len) throws IOException {
+	  if (channel != null) {
+		  ByteBuffer bb = ByteBuffer.wrap(dst, off, len);
+		  while (bb.hasRemaining()) {
+			  int n = channel.read(bb, filePointer);
+			  if (n < 0) {
+				  throw InvalidProtocolBufferException.truncatedMessage();
+			  }
+			  filePointer += n;
+		  }
+		  return;
+	  }
+	  while (len > 0) {
+		  ByteBuffer chunk = mappedChunks[(int) (filePointer >>> MAPPED_CHUNK_SHIFT)];
+		  int chunkPos = (int) (filePointer & MAPPED_CHUNK_MASK);
+		  int cnt = Math.min(len, chunk.capacity() - chunkPos);
+		  ((Buffer) chunk).position(chunkPos);
+		  chunk.get(dst, off, cnt);
+		  filePointer += cnt;
+		  off += cnt;
+		  len -= cnt;
+	  }
+  }
 }
@@ -2,6 +2,10 @@ package net.osmand;
 
 import net.osmand.util.ArabicNormalizer;
 
+import java.text.CollationElementIterator;
+import java.text.RuleBasedCollator;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 
 
@@ -14,9 +18,16 @@ import java.util.Locale;
  */
 public class CollatorStringMatcher implements StringMatcher {
 
+	// compare names by primary keys of characters instead of collator (same result, falls back to collator)
+	public static boolean USE_COLLATION_KEYS = true;
+
 	private final Collator collator;
 	private final StringMatcherMode mode;
 	private final String part;
+	// primary keys of part (ignorable characters skipped), null if keys can't be used
+	private final int[] partKeys;
+	private final int partKeysLength;
+	private final CollationKeyTable keyTable;
 	
 	public static enum StringMatcherMode {
 		// tests only first word as base starts with part
@@ -47,7 +58,11 @@ public class CollatorStringMatcher implements StringMatcher {
 		}
 		this.part = part;
 		this.mode = mode;
-		
+		this.keyTable = USE_COLLATION_KEYS && mode != StringMatcherMode.CHECK_CONTAINS
+				&& mode != StringMatcherMode.MULTISEARCH ? CollationKeyTable.getInstance() : null;
+		String keysPart = alignChars(normalizeArabic(part));
+		this.partKeys = keyTable == null ? null : keyTable.getKeys(keysPart);
+		this.partKeysLength = keysPart.length();
 	}
 
 	public Collator getCollator() {
@@ -56,9 +71,35 @@ public class CollatorStringMatcher implements StringMatcher {
 	
 	@Override
 	public boolean matches(String name) {
+		if (partKeys != null) {
+			int res = keyTable.matches(name, partKeysLength, partKeys, mode);
+			if (res != CollationKeyTable.NOT_APPLICABLE) {
+				return res == CollationKeyTable.MATCH;
+			}
+		}
 		return cmatches(collator, name, part, mode);
 	}
 
+	/**
+	 * Primary collation keys of not ignorable characters of name (as compared by matcher), returns null if
+	 * keys can't be used for name (see CollationKeyTable). Keys depend on default locale.
+	 */
+	public static int[] getCollationKeys(String name) {
+		CollationKeyTable table = USE_COLLATION_KEYS ? CollationKeyTable.getInstance() : null;
+		if (table == null || !table.supported(name)) {
+			return null;
+		}
+		return table.getKeys(name);
+	}
+
+	private static String normalizeArabic(String s) {
+		if (ArabicNormalizer.isSpecialArabic(s)) {
+			String normalized = ArabicNormalizer.normalize(s);
+			s = normalized == null ? s : normalized;
+		}
+		return s;
+	}
+
 	public static boolean cmatches(Collator collator, String fullName, String part, StringMatcherMode mode) {
 		if (ArabicNormalizer.isSpecialArabic(fullName)) {
 			String normalized = ArabicNormalizer.normalize(fullName);
@@ -211,4 +252,234 @@ public class CollatorStringMatcher implements StringMatcher {
 		return !Character.isLetter(c) && !Character.isDigit(c);
 	}
 	
+
+	/**
+	 * Primary collation keys of characters calculated once with the same collator as
+	 * {@link OsmAndCollator#primaryCollator()}. Collator equality of strings is equality of their primary keys
+	 * without ignorable characters while no character expands to several keys, takes part in contraction
+	 * (like 'cs' in hungarian) or changes length by lower case, otherwise matcher falls back to collator.
+	 */
+	private static class CollationKeyTable {
+
+		static final int NOT_APPLICABLE = -1;
+		static final int NO_MATCH = 0;
+		static final int MATCH = 1;
+
+		private static final int NOT_CALCULATED = 0;
+		private static final int UNSUPPORTED = -1;
+		private static final int IGNORABLE = 1;
+		private static final int KEY_SHIFT = 2;
+		private static final int CONTRACTION_START = 1 << 30;
+
+		private static CollationKeyTable instance;
+
+		private final Locale locale;
+		private final RuleBasedCollator collator;
+		private final int[] keys = new int[Character.MAX_VALUE + 1];
+		private final List<String> contractions = new ArrayList<String>();
+
+		static synchronized CollationKeyTable getInstance() {
+			Locale locale = Locale.getDefault();
+			if (instance == null || !instance.locale.equals(locale)) {
+				java.text.Collator c = OsmAndCollator.primaryJavaCollator();
+				instance = c instanceof RuleBasedCollator ? new CollationKeyTable(locale, (RuleBasedCollator) c) : null;
+			}
+			return instance;
+		}
+
+		private CollationKeyTable(Locale locale, RuleBasedCollator collator) {
+			this.locale = locale;
+			this.collator = collator;
+			parseContractions(collator.getRules());
+			// context dependent lower case or reordering (thai / lao prevowels)
+			keys['\u0130'] = keys['\u03a3'] = keys['\u0307'] = UNSUPPORTED;
+			// replaced with 'ss' by alignChars
+			keys['\u00df'] = keys['\u1e9e'] = UNSUPPORTED;
+			if (locale.getLanguage().equals("lt")) {
+				keys['I'] = keys['J'] = keys['\u012e'] = UNSUPPORTED;
+			}
+			for (char c = '\u0e40'; c <= '\u0e44'; c++) {
+				keys[c] = keys[c + ('\u0ec0' - '\u0e40')] = UNSUPPORTED;
+			}
+			for (char c = Character.MIN_SURROGATE; c < Character.MAX_SURROGATE; c++) {
+				keys[c] = UNSUPPORTED;
+			}
+			keys[Character.MAX_SURROGATE] = UNSUPPORTED;
+		}
+
+		// multi character elements which are not reset positions (after '&') are contractions
+		private void parseContractions(String rules) {
+			StringBuilder token = new StringBuilder();
+			boolean quote = false;
+			boolean reset = false;
+			for (int i = 0; i <= rules.length(); i++) {
+				char c = i < rules.length() ? rules.charAt(i) : '<';
+				if (c == '\'') {
+					quote = !quote;
+				} else if (!quote && (c == '<' || c == ';' || c == ',' || c == '=' || c == '&')) {
+					String t = token.toString();
+					int exp = t.indexOf('/');
+					if (exp >= 0) {
+						t = t.substring(0, exp);
+					}
+					if (!reset && t.length() > 1) {
+						String lc = t.toLowerCase(locale);
+						contractions.add(lc);
+						keys[t.charAt(0)] |= CONTRACTION_START;
+						keys[lc.charAt(0)] |= CONTRACTION_START;
+						keys[Character.toUpperCase(lc.charAt(0))] |= CONTRACTION_START;
+					}
+					token.setLength(0);
+					reset = c == '&';
+				} else if (quote || (!Character.isWhitespace(c) && c != '@')) {
+					token.append(c);
+				}
+			}
+		}
+
+		private int getKey(char c) {
+			int k = keys[c];
+			if ((k & ~CONTRACTION_START) == NOT_CALCULATED) {
+				k = calculateKey(c);
+			}
+			return k;
+		}
+
+		private synchronized int calculateKey(char c) {
+			int k = keys[c];
+			if ((k & ~CONTRACTION_START) != NOT_CALCULATED) {
+				return k;
+			}
+			String lc = String.valueOf(c).toLowerCase(locale);
+			int key = UNSUPPORTED;
+			if (lc.length() == 1) {
+				key = IGNORABLE;
+				CollationElementIterator it = collator.getCollationElementIterator(lc);
+				int e;
+				while ((e = it.next()) != CollationElementIterator.NULLORDER) {
+					int primary = CollationElementIterator.primaryOrder(e);
+					if (primary != 0) {
+						if (key != IGNORABLE) {
+							// expansion
+							key = UNSUPPORTED;
+							break;
+						}
+						key = primary + KEY_SHIFT;
+					}
+				}
+			}
+			k = (k & CONTRACTION_START) | (key == UNSUPPORTED ? UNSUPPORTED : key);
+			keys[c] = k;
+			return k;
+		}
+
+		private boolean isContraction(String s, int i) {
+			for (String c : contractions) {
+				if (i + c.length() <= s.length() && s.substring(i, i + c.length()).toLowerCase(locale).equals(c)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Returns keys of not ignorable characters or null if string is not supported
+		 */
+		int[] getKeys(String s) {
+			int[] res = new int[s.length()];
+			int len = 0;
+			for (int i = 0; i < s.length(); i++) {
+				int k = getKey(s.charAt(i));
+				if (k == UNSUPPORTED || ((k & CONTRACTION_START) != 0 && isContraction(s, i))) {
+					return null;
+				}
+				k &= ~CONTRACTION_START;
+				if (k != IGNORABLE) {
+					res[len++] = k;
+				}
+			}
+			int[] keys = new int[len];
+			System.arraycopy(res, 0, keys, 0, len);
+			return keys;
+		}
+
+		private boolean supported(String name) {
+			for (int i = 0; i < name.length(); i++) {
+				int k = getKey(name.charAt(i));
+				if (k == UNSUPPORTED || ((k & CONTRACTION_START) != 0 && isContraction(name, i))) {
+					return false;
+				}
+			}
+			return !ArabicNormalizer.isSpecialArabic(name);
+		}
+
+		// same as collator.equals(name.substring(start, start + length), part)
+		private boolean equalKeys(String name, int start, int length, int[] partKeys) {
+			int p = 0;
+			for (int i = start; i < start + length; i++) {
+				int k = keys[name.charAt(i)] & ~CONTRACTION_START;
+				if (k != IGNORABLE) {
+					if (p == partKeys.length || partKeys[p] != k) {
+						return false;
+					}
+					p++;
+				}
+			}
+			return p == partKeys.length;
+		}
+
+		/**
+		 * Same as {@link CollatorStringMatcher#cmatches} for starts with / equals modes
+		 */
+		int matches(String name, int partLength, int[] partKeys, StringMatcherMode mode) {
+			if (!supported(name)) {
+				return NOT_APPLICABLE;
+			}
+			switch (mode) {
+			case CHECK_EQUALS_FROM_SPACE:
+				return startsWith(name, partLength, partKeys, true, true, true);
+			case CHECK_STARTS_FROM_SPACE:
+				return startsWith(name, partLength, partKeys, true, true, false);
+			case CHECK_STARTS_FROM_SPACE_NOT_BEGINNING:
+				return startsWith(name, partLength, partKeys, false, true, false);
+			case CHECK_ONLY_STARTS_WITH:
+				return startsWith(name, partLength, partKeys, true, false, false);
+			case CHECK_EQUALS:
+				return startsWith(name, partLength, partKeys, false, false, true);
+			default:
+				return NOT_APPLICABLE;
+			}
+		}
+
+		// see cstartsWith
+		private int startsWith(String searchIn, int startLength, int[] partKeys,
+				boolean checkBeginning, boolean checkSpaces, boolean equals) {
+			int searchInLength = searchIn.length();
+			if (startLength == 0) {
+				return MATCH;
+			}
+			if (startLength > searchInLength) {
+				return NO_MATCH;
+			}
+			if (checkBeginning && equalKeys(searchIn, 0, startLength, partKeys)) {
+				if (!equals || startLength == searchInLength || isSpace(searchIn.charAt(startLength))) {
+					return MATCH;
+				}
+			}
+			if (checkSpaces) {
+				for (int i = 1; i <= searchInLength - startLength; i++) {
+					if (isSpace(searchIn.charAt(i - 1)) && !isSpace(searchIn.charAt(i))
+							&& equalKeys(searchIn, i, startLength, partKeys)) {
+						if (!equals || i + startLength == searchInLength || isSpace(searchIn.charAt(i + startLength))) {
+							return MATCH;
+						}
+					}
+				}
+			}
+			if (!checkBeginning && !checkSpaces && equals) {
+				return equalKeys(searchIn, 0, searchInLength, partKeys) ? MATCH : NO_MATCH;
+			}
+			return NO_MATCH;
+		}
+	}
 }
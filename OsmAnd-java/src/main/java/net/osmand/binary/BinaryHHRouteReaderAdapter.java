@@ -103,41 +103,45 @@ public class BinaryHHRouteReaderAdapter {
 	}
 	
 	public <T extends NetworkDBPoint> TLongObjectHashMap<T> initRegionAndLoadPoints(HHRouteRegion reg, short mapId, Class<T> cl) throws IOException {
-		codedIS.seek(reg.filePointer);
-		final long oldLimit = codedIS.pushLimitLong((long) reg.length);
-		TLongObjectHashMap<T> mp = new TLongObjectHashMap<>();
-		reg.segments = new ArrayList<>();
-		while (true) {
-			int t = codedIS.readTag();
-			int tag = WireFormat.getTagFieldNumber(t);
-			switch (tag) {
-			case 0:
-				codedIS.popLimit(oldLimit);
-				return mp;
-			case OsmandOdb.OsmAndHHRoutingIndex.TAGVALUESTABLE_FIELD_NUMBER:
-				long length = codedIS.readRawVarint32();
-				final long old = codedIS.pushLimitLong((long) length);
-				List<String> st = readStringTable();
-				for (String s : st) {
-					int i = s.indexOf('=');
-					if (i > 0) {
-						reg.encodingRules.add(new TagValuePair(s.substring(0, i), s.substring(i + 1), -1));
+		// region could be shared by cursors of the same file (see BinaryMapIndexReader.createCursor)
+		synchronized (reg) {
+			codedIS.seek(reg.filePointer);
+			final long oldLimit = codedIS.pushLimitLong((long) reg.length);
+			TLongObjectHashMap<T> mp = new TLongObjectHashMap<>();
+			List<HHRouteBlockSegments> segments = new ArrayList<>();
+			boolean readEncodingRules = reg.encodingRules.isEmpty();
+			while (true) {
+				int t = codedIS.readTag();
+				int tag = WireFormat.getTagFieldNumber(t);
+				switch (tag) {
+				case 0:
+					codedIS.popLimit(oldLimit);
+					reg.segments = segments;
+					return mp;
+				case OsmandOdb.OsmAndHHRoutingIndex.TAGVALUESTABLE_FIELD_NUMBER:
+					long length = codedIS.readRawVarint32();
+					final long old = codedIS.pushLimitLong((long) length);
+					List<String> st = readStringTable();
+					for (String s : st) {
+						int i = s.indexOf('=');
+						if (i > 0 && readEncodingRules) {
+							reg.encodingRules.add(new TagValuePair(s.substring(0, i), s.substring(i + 1), -1));
+						}
 					}
+					codedIS.popLimit(old);
+					break;
+				case OsmandOdb.OsmAndHHRoutingIndex.POINTBOXES_FIELD_NUMBER:
+					readPointBox(reg, cl, mapId, mp, null);
+					break;
+				case OsmandOdb.OsmAndHHRoutingIndex.POINTSEGMENTS_FIELD_NUMBER:
+					segments.add(readRegionSegmentHeader());
+					break;
+				default:
+					skipUnknownField(t);
+					break;
 				}
-				codedIS.popLimit(old);
-				break;
-			case OsmandOdb.OsmAndHHRoutingIndex.POINTBOXES_FIELD_NUMBER:
-				readPointBox(reg, cl, mapId, mp, null);
-				break;
-			case OsmandOdb.OsmAndHHRoutingIndex.POINTSEGMENTS_FIELD_NUMBER:
-				reg.segments.add(readRegionSegmentHeader());
-				break;
-			default:
-				skipUnknownField(t);
-				break;
 			}
 		}
-				
 	}
 	
 	protected List<String> readStringTable() throws IOException {
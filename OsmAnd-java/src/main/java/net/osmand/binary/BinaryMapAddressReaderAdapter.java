@@ -600,18 +600,51 @@ public class BinaryMapAddressReaderAdapter {
 		}
 	}
 
-	public void searchAddressDataByName(AddressRegion reg, SearchRequest<MapObject> req, List<Integer> typeFilter) throws IOException {
-		TIntArrayList loffsets = new TIntArrayList();
-		CollatorStringMatcher stringMatcher = new CollatorStringMatcher(req.nameQuery, req.matcherMode);
+	private CityMatcher createCityPostcodeMatcher(SearchRequest<MapObject> req, CollatorStringMatcher stringMatcher) {
 		String postcode = Postcode.normalize(req.nameQuery, map.getCountryName());
 		final CityMatcher postcodeMatcher = new DefaultCityMatcher(new CollatorStringMatcher(postcode, req.matcherMode));
 		final CityMatcher cityMatcher = new DefaultCityMatcher(stringMatcher);
-		final CityMatcher cityPostcodeMatcher = new CityMatcher() {
+		return new CityMatcher() {
 			@Override
 			public boolean matches(City city) {
 				return city.isPostcode() ? postcodeMatcher.matches(city) : cityMatcher.matches(city);
 			}
 		};
+	}
+
+	private static boolean matchesStreet(CollatorStringMatcher stringMatcher, Street s) {
+		boolean matches = stringMatcher.matches(s.getName());
+		if (!matches) {
+			for (String n : s.getOtherNames()) {
+				matches = stringMatcher.matches(n);
+				if (matches) {
+					break;
+				}
+			}
+		}
+		return matches;
+	}
+
+	/**
+	 * Filters objects found by {@link #searchAddressDataByName} with name query of the request
+	 */
+	protected List<MapObject> filterAddressByName(SearchRequest<MapObject> req, List<MapObject> objects) {
+		CollatorStringMatcher stringMatcher = new CollatorStringMatcher(req.nameQuery, req.matcherMode);
+		CityMatcher cityPostcodeMatcher = createCityPostcodeMatcher(req, stringMatcher);
+		List<MapObject> res = new ArrayList<>();
+		for (MapObject o : objects) {
+			if (o instanceof Street ? matchesStreet(stringMatcher, (Street) o)
+					: (o instanceof City && cityPostcodeMatcher.matches((City) o))) {
+				res.add(o);
+			}
+		}
+		return res;
+	}
+
+	public void searchAddressDataByName(AddressRegion reg, SearchRequest<MapObject> req, List<Integer> typeFilter) throws IOException {
+		TIntArrayList loffsets = new TIntArrayList();
+		CollatorStringMatcher stringMatcher = new CollatorStringMatcher(req.nameQuery, req.matcherMode);
+		final CityMatcher cityPostcodeMatcher = createCityPostcodeMatcher(req, stringMatcher);
 		long time = System.currentTimeMillis();
 		long indexOffset = 0;
 		while (true) {
@@ -630,7 +663,7 @@ public class BinaryMapAddressReaderAdapter {
 				// here offsets are sorted by distance
 				TIntArrayList charsList = new TIntArrayList();
 				charsList.add(0);
-				map.readIndexedStringTable(stringMatcher.getCollator(), Collections.singletonList(req.nameQuery), "", Collections.singletonList(loffsets), charsList);
+				map.readIndexedStringTable(stringMatcher.getCollator(), Collections.singletonList(req.nameQuery), Collections.singletonList(loffsets), charsList);
 				codedIS.popLimit(oldLimit);
 				break;
 			case OsmAndAddressNameIndexData.ATOM_FIELD_NUMBER:
@@ -708,16 +741,7 @@ public class BinaryMapAddressReaderAdapter {
 										MapUtils.get31TileNumberY(l.getLatitude()) >> 7, obj.isPostcode() ? obj.getName() : null,
 										reg.attributeTagsTable);
 								publishRawData(req, s);
-								boolean matches = stringMatcher.matches(s.getName());
-								if (!matches) {
-									for (String n : s.getOtherNames()) {
-										matches = stringMatcher.matches(n);
-										if (matches) {
-											break;
-										}
-									}
-								}
-								if (matches) {
+								if (matchesStreet(stringMatcher, s)) {
 									req.publish(s);
 								}
 								codedIS.popLimit(old);
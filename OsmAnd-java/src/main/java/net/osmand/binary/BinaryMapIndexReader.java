@@ -10,6 +10,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.RandomAccessFile;
 import java.io.Reader;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -95,6 +96,14 @@ public class BinaryMapIndexReader {
 	public static final int LABEL_ZOOM_ENCODE = 31 - SHIFT_COORDINATES;
 	private final static Log log = PlatformUtil.getLog(BinaryMapIndexReader.class);
 	public static boolean READ_STATS = false;
+	// read files through memory mapped buffers instead of RandomAccessFile seek/read calls (server side)
+	public static boolean MEMORY_MAPPED_READ = false;
+	// keep name indexes (poi, address) in memory once read, search them without reading file
+	public static boolean RESIDENT_NAME_INDEX = false;
+	// store resident name indexes next to the file (see NameIndexTable.EXT)
+	public static boolean STORE_NAME_INDEX = false;
+	// max number of idle cursors kept by reader for reuse
+	public static int MAX_IDLE_CURSORS = 4;
 	public static final SearchPoiTypeFilter ACCEPT_ALL_POI_TYPE_FILTER = new SearchPoiTypeFilter() {
 		@Override
 		public boolean isEmpty() {
@@ -109,6 +118,15 @@ public class BinaryMapIndexReader {
 	
 	
 	private final RandomAccessFile raf;
+	private ByteBuffer[] mappedChunks;
+	// cursor shares file descriptor and index structure with another reader
+	private final boolean cursor;
+	// idle cursors of this reader (see acquireCursor)
+	private final List<BinaryMapIndexReader> idleCursors = new ArrayList<BinaryMapIndexReader>();
+	// notified when file is closed, so structures built from this reader are released
+	private final List<CloseListener> closeListeners = new ArrayList<CloseListener>();
+	private MapDataBlockCache mapDataBlockCache;
+	private NameIndexTable.FileTables nameIndexTables = new NameIndexTable.FileTables();
 	protected final File file;
 	/*private*/ int version;
 	/*private*/ long dateCreated;
@@ -138,8 +156,8 @@ public class BinaryMapIndexReader {
 	public BinaryMapIndexReader(final RandomAccessFile raf, File file) throws IOException {
 		this.raf = raf;
 		this.file = file;
-		codedIS = CodedInputStream.newInstance(raf);
-		codedIS.setSizeLimit(CodedInputStream.MAX_DEFAULT_SIZE_LIMIT);
+		this.cursor = false;
+		codedIS = createCodedInputStream();
 		transportAdapter = new BinaryMapTransportReaderAdapter(this);
 		addressAdapter = new BinaryMapAddressReaderAdapter(this);
 		poiAdapter = new BinaryMapPoiReaderAdapter(this);
@@ -151,8 +169,8 @@ public class BinaryMapIndexReader {
 	public BinaryMapIndexReader(final RandomAccessFile raf, File file, boolean init) throws IOException {
 		this.raf = raf;
 		this.file = file;
-		codedIS = CodedInputStream.newInstance(raf);
-		codedIS.setSizeLimit(CodedInputStream.MAX_DEFAULT_SIZE_LIMIT);
+		this.cursor = false;
+		codedIS = createCodedInputStream();
 		transportAdapter = new BinaryMapTransportReaderAdapter(this);
 		addressAdapter = new BinaryMapAddressReaderAdapter(this);
 		poiAdapter = new BinaryMapPoiReaderAdapter(this);
@@ -166,8 +184,8 @@ public class BinaryMapIndexReader {
 	public BinaryMapIndexReader(final RandomAccessFile raf, BinaryMapIndexReader referenceToSameFile) throws IOException {
 		this.raf = raf;
 		this.file = referenceToSameFile.file;
-		codedIS = CodedInputStream.newInstance(raf);
-		codedIS.setSizeLimit(CodedInputStream.MAX_DEFAULT_SIZE_LIMIT);
+		this.cursor = false;
+		codedIS = createCodedInputStream();
 		version = referenceToSameFile.version;
 		dateCreated = referenceToSameFile.dateCreated;
 		transportAdapter = new BinaryMapTransportReaderAdapter(this);
@@ -187,6 +205,105 @@ public class BinaryMapIndexReader {
 	}
 
 
+	private BinaryMapIndexReader(BinaryMapIndexReader referenceToSameFile) throws IOException {
+		this.raf = referenceToSameFile.raf;
+		this.file = referenceToSameFile.file;
+		this.cursor = true;
+		// pread or slice of the shared mapping, position of the shared file descriptor is not used
+		this.mappedChunks = referenceToSameFile.mappedChunks;
+		if (mappedChunks != null) {
+			codedIS = CodedInputStream.newInstance(mappedChunks);
+		} else {
+			codedIS = CodedInputStream.newInstance(raf.getChannel());
+		}
+		codedIS.setSizeLimit(CodedInputStream.MAX_DEFAULT_SIZE_LIMIT);
+		version = referenceToSameFile.version;
+		dateCreated = referenceToSameFile.dateCreated;
+		owner = referenceToSameFile.owner;
+		transportAdapter = new BinaryMapTransportReaderAdapter(this);
+		addressAdapter = new BinaryMapAddressReaderAdapter(this);
+		poiAdapter = new BinaryMapPoiReaderAdapter(this);
+		routeAdapter = new BinaryMapRouteReaderAdapter(this);
+		hhAdapter = new BinaryHHRouteReaderAdapter(this);
+		mapIndexes = new ArrayList<BinaryMapIndexReader.MapIndex>(referenceToSameFile.mapIndexes);
+		poiIndexes = new ArrayList<PoiRegion>(referenceToSameFile.poiIndexes);
+		addressIndexes = new ArrayList<AddressRegion>(referenceToSameFile.addressIndexes);
+		transportIndexes = new ArrayList<TransportIndex>(referenceToSameFile.transportIndexes);
+		routingIndexes = new ArrayList<RouteRegion>(referenceToSameFile.routingIndexes);
+		hhIndexes = new ArrayList<HHRouteRegion>(referenceToSameFile.hhIndexes);
+		indexes = new ArrayList<BinaryIndexPart>(referenceToSameFile.indexes);
+		basemap = referenceToSameFile.basemap;
+		mapDataBlockCache = referenceToSameFile.mapDataBlockCache;
+		nameIndexTables = referenceToSameFile.nameIndexTables;
+	}
+
+	/**
+	 * Creates a reader over the same file for use from another thread. Index structure (map, poi,
+	 * address, transport, routing and hh regions) is shared, its lazily read parts are loaded
+	 * per section by the stream of the reader which needs them under the lock of the section.
+	 * The cursor only owns its input stream which reads the shared memory mapping
+	 * (see {@link #MEMORY_MAPPED_READ}) or uses positional reads, so no new file descriptor
+	 * is opened. Closing cursor doesn't close the file.
+	 */
+	public BinaryMapIndexReader createCursor() throws IOException {
+		return new BinaryMapIndexReader(this);
+	}
+
+	public boolean isCursor() {
+		return cursor;
+	}
+
+	/**
+	 * Returns idle cursor of this reader or creates new one, it should be returned by {@link #releaseCursor}
+	 * so the stream and buffers of cursor are not created for each short task.
+	 */
+	public BinaryMapIndexReader acquireCursor() throws IOException {
+		synchronized (idleCursors) {
+			if (!idleCursors.isEmpty()) {
+				return idleCursors.remove(idleCursors.size() - 1);
+			}
+		}
+		return createCursor();
+	}
+
+	public void releaseCursor(BinaryMapIndexReader c) throws IOException {
+		synchronized (idleCursors) {
+			if (codedIS != null && idleCursors.size() < MAX_IDLE_CURSORS) {
+				idleCursors.add(c);
+				return;
+			}
+		}
+		c.close();
+	}
+
+	private CodedInputStream createCodedInputStream() throws IOException {
+		CodedInputStream cis;
+		if (MEMORY_MAPPED_READ) {
+			mappedChunks = CodedInputStream.mapReadOnly(raf.getChannel());
+			cis = CodedInputStream.newInstance(mappedChunks);
+		} else {
+			cis = CodedInputStream.newInstance(raf);
+		}
+		cis.setSizeLimit(CodedInputStream.MAX_DEFAULT_SIZE_LIMIT);
+		return cis;
+	}
+
+	/**
+	 * Decoded map data blocks are taken from the cache (could be shared by several readers),
+	 * null disables caching.
+	 */
+	public void setMapDataBlockCache(MapDataBlockCache mapDataBlockCache) {
+		this.mapDataBlockCache = mapDataBlockCache;
+	}
+
+	public MapDataBlockCache getMapDataBlockCache() {
+		return mapDataBlockCache;
+	}
+
+	public boolean isMemoryMapped() {
+		return mappedChunks != null;
+	}
+
 	public long getDateCreated() {
 		return dateCreated;
 	}
@@ -954,6 +1071,33 @@ public class BinaryMapIndexReader {
 		return searchMapIndex(req, null);
 	}
 	
+	// map index and roots could be shared by cursors of the same file (see createCursor)
+	private void initMapIndex(MapIndex mapIndex) throws IOException {
+		synchronized (mapIndex) {
+			// lazy initializing rules
+			if (mapIndex.encodingRules.isEmpty()) {
+				codedIS.seek(mapIndex.filePointer);
+				long oldLimit = codedIS.pushLimitLong((long) mapIndex.length);
+				readMapIndex(mapIndex, true);
+				codedIS.popLimit(oldLimit);
+			}
+		}
+	}
+
+	private List<MapTree> initMapTrees(MapRoot index) throws IOException {
+		synchronized (index) {
+			// lazy initializing trees
+			if (index.trees == null) {
+				index.trees = new ArrayList<MapTree>();
+				codedIS.seek(index.filePointer);
+				long oldLimit = codedIS.pushLimitLong((long) index.length);
+				readMapLevel(index);
+				codedIS.popLimit(oldLimit);
+			}
+			return index.trees;
+		}
+	}
+
 	public List<BinaryMapDataObject> searchMapIndex(SearchRequest<BinaryMapDataObject> req, MapIndex filterMapIndex) throws IOException {
 		req.numberOfVisitedObjects = 0;
 		req.numberOfAcceptedObjects = 0;
@@ -964,13 +1108,7 @@ public class BinaryMapIndexReader {
 			if(filterMapIndex != null && mapIndex != filterMapIndex) {
 				continue;
 			}
-			// lazy initializing rules
-			if (mapIndex.encodingRules.isEmpty()) {
-				codedIS.seek(mapIndex.filePointer);
-				long oldLimit = codedIS.pushLimitLong((long) mapIndex.length);
-				readMapIndex(mapIndex, true);
-				codedIS.popLimit(oldLimit);
-			}
+			initMapIndex(mapIndex);
 			for (MapRoot index : mapIndex.getRoots()) {
 				if (index.minZoom <= req.zoom && index.maxZoom >= req.zoom) {
 					if (index.right < req.left || index.left > req.right || index.top > req.bottom || index.bottom < req.top) {
@@ -981,16 +1119,7 @@ public class BinaryMapIndexReader {
 						continue;
 					}
 
-					// lazy initializing trees
-					if (index.trees == null) {
-						index.trees = new ArrayList<MapTree>();
-						codedIS.seek(index.filePointer);
-						long oldLimit = codedIS.pushLimitLong((long) index.length);
-						readMapLevel(index);
-						codedIS.popLimit(oldLimit);
-					}
-
-					for (MapTree tree : index.trees) {
+					for (MapTree tree : initMapTrees(index)) {
 						if (tree.right < req.left || tree.left > req.right || tree.top > req.bottom || tree.bottom < req.top) {
 							continue;
 						}
@@ -1011,7 +1140,9 @@ public class BinaryMapIndexReader {
 						}
 					});
 					for (MapTree tree : foundSubtrees) {
-						if (!req.isCancelled()) {
+						if (!req.isCancelled() && mapDataBlockCache != null && !READ_STATS) {
+							searchMapDataBlockCache(req, tree, mapIndex, index.minZoom);
+						} else if (!req.isCancelled()) {
 							codedIS.seek(tree.mapDataBlock);
 							int length = codedIS.readRawVarint32();
 							long oldLimit = codedIS.pushLimitLong((long) length);
@@ -1033,6 +1164,39 @@ public class BinaryMapIndexReader {
 
 	
 
+	private void searchMapDataBlockCache(SearchRequest<BinaryMapDataObject> req, MapTree tree, MapIndex mapIndex,
+			int zoom) throws IOException {
+		MapDataBlockCache.MapDataBlock block = mapDataBlockCache.get(file, tree.mapDataBlock, zoom);
+		if (block == null) {
+			// decode whole block without bbox and type filters
+			SearchRequest<BinaryMapDataObject> blockReq = buildSearchRequest(0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE,
+					req.zoom, null);
+			codedIS.seek(tree.mapDataBlock);
+			int length = codedIS.readRawVarint32();
+			long oldLimit = codedIS.pushLimitLong((long) length);
+			readMapDataBlocks(blockReq, tree, mapIndex);
+			codedIS.popLimit(oldLimit);
+			block = mapDataBlockCache.put(file, tree.mapDataBlock, zoom, blockReq.getSearchResults());
+		}
+		List<BinaryMapDataObject> objects = block.getObjects();
+		for (int i = 0; i < objects.size(); i++) {
+			req.numberOfVisitedObjects++;
+			if (!block.intersects(i, req.left, req.top, req.right, req.bottom)) {
+				continue;
+			}
+			BinaryMapDataObject obj = objects.get(i);
+			if (req.searchFilter != null) {
+				req.cacheTypes.clear();
+				req.cacheTypes.add(obj.types);
+				if (!req.searchFilter.accept(req.cacheTypes, mapIndex)) {
+					continue;
+				}
+			}
+			req.numberOfAcceptedObjects++;
+			req.publish(obj);
+		}
+	}
+
 	protected void readMapDataBlocks(SearchRequest<BinaryMapDataObject> req, MapTree tree, MapIndex root) throws IOException {
 		List<BinaryMapDataObject> tempResults = null;
 		long baseId = 0;
@@ -1408,6 +1572,17 @@ public class BinaryMapIndexReader {
 		return searchAddressDataByName(req, null);
 	}
 
+	/**
+	 * Filters objects found by name with another (narrower) name query of the request
+	 */
+	public List<MapObject> filterAddressDataByName(SearchRequest<MapObject> req, List<MapObject> objects) {
+		return addressAdapter.filterAddressByName(req, objects);
+	}
+
+	public List<Amenity> filterPoiByName(SearchRequest<Amenity> req, List<Amenity> amenities) {
+		return poiAdapter.filterPoiByName(req, amenities);
+	}
+
 	public void initCategories(PoiRegion poiIndex) throws IOException {
 		poiAdapter.initCategories(poiIndex);
 	}
@@ -1719,10 +1894,49 @@ public class BinaryMapIndexReader {
 		return request;
 	}
 
+	public interface CloseListener {
+
+		void readerClosed(BinaryMapIndexReader reader);
+	}
+
+	/**
+	 * Listener is added once and called when this file (not cursor) is closed.
+	 */
+	public void addCloseListener(CloseListener l) {
+		synchronized (closeListeners) {
+			if (!closeListeners.contains(l)) {
+				closeListeners.add(l);
+			}
+		}
+	}
+
+	public void removeCloseListener(CloseListener l) {
+		synchronized (closeListeners) {
+			closeListeners.remove(l);
+		}
+	}
+
 	public void close() throws IOException {
 		if (codedIS != null) {
-			raf.close();
+			if (!cursor) {
+				raf.close();
+				List<CloseListener> listeners;
+				synchronized (closeListeners) {
+					listeners = new ArrayList<CloseListener>(closeListeners);
+					closeListeners.clear();
+				}
+				for (CloseListener l : listeners) {
+					l.readerClosed(this);
+				}
+				synchronized (idleCursors) {
+					for (BinaryMapIndexReader c : idleCursors) {
+						c.close();
+					}
+					idleCursors.clear();
+				}
+			}
 			codedIS = null;
+			mappedChunks = null;
 			mapIndexes.clear();
 			addressIndexes.clear();
 			transportIndexes.clear();
@@ -2589,6 +2803,87 @@ public class BinaryMapIndexReader {
 
 	}
 
+	/**
+	 * Reads indexed string table at current position (limit is table), with {@link #RESIDENT_NAME_INDEX}
+	 * table is read once and searched in memory.
+	 */
+	void readIndexedStringTable(Collator instance, List<String> queries, List<TIntArrayList> listOffsets, TIntArrayList matchedCharacters) throws IOException {
+		if (!RESIDENT_NAME_INDEX) {
+			readIndexedStringTable(instance, queries, "", listOffsets, matchedCharacters);
+			return;
+		}
+		getNameIndexTable().search(instance, queries, listOffsets, matchedCharacters);
+		codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
+	}
+
+	private NameIndexTable getNameIndexTable() throws IOException {
+		long pointer = codedIS.getTotalBytesRead();
+		synchronized (nameIndexTables) {
+			TLongObjectHashMap<NameIndexTable> tables = nameIndexTables.tables;
+			File stored = new File(file.getParentFile(), file.getName() + NameIndexTable.EXT);
+			if (STORE_NAME_INDEX && !nameIndexTables.stored) {
+				nameIndexTables.stored = true;
+				try {
+					TLongObjectHashMap<NameIndexTable> s = NameIndexTable.readFile(stored, file);
+					if (s != null) {
+						tables.putAll(s);
+					}
+				} catch (IOException e) {
+					log.warn("Error reading " + stored.getName() + ": " + e.getMessage());
+				}
+			}
+			NameIndexTable table = tables.get(pointer);
+			if (table == null) {
+				table = new NameIndexTable();
+				loadIndexedStringTable(table);
+				tables.put(pointer, table);
+				if (STORE_NAME_INDEX) {
+					try {
+						NameIndexTable.writeFile(stored, file, tables);
+					} catch (IOException e) {
+						log.warn("Error writing " + stored.getName() + ": " + e.getMessage());
+					}
+				}
+			}
+			return table;
+		}
+	}
+
+	// keys are kept as in file (suffix of parent key)
+	private void loadIndexedStringTable(NameIndexTable table) throws IOException {
+		String key = null;
+		while (true) {
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			switch (tag) {
+			case 0:
+				return;
+			case OsmandOdb.IndexedStringTable.KEY_FIELD_NUMBER :
+				key = codedIS.readString();
+				table.addKey(key);
+				break;
+			case OsmandOdb.IndexedStringTable.VAL_FIELD_NUMBER :
+				table.addValue((int) readInt());
+				break;
+			case OsmandOdb.IndexedStringTable.SUBTABLES_FIELD_NUMBER :
+				long len = codedIS.readRawVarint32();
+				long oldLim = codedIS.pushLimitLong((long) len);
+				int entry = table.startSubtable();
+				if (key != null) {
+					loadIndexedStringTable(table);
+				} else {
+					codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
+				}
+				table.endSubtable(entry);
+				codedIS.popLimit(oldLim);
+				break;
+			default:
+				skipUnknownField(t);
+				break;
+			}
+		}
+	}
+
 	void readIndexedStringTable(Collator instance, List<String> queries, String prefix, List<TIntArrayList> listOffsets, TIntArrayList matchedCharacters) throws IOException {
 		String key = null;
 		boolean[] matched = new boolean[matchedCharacters.size()];
@@ -28,6 +28,7 @@ import org.apache.commons.logging.Log;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class BinaryMapPoiReaderAdapter {
 	private static final Log LOG = PlatformUtil.getLog(BinaryMapPoiReaderAdapter.class);
@@ -56,7 +57,8 @@ public class BinaryMapPoiReaderAdapter {
 		List<List<String>> subcategories = new ArrayList<List<String>>();
 		List<PoiSubType> subTypes = new ArrayList<PoiSubType>();
 		List<PoiSubType> topIndexSubTypes = new ArrayList<PoiSubType>();
-		Map<Integer, List<TagValuePair>> tagGroups = new HashMap<>();
+		// filled by searches of cursors sharing the region
+		Map<Integer, List<TagValuePair>> tagGroups = new ConcurrentHashMap<>();
 		QuadTree<Void> bboxIndexCache = new QuadTree<Void>(new QuadRect(0, 0, Integer.MAX_VALUE, Integer.MAX_VALUE),
 				8, 0.55f);
 		static boolean MAP_HAS_TAG_GROUPS = false;
@@ -299,11 +301,14 @@ public class BinaryMapPoiReaderAdapter {
 	}
 
 	public void initCategories(PoiRegion region) throws IOException {
-		if (region.categories.isEmpty()) {
-			codedIS.seek(region.filePointer);
-			long oldLimit = codedIS.pushLimitLong((long) region.length);
-			readPoiIndex(region, true);
-			codedIS.popLimit(oldLimit);
+		// region could be shared by cursors of the same file, it is read by stream of the calling reader
+		synchronized (region) {
+			if (region.categories.isEmpty()) {
+				codedIS.seek(region.filePointer);
+				long oldLimit = codedIS.pushLimitLong((long) region.length);
+				readPoiIndex(region, true);
+				codedIS.popLimit(oldLimit);
+			}
 		}
 	}
 
@@ -428,7 +433,7 @@ public class BinaryMapPoiReaderAdapter {
 					charsList.add(0);
 					listOffsets.add(new TIntArrayList());
 				}
-				map.readIndexedStringTable(instance, queries, "", listOffsets, charsList);
+				map.readIndexedStringTable(instance, queries, listOffsets, charsList);
 				codedIS.popLimit(oldLimit);
 				break;
 			}
@@ -533,7 +538,9 @@ public class BinaryMapPoiReaderAdapter {
 				}
 
 				List<Void> bboxResult = new ArrayList<>();
-				region.bboxIndexCache.queryInBox(new QuadRect(x31, y31, x31, y31), bboxResult);
+				synchronized (region.bboxIndexCache) {
+					region.bboxIndexCache.queryInBox(new QuadRect(x31, y31, x31, y31), bboxResult);
+				}
 				if (bboxResult.size() == 0) {
 					nameIndexCoordinates.add(x31);
 					nameIndexCoordinates.add(y31);
@@ -641,34 +648,9 @@ public class BinaryMapPoiReaderAdapter {
 				long oldLim = codedIS.pushLimitLong((long) len);
 				Amenity am = readPoiPoint(0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE, x, y, zoom, req, region, false);
 				codedIS.popLimit(oldLim);
-				if (am != null) {
-					boolean matches = matcher.matches(am.getName().toLowerCase())
-							|| matcher.matches(am.getEnName(true).toLowerCase());
-					if (!matches) {
-						for (String s : am.getOtherNames()) {
-							matches = matcher.matches(s.toLowerCase());
-							if (matches) {
-								break;
-							}
-						}
-						if (!matches) {
-							for (String key : am.getAdditionalInfoKeys()) {
-								if (!key.contains("_name") && !key.equals("brand") &&
-										!key.contains("wikidata") && !key.equals("route_id") &&
-										!key.equals("route_members_ids")) {
-									continue;
-								}
-								matches = matcher.matches(am.getAdditionalInfo(key));
-								if (matches) {
-									break;
-								}
-							}
-						}
-					}
-					if (matches) {
-						req.collectRawData(am);
-						req.publish(am);
-					}
+				if (am != null && matchesName(matcher, am)) {
+					req.collectRawData(am);
+					req.publish(am);
 				}
 				break;
 			default:
@@ -678,6 +660,45 @@ public class BinaryMapPoiReaderAdapter {
 		}
 	}
 
+	private static boolean matchesName(CollatorStringMatcher matcher, Amenity am) {
+		boolean matches = matcher.matches(am.getName().toLowerCase())
+				|| matcher.matches(am.getEnName(true).toLowerCase());
+		if (!matches) {
+			for (String s : am.getOtherNames()) {
+				matches = matcher.matches(s.toLowerCase());
+				if (matches) {
+					break;
+				}
+			}
+			if (!matches) {
+				for (String key : am.getAdditionalInfoKeys()) {
+					if (!key.contains("_name") && !key.equals("brand") &&
+							!key.contains("wikidata") && !key.equals("route_id") &&
+							!key.equals("route_members_ids")) {
+						continue;
+					}
+					matches = matcher.matches(am.getAdditionalInfo(key));
+					if (matches) {
+						break;
+					}
+				}
+			}
+		}
+		return matches;
+	}
+
+	protected List<Amenity> filterPoiByName(SearchRequest<Amenity> req, List<Amenity> amenities) {
+		CollatorStringMatcher matcher = new CollatorStringMatcher(normalizeSearchPoiByNameQuery(req.nameQuery),
+				req.matcherMode);
+		List<Amenity> res = new ArrayList<>();
+		for (Amenity am : amenities) {
+			if (matchesName(matcher, am)) {
+				res.add(am);
+			}
+		}
+		return res;
+	}
+
 	private boolean readPoiData(int left31, int right31, int top31, int bottom31,
 			SearchRequest<Amenity> req, PoiRegion region, TLongHashSet toSkip, int zSkip) throws IOException {
 		int x = 0;
@@ -1057,7 +1078,9 @@ public class BinaryMapPoiReaderAdapter {
 					QuadRect rect = new QuadRect(xL, yT, xR, yB);
 					if (PoiRegion.MAP_HAS_TAG_GROUPS && nameIndexTree != null) {
 						List<Void> resCache = new ArrayList<>();
-						region.bboxIndexCache.queryInBox(rect, resCache);
+						synchronized (region.bboxIndexCache) {
+							region.bboxIndexCache.queryInBox(rect, resCache);
+						}
 						if (resCache.size() == 0) {
 							List<Void> res = new ArrayList<>();
 							nameIndexTree.queryInBox(rect, res);
@@ -1071,7 +1094,9 @@ public class BinaryMapPoiReaderAdapter {
 					}
 					req.numberOfAcceptedSubtrees++;
 					checkBox = false;
-					region.bboxIndexCache.insert(null, rect);
+					synchronized (region.bboxIndexCache) {
+						region.bboxIndexCache.insert(null, rect);
+					}
 				}
 
 				long length = readInt();
@@ -15,6 +15,7 @@ import net.osmand.binary.OsmandOdb.RestrictionData;
 import net.osmand.binary.OsmandOdb.RouteData;
 import net.osmand.binary.RouteDataObject.RestrictionInfo;
 import net.osmand.util.Algorithms;
+import net.osmand.util.IntArrayInterner;
 import net.osmand.util.MapUtils;
 import net.osmand.util.OpeningHoursParser;
 
@@ -328,6 +329,8 @@ public class BinaryMapRouteReaderAdapter {
 		public Map<String, Integer> decodingRules = null;
 		List<RouteSubregion> subregions = new ArrayList<RouteSubregion>();
 		List<RouteSubregion> basesubregions = new ArrayList<RouteSubregion>();
+		// distinct combinations of object types (routers cache evaluated attributes by combination id)
+		private final IntArrayInterner typesCombinations = new IntArrayInterner();
 		
 		public int directionForward = -1;
 		public int directionBackward = -1;
@@ -452,6 +455,10 @@ public class BinaryMapRouteReaderAdapter {
 			return basesubregions;
 		}
 
+		public IntArrayInterner.Entry internTypes(int[] types) {
+			return typesCombinations.intern(types);
+		}
+
 		public double getLeftLongitude() {
 			double l = 180;
 			for (RouteSubregion s : subregions) {
@@ -577,6 +584,7 @@ public class BinaryMapRouteReaderAdapter {
 					}
 				}
 			}
+			rdo.internTypes();
 			return rdo;
 		}
 
@@ -769,6 +777,7 @@ public class BinaryMapRouteReaderAdapter {
 						}
 					}
 				}
+				o.internTypes();
 				return o;
 			case RouteData.TYPES_FIELD_NUMBER:
 				int len = codedIS.readRawVarint32();
@@ -855,9 +864,10 @@ public class BinaryMapRouteReaderAdapter {
 			}
 		}
 	}
-	private void readRouteTreeData(RouteSubregion routeTree,  TLongArrayList idTables,
+	private List<RouteDataObject> readRouteTreeData(RouteSubregion routeTree,  TLongArrayList idTables,
 			TLongObjectHashMap<RestrictionInfo> restrictions) throws IOException {
-		routeTree.dataObjects = new ArrayList<RouteDataObject>();
+		// objects are not stored in shared route tree, so the tree could be read by several readers
+		List<RouteDataObject> dataObjects = new ArrayList<RouteDataObject>();
 		idTables.clear();
 		restrictions.clear();
 		List<String> stringTable = null;
@@ -870,7 +880,7 @@ public class BinaryMapRouteReaderAdapter {
 				while (it.hasNext()) {
 					it.advance();
 					int from = (int) it.key();
-					RouteDataObject fromr = routeTree.dataObjects.get(from);
+					RouteDataObject fromr = dataObjects.get(from);
 					fromr.restrictions = new long[it.value().length()];
 					RestrictionInfo val = it.value();
 					for (int k = 0; k < fromr.restrictions.length; k++) {
@@ -885,7 +895,7 @@ public class BinaryMapRouteReaderAdapter {
 					}
 //					fromr.restrictionsVia = new 
 				}
-				for (RouteDataObject o : routeTree.dataObjects) {
+				for (RouteDataObject o : dataObjects) {
 					if (o != null) {
 						if (o.id < idTables.size()) {
 							o.id = idTables.get((int) o.id);
@@ -907,15 +917,15 @@ public class BinaryMapRouteReaderAdapter {
 						}
 					}
 				}
-				return;
+				return dataObjects;
 			case RouteDataBlock.DATAOBJECTS_FIELD_NUMBER:
 				int length = codedIS.readRawVarint32();
 				long oldLimit = codedIS.pushLimitLong((long) length);
 				RouteDataObject obj = readRouteDataObject(routeTree.routeReg, routeTree.left, routeTree.top);
-				while (obj.id >= routeTree.dataObjects.size()) {
-					routeTree.dataObjects.add(null);
+				while (obj.id >= dataObjects.size()) {
+					dataObjects.add(null);
 				}
-				routeTree.dataObjects.set((int) obj.id, obj);
+				dataObjects.set((int) obj.id, obj);
 				codedIS.popLimit(oldLimit);
 				break;
 			case RouteDataBlock.IDTABLE_FIELD_NUMBER:
@@ -1096,11 +1106,27 @@ public class BinaryMapRouteReaderAdapter {
 	}
 
 	public void initRouteRegion(RouteRegion routeReg) throws IOException, InvalidProtocolBufferException {
-		if (routeReg.routeEncodingRules.isEmpty()) {
-			codedIS.seek(routeReg.filePointer);
-			long oldLimit = codedIS.pushLimitLong((long) routeReg.length);
-			readRouteIndex(routeReg);
-			codedIS.popLimit(oldLimit);
+		// region could be shared by cursors of the same file, it is read by stream of the calling reader
+		synchronized (routeReg) {
+			if (routeReg.routeEncodingRules.isEmpty()) {
+				codedIS.seek(routeReg.filePointer);
+				long oldLimit = codedIS.pushLimitLong((long) routeReg.length);
+				readRouteIndex(routeReg);
+				codedIS.popLimit(oldLimit);
+			}
+		}
+	}
+
+	private List<RouteSubregion> initRouteSubregion(RouteSubregion rs, int depth) throws IOException {
+		// subregion could be shared by cursors of the same file (see initRouteRegion)
+		synchronized (rs) {
+			if (rs.subregions == null) {
+				codedIS.seek(rs.filePointer);
+				long old = codedIS.pushLimitLong((long) rs.length);
+				readRouteTree(rs, null, depth, false);
+				codedIS.popLimit(old);
+			}
+			return rs.subregions;
 		}
 	}
 
@@ -1108,14 +1134,14 @@ public class BinaryMapRouteReaderAdapter {
 	public List<RouteDataObject> loadRouteRegionData(RouteSubregion rs) throws IOException {
 		TLongArrayList idMap = new TLongArrayList();
 		TLongObjectHashMap<RestrictionInfo> restrictionMap = new TLongObjectHashMap<RestrictionInfo>();
-		if (rs.dataObjects == null) {
+		List<RouteDataObject> res = rs.dataObjects;
+		if (res == null) {
 			codedIS.seek(rs.filePointer + rs.shiftToData);
 			int limit = codedIS.readRawVarint32();
 			long oldLimit = codedIS.pushLimitLong((long) limit);
-			readRouteTreeData(rs, idMap, restrictionMap);
+			res = readRouteTreeData(rs, idMap, restrictionMap);
 			codedIS.popLimit(oldLimit);
 		}
-		List<RouteDataObject> res = rs.dataObjects;
 		rs.dataObjects = null;
 		return res;
 	}
@@ -1132,14 +1158,15 @@ public class BinaryMapRouteReaderAdapter {
 		TLongArrayList idMap = new TLongArrayList();
 		TLongObjectHashMap<RestrictionInfo> restrictionMap = new TLongObjectHashMap<RestrictionInfo>();
 		for (RouteSubregion rs : toLoad) {
-			if (rs.dataObjects == null) {
+			List<RouteDataObject> dataObjects = rs.dataObjects;
+			if (dataObjects == null) {
 				codedIS.seek(rs.filePointer + rs.shiftToData);
 				int limit = codedIS.readRawVarint32();
 				long oldLimit = codedIS.pushLimitLong((long) limit);
-				readRouteTreeData(rs, idMap, restrictionMap);
+				dataObjects = readRouteTreeData(rs, idMap, restrictionMap);
 				codedIS.popLimit(oldLimit);
 			}
-			for (RouteDataObject ro : rs.dataObjects) {
+			for (RouteDataObject ro : dataObjects) {
 				if (ro != null) {
 					matcher.publish(ro);
 				}
@@ -1159,13 +1186,9 @@ public class BinaryMapRouteReaderAdapter {
 			List<RouteSubregion> toLoad) throws IOException {
 		for (RouteSubregion rs : list) {
 			if (req.intersects(rs.left, rs.top, rs.right, rs.bottom)) {
-				if (rs.subregions == null) {
-					codedIS.seek(rs.filePointer);
-					long old = codedIS.pushLimitLong((long) rs.length);
-					readRouteTree(rs, null, req.contains(rs.left, rs.top, rs.right, rs.bottom) ? -1 : 1, false);
-					codedIS.popLimit(old);
-				}
-				searchRouteRegionTree(req, rs.subregions, toLoad);
+				List<RouteSubregion> subregions = initRouteSubregion(rs,
+						req.contains(rs.left, rs.top, rs.right, rs.bottom) ? -1 : 1);
+				searchRouteRegionTree(req, subregions, toLoad);
 
 				if (rs.shiftToData != 0) {
 					toLoad.add(rs);
@@ -1180,13 +1203,9 @@ public class BinaryMapRouteReaderAdapter {
 			List<RouteSubregion> toLoad) throws IOException {
 		for (RouteSubregion rs : list) {
 			if (req.intersects(rs.left, rs.top, rs.right, rs.bottom)) {
-				if (rs.subregions == null) {
-					codedIS.seek(rs.filePointer);
-					long old = codedIS.pushLimitLong((long) rs.length);
-					readRouteTree(rs, null, req.contains(rs.left, rs.top, rs.right, rs.bottom) ? -1 : 1, false);
-					codedIS.popLimit(old);
-				}
-				searchRouteRegionTree(req, rs.subregions, toLoad);
+				List<RouteSubregion> subregions = initRouteSubregion(rs,
+						req.contains(rs.left, rs.top, rs.right, rs.bottom) ? -1 : 1);
+				searchRouteRegionTree(req, subregions, toLoad);
 				if (rs.shiftToData != 0) {
 					toLoad.add(rs);
 				}
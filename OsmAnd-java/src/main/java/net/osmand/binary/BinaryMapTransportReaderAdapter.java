@@ -492,28 +492,31 @@ public class BinaryMapTransportReaderAdapter {
 
 	protected TIntObjectHashMap<String> initializeStringTable(TransportIndex ind,
 			TIntObjectHashMap<String> requested) throws IOException {
-		if (ind.stringTable.stringTable == null) {
-			ind.stringTable.stringTable = new TIntObjectHashMap<>();
-			codedIS.seek(ind.stringTable.fileOffset);
-			long oldLimit = codedIS.pushLimitLong((long) ind.stringTable.length);
-			int current = 0;
-			while (codedIS.getBytesUntilLimit() > 0) {
-				int t = codedIS.readTag();
-				int tag = WireFormat.getTagFieldNumber(t);
-				switch (tag) {
-				case 0:
-					break;
-				case OsmandOdb.StringTable.S_FIELD_NUMBER:
-					String value = codedIS.readString();
-					ind.stringTable.stringTable.put(current, value);
-					current++;
-					break;
-				default:
-					skipUnknownField(t);
-					break;
+		// shared by reader cursors
+		synchronized (ind.stringTable) {
+			if (ind.stringTable.stringTable == null) {
+				ind.stringTable.stringTable = new TIntObjectHashMap<>();
+				codedIS.seek(ind.stringTable.fileOffset);
+				long oldLimit = codedIS.pushLimitLong((long) ind.stringTable.length);
+				int current = 0;
+				while (codedIS.getBytesUntilLimit() > 0) {
+					int t = codedIS.readTag();
+					int tag = WireFormat.getTagFieldNumber(t);
+					switch (tag) {
+					case 0:
+						break;
+					case OsmandOdb.StringTable.S_FIELD_NUMBER:
+						String value = codedIS.readString();
+						ind.stringTable.stringTable.put(current, value);
+						current++;
+						break;
+					default:
+						skipUnknownField(t);
+						break;
+					}
 				}
+				codedIS.popLimit(oldLimit);
 			}
-			codedIS.popLimit(oldLimit);
 		}
 		return ind.stringTable.stringTable;
 	}
@@ -23,6 +23,8 @@ import net.osmand.binary.OsmandIndex.PoiPart;
 import net.osmand.binary.OsmandIndex.RoutingPart;
 import net.osmand.binary.OsmandIndex.RoutingSubregion;
 import net.osmand.binary.OsmandIndex.TransportPart;
+import net.osmand.osm.MapPoiTypes;
+import net.osmand.util.ParallelTasks;
 
 import org.apache.commons.logging.Log;
 
@@ -31,44 +33,45 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 public class CachedOsmandIndexes {
 
 	private OsmAndStoredIndex storedIndex;
-	private OsmAndStoredIndex.Builder storedIndexBuilder;
+	// stored index by file name and size (first one if there are duplicates)
+	private Map<String, FileIndex> storedIndexByNameSize;
+	// file indexes to write by file name (stored and added ones, stored could have same names)
+	private LinkedHashMap<String, List<FileIndex>> cachedIndexes;
 	private Log log = PlatformUtil.getLog(CachedOsmandIndexes.class);
 	private boolean hasChanged = false;
 	public static final String INDEXES_DEFAULT_FILENAME = "indexes.cache";
 
 	public static final int VERSION = 5;// synchronize with binaryRead.cpp CACHE_VERSION
+	// threads to initialize files missing in cache by getReaders
+	public static int PARALLEL_INIT_THREADS = 4;
 
-	public FileIndex addToCache(BinaryMapIndexReader reader, File f) {
+	public synchronized FileIndex addToCache(BinaryMapIndexReader reader, File f) {
 		hasChanged = true;
-		if (storedIndexBuilder == null) {
-			storedIndexBuilder = OsmandIndex.OsmAndStoredIndex.newBuilder();
-			storedIndexBuilder.setVersion(VERSION);
-			storedIndexBuilder.setDateCreated(System.currentTimeMillis());
+		if (cachedIndexes == null) {
+			cachedIndexes = new LinkedHashMap<String, List<FileIndex>>();
 			if (storedIndex != null) {
 				for (FileIndex ex : storedIndex.getFileIndexList()) {
-					if (!ex.getFileName().equals(f.getName())) {
-						storedIndexBuilder.addFileIndex(ex);
+					List<FileIndex> list = cachedIndexes.get(ex.getFileName());
+					if (list == null) {
+						list = new ArrayList<FileIndex>(1);
+						cachedIndexes.put(ex.getFileName(), list);
 					}
+					list.add(ex);
 				}
 			}
-		} else {
-			int found = -1;
-			List<FileIndex> fileIndexList = storedIndexBuilder.getFileIndexList();
-			for (int i = 0; i < fileIndexList.size(); i++) {
-				if (fileIndexList.get(i).getFileName().equals(f.getName())) {
-					found = i;
-					break;
-				}
-			}
-			if (found >= 0) {
-				storedIndexBuilder.removeFileIndex(found);
-			}
 		}
+		cachedIndexes.remove(f.getName());
 
 		FileIndex.Builder fileIndex = OsmandIndex.FileIndex.newBuilder();
 		long d = reader.getDateCreated();
@@ -191,7 +194,9 @@ public class CachedOsmandIndexes {
 		}
 
 		FileIndex fi = fileIndex.build();
-		storedIndexBuilder.addFileIndex(fi);
+		List<FileIndex> list = new ArrayList<FileIndex>(1);
+		list.add(fi);
+		cachedIndexes.put(f.getName(), list);
 		return fi;
 	}
 
@@ -226,18 +231,159 @@ public class CachedOsmandIndexes {
 	}
 
 
-	public FileIndex getFileIndex(File f, boolean init) throws IOException {
-		FileIndex found = null;
-		if (storedIndex != null) {
-			for (int i = 0; i < storedIndex.getFileIndexCount(); i++) {
-				FileIndex fi = storedIndex.getFileIndex(i);
-				if (f.length() == fi.getSize() && f.getName().equals(fi.getFileName())) {
-					// f.lastModified() == fi.getDateModified()
-					found = fi;
+	/**
+	 * Returns readers of files in the same order (null if file couldn't be read). Files missing in cache are
+	 * initialized in parallel ({@link #PARALLEL_INIT_THREADS}) and added to cache in files order, cache is written
+	 * once to cacheFile (if it is not null) when all files are read.
+	 */
+	public List<BinaryMapIndexReader> getReaders(List<File> files, boolean useStoredIndex, File cacheFile) {
+		List<BinaryMapIndexReader> readers = new ArrayList<BinaryMapIndexReader>();
+		List<Callable<BinaryMapIndexReader>> callables = new ArrayList<Callable<BinaryMapIndexReader>>();
+		// index of file for every task
+		List<Integer> taskFiles = new ArrayList<Integer>();
+		// readers initialized by tasks and not taken yet, closed if getReaders is interrupted
+		final BinaryMapIndexReader[] initialized = new BinaryMapIndexReader[files.size()];
+		final boolean[] abandoned = new boolean[1];
+		for (int i = 0; i < files.size(); i++) {
+			final File f = files.get(i);
+			final int ind = i;
+			FileIndex found = useStoredIndex ? findStoredIndex(f) : null;
+			if (found != null) {
+				try {
+					readers.add(initReaderFromFileIndex(found, f));
+				} catch (IOException e) {
+					log.error("Error reading " + f.getName() + ": " + e.getMessage(), e);
+					readers.add(null);
+				}
+			} else {
+				if (callables.isEmpty()) {
+					// poi types are loaded lazily and not thread safe, load them before readers are created
+					MapPoiTypes.getDefault();
+				}
+				taskFiles.add(i);
+				callables.add(new Callable<BinaryMapIndexReader>() {
+					@Override
+					public BinaryMapIndexReader call() throws Exception {
+						BinaryMapIndexReader reader = initReader(f);
+						synchronized (initialized) {
+							if (abandoned[0]) {
+								reader.close();
+								return null;
+							}
+							initialized[ind] = reader;
+						}
+						return reader;
+					}
+				});
+				readers.add(null);
+			}
+		}
+		// tasks not taken by shared pool are run by calling thread
+		ParallelTasks<BinaryMapIndexReader> tasks = new ParallelTasks<BinaryMapIndexReader>(callables)
+				.start(PARALLEL_INIT_THREADS);
+		try {
+			for (int t = 0; t < tasks.size(); t++) {
+				int i = taskFiles.get(t);
+				File f = files.get(i);
+				try {
+					BinaryMapIndexReader reader = tasks.get(t);
+					synchronized (initialized) {
+						initialized[i] = null;
+					}
+					addToCache(reader, f);
+					readers.set(i, reader);
+				} catch (ExecutionException e) {
+					log.error("Error reading " + f.getName() + ": " + e.getCause().getMessage(), e.getCause());
+				} catch (InterruptedException e) {
+					log.error("Interrupted reading " + f.getName(), e);
+					Thread.currentThread().interrupt();
 					break;
 				}
 			}
+		} finally {
+			tasks.cancel(true);
+			synchronized (initialized) {
+				abandoned[0] = true;
+				for (BinaryMapIndexReader reader : initialized) {
+					if (reader != null) {
+						closeReader(reader);
+					}
+				}
+			}
+		}
+		if (cacheFile != null) {
+			try {
+				writeToFile(cacheFile);
+			} catch (IOException e) {
+				log.error("Error writing " + cacheFile.getName() + ": " + e.getMessage(), e);
+			}
+		}
+		return readers;
+	}
+
+	private BinaryMapIndexReader initReaderFromFileIndex(FileIndex found, File f) throws IOException {
+		RandomAccessFile mf = new RandomAccessFile(f.getPath(), "r");
+		try {
+			return initReaderFromFileIndex(found, mf, f);
+		} catch (IOException e) {
+			mf.close();
+			throw e;
+		} catch (RuntimeException e) {
+			mf.close();
+			throw e;
+		}
+	}
+
+	private void closeReader(BinaryMapIndexReader reader) {
+		try {
+			reader.close();
+		} catch (IOException e) {
+			log.error("Error closing " + reader.getFile().getName() + ": " + e.getMessage(), e);
+		}
+	}
+
+	private BinaryMapIndexReader initReader(File f) throws IOException {
+		RandomAccessFile mf = new RandomAccessFile(f.getPath(), "r");
+		long val = System.currentTimeMillis();
+		try {
+			BinaryMapIndexReader reader = new BinaryMapIndexReader(mf, f);
+			if (log.isDebugEnabled()) {
+				log.debug("Initializing db " + f.getAbsolutePath() + " " + (System.currentTimeMillis() - val) + "ms"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			}
+			return reader;
+		} catch (IOException e) {
+			mf.close();
+			throw e;
+		} catch (RuntimeException e) {
+			mf.close();
+			throw e;
+		}
+	}
+
+	private synchronized FileIndex findStoredIndex(File f) {
+		if (storedIndex == null) {
+			return null;
+		}
+		if (storedIndexByNameSize == null) {
+			Map<String, FileIndex> byNameSize = new HashMap<String, FileIndex>();
+			for (FileIndex fi : storedIndex.getFileIndexList()) {
+				String key = storedIndexKey(fi.getFileName(), fi.getSize());
+				if (!byNameSize.containsKey(key)) {
+					byNameSize.put(key, fi);
+				}
+			}
+			storedIndexByNameSize = byNameSize;
 		}
+		// f.lastModified() == fi.getDateModified()
+		return storedIndexByNameSize.get(storedIndexKey(f.getName(), f.length()));
+	}
+
+	private static String storedIndexKey(String fileName, long size) {
+		return fileName + "/" + size;
+	}
+
+	public FileIndex getFileIndex(File f, boolean init) throws IOException {
+		FileIndex found = findStoredIndex(f);
 		if (found == null && init) {
 			RandomAccessFile mf = new RandomAccessFile(f.getPath(), "r");
 			long val = System.currentTimeMillis();
@@ -377,11 +523,12 @@ public class CachedOsmandIndexes {
 	}
 	
 
-	public void readFromFile(File f) throws IOException {
+	public synchronized void readFromFile(File f) throws IOException {
 		long time = System.currentTimeMillis();
 		FileInputStream is = new FileInputStream(f);
 		try {
 			storedIndex = OsmandIndex.OsmAndStoredIndex.newBuilder().mergeFrom(is).build();
+			storedIndexByNameSize = null;
 			hasChanged = false;
 			if (storedIndex.getVersion() != CachedOsmandIndexes.VERSION) {
 				storedIndex = null;
@@ -392,14 +539,21 @@ public class CachedOsmandIndexes {
 		log.info("Initialize cache " + f.getName() + " " + (System.currentTimeMillis() - time) + " ms");
 	}
 
-	public void writeToFile(File f) throws IOException {
+	public synchronized void writeToFile(File f) throws IOException {
 		if (hasChanged) {
 			FileOutputStream outputStream = new FileOutputStream(f);
 			try {
+				OsmAndStoredIndex.Builder storedIndexBuilder = OsmandIndex.OsmAndStoredIndex.newBuilder();
+				storedIndexBuilder.setVersion(VERSION);
+				storedIndexBuilder.setDateCreated(System.currentTimeMillis());
+				for (List<FileIndex> list : cachedIndexes.values()) {
+					storedIndexBuilder.addAllFileIndex(list);
+				}
 				storedIndexBuilder.build().writeTo(outputStream);
 			} finally {
 				outputStream.close();
 			}
+			hasChanged = false;
 		}
 	}
 
@@ -13,20 +13,32 @@ import net.osmand.data.Street;
 import net.osmand.router.BinaryRoutePlanner;
 import net.osmand.router.BinaryRoutePlanner.RouteSegmentPoint;
 import net.osmand.router.RoutePlannerFrontEnd;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
+import net.osmand.router.RoutingConfiguration;
 import net.osmand.router.RoutingContext;
 import net.osmand.util.Algorithms;
 import net.osmand.util.MapUtils;
+import net.osmand.util.ParallelTasks;
 import org.apache.commons.logging.Log;
 
 import java.io.IOException;
 import java.text.Collator;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class GeocodingUtilities {
 
@@ -44,6 +56,9 @@ public class GeocodingUtilities {
 	public static final float THRESHOLD_MULTIPLIER_SKIP_BUILDINGS_AFTER = 1.5f;
 	public static final float DISTANCE_BUILDING_PROXIMITY = 100;
 
+	// points of batch search taken by worker at once (in order of curve)
+	public static final int BATCH_SEARCH_CHUNK = 64;
+
 
 	public static final Comparator<GeocodingResult> DISTANCE_COMPARATOR = new Comparator<GeocodingResult>() {
 
@@ -234,6 +249,12 @@ public class GeocodingUtilities {
 
 	public List<GeocodingResult> justifyReverseGeocodingSearch(final GeocodingResult road, BinaryMapIndexReader reader,
 			double knownMinBuildingDistance, final ResultMatcher<GeocodingResult> result) throws IOException {
+		return justifyReverseGeocodingSearch(road, reader, knownMinBuildingDistance, result, null);
+	}
+
+	public List<GeocodingResult> justifyReverseGeocodingSearch(final GeocodingResult road, BinaryMapIndexReader reader,
+			double knownMinBuildingDistance, final ResultMatcher<GeocodingResult> result, AddressStreetCache cache)
+			throws IOException {
 		// test address index search
 		final List<GeocodingResult> streetsList = new ArrayList<GeocodingResult>();
 		boolean addCommonWords = false;
@@ -253,37 +274,27 @@ public class GeocodingUtilities {
 					mainWord = s;
 				}
 			}
-			SearchRequest<MapObject> req = BinaryMapIndexReader.buildAddressByNameRequest(
-					new ResultMatcher<MapObject>() {
-						@Override
-						public boolean publish(MapObject object) {
-							if (object instanceof Street
-									&& prepareStreetName(object.getName(), addCommonWordsFinal).equals(streetNamesUsedFinal)) {
-								double d = MapUtils.getDistance(object.getLocation(), road.searchPoint.getLatitude(),
-										road.searchPoint.getLongitude());
-								// double check to suport old format
-								if (d < DISTANCE_STREET_NAME_PROXIMITY_BY_NAME) {
-									GeocodingResult rs = new GeocodingResult(road);
-									rs.street = (Street) object;
-									// set connection point to sort
-									rs.connectionPoint = rs.street.getLocation();
-									rs.city = rs.street.getCity();
-									rs.dist = d;
-									streetsList.add(rs);
-									return true;
-								}
-								return false;
+			if (cache != null) {
+				for (Street street : cache.searchStreets(reader, mainWord, road.getLocation())) {
+					addStreet(road, street, addCommonWordsFinal, streetNamesUsedFinal, streetsList);
+				}
+			} else {
+				SearchRequest<MapObject> req = BinaryMapIndexReader.buildAddressByNameRequest(
+						new ResultMatcher<MapObject>() {
+							@Override
+							public boolean publish(MapObject object) {
+								return object instanceof Street
+										&& addStreet(road, (Street) object, addCommonWordsFinal, streetNamesUsedFinal, streetsList);
 							}
-							return false;
-						}
 
-						@Override
-						public boolean isCancelled() {
-							return result != null && result.isCancelled();
-						}
-					}, mainWord, StringMatcherMode.CHECK_EQUALS_FROM_SPACE);
-			req.setBBoxRadius(road.getLocation().getLatitude(), road.getLocation().getLongitude(), DISTANCE_STREET_NAME_PROXIMITY_BY_NAME);
-			reader.searchAddressDataByName(req);
+							@Override
+							public boolean isCancelled() {
+								return result != null && result.isCancelled();
+							}
+						}, mainWord, StringMatcherMode.CHECK_EQUALS_FROM_SPACE);
+				req.setBBoxRadius(road.getLocation().getLatitude(), road.getLocation().getLongitude(), DISTANCE_STREET_NAME_PROXIMITY_BY_NAME);
+				reader.searchAddressDataByName(req);
+			}
 		}
 
 		final List<GeocodingResult> res = new ArrayList<GeocodingResult>();
@@ -301,7 +312,7 @@ public class GeocodingUtilities {
 				}
 				street.resetDistance();//reset to road projection
 				street.connectionPoint = road.connectionPoint;
-				final List<GeocodingResult> streetBuildings = loadStreetBuildings(road, reader, street);
+				final List<GeocodingResult> streetBuildings = loadStreetBuildings(road, reader, street, cache);
 				Collections.sort(streetBuildings, DISTANCE_COMPARATOR);
 				if (streetBuildings.size() > 0) {
 					Iterator<GeocodingResult> it = streetBuildings.iterator();
@@ -327,6 +338,26 @@ public class GeocodingUtilities {
 		return res;
 	}
 
+	private boolean addStreet(GeocodingResult road, Street street, boolean addCommonWords, List<String> streetNamesUsed,
+			List<GeocodingResult> streetsList) {
+		if (prepareStreetName(street.getName(), addCommonWords).equals(streetNamesUsed)) {
+			double d = MapUtils.getDistance(street.getLocation(), road.searchPoint.getLatitude(),
+					road.searchPoint.getLongitude());
+			// double check to suport old format
+			if (d < DISTANCE_STREET_NAME_PROXIMITY_BY_NAME) {
+				GeocodingResult rs = new GeocodingResult(road);
+				rs.street = street;
+				// set connection point to sort
+				rs.connectionPoint = rs.street.getLocation();
+				rs.city = rs.street.getCity();
+				rs.dist = d;
+				streetsList.add(rs);
+				return true;
+			}
+		}
+		return false;
+	}
+
 	public void filterDuplicateRegionResults(final List<GeocodingResult> res) {
 		Collections.sort(res, DISTANCE_COMPARATOR);
 		// filter duplicate city results (when building is in both regions on boundary)
@@ -372,9 +403,11 @@ public class GeocodingUtilities {
 	}
 
 	private List<GeocodingResult> loadStreetBuildings(final GeocodingResult road, BinaryMapIndexReader reader,
-			GeocodingResult street) throws IOException {
+			GeocodingResult street, AddressStreetCache cache) throws IOException {
 		final List<GeocodingResult> streetBuildings = new ArrayList<GeocodingResult>();
-		reader.preloadBuildings(street.street, null);
+		if (cache == null || cache.loadedBuildings.add(street.street)) {
+			reader.preloadBuildings(street.street, null);
+		}
 //		log.info("Preload buildings " + street.street.getName() + " " + street.city.getName() + " " + street.street.getId());
 		for (Building b : street.street.getBuildings()) {
 			if (b.getLatLon2() != null) {
@@ -409,6 +442,11 @@ public class GeocodingUtilities {
 	}
 
 	public List<GeocodingResult> sortGeocodingResults(List<BinaryMapIndexReader> list, List<GeocodingResult> res) throws IOException {
+		return sortGeocodingResults(list, res, null);
+	}
+
+	public List<GeocodingResult> sortGeocodingResults(List<BinaryMapIndexReader> list, List<GeocodingResult> res,
+			AddressStreetCache cache) throws IOException {
 		List<GeocodingResult> complete = new ArrayList<GeocodingUtilities.GeocodingResult>();
 		double minBuildingDistance = 0;
 		for (GeocodingResult r : res) {
@@ -426,7 +464,7 @@ public class GeocodingUtilities {
 				}
 			}
 			if (reader != null) {
-				List<GeocodingResult> justified = justifyReverseGeocodingSearch(r, reader, minBuildingDistance, null);
+				List<GeocodingResult> justified = justifyReverseGeocodingSearch(r, reader, minBuildingDistance, null, cache);
 				if (!justified.isEmpty()) {
 					double md = justified.get(0).getDistance();
 					if (minBuildingDistance == 0) {
@@ -454,4 +492,256 @@ public class GeocodingUtilities {
 		return complete;
 
 	}
+
+	/**
+	 * Streets found by name around previous search points and streets with loaded buildings, so search of
+	 * near points doesn't read address index again. Cache is not thread safe (one per thread).
+	 */
+	public static class AddressStreetCache {
+
+		private static final int MAX_NAMES = 2000;
+
+		private final Map<BinaryMapIndexReader, LinkedHashMap<String, List<StreetsArea>>> streets = new IdentityHashMap<>();
+		private final Set<Street> loadedBuildings = Collections.newSetFromMap(new IdentityHashMap<Street, Boolean>());
+
+		private static class StreetsArea {
+			final SearchRequest<MapObject> area;
+			final List<Street> streets = new ArrayList<>();
+
+			StreetsArea(SearchRequest<MapObject> area) {
+				this.area = area;
+			}
+		}
+
+		/**
+		 * Same streets as address by name search with {@link #DISTANCE_STREET_NAME_PROXIMITY_BY_NAME} radius,
+		 * streets are read once for 2x radius area
+		 */
+		public List<Street> searchStreets(BinaryMapIndexReader reader, String mainWord, LatLon location) throws IOException {
+			SearchRequest<MapObject> req = BinaryMapIndexReader.buildAddressByNameRequest(null, mainWord,
+					StringMatcherMode.CHECK_EQUALS_FROM_SPACE);
+			req.setBBoxRadius(location.getLatitude(), location.getLongitude(), DISTANCE_STREET_NAME_PROXIMITY_BY_NAME);
+			LinkedHashMap<String, List<StreetsArea>> byName = streets.get(reader);
+			if (byName == null) {
+				byName = new LinkedHashMap<String, List<StreetsArea>>(16, 0.75f, true) {
+					private static final long serialVersionUID = 1L;
+
+					@Override
+					protected boolean removeEldestEntry(Map.Entry<String, List<StreetsArea>> eldest) {
+						return size() > MAX_NAMES;
+					}
+				};
+				streets.put(reader, byName);
+			}
+			List<StreetsArea> areas = byName.get(mainWord);
+			if (areas == null) {
+				areas = new ArrayList<>();
+				byName.put(mainWord, areas);
+			}
+			StreetsArea found = null;
+			for (StreetsArea a : areas) {
+				if (a.area.left <= req.left && a.area.right >= req.right && a.area.top <= req.top
+						&& a.area.bottom >= req.bottom) {
+					found = a;
+					break;
+				}
+			}
+			if (found == null) {
+				final StreetsArea area = new StreetsArea(BinaryMapIndexReader.buildAddressByNameRequest(
+						new ResultMatcher<MapObject>() {
+							@Override
+							public boolean publish(MapObject object) {
+								return object instanceof Street;
+							}
+
+							@Override
+							public boolean isCancelled() {
+								return false;
+							}
+						}, mainWord, StringMatcherMode.CHECK_EQUALS_FROM_SPACE));
+				area.area.setBBoxRadius(location.getLatitude(), location.getLongitude(), 2 * DISTANCE_STREET_NAME_PROXIMITY_BY_NAME);
+				for (MapObject o : reader.searchAddressDataByName(area.area)) {
+					area.streets.add((Street) o);
+				}
+				area.area.getSearchResults().clear();
+				areas.add(area);
+				found = area;
+			}
+			List<Street> res = new ArrayList<>();
+			for (Street s : found.streets) {
+				// name index stores 16 zoom tile of street
+				int x16 = (MapUtils.get31TileNumberX(s.getLocation().getLongitude()) >> 15) << 15;
+				int y16 = (MapUtils.get31TileNumberY(s.getLocation().getLatitude()) >> 15) << 15;
+				if (req.contains(x16, y16, x16, y16)) {
+					res.add(s);
+				}
+			}
+			return res;
+		}
+	}
+
+	/**
+	 * Results of batch reverse geocoding in order of points with time of every point
+	 */
+	public static class ReverseGeocodingBatch {
+		public final List<LatLon> points;
+		public final List<List<GeocodingResult>> results;
+		public final long[] latencyNs;
+		public long timeNs;
+
+		ReverseGeocodingBatch(List<LatLon> points) {
+			this.points = points;
+			this.results = new ArrayList<>(Collections.<List<GeocodingResult>>nCopies(points.size(), null));
+			this.latencyNs = new long[points.size()];
+		}
+
+		public double getPointsPerSecond() {
+			return timeNs == 0 ? 0 : points.size() * 1e9 / timeNs;
+		}
+
+		public double getAverageLatencyMs() {
+			long sum = 0;
+			for (long l : latencyNs) {
+				sum += l;
+			}
+			return latencyNs.length == 0 ? 0 : sum / 1e6 / latencyNs.length;
+		}
+
+		/**
+		 * Latency of the point for percentile (0..100)
+		 */
+		public double getLatencyMs(double percentile) {
+			if (latencyNs.length == 0) {
+				return 0;
+			}
+			long[] sorted = latencyNs.clone();
+			Arrays.sort(sorted);
+			int ind = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+			return sorted[Math.max(0, Math.min(sorted.length - 1, ind))] / 1e6;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.US, "Reverse geocoding of %d points in %d ms: %.1f points/s, latency avg %.2f ms, p50 %.2f ms, p95 %.2f ms, max %.2f ms",
+					points.size(), timeNs / 1000000, getPointsPerSecond(), getAverageLatencyMs(), getLatencyMs(50),
+					getLatencyMs(95), getLatencyMs(100));
+		}
+	}
+
+	/**
+	 * Reverse geocoding of many points ({@link #reverseGeocodingSearch} and {@link #sortGeocodingResults} for every
+	 * point). Points are processed in order of Z-order curve by chunks of {@link #BATCH_SEARCH_CHUNK}, so near points
+	 * are processed by the same thread which keeps own RoutingContext (with loaded tiles) over cursors of files and
+	 * {@link AddressStreetCache}.
+	 */
+	public ReverseGeocodingBatch reverseGeocodingSearch(final RoutingConfiguration config, final BinaryMapIndexReader[] files,
+			List<LatLon> points, final boolean allowEmptyNames, int threads) throws IOException, InterruptedException {
+		final ReverseGeocodingBatch batch = new ReverseGeocodingBatch(points);
+		final int[] order = new int[points.size()];
+		final long[] codes = new long[points.size()];
+		Integer[] sorted = new Integer[points.size()];
+		for (int i = 0; i < sorted.length; i++) {
+			LatLon l = points.get(i);
+			codes[i] = MapUtils.interleaveBits(MapUtils.get31TileNumberX(l.getLongitude()), MapUtils.get31TileNumberY(l.getLatitude()));
+			sorted[i] = i;
+		}
+		Arrays.sort(sorted, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return Long.compare(codes[o1], codes[o2]);
+			}
+		});
+		for (int i = 0; i < sorted.length; i++) {
+			order[i] = sorted[i];
+		}
+		final AtomicInteger next = new AtomicInteger();
+		// set on first error of workers, other workers are stopped
+		final AtomicBoolean failed = new AtomicBoolean();
+		threads = Math.max(1, Math.min(threads, (order.length + BATCH_SEARCH_CHUNK - 1) / BATCH_SEARCH_CHUNK));
+		long start = System.nanoTime();
+		List<Callable<Void>> workers = new ArrayList<Callable<Void>>();
+		for (int t = 0; t < threads; t++) {
+			workers.add(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					boolean done = false;
+					try {
+						searchBatchChunks(config, files, batch, order, next, failed, allowEmptyNames);
+						done = true;
+					} finally {
+						if (!done) {
+							failed.set(true);
+						}
+					}
+					return null;
+				}
+			});
+		}
+		// workers not taken by shared pool are run by calling thread
+		ParallelTasks<Void> tasks = new ParallelTasks<Void>(workers).start(threads);
+		Throwable e = null;
+		try {
+			for (int i = 0; i < tasks.size(); i++) {
+				try {
+					tasks.get(i);
+				} catch (ExecutionException ex) {
+					if (e == null) {
+						e = ex.getCause();
+					}
+				}
+			}
+		} catch (InterruptedException ex) {
+			failed.set(true);
+			throw ex;
+		}
+		batch.timeNs = System.nanoTime() - start;
+		if (e instanceof IOException) {
+			throw (IOException) e;
+		} else if (e instanceof RuntimeException) {
+			throw (RuntimeException) e;
+		} else if (e instanceof Error) {
+			throw (Error) e;
+		} else if (e != null) {
+			throw new IOException(e);
+		}
+		return batch;
+	}
+
+	private void searchBatchChunks(RoutingConfiguration config, BinaryMapIndexReader[] files, ReverseGeocodingBatch batch,
+			int[] order, AtomicInteger next, AtomicBoolean failed, boolean allowEmptyNames) throws IOException {
+		BinaryMapIndexReader[] cursors = new BinaryMapIndexReader[files.length];
+		try {
+			for (int i = 0; i < files.length; i++) {
+				cursors[i] = files[i].acquireCursor();
+			}
+			List<BinaryMapIndexReader> readers = Arrays.asList(cursors);
+			RoutingContext ctx = new RoutePlannerFrontEnd().buildRoutingContext(config, null, cursors,
+					RouteCalculationMode.NORMAL);
+			AddressStreetCache cache = new AddressStreetCache();
+			int chunk;
+			while (!failed.get() && (chunk = next.getAndAdd(BATCH_SEARCH_CHUNK)) < order.length) {
+				for (int k = chunk; k < Math.min(order.length, chunk + BATCH_SEARCH_CHUNK) && !failed.get(); k++) {
+					int ind = order[k];
+					LatLon l = batch.points.get(ind);
+					long time = System.nanoTime();
+					List<GeocodingResult> res = reverseGeocodingSearch(ctx, l.getLatitude(), l.getLongitude(), allowEmptyNames);
+					res = sortGeocodingResults(readers, res, cache);
+					batch.latencyNs[ind] = System.nanoTime() - time;
+					batch.results.set(ind, res);
+				}
+			}
+			ctx.unloadAllData();
+			for (int i = 0; i < files.length; i++) {
+				files[i].releaseCursor(cursors[i]);
+				cursors[i] = null;
+			}
+		} finally {
+			// stream state of cursors is not known after failure
+			for (BinaryMapIndexReader cursor : cursors) {
+				if (cursor != null) {
+					cursor.close();
+				}
+			}
+		}
+	}
 }
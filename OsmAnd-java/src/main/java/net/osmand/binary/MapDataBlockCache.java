@@ -0,0 +1,193 @@
+package net.osmand.binary;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import gnu.trove.map.hash.TIntObjectHashMap;
+
+/**
+ * LRU cache of decoded map data blocks (leaf MapTree data) bounded by estimated memory size.
+ * Blocks are decoded without request bbox / type filters, so cached objects are shared
+ * between requests and should be treated as read-only.
+ */
+public class MapDataBlockCache {
+
+	private static final int OBJECT_OVERHEAD = 120;
+	private static final int BLOCK_OVERHEAD = 100;
+
+	private final long maxSizeBytes;
+	private long sizeBytes;
+	private final LinkedHashMap<BlockKey, MapDataBlock> blocks = new LinkedHashMap<>(256, 0.75f, true);
+
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	public MapDataBlockCache(long maxSizeBytes) {
+		this.maxSizeBytes = maxSizeBytes;
+	}
+
+	public synchronized MapDataBlock get(File file, long blockFilePointer, int zoom) {
+		MapDataBlock block = blocks.get(new BlockKey(file, blockFilePointer, zoom));
+		if (block != null) {
+			hits++;
+		} else {
+			misses++;
+		}
+		return block;
+	}
+
+	public synchronized MapDataBlock put(File file, long blockFilePointer, int zoom, List<BinaryMapDataObject> objects) {
+		MapDataBlock block = new MapDataBlock(objects);
+		if (block.sizeBytes > maxSizeBytes) {
+			return block;
+		}
+		MapDataBlock prev = blocks.put(new BlockKey(file, blockFilePointer, zoom), block);
+		if (prev != null) {
+			sizeBytes -= prev.sizeBytes;
+		}
+		sizeBytes += block.sizeBytes;
+		Iterator<MapDataBlock> it = blocks.values().iterator();
+		while (sizeBytes > maxSizeBytes && it.hasNext()) {
+			MapDataBlock eldest = it.next();
+			sizeBytes -= eldest.sizeBytes;
+			it.remove();
+			evictions++;
+		}
+		return block;
+	}
+
+	public synchronized void clear(File file) {
+		Iterator<Map.Entry<BlockKey, MapDataBlock>> it = blocks.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<BlockKey, MapDataBlock> e = it.next();
+			if (file == null || e.getKey().file.equals(file)) {
+				sizeBytes -= e.getValue().sizeBytes;
+				it.remove();
+			}
+		}
+	}
+
+	public synchronized long getSizeBytes() {
+		return sizeBytes;
+	}
+
+	public long getMaxSizeBytes() {
+		return maxSizeBytes;
+	}
+
+	public synchronized int getBlocksCount() {
+		return blocks.size();
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	@Override
+	public synchronized String toString() {
+		long total = hits + misses;
+		return String.format("Map data block cache: %d blocks, %d / %d KB, hits %d, misses %d (%.1f%% hit ratio), evictions %d",
+				blocks.size(), sizeBytes >> 10, maxSizeBytes >> 10, hits, misses,
+				total == 0 ? 0 : hits * 100.0 / total, evictions);
+	}
+
+	public static class MapDataBlock {
+		final List<BinaryMapDataObject> objects;
+		// bbox of each object to filter by request without iterating coordinates
+		final int[] bbox;
+		final long sizeBytes;
+
+		MapDataBlock(List<BinaryMapDataObject> objects) {
+			this.objects = objects;
+			this.bbox = new int[objects.size() * 4];
+			long size = BLOCK_OVERHEAD + bbox.length * 4;
+			for (int i = 0; i < objects.size(); i++) {
+				BinaryMapDataObject o = objects.get(i);
+				int minX = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE;
+				int minY = Integer.MAX_VALUE, maxY = Integer.MIN_VALUE;
+				for (int k = 0; k + 1 < o.coordinates.length; k += 2) {
+					minX = Math.min(minX, o.coordinates[k]);
+					maxX = Math.max(maxX, o.coordinates[k]);
+					minY = Math.min(minY, o.coordinates[k + 1]);
+					maxY = Math.max(maxY, o.coordinates[k + 1]);
+				}
+				bbox[i * 4] = minX;
+				bbox[i * 4 + 1] = maxX;
+				bbox[i * 4 + 2] = minY;
+				bbox[i * 4 + 3] = maxY;
+				size += estimateSize(o);
+			}
+			this.sizeBytes = size;
+		}
+
+		public List<BinaryMapDataObject> getObjects() {
+			return objects;
+		}
+
+		public boolean intersects(int ind, int left, int top, int right, int bottom) {
+			return bbox[ind * 4 + 1] >= left && bbox[ind * 4] <= right
+					&& bbox[ind * 4 + 2] <= bottom && bbox[ind * 4 + 3] >= top;
+		}
+
+		private static long estimateSize(BinaryMapDataObject o) {
+			long size = OBJECT_OVERHEAD;
+			size += 4L * o.coordinates.length;
+			if (o.polygonInnerCoordinates != null) {
+				for (int[] inner : o.polygonInnerCoordinates) {
+					size += 16 + 4L * inner.length;
+				}
+			}
+			size += 4L * (o.types == null ? 0 : o.types.length);
+			size += 4L * (o.additionalTypes == null ? 0 : o.additionalTypes.length);
+			TIntObjectHashMap<String> names = o.objectNames;
+			if (names != null) {
+				size += 64;
+				for (String s : names.valueCollection()) {
+					size += 48 + 2L * s.length();
+				}
+			}
+			return size;
+		}
+	}
+
+	private static class BlockKey {
+		final File file;
+		final long filePointer;
+		final int zoom;
+
+		BlockKey(File file, long filePointer, int zoom) {
+			this.file = file;
+			this.filePointer = filePointer;
+			this.zoom = zoom;
+		}
+
+		@Override
+		public int hashCode() {
+			return (file.hashCode() * 31 + Long.hashCode(filePointer)) * 31 + zoom;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof BlockKey)) {
+				return false;
+			}
+			BlockKey other = (BlockKey) obj;
+			return filePointer == other.filePointer && zoom == other.zoom && file.equals(other.file);
+		}
+	}
+}
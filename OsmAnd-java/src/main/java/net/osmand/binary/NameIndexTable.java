@@ -0,0 +1,379 @@
+package net.osmand.binary;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+import gnu.trove.iterator.TLongObjectIterator;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.osmand.Collator;
+import net.osmand.CollatorStringMatcher;
+import net.osmand.CollatorStringMatcher.StringMatcherMode;
+
+/**
+ * Resident copy of obf indexed string table (name prefix tree of poi and address name indexes).
+ * Table is kept as flat sequence of entries in file order (key as in file - suffix of parent key, value,
+ * subtable with its end), so search gives exactly the same offsets as reading the table from file but without
+ * reading and decoding it on every request. Keys of a searched level are sorted by primary collation keys
+ * (see {@link CollatorStringMatcher#getCollationKeys}), so keys which could match query are found by binary
+ * search and checked with collator. Tables of a file could be stored next to the file ({@link #EXT}).
+ */
+public class NameIndexTable {
+
+	public static final String EXT = ".names";
+	private static final int MAGIC = 0x4e414d45;
+	private static final int VERSION = 2;
+
+	static final byte KEY = 0;
+	static final byte VAL = 1;
+	static final byte SUBTABLE = 2;
+
+	private byte[] types = new byte[64];
+	private int[] args = new int[64];
+	private String[] keys = new String[64];
+	private int size;
+	// sorted keys of searched levels by level start entry
+	private final TIntObjectHashMap<Level> levels = new TIntObjectHashMap<>();
+	private Locale levelsLocale;
+
+	// key entries of one level (table or subtable)
+	private static class Level {
+		// entries of keys with collation keys sorted by them
+		int[] sortedEntries;
+		int[][] sortedKeys;
+		// entries of keys without collation keys, always checked
+		int[] otherEntries;
+	}
+
+	void addKey(String key) {
+		add(KEY, 0, key);
+	}
+
+	void addValue(int val) {
+		add(VAL, val, null);
+	}
+
+	/**
+	 * Returns entry of subtable, entries of subtable should follow and be closed with {@link #endSubtable(int)}
+	 */
+	int startSubtable() {
+		add(SUBTABLE, 0, null);
+		return size - 1;
+	}
+
+	void endSubtable(int entry) {
+		args[entry] = size;
+	}
+
+	private void add(byte type, int arg, String key) {
+		if (size == types.length) {
+			types = Arrays.copyOf(types, size * 2);
+			args = Arrays.copyOf(args, size * 2);
+			keys = Arrays.copyOf(keys, size * 2);
+		}
+		types[size] = type;
+		args[size] = arg;
+		keys[size] = key;
+		size++;
+	}
+
+	/**
+	 * Tables of one file by table file pointer, shared by the reader and its cursors
+	 */
+	static class FileTables {
+		final TLongObjectHashMap<NameIndexTable> tables = new TLongObjectHashMap<>();
+		boolean stored;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Same as {@link BinaryMapIndexReader#readIndexedStringTable}
+	 */
+	public void search(Collator instance, List<String> queries, List<TIntArrayList> listOffsets,
+			TIntArrayList matchedCharacters) {
+		search(0, size, "", instance, queries, listOffsets, matchedCharacters);
+	}
+
+	private void search(int start, int end, String prefix, Collator instance, List<String> queries,
+			List<TIntArrayList> listOffsets, TIntArrayList matchedCharacters) {
+		int[] candidates = getCandidates(start, end, prefix, queries);
+		if (candidates == null) {
+			for (int e = start; e < end; e++) {
+				if (types[e] == KEY) {
+					searchKey(e, end, prefix, instance, queries, listOffsets, matchedCharacters);
+				} else if (types[e] == SUBTABLE) {
+					e = args[e] - 1;
+				}
+			}
+		} else {
+			// other keys don't match any query, values and subtables without key are not read
+			for (int e : candidates) {
+				searchKey(e, end, prefix, instance, queries, listOffsets, matchedCharacters);
+			}
+		}
+	}
+
+	// checks key of entry e and reads its values and subtable (entries till next key of the level)
+	private void searchKey(int e, int end, String prefix, Collator instance, List<String> queries,
+			List<TIntArrayList> listOffsets, TIntArrayList matchedCharacters) {
+		String key = prefix.length() > 0 ? prefix + keys[e] : keys[e];
+		boolean[] matched = new boolean[matchedCharacters.size()];
+		boolean shouldWeReadSubtable = false;
+		for (int i = 0; i < queries.size(); i++) {
+			int charMatches = matchedCharacters.get(i);
+			String query = queries.get(i);
+			if (query == null) {
+				continue;
+			}
+			if (CollatorStringMatcher.cmatches(instance, key, query, StringMatcherMode.CHECK_ONLY_STARTS_WITH)) {
+				if (query.length() >= charMatches) {
+					if (query.length() > charMatches) {
+						matchedCharacters.set(i, query.length());
+						listOffsets.get(i).clear();
+					}
+					matched[i] = true;
+				}
+			} else if (CollatorStringMatcher.cmatches(instance, query, key, StringMatcherMode.CHECK_ONLY_STARTS_WITH)) {
+				if (key.length() >= charMatches) {
+					if (key.length() > charMatches) {
+						matchedCharacters.set(i, key.length());
+						listOffsets.get(i).clear();
+					}
+					matched[i] = true;
+				}
+			}
+			shouldWeReadSubtable |= matched[i];
+		}
+		for (int k = e + 1; k < end && types[k] != KEY; k++) {
+			if (types[k] == VAL) {
+				for (int i = 0; i < queries.size(); i++) {
+					if (matched[i]) {
+						listOffsets.get(i).add(args[k]);
+					}
+				}
+			} else if (types[k] == SUBTABLE) {
+				if (shouldWeReadSubtable) {
+					List<String> subqueries = new ArrayList<>(queries);
+					for (int i = 0; i < queries.size(); i++) {
+						if (!matched[i]) {
+							subqueries.set(i, null);
+						}
+					}
+					search(k + 1, args[k], key, instance, subqueries, listOffsets, matchedCharacters);
+				}
+				k = args[k] - 1;
+			}
+		}
+	}
+
+	/**
+	 * Entries of keys which could match queries in file order: key starts with query or query starts with key
+	 * by collation keys (collator match implies it). Returns null if query has no collation keys.
+	 */
+	private int[] getCandidates(int start, int end, String prefix, List<String> queries) {
+		List<int[]> queryKeys = new ArrayList<>();
+		for (String query : queries) {
+			if (query != null) {
+				int[] qk = CollatorStringMatcher.getCollationKeys(query);
+				if (qk == null) {
+					return null;
+				}
+				queryKeys.add(qk);
+			}
+		}
+		Level level = getLevel(start, end, prefix);
+		TIntArrayList res = new TIntArrayList();
+		for (int[] qk : queryKeys) {
+			// keys starting with query
+			int lo = bound(level.sortedKeys, qk, qk.length, false);
+			int hi = bound(level.sortedKeys, qk, qk.length, true);
+			res.add(level.sortedEntries, lo, hi - lo);
+			// keys equal to query prefix (shorter keys go first in range of prefix)
+			for (int len = 0; len < qk.length; len++) {
+				for (int i = bound(level.sortedKeys, qk, len, false); i < level.sortedKeys.length
+						&& level.sortedKeys[i].length == len && comparePrefix(level.sortedKeys[i], qk, len) == 0; i++) {
+					res.add(level.sortedEntries[i]);
+				}
+			}
+		}
+		res.add(level.otherEntries);
+		res.sort();
+		TIntArrayList unique = new TIntArrayList(res.size());
+		for (int i = 0; i < res.size(); i++) {
+			if (i == 0 || res.getQuick(i) != res.getQuick(i - 1)) {
+				unique.add(res.getQuick(i));
+			}
+		}
+		return unique.toArray();
+	}
+
+	private synchronized Level getLevel(int start, int end, String prefix) {
+		Locale locale = Locale.getDefault();
+		if (!locale.equals(levelsLocale)) {
+			// collation keys depend on locale
+			levels.clear();
+			levelsLocale = locale;
+		}
+		Level level = levels.get(start);
+		if (level != null) {
+			return level;
+		}
+		TIntArrayList entries = new TIntArrayList();
+		TIntArrayList other = new TIntArrayList();
+		final List<int[]> entryKeys = new ArrayList<>();
+		for (int e = start; e < end; e++) {
+			if (types[e] == KEY) {
+				int[] k = CollatorStringMatcher.getCollationKeys(prefix.length() > 0 ? prefix + keys[e] : keys[e]);
+				if (k == null) {
+					other.add(e);
+				} else {
+					entries.add(e);
+					entryKeys.add(k);
+				}
+			} else if (types[e] == SUBTABLE) {
+				e = args[e] - 1;
+			}
+		}
+		Integer[] order = new Integer[entries.size()];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				int[] a = entryKeys.get(o1);
+				int[] b = entryKeys.get(o2);
+				int c = comparePrefix(a, b, b.length);
+				return c != 0 ? c : Integer.compare(a.length, b.length);
+			}
+		});
+		level = new Level();
+		level.sortedEntries = new int[order.length];
+		level.sortedKeys = new int[order.length][];
+		for (int i = 0; i < order.length; i++) {
+			level.sortedEntries[i] = entries.get(order[i]);
+			level.sortedKeys[i] = entryKeys.get(order[i]);
+		}
+		level.otherEntries = other.toArray();
+		levels.put(start, level);
+		return level;
+	}
+
+	// first index of sorted keys which prefix (of len) is not less (upper - greater) than prefix of p
+	private static int bound(int[][] sorted, int[] p, int len, boolean upper) {
+		int lo = 0;
+		int hi = sorted.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			int c = comparePrefix(sorted[mid], p, len);
+			if (c < 0 || (upper && c == 0)) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	// compares first len keys of k (less if k is shorter) with first len keys of p
+	private static int comparePrefix(int[] k, int[] p, int len) {
+		for (int i = 0; i < len; i++) {
+			if (i == k.length) {
+				return -1;
+			}
+			if (k[i] != p[i]) {
+				return k[i] < p[i] ? -1 : 1;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Reads tables stored for the file (by table file pointer), returns null if file is missing or outdated
+	 */
+	public static TLongObjectHashMap<NameIndexTable> readFile(File f, File obf) throws IOException {
+		if (!f.exists()) {
+			return null;
+		}
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)));
+		try {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != obf.length()
+					|| in.readLong() != obf.lastModified()) {
+				return null;
+			}
+			int count = in.readInt();
+			TLongObjectHashMap<NameIndexTable> tables = new TLongObjectHashMap<>();
+			for (int k = 0; k < count; k++) {
+				long pointer = in.readLong();
+				NameIndexTable t = new NameIndexTable();
+				int size = in.readInt();
+				t.types = new byte[Math.max(size, 1)];
+				t.args = new int[t.types.length];
+				t.keys = new String[t.types.length];
+				for (int e = 0; e < size; e++) {
+					t.types[e] = in.readByte();
+					if (t.types[e] == KEY) {
+						t.keys[e] = in.readUTF();
+					} else {
+						t.args[e] = in.readInt();
+					}
+				}
+				t.size = size;
+				tables.put(pointer, t);
+			}
+			return tables;
+		} finally {
+			in.close();
+		}
+	}
+
+	public static void writeFile(File f, File obf, TLongObjectHashMap<NameIndexTable> tables) throws IOException {
+		File tmp = new File(f.getParentFile(), f.getName() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(obf.length());
+			out.writeLong(obf.lastModified());
+			out.writeInt(tables.size());
+			TLongObjectIterator<NameIndexTable> it = tables.iterator();
+			while (it.hasNext()) {
+				it.advance();
+				NameIndexTable t = it.value();
+				out.writeLong(it.key());
+				out.writeInt(t.size);
+				for (int e = 0; e < t.size; e++) {
+					out.writeByte(t.types[e]);
+					if (t.types[e] == KEY) {
+						out.writeUTF(t.keys[e]);
+					} else {
+						out.writeInt(t.args[e]);
+					}
+				}
+			}
+		} finally {
+			out.close();
+		}
+		if (!tmp.renameTo(f)) {
+			f.delete();
+			if (!tmp.renameTo(f)) {
+				throw new IOException("Can't rename " + tmp);
+			}
+		}
+	}
+}
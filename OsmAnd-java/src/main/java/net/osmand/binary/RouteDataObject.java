@@ -6,6 +6,7 @@ import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
 import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteTypeRule;
 import net.osmand.data.LatLon;
 import net.osmand.util.Algorithms;
+import net.osmand.util.IntArrayInterner;
 import net.osmand.util.MapUtils;
 import net.osmand.util.TransliterationHelper;
 
@@ -36,8 +37,11 @@ public class RouteDataObject {
 	public final static float NONE_MAX_SPEED = 40f;
 	public int[] nameIds;
 	// mixed array [0, height, cumulative_distance height, cumulative_distance, height, ...] - length is length(points)*2
-	public float[] heightDistanceArray = null;
+	public volatile float[] heightDistanceArray = null;
 	public float heightByCurrentLocation = Float.NaN;
+	// interned types and point types, set once object is loaded (valid while arrays are not replaced)
+	private IntArrayInterner.Entry typesCombination;
+	private IntArrayInterner.Entry[] pointTypesCombinations;
 
 	public RouteDataObject(RouteRegion region) {
 		this.region = region;
@@ -59,6 +63,8 @@ public class RouteDataObject {
 		this.pointsX = copy.pointsX;
 		this.pointsY = copy.pointsY;
 		this.types = copy.types;
+		this.typesCombination = copy.typesCombination;
+		this.pointTypesCombinations = copy.pointTypesCombinations;
 		this.names = copy.names;
 		this.nameIds = copy.nameIds;
 		this.restrictions = copy.restrictions;
@@ -170,17 +176,20 @@ public class RouteDataObject {
 	}
 
 	public float[] calculateHeightArray(LatLon currentLocation) {
-		if (heightDistanceArray != null) {
-			return heightDistanceArray;
+		float[] res = heightDistanceArray;
+		if (res != null) {
+			return res;
 		}
 		int startHeight = Algorithms.parseIntSilently(getValue("osmand_ele_start"), HEIGHT_UNDEFINED);
 		int endHeight = Algorithms.parseIntSilently(getValue("osmand_ele_end"), startHeight);
 		if (startHeight == HEIGHT_UNDEFINED) {
-			heightDistanceArray = new float[0];
-			return heightDistanceArray;
+			res = new float[0];
+			heightDistanceArray = res;
+			return res;
 		}
 
-		heightDistanceArray = new float[2 * getPointsLength()];
+		// array is filled before it is published, objects could be shared by contexts
+		res = new float[2 * getPointsLength()];
 		double plon = 0;
 		double plat = 0;
 		float prevHeight = startHeight;
@@ -205,8 +214,8 @@ public class RouteDataObject {
 						}
 					}
 				}
-				heightDistanceArray[2 * k] = (float) dd;
-				heightDistanceArray[2 * k + 1] = height;
+				res[2 * k] = (float) dd;
+				res[2 * k + 1] = height;
 
 				if (currentLocation != null) {
 					double distance = MapUtils.getDistance(currentLocation, lat, lon);
@@ -220,22 +229,22 @@ public class RouteDataObject {
 					// interpolate undefined
 					double totalDistance = dd;
 					int startUndefined = k;
-					while (startUndefined - 1 >= 0 && heightDistanceArray[2 * (startUndefined - 1) + 1] == HEIGHT_UNDEFINED) {
+					while (startUndefined - 1 >= 0 && res[2 * (startUndefined - 1) + 1] == HEIGHT_UNDEFINED) {
 						startUndefined--;
-						totalDistance += heightDistanceArray[2 * (startUndefined)];
+						totalDistance += res[2 * (startUndefined)];
 					}
 					if (totalDistance > 0) {
 						double angle = (height - prevHeight) / totalDistance;
 						for (int j = startUndefined; j < k; j++) {
-							heightDistanceArray[2 * j + 1] = (float) ((heightDistanceArray[2 * j] * angle) + heightDistanceArray[2 * j - 1]);
+							res[2 * j + 1] = (float) ((res[2 * j] * angle) + res[2 * j - 1]);
 						}
 					}
 					prevHeight = height;
 				}
 
 			} else {
-				heightDistanceArray[0] = 0;
-				heightDistanceArray[1] = startHeight;
+				res[0] = 0;
+				res[1] = startHeight;
 			}
 			plat = lat;
 			plon = lon;
@@ -243,7 +252,8 @@ public class RouteDataObject {
 				prevDistance = MapUtils.getDistance(currentLocation, plat, plon);
 			}
 		}
-		return heightDistanceArray;
+		heightDistanceArray = res;
+		return res;
 	}
 
 	public long getId() {
@@ -485,6 +495,12 @@ public class RouteDataObject {
 				pointNameTypes[i] = opointNameTypes[i - 1];
 			}
 		}
+		if (insTypes && pointTypesCombinations != null && pointTypesCombinations.length >= pos) {
+			IntArrayInterner.Entry[] entries = new IntArrayInterner.Entry[pointTypesCombinations.length + 1];
+			System.arraycopy(pointTypesCombinations, 0, entries, 0, pos);
+			System.arraycopy(pointTypesCombinations, pos, entries, pos + 1, pointTypesCombinations.length - pos);
+			pointTypesCombinations = entries;
+		}
 	}
 
 	public String[] getPointNames(int ind) {
@@ -530,6 +546,49 @@ public class RouteDataObject {
 		return types;
 	}
 
+	/**
+	 * Shares equal types and point types arrays within region and assigns their combination ids,
+	 * called when object is loaded or its types are replaced (arrays must not be modified in place after)
+	 */
+	public void internTypes() {
+		if (region == null) {
+			return;
+		}
+		if (types != null) {
+			typesCombination = region.internTypes(types);
+			types = typesCombination.array;
+		}
+		if (pointTypes != null) {
+			IntArrayInterner.Entry[] entries = new IntArrayInterner.Entry[pointTypes.length];
+			for (int i = 0; i < pointTypes.length; i++) {
+				if (pointTypes[i] != null) {
+					entries[i] = region.internTypes(pointTypes[i]);
+					pointTypes[i] = entries[i].array;
+				}
+			}
+			pointTypesCombinations = entries;
+		}
+	}
+
+	/**
+	 * @return id of types combination unique within region or -1 if types are not interned
+	 */
+	public int getTypesCombinationId() {
+		IntArrayInterner.Entry e = typesCombination;
+		return e != null && e.array == types ? e.id : -1;
+	}
+
+	/**
+	 * @return id of point types combination unique within region or -1 if point types are not interned
+	 */
+	public int getPointTypesCombinationId(int ind) {
+		IntArrayInterner.Entry[] entries = pointTypesCombinations;
+		if (entries == null || ind >= entries.length || entries[ind] == null) {
+			return -1;
+		}
+		return entries[ind].array == getPointTypes(ind) ? entries[ind].id : -1;
+	}
+
 	public float getMaximumSpeed(boolean direction) {
 		return getMaximumSpeed(direction, RouteTypeRule.PROFILE_NONE);
 	}
@@ -72,6 +72,8 @@ public class OsmandRegions {
 
 
 	QuadTree<String> quadTree;
+	// published once with polygons by download name (see buildRegionsIndex)
+	volatile OsmandRegionsIndex regionsIndex;
 	MapIndexFields mapIndexFields;
 	RegionTranslation translator;
 
@@ -349,6 +351,21 @@ public class OsmandRegions {
 	private List<BinaryMapDataObject> getCountries(int lx, int rx, int ty, int by, final boolean checkCenter) throws IOException {
 		HashSet<String> set = new HashSet<String>(quadTree.queryInBox(new QuadRect(lx, ty, rx, by),
 				new ArrayList<String>()));
+		return getCountries(set, countriesByDownloadName, lx, rx, ty, by, checkCenter);
+	}
+
+	private List<BinaryMapDataObject> getCountriesByIndex(OsmandRegionsIndex index, int lx, int rx, int ty, int by,
+			boolean checkCenter) {
+		TIntArrayList candidates = index.searchBoxes(lx, ty, rx, by, new TIntArrayList());
+		HashSet<String> set = new HashSet<String>();
+		for (int i = 0; i < candidates.size(); i++) {
+			set.add(mapIndexFields.get(mapIndexFields.downloadNameType, index.getPolygon(candidates.get(i))));
+		}
+		return getCountries(set, index.getPolygonsByDownloadName(), lx, rx, ty, by, checkCenter);
+	}
+
+	private static List<BinaryMapDataObject> getCountries(Set<String> set,
+			Map<String, ? extends List<BinaryMapDataObject>> polygons, int lx, int rx, int ty, int by, boolean checkCenter) {
 		List<BinaryMapDataObject> result = new ArrayList<BinaryMapDataObject>();
 		Iterator<String> it = set.iterator();
 		int mx = lx / 2 + rx / 2;
@@ -357,7 +374,7 @@ public class OsmandRegions {
 			String cname = it.next();
 			BinaryMapDataObject container = null;
 			int count = 0;
-			for (BinaryMapDataObject bo : countriesByDownloadName.get(cname)) {
+			for (BinaryMapDataObject bo : polygons.get(cname)) {
 				if (!checkCenter || contain(bo, mx, my)) {
 					count++;
 					container = bo;
@@ -400,6 +417,10 @@ public class OsmandRegions {
 		if (quadTree != null) {
 			return getCountries(lx, rx, ty, by, checkCenter);
 		}
+		OsmandRegionsIndex index = regionsIndex;
+		if (index != null) {
+			return getCountriesByIndex(index, lx, rx, ty, by, checkCenter);
+		}
 		return queryBboxNoInit(lx, rx, ty, by, checkCenter);
 	}
 
@@ -407,9 +428,53 @@ public class OsmandRegions {
 		if (quadTree != null) {
 			return getCountries(tile31x, tile31x, tile31y, tile31y, true);
 		}
+		OsmandRegionsIndex index = regionsIndex;
+		if (index != null) {
+			return getCountriesByIndex(index, tile31x, tile31x, tile31y, tile31y, true);
+		}
 		return queryBboxNoInit(tile31x, tile31x, tile31y, tile31y, true);
 	}
 
+	/**
+	 * Loads all region polygons into memory index used by queries instead of reading the file
+	 * (unless countries are cached with {@link #cacheAllCountries()}), polygons are selected by download name
+	 * same as for cached countries.
+	 */
+	public OsmandRegionsIndex buildRegionsIndex() throws IOException {
+		final List<BinaryMapDataObject> objects = new ArrayList<>();
+		final Map<String, List<BinaryMapDataObject>> byDownloadName = new HashMap<>();
+		iterateOverAllObjects(new ResultMatcher<BinaryMapDataObject>() {
+			@Override
+			public boolean publish(BinaryMapDataObject object) {
+				if (object.getPointsLength() < 1) {
+					return false;
+				}
+				initTypes(object);
+				objects.add(object);
+				String nm = mapIndexFields.get(mapIndexFields.downloadNameType, object);
+				List<BinaryMapDataObject> ls = byDownloadName.get(nm);
+				if (ls == null) {
+					ls = new ArrayList<>();
+					byDownloadName.put(nm, ls);
+				}
+				ls.add(object);
+				return false;
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return false;
+			}
+		});
+		OsmandRegionsIndex index = new OsmandRegionsIndex(objects, byDownloadName);
+		regionsIndex = index;
+		return index;
+	}
+
+	public OsmandRegionsIndex getRegionsIndex() {
+		return regionsIndex;
+	}
+
 	private synchronized List<BinaryMapDataObject> queryBboxNoInit(int lx, int rx, int ty, int by, final boolean checkCenter) throws IOException {
 		final List<BinaryMapDataObject> result = new ArrayList<BinaryMapDataObject>();
 		final int mx = lx / 2 + rx / 2;
@@ -0,0 +1,373 @@
+package net.osmand.map;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import gnu.trove.list.array.TIntArrayList;
+import net.osmand.binary.BinaryMapDataObject;
+import net.osmand.util.MapAlgorithms;
+import net.osmand.util.ParallelTasks;
+
+/**
+ * Immutable in memory index of region polygons: packed R-tree (sort tile recursive) of polygon bounding boxes
+ * and per polygon grid of horizontal bands with edges crossing them, so point test checks only edges of one band.
+ * Results are the same as {@link OsmandRegions#contain} and {@link OsmandRegions#intersect}, index could be
+ * queried from many threads.
+ */
+public class OsmandRegionsIndex {
+
+	private static final int NODE_SIZE = 16;
+	private static final int EDGES_PER_BAND = 8;
+	private static final int MAX_BANDS = 512;
+
+	// polygons in tree order
+	private final BinaryMapDataObject[] polygons;
+	private final double[] areas;
+	private final PolygonBands[] bands;
+	// levels[0] boxes of polygons, levels[k] boxes of nodes of NODE_SIZE boxes of level k - 1 (left, top, right, bottom)
+	private final int[][] levels;
+	// polygons of regions by download name (in file order)
+	private final Map<String, List<BinaryMapDataObject>> byDownloadName;
+
+	private static class PolygonBands {
+		int top;
+		long bandHeight;
+		int[] bandStart;
+		int[] edges;
+	}
+
+	public OsmandRegionsIndex(List<BinaryMapDataObject> objects) {
+		this(objects, Collections.<String, List<BinaryMapDataObject>>emptyMap());
+	}
+
+	public OsmandRegionsIndex(List<BinaryMapDataObject> objects, Map<String, List<BinaryMapDataObject>> byDownloadName) {
+		this.byDownloadName = byDownloadName;
+		List<BinaryMapDataObject> list = new ArrayList<>();
+		for (BinaryMapDataObject o : objects) {
+			if (o.getPointsLength() > 0) {
+				list.add(o);
+			}
+		}
+		polygons = list.toArray(new BinaryMapDataObject[0]);
+		sortTileRecursive(polygons);
+		int n = polygons.length;
+		areas = new double[n];
+		bands = new PolygonBands[n];
+		List<int[]> lvls = new ArrayList<>();
+		int[] boxes = new int[n * 4];
+		for (int i = 0; i < n; i++) {
+			BinaryMapDataObject o = polygons[i];
+			int left = Integer.MAX_VALUE, top = Integer.MAX_VALUE, right = Integer.MIN_VALUE, bottom = Integer.MIN_VALUE;
+			for (int k = 0; k < o.getPointsLength(); k++) {
+				left = Math.min(left, o.getPoint31XTile(k));
+				right = Math.max(right, o.getPoint31XTile(k));
+				top = Math.min(top, o.getPoint31YTile(k));
+				bottom = Math.max(bottom, o.getPoint31YTile(k));
+			}
+			boxes[i * 4] = left;
+			boxes[i * 4 + 1] = top;
+			boxes[i * 4 + 2] = right;
+			boxes[i * 4 + 3] = bottom;
+			areas[i] = OsmandRegions.getArea(o);
+			bands[i] = buildBands(o, top, bottom);
+		}
+		lvls.add(boxes);
+		while (boxes.length > 4) {
+			int count = boxes.length / 4;
+			int nodes = (count + NODE_SIZE - 1) / NODE_SIZE;
+			int[] parent = new int[nodes * 4];
+			for (int j = 0; j < nodes; j++) {
+				parent[j * 4] = Integer.MAX_VALUE;
+				parent[j * 4 + 1] = Integer.MAX_VALUE;
+				parent[j * 4 + 2] = Integer.MIN_VALUE;
+				parent[j * 4 + 3] = Integer.MIN_VALUE;
+				for (int c = j * NODE_SIZE; c < Math.min(count, (j + 1) * NODE_SIZE); c++) {
+					parent[j * 4] = Math.min(parent[j * 4], boxes[c * 4]);
+					parent[j * 4 + 1] = Math.min(parent[j * 4 + 1], boxes[c * 4 + 1]);
+					parent[j * 4 + 2] = Math.max(parent[j * 4 + 2], boxes[c * 4 + 2]);
+					parent[j * 4 + 3] = Math.max(parent[j * 4 + 3], boxes[c * 4 + 3]);
+				}
+			}
+			lvls.add(parent);
+			boxes = parent;
+		}
+		levels = lvls.toArray(new int[0][]);
+	}
+
+	private static void sortTileRecursive(BinaryMapDataObject[] polygons) {
+		final long[] centers = new long[polygons.length];
+		Integer[] order = new Integer[polygons.length];
+		for (int i = 0; i < polygons.length; i++) {
+			order[i] = i;
+			BinaryMapDataObject o = polygons[i];
+			long x = 0, y = 0;
+			for (int k = 0; k < o.getPointsLength(); k++) {
+				x += o.getPoint31XTile(k);
+				y += o.getPoint31YTile(k);
+			}
+			centers[i] = ((x / o.getPointsLength()) << 32) | (y / o.getPointsLength());
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return Long.compare(centers[o1] >>> 32, centers[o2] >>> 32);
+			}
+		});
+		// vertical slices of ~sqrt(leaves) nodes sorted by y
+		int leaves = (polygons.length + NODE_SIZE - 1) / NODE_SIZE;
+		int sliceSize = (int) Math.ceil(Math.sqrt(leaves)) * NODE_SIZE;
+		for (int s = 0; s < order.length; s += sliceSize) {
+			Arrays.sort(order, s, Math.min(order.length, s + sliceSize), new Comparator<Integer>() {
+				@Override
+				public int compare(Integer o1, Integer o2) {
+					return Long.compare(centers[o1] & 0xffffffffL, centers[o2] & 0xffffffffL);
+				}
+			});
+		}
+		BinaryMapDataObject[] copy = polygons.clone();
+		for (int i = 0; i < order.length; i++) {
+			polygons[i] = copy[order[i]];
+		}
+	}
+
+	private static PolygonBands buildBands(BinaryMapDataObject o, int top, int bottom) {
+		PolygonBands b = new PolygonBands();
+		int edges = o.getPointsLength() - 1;
+		int count = Math.max(1, Math.min(MAX_BANDS, edges / EDGES_PER_BAND));
+		b.top = top;
+		// edge could be counted for y in [min y, max y + 1] (ray_intersect_x moves ray on vertex)
+		b.bandHeight = ((long) bottom + 1 - top) / count + 1;
+		b.bandStart = new int[count + 1];
+		for (int pass = 0; pass < 2; pass++) {
+			int[] pos = pass == 0 ? null : b.bandStart.clone();
+			for (int i = 1; i <= edges; i++) {
+				int y1 = o.getPoint31YTile(i - 1);
+				int y2 = o.getPoint31YTile(i);
+				int from = band(b, Math.min(y1, y2));
+				int to = band(b, Math.max(y1, y2) + 1L);
+				for (int k = from; k <= to && k < count; k++) {
+					if (pass == 0) {
+						b.bandStart[k + 1]++;
+					} else {
+						b.edges[pos[k]++] = i;
+					}
+				}
+			}
+			if (pass == 0) {
+				for (int k = 0; k < count; k++) {
+					b.bandStart[k + 1] += b.bandStart[k];
+				}
+				b.edges = new int[b.bandStart[count]];
+			}
+		}
+		return b;
+	}
+
+	private static int band(PolygonBands b, long y) {
+		return (int) ((y - b.top) / b.bandHeight);
+	}
+
+	public int getPolygonsCount() {
+		return polygons.length;
+	}
+
+	public BinaryMapDataObject getPolygon(int index) {
+		return polygons[index];
+	}
+
+	public double getArea(int index) {
+		return areas[index];
+	}
+
+	/**
+	 * Same as {@link OsmandRegions#contain} for indexed polygon
+	 */
+	public boolean contain(int index, int tx, int ty) {
+		PolygonBands b = bands[index];
+		if (ty < b.top) {
+			return false;
+		}
+		int k = band(b, ty);
+		if (k >= b.bandStart.length - 1) {
+			return false;
+		}
+		BinaryMapDataObject o = polygons[index];
+		int t = 0;
+		for (int e = b.bandStart[k]; e < b.bandStart[k + 1]; e++) {
+			int i = b.edges[e];
+			int fx = MapAlgorithms.ray_intersect_x(o.getPoint31XTile(i - 1), o.getPoint31YTile(i - 1),
+					o.getPoint31XTile(i), o.getPoint31YTile(i), ty);
+			if (Integer.MIN_VALUE != fx && tx >= fx) {
+				t++;
+			}
+		}
+		return t % 2 == 1;
+	}
+
+	/**
+	 * Same as {@link OsmandRegions#intersect} for indexed polygon
+	 */
+	public boolean intersect(int index, int lx, int ty, int rx, int by) {
+		if (contain(index, lx, ty)) {
+			return true;
+		}
+		BinaryMapDataObject o = polygons[index];
+		if (o.getPoint31XTile(0) >= lx && o.getPoint31XTile(0) <= rx &&
+				o.getPoint31YTile(0) >= ty && o.getPoint31YTile(0) <= by) {
+			return true;
+		}
+		PolygonBands b = bands[index];
+		int from = Math.max(0, band(b, ty));
+		int to = Math.min(b.bandStart.length - 2, band(b, by));
+		if (from > to) {
+			return false;
+		}
+		for (int e = b.bandStart[from]; e < b.bandStart[to + 1]; e++) {
+			int i = b.edges[e];
+			int px = o.getPoint31XTile(i - 1);
+			int x = o.getPoint31XTile(i);
+			int py = o.getPoint31YTile(i - 1);
+			int y = o.getPoint31YTile(i);
+			if ((x < lx && px < lx) || (x > rx && px > rx) || (y > by && py > by) || (y < ty && py < ty)) {
+				continue;
+			}
+			if (MapAlgorithms.calculateIntersection(px, py, x, y, lx, rx, by, ty) != -1) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Indexes of polygons which bounding box intersects the box
+	 */
+	public TIntArrayList searchBoxes(int lx, int ty, int rx, int by, TIntArrayList result) {
+		if (polygons.length > 0) {
+			searchBoxes(levels.length - 1, 0, lx, ty, rx, by, result);
+		}
+		return result;
+	}
+
+	private void searchBoxes(int level, int node, int lx, int ty, int rx, int by, TIntArrayList result) {
+		int[] boxes = levels[level];
+		if (boxes[node * 4] > rx || boxes[node * 4 + 2] < lx || boxes[node * 4 + 1] > by || boxes[node * 4 + 3] < ty) {
+			return;
+		}
+		if (level == 0) {
+			result.add(node);
+			return;
+		}
+		int count = levels[level - 1].length / 4;
+		for (int c = node * NODE_SIZE; c < Math.min(count, (node + 1) * NODE_SIZE); c++) {
+			searchBoxes(level - 1, c, lx, ty, rx, by, result);
+		}
+	}
+
+	/**
+	 * Same as {@link OsmandRegions#query(int, int, int, int, boolean)} without map index: polygons which bounding
+	 * box intersects the box and (if checkCenter) contain center of the box
+	 */
+	public List<BinaryMapDataObject> query(int lx, int rx, int ty, int by, boolean checkCenter) {
+		TIntArrayList candidates = searchBoxes(lx, ty, rx, by, new TIntArrayList());
+		int mx = lx / 2 + rx / 2;
+		int my = ty / 2 + by / 2;
+		List<BinaryMapDataObject> result = new ArrayList<>();
+		for (int i = 0; i < candidates.size(); i++) {
+			int p = candidates.get(i);
+			if (!checkCenter || contain(p, mx, my)) {
+				result.add(polygons[p]);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Polygons which contain the point (query of the box rounds its center)
+	 */
+	public List<BinaryMapDataObject> query(int tx, int ty) {
+		TIntArrayList candidates = searchBoxes(tx, ty, tx, ty, new TIntArrayList());
+		List<BinaryMapDataObject> result = new ArrayList<>();
+		for (int i = 0; i < candidates.size(); i++) {
+			int p = candidates.get(i);
+			if (contain(p, tx, ty)) {
+				result.add(polygons[p]);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Polygons which intersect the box
+	 */
+	public List<BinaryMapDataObject> queryIntersecting(int lx, int ty, int rx, int by) {
+		TIntArrayList candidates = searchBoxes(lx, ty, rx, by, new TIntArrayList());
+		List<BinaryMapDataObject> result = new ArrayList<>();
+		for (int i = 0; i < candidates.size(); i++) {
+			int p = candidates.get(i);
+			if (intersect(p, lx, ty, rx, by)) {
+				result.add(polygons[p]);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Index of the smallest polygon containing point or -1
+	 */
+	public int findSmallest(int tx, int ty, TIntArrayList tmp) {
+		tmp.clear();
+		searchBoxes(tx, ty, tx, ty, tmp);
+		int res = -1;
+		for (int i = 0; i < tmp.size(); i++) {
+			int p = tmp.get(i);
+			if ((res == -1 || areas[p] < areas[res]) && contain(p, tx, ty)) {
+				res = p;
+			}
+		}
+		return res;
+	}
+
+	public Map<String, List<BinaryMapDataObject>> getPolygonsByDownloadName() {
+		return byDownloadName;
+	}
+
+	/**
+	 * Finds the smallest polygon containing each point ({@link #findSmallest}), points are split between threads
+	 * (threads of shared pool, see {@link ParallelTasks}, and calling thread).
+	 */
+	public int[] classify(final int[] x31, final int[] y31, int threads) throws InterruptedException {
+		final int[] result = new int[x31.length];
+		threads = Math.max(1, Math.min(threads, x31.length / 1024 + 1));
+		List<Callable<Void>> parts = new ArrayList<>();
+		final int step = (x31.length + threads - 1) / threads;
+		for (int t = 0; t < threads; t++) {
+			final int start = t * step;
+			final int end = Math.min(x31.length, start + step);
+			parts.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					TIntArrayList tmp = new TIntArrayList();
+					for (int i = start; i < end; i++) {
+						result[i] = findSmallest(x31[i], y31[i], tmp);
+					}
+					return null;
+				}
+			});
+		}
+		ParallelTasks<Void> tasks = new ParallelTasks<Void>(parts).start(threads);
+		for (int i = 0; i < tasks.size(); i++) {
+			try {
+				tasks.get(i);
+			} catch (ExecutionException e) {
+				throw new IllegalStateException(e.getCause());
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,342 @@
+package net.osmand.render;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.set.hash.TIntHashSet;
+import net.osmand.binary.BinaryMapDataObject;
+import net.osmand.binary.BinaryMapIndexReader.MapIndex;
+import net.osmand.binary.BinaryMapIndexReader.TagValuePair;
+
+/**
+ * Memoized results of {@link RenderingRuleSearchRequest#search(int, boolean)}. Most objects of a tile
+ * share few type combinations, so search by same input is repeated many times.
+ * Key is state, input values which differ from saved state of request (tag, value, zoom, layer, area...)
+ * and object additional types used by additional filters of style (with map index if there are such types).
+ * Saved state of request (night mode, custom properties) and storage are bound to cache, cache is
+ * cleared when they change. Result is change of request values made by search, so it is exactly same
+ * as search. Cache is bounded by number of entries (LRU) and it's not thread safe.
+ */
+public class RenderingRuleSearchCache {
+
+	public static final int DEFAULT_SIZE = 2048;
+
+	private final int maxSize;
+	private final LinkedHashMap<SearchKey, SearchResult> results;
+	// text rules depend on name of object
+	private final boolean[] cachedStates = new boolean[RenderingRulesStorage.LENGTH_RULES];
+
+	private RenderingRulesStorage storage;
+	private int rulesVersion;
+	private int[] savedValues;
+	private float[] savedFvalues;
+	private int[] preValues;
+	private float[] preFvalues;
+
+	// additional filters of style: "tag=value" and "tag"
+	private final Set<String> additionalTagValues = new HashSet<>();
+	private final Set<String> additionalTags = new HashSet<>();
+	private final Map<MapIndex, TIntHashSet> additionalTypes = new IdentityHashMap<>();
+	private final TIntHashSet objectTypes = new TIntHashSet();
+
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long skipped;
+
+	public RenderingRuleSearchCache() {
+		this(DEFAULT_SIZE);
+	}
+
+	public RenderingRuleSearchCache(final int maxSize) {
+		this.maxSize = maxSize;
+		results = new LinkedHashMap<SearchKey, SearchResult>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<SearchKey, SearchResult> eldest) {
+				if (size() > maxSize) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+		Arrays.fill(cachedStates, true);
+		cachedStates[RenderingRulesStorage.TEXT_RULES] = false;
+	}
+
+	public void setCachedState(int state, boolean cached) {
+		cachedStates[state] = cached;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public int size() {
+		return results.size();
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	public long getEvictions() {
+		return evictions;
+	}
+
+	public long getSkipped() {
+		return skipped;
+	}
+
+	public double getHitRatio() {
+		long total = hits + misses;
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+	public void resetStatistics() {
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+		skipped = 0;
+	}
+
+	public void clear() {
+		results.clear();
+		additionalTypes.clear();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Rendering search cache: %d entries, %d hits, %d misses (%.1f%%), %d evicted, %d not cached",
+				results.size(), hits, misses, getHitRatio() * 100, evictions, skipped);
+	}
+
+	void bind(RenderingRuleSearchRequest req, int[] savedValues, float[] savedFvalues) {
+		RenderingRulesStorage st = req.getStorage();
+		if (storage == st && rulesVersion == st.getRulesVersion() && Arrays.equals(this.savedValues, savedValues)
+				&& Arrays.equals(this.savedFvalues, savedFvalues)) {
+			return;
+		}
+		clear();
+		this.savedValues = savedValues.clone();
+		this.savedFvalues = savedFvalues.clone();
+		preValues = new int[savedValues.length];
+		preFvalues = new float[savedFvalues.length];
+		if (storage != st || rulesVersion != st.getRulesVersion()) {
+			storage = st;
+			rulesVersion = st.getRulesVersion();
+			collectAdditionalFilters();
+		}
+	}
+
+	boolean search(RenderingRuleSearchRequest req, int state, boolean loadOutput, int[] values, float[] fvalues) {
+		if (!cachedStates[state] || storage != req.getStorage() || rulesVersion != storage.getRulesVersion()) {
+			skipped++;
+			return req.searchRules(state, loadOutput);
+		}
+		SearchKey key = createKey(req.getObject(), state, loadOutput, values, fvalues);
+		SearchResult res = results.get(key);
+		if (res != null) {
+			hits++;
+			for (int i = 0; i < res.ids.length; i++) {
+				values[res.ids[i]] = res.values[i];
+				fvalues[res.ids[i]] = res.fvalues[i];
+			}
+			return res.found;
+		}
+		misses++;
+		System.arraycopy(values, 0, preValues, 0, values.length);
+		System.arraycopy(fvalues, 0, preFvalues, 0, fvalues.length);
+		boolean found = req.searchRules(state, loadOutput);
+		res = new SearchResult(found, values, fvalues, preValues, preFvalues);
+		results.put(key, res);
+		return found;
+	}
+
+	private SearchKey createKey(BinaryMapDataObject obj, int state, boolean loadOutput, int[] values, float[] fvalues) {
+		int changed = 0;
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] != savedValues[i] || Float.floatToIntBits(fvalues[i]) != Float.floatToIntBits(savedFvalues[i])) {
+				changed++;
+			}
+		}
+		int[] input = new int[changed * 3];
+		int k = 0;
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] != savedValues[i] || Float.floatToIntBits(fvalues[i]) != Float.floatToIntBits(savedFvalues[i])) {
+				input[k++] = i;
+				input[k++] = values[i];
+				input[k++] = Float.floatToIntBits(fvalues[i]);
+			}
+		}
+		MapIndex mapIndex = null;
+		int[] types = null;
+		if (obj != null) {
+			types = getAdditionalTypes(obj);
+			if (types.length > 0) {
+				mapIndex = obj.getMapIndex();
+			}
+		}
+		return new SearchKey(state, loadOutput, mapIndex, types, input);
+	}
+
+	// sorted additional types of object which could be accepted by additional filters
+	private int[] getAdditionalTypes(BinaryMapDataObject obj) {
+		int[] types = obj.getAdditionalTypes();
+		if (types == null || types.length == 0) {
+			return new int[0];
+		}
+		MapIndex mapIndex = obj.getMapIndex();
+		TIntHashSet tagValueTypes = additionalTypes.get(mapIndex);
+		if (tagValueTypes == null) {
+			tagValueTypes = new TIntHashSet();
+			for (String tv : additionalTagValues) {
+				int k = tv.indexOf('=');
+				Integer type = mapIndex.getRule(tv.substring(0, k), tv.substring(k + 1));
+				if (type != null) {
+					tagValueTypes.add(type);
+				}
+			}
+			additionalTypes.put(mapIndex, tagValueTypes);
+		}
+		objectTypes.clear();
+		for (int type : types) {
+			if (tagValueTypes.contains(type)) {
+				objectTypes.add(type);
+			} else if (!additionalTags.isEmpty()) {
+				TagValuePair vp = mapIndex.decodeType(type);
+				if (vp != null && additionalTags.contains(vp.tag)) {
+					objectTypes.add(type);
+				}
+			}
+		}
+		int[] res = objectTypes.toArray();
+		Arrays.sort(res);
+		return res;
+	}
+
+	private void collectAdditionalFilters() {
+		additionalTagValues.clear();
+		additionalTags.clear();
+		Map<RenderingRule, Boolean> visited = new IdentityHashMap<>();
+		for (TIntObjectHashMap<RenderingRule> m : storage.tagValueGlobalRules) {
+			if (m != null) {
+				for (RenderingRule r : m.valueCollection()) {
+					collectAdditionalFilters(r, visited);
+				}
+			}
+		}
+		for (RenderingRule r : storage.getRenderingAttributeValues()) {
+			collectAdditionalFilters(r, visited);
+		}
+	}
+
+	private void collectAdditionalFilters(RenderingRule rule, Map<RenderingRule, Boolean> visited) {
+		if (rule == null || visited.put(rule, Boolean.TRUE) != null) {
+			return;
+		}
+		RenderingRuleProperty[] properties = rule.getProperties();
+		for (int i = 0; i < properties.length; i++) {
+			RenderingRuleProperty rp = properties[i];
+			if (rp.isInputProperty()) {
+				if (RenderingRuleStorageProperties.ADDITIONAL.equals(rp.getAttrName())) {
+					String val = storage.getStringValue(rule.getIntProp(i));
+					if (val != null) {
+						(val.indexOf('=') != -1 ? additionalTagValues : additionalTags).add(val);
+					}
+				}
+			} else {
+				collectAdditionalFilters(rule.getAttrProp(i), visited);
+			}
+		}
+		collectAdditionalFilters(rule.getIfElseChildren(), visited);
+		collectAdditionalFilters(rule.getIfChildren(), visited);
+	}
+
+	private void collectAdditionalFilters(List<RenderingRule> rules, Map<RenderingRule, Boolean> visited) {
+		for (RenderingRule r : rules) {
+			collectAdditionalFilters(r, visited);
+		}
+	}
+
+	private static class SearchKey {
+		final int state;
+		final boolean loadOutput;
+		final MapIndex mapIndex;
+		final int[] types;
+		final int[] input;
+		final int hash;
+
+		SearchKey(int state, boolean loadOutput, MapIndex mapIndex, int[] types, int[] input) {
+			this.state = state;
+			this.loadOutput = loadOutput;
+			this.mapIndex = mapIndex;
+			this.types = types;
+			this.input = input;
+			int h = state * 31 + (loadOutput ? 1 : 0);
+			h = h * 31 + System.identityHashCode(mapIndex);
+			h = h * 31 + Arrays.hashCode(types);
+			this.hash = h * 31 + Arrays.hashCode(input);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof SearchKey)) {
+				return false;
+			}
+			SearchKey o = (SearchKey) obj;
+			return hash == o.hash && state == o.state && loadOutput == o.loadOutput && mapIndex == o.mapIndex
+					&& Arrays.equals(types, o.types) && Arrays.equals(input, o.input);
+		}
+	}
+
+	// values changed by search
+	private static class SearchResult {
+		final boolean found;
+		final int[] ids;
+		final int[] values;
+		final float[] fvalues;
+
+		SearchResult(boolean found, int[] values, float[] fvalues, int[] preValues, float[] preFvalues) {
+			this.found = found;
+			int changed = 0;
+			for (int i = 0; i < values.length; i++) {
+				if (values[i] != preValues[i] || Float.floatToIntBits(fvalues[i]) != Float.floatToIntBits(preFvalues[i])) {
+					changed++;
+				}
+			}
+			ids = new int[changed];
+			this.values = new int[changed];
+			this.fvalues = new float[changed];
+			int k = 0;
+			for (int i = 0; i < values.length; i++) {
+				if (values[i] != preValues[i] || Float.floatToIntBits(fvalues[i]) != Float.floatToIntBits(preFvalues[i])) {
+					ids[k] = i;
+					this.values[k] = values[i];
+					this.fvalues[k] = fvalues[i];
+					k++;
+				}
+			}
+		}
+	}
+}
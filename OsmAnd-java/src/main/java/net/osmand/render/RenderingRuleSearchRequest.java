@@ -7,6 +7,7 @@ import static net.osmand.render.RenderingRuleProperty.INT_TYPE;
 import static net.osmand.render.RenderingRuleProperty.STRING_TYPE;
 
 import net.osmand.binary.BinaryMapDataObject;
+import net.osmand.render.RenderingRulesCompiled.CompiledRule;
 import net.osmand.util.Algorithms;
 
 import java.util.Collections;
@@ -21,6 +22,10 @@ public class RenderingRuleSearchRequest {
 	private BinaryMapDataObject object;
 	private final RenderingRuleProperty[] props;
 	private final RenderingRulesStorage storage;
+	// set by setCompiledRules, otherwise current compiled rules of storage are used
+	private RenderingRulesCompiled compiledRules;
+	private boolean compiledRulesSet;
+	private RenderingRuleSearchCache searchCache;
 
 	private final int[] values;
 	private final float[] fvalues;
@@ -53,6 +58,8 @@ public class RenderingRuleSearchRequest {
 		this.object = searchRequest.object;
 		this.searchResult = searchRequest.searchResult;
 		this.ALL = searchRequest.ALL;
+		this.compiledRules = searchRequest.compiledRules;
+		this.compiledRulesSet = searchRequest.compiledRulesSet;
 		System.arraycopy(searchRequest.values, 0, values, 0, searchRequest.values.length);
 		System.arraycopy(searchRequest.fvalues, 0, fvalues, 0, searchRequest.fvalues.length);
 		saveState();
@@ -89,6 +96,45 @@ public class RenderingRuleSearchRequest {
 		return object;
 	}
 
+	/**
+	 * Compiled rules used by search, null if rules tree is walked.
+	 */
+	public RenderingRulesCompiled getCompiledRules() {
+		if (!compiledRulesSet) {
+			return storage.getCompiledRules();
+		}
+		if (compiledRules != null && compiledRules.getRulesVersion() != storage.getRulesVersion()) {
+			// rules of storage were changed after compilation
+			return storage.getCompiledRules();
+		}
+		return compiledRules;
+	}
+
+	/**
+	 * Rules compiled from same storage are searched instead of rules tree, null to walk rules tree.
+	 */
+	public void setCompiledRules(RenderingRulesCompiled compiledRules) {
+		if (compiledRules != null && compiledRules.getStorage() != storage) {
+			throw new IllegalArgumentException("Rules are compiled from another storage");
+		}
+		this.compiledRules = compiledRules;
+		this.compiledRulesSet = true;
+	}
+
+	public RenderingRuleSearchCache getSearchCache() {
+		return searchCache;
+	}
+
+	/**
+	 * Searches are memoized in cache, cache is bound to current saved state, null to disable.
+	 */
+	public void setSearchCache(RenderingRuleSearchCache searchCache) {
+		this.searchCache = searchCache;
+		if (searchCache != null) {
+			searchCache.bind(this, savedValues, savedFvalues);
+		}
+	}
+
 	public void setStringFilter(RenderingRuleProperty p, String filter) {
 		assert p.isInputProperty();
 		values[p.getId()] = storage.getDictionaryValue(filter);
@@ -114,6 +160,9 @@ public class RenderingRuleSearchRequest {
 		savedFvalues = new float[fvalues.length];
 		System.arraycopy(values, 0, savedValues, 0, values.length);
 		System.arraycopy(fvalues, 0, savedFvalues, 0, fvalues.length);
+		if (searchCache != null) {
+			searchCache.bind(this, savedValues, savedFvalues);
+		}
 	}
 
 	public void clearState() {
@@ -153,6 +202,15 @@ public class RenderingRuleSearchRequest {
 	
 	public boolean searchRenderingAttribute(String attribute) {
 		searchResult = false;
+		RenderingRulesCompiled compiledRules = getCompiledRules();
+		if (compiledRules != null) {
+			CompiledRule rule = compiledRules.getRenderingAttributeRule(attribute);
+			if (rule == null) {
+				return false;
+			}
+			searchResult = visitRule(rule, true);
+			return searchResult;
+		}
 		RenderingRule rule = storage.getRenderingAttributeRule(attribute);
 		if (rule == null) {
 			return false;
@@ -166,6 +224,14 @@ public class RenderingRuleSearchRequest {
 	}
 	
 	public boolean search(int state, boolean loadOutput) {
+		if (searchCache != null) {
+			searchResult = searchCache.search(this, state, loadOutput, values, fvalues);
+			return searchResult;
+		}
+		return searchRules(state, loadOutput);
+	}
+
+	boolean searchRules(int state, boolean loadOutput) {
 		searchResult = false;
 		int tagKey = values[storage.PROPS.R_TAG.getId()];
 		int valueKey = values[storage.PROPS.R_VALUE.getId()];
@@ -191,11 +257,21 @@ public class RenderingRuleSearchRequest {
 		values[storage.PROPS.R_TAG.getId()] = tagKey;
 		values[storage.PROPS.R_VALUE.getId()] = valueKey;
 		values[storage.PROPS.R_DISABLE.getId()] = 0;
-		RenderingRule accept = storage.getRule(state, tagKey, valueKey);
-		if (accept == null) {
-			return false;
+		boolean match;
+		RenderingRulesCompiled compiledRules = getCompiledRules();
+		if (compiledRules != null) {
+			CompiledRule accept = compiledRules.getRule(state, tagKey, valueKey);
+			if (accept == null) {
+				return false;
+			}
+			match = visitRule(accept, loadOutput);
+		} else {
+			RenderingRule accept = storage.getRule(state, tagKey, valueKey);
+			if (accept == null) {
+				return false;
+			}
+			match = visitRule(accept, loadOutput);
 		}
-		boolean match = visitRule(accept, loadOutput);
 		if (match && values[storage.PROPS.R_DISABLE.getId()] != 0) {
 			return false;
 		}
@@ -284,6 +360,94 @@ public class RenderingRuleSearchRequest {
 		return true;
 	}
 
+	// same as visitRule(RenderingRule, boolean) for compiled rule
+	private boolean visitRule(CompiledRule rule, boolean loadOutput) {
+		boolean input = checkInputProperties(rule);
+		if (!input) {
+			return false;
+		}
+		if (!loadOutput && !rule.group) {
+			return true;
+		}
+		if (!rule.group) {
+			loadOutputProperties(rule, true);
+		}
+		boolean match = false;
+		for (CompiledRule rr : rule.ifElseChildren) {
+			match = visitRule(rr, loadOutput);
+			if (match) {
+				break;
+			}
+		}
+		boolean fit = (match || !rule.group);
+		if (fit && loadOutput) {
+			if (rule.group) {
+				loadOutputProperties(rule, false);
+			}
+			for (CompiledRule rr : rule.ifChildren) {
+				visitRule(rr, loadOutput);
+			}
+		}
+		return fit;
+	}
+
+	private void loadOutputProperties(CompiledRule rule, boolean override) {
+		RenderingRuleProperty[] properties = rule.outputProps;
+		for (int i = 0; i < properties.length; i++) {
+			RenderingRuleProperty rp = properties[i];
+			if (!isSpecified(rp) || override) {
+				CompiledRule rr = rule.outputRefs != null ? rule.outputRefs[i] : null;
+				if (rr != null) {
+					visitRule(rr, true);
+					if (isSpecified(storage.PROPS.R_ATTR_COLOR_VALUE)) {
+						values[rp.getId()] = getIntPropertyValue(storage.PROPS.R_ATTR_COLOR_VALUE);
+					} else if (isSpecified(storage.PROPS.R_ATTR_INT_VALUE)) {
+						values[rp.getId()] = getIntPropertyValue(storage.PROPS.R_ATTR_INT_VALUE);
+						fvalues[rp.getId()] = getFloatPropertyValue(storage.PROPS.R_ATTR_INT_VALUE);
+					} else if (isSpecified(storage.PROPS.R_ATTR_BOOL_VALUE)) {
+						values[rp.getId()] = getIntPropertyValue(storage.PROPS.R_ATTR_BOOL_VALUE);
+					}
+				} else if (rp.isFloat()) {
+					fvalues[rp.getId()] = rule.outputFloats[i];
+					values[rp.getId()] = rule.outputInts[i];
+				} else {
+					values[rp.getId()] = rule.outputInts[i];
+				}
+			}
+		}
+	}
+
+	private boolean checkInputProperties(CompiledRule rule) {
+		int[] ids = rule.filterIds;
+		for (int i = 0; i < ids.length; i++) {
+			if (i == rule.disableIndex) {
+				values[storage.PROPS.R_DISABLE.getId()] = rule.disableValue;
+			}
+			boolean match;
+			switch (rule.filterKinds[i]) {
+			case RenderingRulesCompiled.FILTER_INT:
+				match = values[ids[i]] == rule.filterInts[i];
+				break;
+			case RenderingRulesCompiled.FILTER_FLOAT:
+				match = fvalues[ids[i]] == rule.filterFloats[i];
+				break;
+			case RenderingRulesCompiled.FILTER_ACCEPT_FLOAT:
+				match = rule.filterProps[i].accept(rule.filterFloats[i], fvalues[ids[i]], this);
+				break;
+			default:
+				match = rule.filterProps[i].accept(rule.filterInts[i], values[ids[i]], this);
+				break;
+			}
+			if (!match) {
+				return false;
+			}
+		}
+		if (rule.disableIndex == ids.length) {
+			values[storage.PROPS.R_DISABLE.getId()] = rule.disableValue;
+		}
+		return true;
+	}
+
 	public boolean isSpecified(RenderingRuleProperty property) {
 		if (property.isFloat()) {
 			return fvalues[property.getId()] != 0 || values[property.getId()] != -1;
@@ -0,0 +1,265 @@
+package net.osmand.render;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.set.hash.TIntHashSet;
+
+/**
+ * Rules of {@link RenderingRulesStorage} compiled to flat arrays: (tag, value) key gives root rule,
+ * input filters of every rule are resolved to plain comparisons and sorted by selectivity, so the
+ * most rejecting filters are checked first. Search by compiled rules gives same result as tree walk.
+ */
+public class RenderingRulesCompiled {
+
+	static final int FILTER_INT = 0;
+	static final int FILTER_FLOAT = 1;
+	static final int FILTER_ACCEPT_INT = 2;
+	static final int FILTER_ACCEPT_FLOAT = 3;
+
+	// share of requests expected to pass range or special filters (minzoom, maxzoom, additional)
+	private static final float ACCEPT_SELECTIVITY = 0.75f;
+	// additional filter decodes object types, check it last
+	private static final float ADDITIONAL_COST = 1;
+
+	static class CompiledRule {
+		final boolean group;
+
+		// filters before disableIndex are checked before disable is set (as in rule properties order)
+		int[] filterIds;
+		int[] filterKinds;
+		int[] filterInts;
+		float[] filterFloats;
+		RenderingRuleProperty[] filterProps;
+		int disableIndex = -1;
+		int disableValue;
+
+		RenderingRuleProperty[] outputProps;
+		int[] outputInts;
+		float[] outputFloats;
+		CompiledRule[] outputRefs;
+
+		CompiledRule[] ifElseChildren;
+		CompiledRule[] ifChildren;
+
+		CompiledRule(boolean group) {
+			this.group = group;
+		}
+	}
+
+	private final RenderingRulesStorage storage;
+	private final int rulesVersion;
+	private final TIntObjectHashMap<CompiledRule>[] rules;
+	private final Map<String, CompiledRule> attributes = new LinkedHashMap<>();
+	private final Map<RenderingRule, CompiledRule> compiled = new IdentityHashMap<>();
+	// distinct values of equality filters by property id
+	private final TIntObjectHashMap<TIntHashSet> filterValues = new TIntObjectHashMap<>();
+
+	@SuppressWarnings("unchecked")
+	RenderingRulesCompiled(RenderingRulesStorage storage, int rulesVersion) {
+		this.storage = storage;
+		this.rulesVersion = rulesVersion;
+		Map<RenderingRule, Boolean> visited = new IdentityHashMap<>();
+		for (TIntObjectHashMap<RenderingRule> m : storage.tagValueGlobalRules) {
+			if (m != null) {
+				for (RenderingRule r : m.valueCollection()) {
+					collectFilterValues(r, visited);
+				}
+			}
+		}
+		for (RenderingRule r : storage.getRenderingAttributeValues()) {
+			collectFilterValues(r, visited);
+		}
+
+		rules = new TIntObjectHashMap[storage.tagValueGlobalRules.length];
+		for (int i = 0; i < rules.length; i++) {
+			TIntObjectHashMap<RenderingRule> m = storage.tagValueGlobalRules[i];
+			if (m != null) {
+				rules[i] = new TIntObjectHashMap<>();
+				for (int key : m.keys()) {
+					rules[i].put(key, compile(m.get(key)));
+				}
+			}
+		}
+		for (String name : storage.getRenderingAttributeNames()) {
+			attributes.put(name, compile(storage.getRenderingAttributeRule(name)));
+		}
+	}
+
+	int getRulesVersion() {
+		return rulesVersion;
+	}
+
+	public RenderingRulesStorage getStorage() {
+		return storage;
+	}
+
+	public int getRulesCount() {
+		return compiled.size();
+	}
+
+	CompiledRule getRule(int state, int tagKey, int valueKey) {
+		TIntObjectHashMap<CompiledRule> m = rules[state];
+		if (m != null) {
+			return m.get((tagKey << RenderingRulesStorage.SHIFT_TAG_VAL) | valueKey);
+		}
+		return null;
+	}
+
+	CompiledRule getRenderingAttributeRule(String attribute) {
+		return attributes.get(attribute);
+	}
+
+	private void collectFilterValues(RenderingRule rule, Map<RenderingRule, Boolean> visited) {
+		if (rule == null || visited.put(rule, Boolean.TRUE) != null) {
+			return;
+		}
+		RenderingRuleProperty[] properties = rule.getProperties();
+		for (int i = 0; i < properties.length; i++) {
+			RenderingRuleProperty rp = properties[i];
+			if (rp.isInputProperty()) {
+				TIntHashSet set = filterValues.get(rp.getId());
+				if (set == null) {
+					set = new TIntHashSet();
+					filterValues.put(rp.getId(), set);
+				}
+				set.add(rp.isFloat() ? Float.floatToIntBits(rule.getFloatProp(i)) : rule.getIntProp(i));
+			} else {
+				collectFilterValues(rule.getAttrProp(i), visited);
+			}
+		}
+		for (RenderingRule rr : rule.getIfElseChildren()) {
+			collectFilterValues(rr, visited);
+		}
+		for (RenderingRule rr : rule.getIfChildren()) {
+			collectFilterValues(rr, visited);
+		}
+	}
+
+	private CompiledRule compile(RenderingRule rule) {
+		if (rule == null) {
+			return null;
+		}
+		CompiledRule c = compiled.get(rule);
+		if (c != null) {
+			return c;
+		}
+		c = new CompiledRule(rule.isGroup());
+		compiled.put(rule, c);
+
+		RenderingRuleProperty[] properties = rule.getProperties();
+		List<Integer> before = new ArrayList<>();
+		List<Integer> after = new ArrayList<>();
+		List<Integer> outputs = new ArrayList<>();
+		boolean disable = false;
+		for (int i = 0; i < properties.length; i++) {
+			RenderingRuleProperty rp = properties[i];
+			if (rp.isInputProperty()) {
+				(disable ? after : before).add(i);
+			} else {
+				if (rp == storage.PROPS.R_DISABLE) {
+					disable = true;
+					c.disableValue = rule.getIntProp(i);
+				}
+				if (rp.isOutputProperty()) {
+					outputs.add(i);
+				}
+			}
+		}
+		// filters don't have side effects, only disable position should be kept
+		sortBySelectivity(before, rule);
+		sortBySelectivity(after, rule);
+		if (disable) {
+			c.disableIndex = before.size();
+		}
+		before.addAll(after);
+		int fl = before.size();
+		c.filterIds = new int[fl];
+		c.filterKinds = new int[fl];
+		c.filterInts = new int[fl];
+		c.filterFloats = new float[fl];
+		c.filterProps = new RenderingRuleProperty[fl];
+		for (int k = 0; k < fl; k++) {
+			int i = before.get(k);
+			RenderingRuleProperty rp = properties[i];
+			c.filterIds[k] = rp.getId();
+			c.filterKinds[k] = getFilterKind(rp);
+			c.filterInts[k] = rule.getIntProp(i);
+			c.filterFloats[k] = rule.getFloatProp(i);
+			c.filterProps[k] = rp;
+		}
+
+		int ol = outputs.size();
+		c.outputProps = new RenderingRuleProperty[ol];
+		c.outputInts = new int[ol];
+		c.outputFloats = new float[ol];
+		for (int k = 0; k < ol; k++) {
+			int i = outputs.get(k);
+			c.outputProps[k] = properties[i];
+			c.outputInts[k] = rule.getIntProp(i);
+			c.outputFloats[k] = rule.getFloatProp(i);
+			RenderingRule ref = rule.getAttrProp(i);
+			if (ref != null) {
+				if (c.outputRefs == null) {
+					c.outputRefs = new CompiledRule[ol];
+				}
+				c.outputRefs[k] = compile(ref);
+			}
+		}
+
+		c.ifElseChildren = compile(rule.getIfElseChildren());
+		c.ifChildren = compile(rule.getIfChildren());
+		return c;
+	}
+
+	private CompiledRule[] compile(List<RenderingRule> children) {
+		CompiledRule[] res = new CompiledRule[children.size()];
+		for (int i = 0; i < res.length; i++) {
+			res[i] = compile(children.get(i));
+		}
+		return res;
+	}
+
+	private static int getFilterKind(RenderingRuleProperty rp) {
+		// subclasses (minzoom, maxzoom, additional) have own accept
+		if (rp.getClass() == RenderingRuleProperty.class) {
+			if (rp.isFloat()) {
+				return FILTER_FLOAT;
+			} else if (rp.isIntParse()) {
+				return FILTER_INT;
+			}
+		}
+		return rp.isFloat() ? FILTER_ACCEPT_FLOAT : FILTER_ACCEPT_INT;
+	}
+
+	private void sortBySelectivity(List<Integer> filters, final RenderingRule rule) {
+		if (filters.size() < 2) {
+			return;
+		}
+		final RenderingRuleProperty[] properties = rule.getProperties();
+		filters.sort(new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return Float.compare(getSelectivity(properties[o1]), getSelectivity(properties[o2]));
+			}
+		});
+	}
+
+	// expected share of requests passing the filter
+	private float getSelectivity(RenderingRuleProperty rp) {
+		int kind = getFilterKind(rp);
+		if (kind == FILTER_INT || kind == FILTER_FLOAT) {
+			TIntHashSet set = filterValues.get(rp.getId());
+			return set == null || set.size() <= 1 ? 1 : 1f / set.size();
+		}
+		if (RenderingRuleStorageProperties.ADDITIONAL.equals(rp.getAttrName())) {
+			return ACCEPT_SELECTIVITY + ADDITIONAL_COST;
+		}
+		return ACCEPT_SELECTIVITY;
+	}
+}
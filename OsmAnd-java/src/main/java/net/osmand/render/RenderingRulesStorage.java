@@ -32,7 +32,7 @@ public class RenderingRulesStorage {
 	public final static int ORDER_RULES = 5;
 	public final static int LENGTH_RULES = 6;
 	
-	private final static int SHIFT_TAG_VAL = 16;
+	final static int SHIFT_TAG_VAL = 16;
 
 	private final static String SEQ_ATTR_KEY = "seq";
 	private final static String SEQ_PLACEHOLDER = "#SEQ";
@@ -56,6 +56,13 @@ public class RenderingRulesStorage {
 
 	protected int internalVersion = 1;
 
+	// search requests use compiled rules (see RenderingRulesCompiled), false - walk rules tree
+	public static boolean COMPILE_RULES = true;
+
+	// reset whenever rules are changed
+	private volatile RenderingRulesCompiled compiledRules;
+	private volatile int rulesVersion;
+
 
 	public String getDependsName() {
 		return dependsName;
@@ -124,6 +131,7 @@ public class RenderingRulesStorage {
 
 	public void parseRulesFromXmlInputStream(InputStream is, RenderingRulesStorageResolver resolver, boolean addon) throws XmlPullParserException,
 			IOException {
+		rulesChanged();
 		XmlPullParser parser = PlatformUtil.newXMLPullParser();
 		RenderingRulesHandler handler = new RenderingRulesHandler(parser, resolver, addon);
 		handler.parse(is);
@@ -138,6 +146,7 @@ public class RenderingRulesStorage {
 		if (depends == null) {
 			return;
 		}
+		rulesChanged();
 		// merge results
 		// dictionary and props are already merged
 		Iterator<Entry<String, RenderingRule>> it = depends.renderingAttributes.entrySet().iterator();
@@ -576,6 +585,7 @@ public class RenderingRulesStorage {
 								 Map<String, String> attrs,
 								 int state,
 								 boolean addToBegin) throws XmlPullParserException {
+		rulesChanged();
 		if (renderingRule.isGroup()
 				&& (renderingRule.getIntPropertyValue(RenderingRuleStorageProperties.TAG) == -1
 				|| renderingRule.getIntPropertyValue(RenderingRuleStorageProperties.VALUE) == -1)) {
@@ -640,6 +650,43 @@ public class RenderingRulesStorage {
 		return null;
 	}
 
+	private void rulesChanged() {
+		compiledRules = null;
+		rulesVersion++;
+	}
+
+	int getRulesVersion() {
+		return rulesVersion;
+	}
+
+	/**
+	 * Compiles current rules, search requests of this storage use them until rules are changed.
+	 */
+	public synchronized RenderingRulesCompiled compileRules() {
+		compiledRules = new RenderingRulesCompiled(this, rulesVersion);
+		return compiledRules;
+	}
+
+	/**
+	 * Compiled current rules, rules are compiled on first call after loading or change (see COMPILE_RULES).
+	 */
+	public RenderingRulesCompiled getCompiledRules() {
+		RenderingRulesCompiled c = compiledRules;
+		if (c != null && c.getRulesVersion() == rulesVersion) {
+			return c;
+		}
+		if (!COMPILE_RULES) {
+			return null;
+		}
+		synchronized (this) {
+			c = compiledRules;
+			if (c == null || c.getRulesVersion() != rulesVersion) {
+				c = compileRules();
+			}
+			return c;
+		}
+	}
+
 	public RenderingRule getRenderingAttributeRule(String attribute) {
 		return renderingAttributes.get(attribute);
 	}
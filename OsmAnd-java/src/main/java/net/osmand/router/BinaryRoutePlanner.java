@@ -1,21 +1,22 @@
 package net.osmand.router;
 
 import gnu.trove.map.TLongObjectMap;
-import gnu.trove.map.hash.TLongObjectHashMap;
 
 import java.io.IOException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
-import java.util.PriorityQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import net.osmand.PlatformUtil;
 import net.osmand.binary.RouteDataObject;
 import net.osmand.data.LatLon;
 import net.osmand.osm.MapRenderingTypes;
 import net.osmand.util.MapUtils;
+import net.osmand.util.ParallelTasks;
 
 import org.apache.commons.logging.Log;
 
@@ -48,30 +49,12 @@ public class BinaryRoutePlanner {
 	}
 
 
-	private static class SegmentsComparator implements Comparator<RouteSegmentCost> {
-		@Override
-		public int compare(RouteSegmentCost o1, RouteSegmentCost o2) {
-			return Double.compare(o1.cost, o2.cost);
-		}
-	}
-	
 	private static float cost(float distanceFromStart, float distanceToEnd, RoutingContext ctx) {
 		return ctx.config.heuristicCoefficient * distanceToEnd + distanceFromStart;
 	}
 
-	private static class RouteSegmentCost {
-		float cost;
-		RouteSegment segment;
-		
-		public RouteSegmentCost(RouteSegment segment, RoutingContext ctx) {
-			this.cost = cost(segment.distanceFromStart, segment.distanceToEnd, ctx);
-			this.segment = segment;
-		}
-
-		@Override
-		public String toString() {
-			return String.format("%.2f %s", cost, segment);
-		}
+	private static void addToQueue(RouteSegmentQueue graphSegments, RouteSegment segment, RoutingContext ctx) {
+		graphSegments.add(segment, cost(segment.distanceFromStart, segment.distanceToEnd, ctx));
 	}
 
 	/**
@@ -80,14 +63,24 @@ public class BinaryRoutePlanner {
 	 */
 	FinalRouteSegment searchRouteInternal(final RoutingContext ctx, RouteSegmentPoint start, RouteSegmentPoint end, 
 			TLongObjectMap<RouteSegment> boundaries) throws InterruptedException, IOException {
+		if (ctx.config.parallelBidirectionalSearch && ctx.planRouteIn2Directions() && start != null && end != null
+				&& boundaries == null && ctx.visitor == null && ctx.precalculatedRouteDirection == null) {
+			ParallelSearchState state = new ParallelSearchState();
+			// without free thread in shared pool search is sequential
+			if (state.startReverseSearch(this, ctx, end)) {
+				return searchRouteInternalParallel(ctx, start, end, state);
+			}
+		}
 		// measure time
 		ctx.memoryOverhead = 1000;
 		// Initializing priority queue to visit way segments 
-		PriorityQueue<RouteSegmentCost> graphDirectSegments = new PriorityQueue<>(50, new SegmentsComparator());
-		PriorityQueue<RouteSegmentCost> graphReverseSegments = new PriorityQueue<>(50, new SegmentsComparator());
+		// Initializing queues and visited maps reused between calls (no allocation for each queue insertion)
+		RouteSegmentQueue graphDirectSegments = ctx.getSearchQueue(false);
+		RouteSegmentQueue graphReverseSegments = ctx.getSearchQueue(true);
 		// Set to not visit one segment twice (stores road.id << X + segmentStart)
-		TLongObjectHashMap<RouteSegment> visitedDirectSegments = new TLongObjectHashMap<RouteSegment>();
-		TLongObjectHashMap<RouteSegment> visitedOppositeSegments = new TLongObjectHashMap<RouteSegment>();
+		VisitedSegmentsMap visitedDirectSegments = ctx.getVisitedSegments(false);
+		VisitedSegmentsMap visitedOppositeSegments = ctx.getVisitedSegments(true);
+		ctx.clearSearchStructures();
 		initQueuesWithStartEnd(ctx, start, end, graphDirectSegments, graphReverseSegments);
 
 		boolean onlyBackward = ctx.getPlanRoadDirection() < 0;
@@ -104,11 +97,11 @@ public class BinaryRoutePlanner {
 			end.others = null;
 			forwardSearch = false;
 		}
-		PriorityQueue<RouteSegmentCost> graphSegments = forwardSearch ?  graphDirectSegments : graphReverseSegments;
+		RouteSegmentQueue graphSegments = forwardSearch ?  graphDirectSegments : graphReverseSegments;
 		float[] minCost = new float[] { Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
 		while (!graphSegments.isEmpty()) {
-			RouteSegmentCost cst = graphSegments.poll();
-			RouteSegment segment = cst.segment;
+			float segmentCost = graphSegments.peekCost();
+			RouteSegment segment = graphSegments.poll();
 			int visitedCnt = (start != null ? visitedDirectSegments.size() : 0) + (end != null ? visitedOppositeSegments.size() : 0);
 			// use accumulative approach
 			ctx.memoryOverhead = visitedCnt * STANDARD_ROAD_VISITED_OVERHEAD +
@@ -137,7 +130,7 @@ public class BinaryRoutePlanner {
 						finalSegment = new MultiFinalRouteSegment((FinalRouteSegment) segment);
 					} 
 					((MultiFinalRouteSegment) finalSegment).all.add((FinalRouteSegment) segment);
-					TLongObjectHashMap<RouteSegment> visitedSegments = (forwardSearch ? visitedDirectSegments : visitedOppositeSegments);
+					VisitedSegmentsMap visitedSegments = (forwardSearch ? visitedDirectSegments : visitedOppositeSegments);
 					if (!visitedSegments.containsKey(calculateRoutePointId(segment))) {
 						visitedSegments.put(calculateRoutePointId(segment), segment);
 					}
@@ -168,13 +161,13 @@ public class BinaryRoutePlanner {
 					println("  " + segment.segEnd + ">> Already visited by minimum");
 				}
 				skipSegment = true;
-			} else if (cst.cost + 5.0 < minCost[forwardSearch ? 1 : 0] && ASSERT_CHECKS && ctx.calculationMode != RouteCalculationMode.COMPLEX) {
+			} else if (segmentCost + 5.0 < minCost[forwardSearch ? 1 : 0] && ASSERT_CHECKS && ctx.calculationMode != RouteCalculationMode.COMPLEX) {
 				// squareRootDist doesn't follow Triangle-inequality and it breaks A* algorithm. Maximum error on the optimal route could be constant (5.0)
 				if (ctx.config.heuristicCoefficient <= 1) {
-					throw new IllegalStateException(cst.cost + " < ???  " + minCost[forwardSearch ? 1 : 0]);
+					throw new IllegalStateException(segmentCost + " < ???  " + minCost[forwardSearch ? 1 : 0]);
 				}
 			} else {
-				minCost[forwardSearch ? 1 : 0] = cst.cost;
+				minCost[forwardSearch ? 1 : 0] = segmentCost;
 			}
 			if (!skipSegment) {
 				if (forwardSearch) {
@@ -199,26 +192,27 @@ public class BinaryRoutePlanner {
 			}
 			if (ctx.planRouteIn2Directions()) {
 				// initial iteration make in 2 directions 
-				if (visitedDirectSegments.isEmpty() && !graphDirectSegments.isEmpty()) {
+				if (visitedDirectSegments.size() == 0 && !graphDirectSegments.isEmpty()) {
 					forwardSearch = true;
-				} else if (visitedOppositeSegments.isEmpty() && !graphReverseSegments.isEmpty()) {
+				} else if (visitedOppositeSegments.size() == 0 && !graphReverseSegments.isEmpty()) {
 					forwardSearch = false;
 				} else if (graphDirectSegments.isEmpty() || graphReverseSegments.isEmpty()) {
 					// can't proceed any more - check if final already exist
 					graphSegments = graphDirectSegments.isEmpty() ? graphReverseSegments : graphDirectSegments;
 					if (finalSegment == null) {
 						while (!graphSegments.isEmpty()) {
-							RouteSegmentCost pc = graphSegments.poll();
-							if (pc.segment instanceof FinalRouteSegment) {
-								finalSegment = (FinalRouteSegment) pc.segment;
+							RouteSegment pc = graphSegments.poll();
+							if (pc instanceof FinalRouteSegment) {
+								finalSegment = (FinalRouteSegment) pc;
 								break;
 							}
 						}
 					}
+					updateAllocationStats(ctx);
 					return finalSegment;
 				} else {
-					RouteSegment fw = graphDirectSegments.peek().segment;
-					RouteSegment bw = graphReverseSegments.peek().segment;
+					RouteSegment fw = graphDirectSegments.peek();
+					RouteSegment bw = graphReverseSegments.peek();
 					forwardSearch = Double.compare(cost(fw.distanceFromStart, fw.distanceToEnd, ctx), 
 							cost(bw.distanceFromStart, bw.distanceToEnd,ctx)) <= 0;
 				}
@@ -249,11 +243,260 @@ public class BinaryRoutePlanner {
 			ctx.calculationProgress.directQueueSize += graphDirectSegments.size(); // Math.max(ctx.directQueueSize, graphDirectSegments.size());
 			ctx.calculationProgress.oppositeQueueSize += graphReverseSegments.size();
 		}
+		updateAllocationStats(ctx);
 		return finalSegment;
 	}
 
+	private void updateAllocationStats(RoutingContext ctx) {
+		if (ctx.calculationProgress != null) {
+			RouteSegmentQueue direct = ctx.getSearchQueue(false), reverse = ctx.getSearchQueue(true);
+			ctx.calculationProgress.queueInsertions += direct.getInsertions() + reverse.getInsertions();
+			ctx.calculationProgress.searchAllocations += direct.getAllocations() + reverse.getAllocations()
+					+ ctx.getVisitedSegments(false).getAllocations() + ctx.getVisitedSegments(true).getAllocations();
+		}
+	}
+
+	// counters of one direction, added to context when parallel search ends
+	static class DirectionStats {
+		int visitedSegments;
+		int finalSegmentsFound;
+		int alertFasterRoadToVisitedSegments;
+		int alertSlowerSegmentedWasVisitedEarlier;
+	}
+
+	static class ParallelSearchState {
+		final VisitedSegments visitedDirectSegments = new ConcurrentVisitedSegmentsMap(1024);
+		final VisitedSegments visitedOppositeSegments = new ConcurrentVisitedSegmentsMap(1024);
+		final DirectionStats directStats = new DirectionStats();
+		final DirectionStats reverseStats = new DirectionStats();
+		// reverse search waits until calling thread initializes queues
+		final CountDownLatch queuesReady = new CountDownLatch(1);
+		Future<?> reverseSearch;
+		volatile int directQueueSize;
+		volatile int reverseQueueSize;
+		// min cost of queues (lower bound of not visited) and cost of best found meeting
+		volatile float directTop = Float.NEGATIVE_INFINITY;
+		volatile float reverseTop = Float.NEGATIVE_INFINITY;
+		volatile float bestCost = Float.POSITIVE_INFINITY;
+		volatile boolean stopped;
+		FinalRouteSegment finalSegment;
+		boolean limitReached;
+		Throwable error;
+
+		// called when frontiers meet (see checkIfOppositeSegmentWasVisited)
+		synchronized void offer(FinalRouteSegment segment) {
+			if (finalSegment == null || segment.distanceFromStart < finalSegment.distanceFromStart) {
+				finalSegment = segment;
+				bestCost = segment.distanceFromStart;
+			}
+		}
+
+		// for dijkstra costs of both queues could be summed up, for A* cost of each queue estimates whole route
+		// (same as sequential search which stops when final segment is minimum of both queues)
+		boolean isBoundReached(boolean dijkstra) {
+			float best = bestCost;
+			if (best == Float.POSITIVE_INFINITY) {
+				return false;
+			}
+			if (dijkstra) {
+				return directTop + reverseTop >= best;
+			}
+			return Math.min(directTop, reverseTop) >= best;
+		}
+
+		DirectionStats getStats(boolean reverseWaySearch) {
+			return reverseWaySearch ? reverseStats : directStats;
+		}
+
+		boolean startReverseSearch(final BinaryRoutePlanner planner, final RoutingContext ctx,
+				final RouteSegmentPoint end) {
+			reverseSearch = ParallelTasks.tryStart(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						queuesReady.await();
+						if (!stopped) {
+							planner.searchFrontier(ctx, ParallelSearchState.this, true, ctx.getSearchQueue(true), end);
+						}
+					} catch (Throwable e) {
+						fail(e);
+					}
+				}
+			});
+			return reverseSearch != null;
+		}
+
+		// waits for reverse search without interruption as it uses context
+		void joinReverseSearch() {
+			stopped = true;
+			queuesReady.countDown();
+			boolean interrupted = false;
+			while (true) {
+				try {
+					reverseSearch.get();
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					// reverse search doesn't throw
+					break;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		synchronized void stop(boolean limit) {
+			limitReached |= limit;
+			stopped = true;
+		}
+
+		synchronized void fail(Throwable e) {
+			if (error == null) {
+				error = e;
+			}
+			stopped = true;
+		}
+	}
+
+	/**
+	 * Same as searchRouteInternal in 2 directions but forward frontier is processed by current thread and
+	 * reverse frontier by thread of shared pool (see ParallelTasks). Frontiers meet through concurrent visited maps
+	 * (see checkIfOppositeSegmentWasVisited), search continues after first meeting while queues could
+	 * contain cheaper route (see ParallelSearchState.isBoundReached).
+	 */
+	private FinalRouteSegment searchRouteInternalParallel(final RoutingContext ctx, RouteSegmentPoint start,
+			final RouteSegmentPoint end, ParallelSearchState state) throws InterruptedException, IOException {
+		ctx.dijkstraMode = 0;
+		RouteSegmentQueue graphDirectSegments = ctx.getSearchQueue(false);
+		RouteSegmentQueue graphReverseSegments = ctx.getSearchQueue(true);
+		try {
+			ctx.parallelSearch = state;
+			ctx.clearSearchStructures();
+			initQueuesWithStartEnd(ctx, start, end, graphDirectSegments, graphReverseSegments);
+			state.queuesReady.countDown();
+			searchFrontier(ctx, state, false, graphDirectSegments, start);
+		} catch (Throwable e) {
+			state.fail(e);
+		} finally {
+			state.joinReverseSearch();
+			ctx.parallelSearch = null;
+		}
+		ctx.memoryOverhead = getParallelSearchOverhead(state);
+		if (state.error instanceof InterruptedException) {
+			throw (InterruptedException) state.error;
+		} else if (state.error instanceof RuntimeException) {
+			throw (RuntimeException) state.error;
+		} else if (state.error instanceof Error) {
+			throw (Error) state.error;
+		} else if (state.error != null) {
+			throw new IllegalStateException(state.error);
+		}
+		if (RoutingContext.SHOW_GC_SIZE) {
+			log.warn("Estimated overhead " + (ctx.memoryOverhead / (1 << 20)) + " mb");
+			printMemoryConsumption("Memory occupied after calculation : ");
+		}
+		ctx.alertFasterRoadToVisitedSegments += state.directStats.alertFasterRoadToVisitedSegments
+				+ state.reverseStats.alertFasterRoadToVisitedSegments;
+		ctx.alertSlowerSegmentedWasVisitedEarlier += state.directStats.alertSlowerSegmentedWasVisitedEarlier
+				+ state.reverseStats.alertSlowerSegmentedWasVisitedEarlier;
+		if (ctx.calculationProgress != null) {
+			ctx.calculationProgress.visitedSegments += state.directStats.visitedSegments + state.reverseStats.visitedSegments;
+			ctx.calculationProgress.finalSegmentsFound += state.directStats.finalSegmentsFound
+					+ state.reverseStats.finalSegmentsFound;
+			ctx.calculationProgress.visitedDirectSegments += state.visitedDirectSegments.size();
+			ctx.calculationProgress.visitedOppositeSegments += state.visitedOppositeSegments.size();
+			ctx.calculationProgress.directQueueSize += graphDirectSegments.size();
+			ctx.calculationProgress.oppositeQueueSize += graphReverseSegments.size();
+			ctx.calculationProgress.queueInsertions += graphDirectSegments.getInsertions() + graphReverseSegments.getInsertions();
+		}
+		// same as sequential search, limited search has no result
+		return state.limitReached ? null : state.finalSegment;
+	}
+
+	private int getParallelSearchOverhead(ParallelSearchState state) {
+		return (state.visitedDirectSegments.size() + state.visitedOppositeSegments.size()) * STANDARD_ROAD_VISITED_OVERHEAD
+				+ (state.directQueueSize + state.reverseQueueSize) * STANDARD_ROAD_IN_QUEUE_OVERHEAD;
+	}
+
+	private void searchFrontier(final RoutingContext ctx, ParallelSearchState state, boolean reverseWaySearch,
+			RouteSegmentQueue graphSegments, RouteSegmentPoint pnt) throws InterruptedException {
+		VisitedSegments visitedSegments = reverseWaySearch ? state.visitedOppositeSegments : state.visitedDirectSegments;
+		VisitedSegments oppositeSegments = reverseWaySearch ? state.visitedDirectSegments : state.visitedOppositeSegments;
+		String msg = reverseWaySearch ? "Route is not found to selected target point." : "Route is not found from selected start point.";
+		boolean dijkstra = ctx.config.heuristicCoefficient == 0;
+		DirectionStats stats = state.getStats(reverseWaySearch);
+		float minCost = Float.NEGATIVE_INFINITY;
+		while (!state.stopped && !graphSegments.isEmpty()) {
+			float segmentCost = graphSegments.peekCost();
+			if (reverseWaySearch) {
+				state.reverseTop = segmentCost;
+			} else {
+				state.directTop = segmentCost;
+			}
+			if (state.isBoundReached(dijkstra)) {
+				break;
+			}
+			RouteSegment segment = graphSegments.poll();
+			int visitedTotal = visitedSegments.size() + oppositeSegments.size();
+			// context overhead is set when search ends
+			int memoryOverhead = getParallelSearchOverhead(state);
+			if (TRACE_ROUTING) {
+				printRoad(">", segment, reverseWaySearch);
+			}
+			if (ctx.config.MAX_VISITED > 0 && visitedTotal > ctx.config.MAX_VISITED) {
+				state.stop(true);
+				break;
+			}
+			if (segment instanceof FinalRouteSegment) {
+				// already offered to state when it was found
+				if (TRACE_ROUTING) {
+					println(" >>FINAL segment: " + segment);
+				}
+				continue;
+			}
+			if (memoryOverhead > ctx.config.memoryLimitation * 0.9) {
+				throw new IllegalStateException(
+						String.format("There is not enough memory %.5f, %.5f -> %.5f, %.5f - limit  %d  MB",
+								MapUtils.get31LatitudeY(ctx.startY), MapUtils.get31LongitudeX(ctx.startX),
+								MapUtils.get31LatitudeY(ctx.targetY), MapUtils.get31LongitudeX(ctx.targetX),
+								ctx.config.memoryLimitation / (1 << 20)));
+			}
+			stats.visitedSegments++;
+			if (visitedSegments.containsKey(calculateRoutePointId(segment))) {
+				if (TRACE_ROUTING) {
+					println("  " + segment.segEnd + ">> Already visited by minimum");
+				}
+			} else {
+				if (segmentCost + 5.0 < minCost && ASSERT_CHECKS && ctx.calculationMode != RouteCalculationMode.COMPLEX
+						&& ctx.config.heuristicCoefficient <= 1) {
+					throw new IllegalStateException(segmentCost + " < ???  " + minCost);
+				}
+				minCost = Math.max(minCost, segmentCost);
+				processRouteSegment(ctx, reverseWaySearch, graphSegments, visitedSegments, segment,
+						oppositeSegments, null, false);
+			}
+			if (reverseWaySearch) {
+				state.reverseQueueSize = graphSegments.size();
+				updateCalculationProgress(ctx, null, graphSegments);
+			} else {
+				state.directQueueSize = graphSegments.size();
+				updateCalculationProgress(ctx, graphSegments, null);
+			}
+			if (checkIfGraphIsEmpty(ctx, true, reverseWaySearch, graphSegments, pnt, visitedSegments, msg)) {
+				minCost = Float.NEGATIVE_INFINITY;
+			}
+			if (ctx.calculationProgress != null && ctx.calculationProgress.isCancelled) {
+				throw new InterruptedException("Route calculation interrupted");
+			}
+		}
+		// bound is reached or other frontier can't meet this one anymore
+		state.stop(false);
+	}
+
 	protected boolean checkIfGraphIsEmpty(final RoutingContext ctx, boolean allowDirection,
-			boolean reverseWaySearch, PriorityQueue<RouteSegmentCost> graphSegments, RouteSegmentPoint pnt, TLongObjectMap<RouteSegment> visited,
+			boolean reverseWaySearch, RouteSegmentQueue graphSegments, RouteSegmentPoint pnt, VisitedSegments visited,
 			String msg) {
 		if (allowDirection && graphSegments.isEmpty()) {
 			if (pnt.others != null) {
@@ -268,7 +511,7 @@ public class BinaryRoutePlanner {
 						pos.setParentRoute(null);
 						pos.distanceFromStart = 0;
 						pos.distanceToEnd = estimatedDistance;
-						graphSegments.add(new RouteSegmentCost(pos, ctx));
+						addToQueue(graphSegments, pos, ctx);
 					}
 					RouteSegment neg = next.initRouteSegment(false);
 					if (neg != null && !visited.containsKey(calculateRoutePointId(neg)) && 
@@ -276,7 +519,7 @@ public class BinaryRoutePlanner {
 						neg.setParentRoute(null);
 						neg.distanceFromStart = 0;
 						neg.distanceToEnd = estimatedDistance;
-						graphSegments.add(new RouteSegmentCost(neg, ctx));
+						addToQueue(graphSegments, neg, ctx);
 					}
 					if (!graphSegments.isEmpty()) {
 						println("Reiterate point with new " + (!reverseWaySearch ? "start " : "destination ")
@@ -292,7 +535,7 @@ public class BinaryRoutePlanner {
 		return false;
 	}
 
-	public RouteSegment initEdgeSegment(final RoutingContext ctx, RouteSegmentPoint pnt, boolean originalDir, PriorityQueue<RouteSegmentCost> graphSegments, boolean reverseSearchWay) {
+	public RouteSegment initEdgeSegment(final RoutingContext ctx, RouteSegmentPoint pnt, boolean originalDir, RouteSegmentQueue graphSegments, boolean reverseSearchWay) {
 		if (pnt == null) {
 			return null;
 		}
@@ -336,7 +579,7 @@ public class BinaryRoutePlanner {
 		}
 		if (checkMovementAllowed(ctx, reverseSearchWay, seg)) {
 			seg.distanceToEnd = estimatedDistance(seg, reverseSearchWay, ctx);
-			graphSegments.add(new RouteSegmentCost(seg, ctx));
+			addToQueue(graphSegments, seg, ctx);
 			return seg;
 		}
 		return null;
@@ -353,7 +596,7 @@ public class BinaryRoutePlanner {
 	
 
 	private void initQueuesWithStartEnd(final RoutingContext ctx, RouteSegmentPoint start, RouteSegmentPoint end,
-			PriorityQueue<RouteSegmentCost> graphDirectSegments, PriorityQueue<RouteSegmentCost> graphReverseSegments) {
+			RouteSegmentQueue graphDirectSegments, RouteSegmentQueue graphReverseSegments) {
 		if (ctx.precalculatedRouteDirection != null) {
 			ctx.precalculatedRouteDirection.updatePreciseStartEnd(
 					(start != null) ? start.preciseX : 0, (start != null) ? start.preciseY : 0,
@@ -388,19 +631,23 @@ public class BinaryRoutePlanner {
 	}
 
 
-	private void updateCalculationProgress(final RoutingContext ctx, PriorityQueue<RouteSegmentCost> graphDirectSegments,
-			PriorityQueue<RouteSegmentCost> graphReverseSegments) {
+	private void updateCalculationProgress(final RoutingContext ctx, RouteSegmentQueue graphDirectSegments,
+			RouteSegmentQueue graphReverseSegments) {
 		if (ctx.calculationProgress != null) {
-			ctx.calculationProgress.reverseSegmentQueueSize = graphReverseSegments.size();
-			ctx.calculationProgress.directSegmentQueueSize = graphDirectSegments.size();
-			if (!graphDirectSegments.isEmpty() && ctx.getPlanRoadDirection() >= 0) {
-				RouteSegment peek = graphDirectSegments.peek().segment;
+			if (graphReverseSegments != null) {
+				ctx.calculationProgress.reverseSegmentQueueSize = graphReverseSegments.size();
+			}
+			if (graphDirectSegments != null) {
+				ctx.calculationProgress.directSegmentQueueSize = graphDirectSegments.size();
+			}
+			if (graphDirectSegments != null && !graphDirectSegments.isEmpty() && ctx.getPlanRoadDirection() >= 0) {
+				RouteSegment peek = graphDirectSegments.peek();
 				ctx.calculationProgress.distanceFromBegin = Math.max(peek.distanceFromStart,
 						ctx.calculationProgress.distanceFromBegin);
 				ctx.calculationProgress.directDistance = peek.distanceFromStart + peek.distanceToEnd;
 			}
-			if (!graphReverseSegments.isEmpty() && ctx.getPlanRoadDirection() <= 0) {
-				RouteSegment peek = graphReverseSegments.peek().segment;
+			if (graphReverseSegments != null && !graphReverseSegments.isEmpty() && ctx.getPlanRoadDirection() <= 0) {
+				RouteSegment peek = graphReverseSegments.peek();
 				ctx.calculationProgress.distanceFromEnd = Math.max(peek.distanceFromStart + peek.distanceToEnd,
 							ctx.calculationProgress.distanceFromEnd);
 				ctx.calculationProgress.reverseDistance = peek.distanceFromStart + peek.distanceToEnd;
@@ -497,8 +744,8 @@ public class BinaryRoutePlanner {
 	}
 
 	private void processRouteSegment(final RoutingContext ctx, boolean reverseWaySearch,
-			PriorityQueue<RouteSegmentCost> graphSegments, TLongObjectMap<RouteSegment> visitedSegments,
-			RouteSegment startSegment, TLongObjectMap<RouteSegment> oppositeSegments,
+			RouteSegmentQueue graphSegments, VisitedSegments visitedSegments,
+			RouteSegment startSegment, VisitedSegments oppositeSegments,
 			TLongObjectMap<RouteSegment> boundaries, boolean doNotAddIntersections) {
 		if (ASSERT_CHECKS && !checkMovementAllowed(ctx, reverseWaySearch, startSegment)) {
 			throw new IllegalStateException();
@@ -544,6 +791,8 @@ public class BinaryRoutePlanner {
 						if (RoutingContext.PRINT_ROUTING_ALERTS) {
 							System.err.println("! ALERT slower segment was visited earlier " + distFromStartPlusSegmentTime + " > "
 								+ existingSegment.distanceFromStart + ": " + currentSegment + " - " + existingSegment);
+						} else if (ctx.parallelSearch != null) {
+							ctx.parallelSearch.getStats(reverseWaySearch).alertSlowerSegmentedWasVisitedEarlier++;
 						} else {
 							ctx.alertSlowerSegmentedWasVisitedEarlier++;
 						}
@@ -569,7 +818,7 @@ public class BinaryRoutePlanner {
 			// a) final segment is always in queue & double checked b) using osm segment almost always is shorter routing than other connected
 			if (DEBUG_BREAK_EACH_SEGMENT && nextCurrentSegment != null) {
 				if (!doNotAddIntersections) {
-					graphSegments.add(new RouteSegmentCost(nextCurrentSegment, ctx));
+					addToQueue(graphSegments, nextCurrentSegment, ctx);
 				}
 				break;
 			}
@@ -639,17 +888,22 @@ public class BinaryRoutePlanner {
 	}
 
 	private boolean checkIfOppositeSegmentWasVisited(RoutingContext ctx, boolean reverseWaySearch,
-			PriorityQueue<RouteSegmentCost> graphSegments, RouteSegment currentSegment,
-			TLongObjectMap<RouteSegment> oppositeSegments, TLongObjectMap<RouteSegment> boundaries) {
+			RouteSegmentQueue graphSegments, RouteSegment currentSegment,
+			VisitedSegments oppositeSegments, TLongObjectMap<RouteSegment> boundaries) {
 		// check inverse direction for opposite
 		long currPoint = calculateRoutePointInternalId(currentSegment.getRoad(), 
 				currentSegment.getSegmentEnd(), currentSegment.getSegmentStart());
+		boolean oppositeVisited;
+		RouteSegment opposite;
 		if (boundaries != null && ctx.dijkstraMode != 0) {
 			// limit by boundaries for dijkstra mode
-			oppositeSegments = boundaries;
+			oppositeVisited = boundaries.containsKey(currPoint);
+			opposite = boundaries.get(currPoint);
+		} else {
+			oppositeVisited = oppositeSegments.containsKey(currPoint);
+			opposite = oppositeSegments.get(currPoint);
 		}
-		if (oppositeSegments.containsKey(currPoint)) {
-			RouteSegment opposite = oppositeSegments.get(currPoint);
+		if (oppositeVisited) {
 			RouteSegment curParent = getParentDiffId(currentSegment);
 			RouteSegment oppParent = getParentDiffId(opposite);
 			RouteSegment to = reverseWaySearch ? curParent : oppParent;
@@ -667,11 +921,16 @@ public class BinaryRoutePlanner {
 					// impossible route (when start/point on same segment but different dir) don't add to queue
 					return true;
 				}
-				graphSegments.add(new RouteSegmentCost(frs, ctx));
+				addToQueue(graphSegments, frs, ctx);
+				if (ctx.parallelSearch != null) {
+					ctx.parallelSearch.offer(frs);
+				}
 				if (TRACE_ROUTING) {
 					printRoad("  " + currentSegment.segEnd + ">> Final segment : ", frs, reverseWaySearch);
 				}
-				if (ctx.calculationProgress != null) {
+				if (ctx.parallelSearch != null) {
+					ctx.parallelSearch.getStats(reverseWaySearch).finalSegmentsFound++;
+				} else if (ctx.calculationProgress != null) {
 					ctx.calculationProgress.finalSegmentsFound++;
 				}
 				return true;
@@ -711,8 +970,8 @@ public class BinaryRoutePlanner {
 				(parent == null || parent.getRoad().getRestrictionLength() == 0)) {
 			return false;
 		}
-		ctx.segmentsToVisitPrescripted.clear();
-		ctx.segmentsToVisitNotForbidden.clear();
+		getSegmentsToVisitPrescripted(ctx, reverseWay).clear();
+		getSegmentsToVisitNotForbidden(ctx, reverseWay).clear();
 		processRestriction(ctx, inputNext, reverseWay, 0, road);
 		if (parent != null) {
 			processRestriction(ctx, inputNext, reverseWay, road.id, parent.getRoad());
@@ -721,8 +980,18 @@ public class BinaryRoutePlanner {
 	}
 
 
+	private static List<RouteSegment> getSegmentsToVisitPrescripted(RoutingContext ctx, boolean reverseWay) {
+		return reverseWay ? ctx.reverseSegmentsToVisitPrescripted : ctx.segmentsToVisitPrescripted;
+	}
+
+	private static List<RouteSegment> getSegmentsToVisitNotForbidden(RoutingContext ctx, boolean reverseWay) {
+		return reverseWay ? ctx.reverseSegmentsToVisitNotForbidden : ctx.segmentsToVisitNotForbidden;
+	}
+
 	protected void processRestriction(RoutingContext ctx, RouteSegment inputNext, boolean reverseWay, long viaId,
 			RouteDataObject road) {
+		List<RouteSegment> segmentsToVisitPrescripted = getSegmentsToVisitPrescripted(ctx, reverseWay);
+		List<RouteSegment> segmentsToVisitNotForbidden = getSegmentsToVisitNotForbidden(ctx, reverseWay);
 		boolean via = viaId != 0;
 		RouteSegment next = inputNext;
 		boolean exclusiveRestriction = false;
@@ -785,11 +1054,11 @@ public class BinaryRoutePlanner {
 					|| type == MapRenderingTypes.RESTRICTION_NO_STRAIGHT_ON || type == MapRenderingTypes.RESTRICTION_NO_U_TURN) {
 				// next = next.next; continue;
 				if (via) {
-					ctx.segmentsToVisitPrescripted.remove(next);
+					segmentsToVisitPrescripted.remove(next);
 				}
 			} else if (type == -1) {
 				// case no restriction
-				ctx.segmentsToVisitNotForbidden.add(next);
+				segmentsToVisitNotForbidden.add(next);
 			} else {
 				if (!via) {
 					// case exclusive restriction (only_right, only_straight, ...)
@@ -798,22 +1067,22 @@ public class BinaryRoutePlanner {
 					// 2. in case we are going forward we have one "in" and many "out"
 					if (!reverseWay) {
 						exclusiveRestriction = true;
-						ctx.segmentsToVisitNotForbidden.clear();
-						ctx.segmentsToVisitPrescripted.add(next);
+						segmentsToVisitNotForbidden.clear();
+						segmentsToVisitPrescripted.add(next);
 					} else {
-						ctx.segmentsToVisitNotForbidden.add(next);
+						segmentsToVisitNotForbidden.add(next);
 					}
 				}
 			}
 			next = next.next;
 		}
 		if (!via) {
-			ctx.segmentsToVisitPrescripted.addAll(ctx.segmentsToVisitNotForbidden);
+			segmentsToVisitPrescripted.addAll(segmentsToVisitNotForbidden);
 		}
 	}
 
-	private RouteSegment processIntersections(RoutingContext ctx, PriorityQueue<RouteSegmentCost> graphSegments,
-			TLongObjectMap<RouteSegment> visitedSegments,  RouteSegment currentSegment,
+	private RouteSegment processIntersections(RoutingContext ctx, RouteSegmentQueue graphSegments,
+			VisitedSegments visitedSegments,  RouteSegment currentSegment,
 			boolean reverseWaySearch, boolean doNotAddIntersections) {
 		RouteSegment nextCurrentSegment = null;
 		int targetEndX = reverseWaySearch ? ctx.startX : ctx.targetX;
@@ -867,7 +1136,7 @@ public class BinaryRoutePlanner {
 		Iterator<RouteSegment> nextIterator = null;
 		boolean thereAreRestrictions = proccessRestrictions(ctx, currentSegment, connectedNextSegment, reverseWaySearch);
 		if (thereAreRestrictions) {
-			nextIterator = ctx.segmentsToVisitPrescripted.iterator();
+			nextIterator = getSegmentsToVisitPrescripted(ctx, reverseWaySearch).iterator();
 			if (TRACE_ROUTING) {
 				println("  " + currentSegment.segEnd + ">> There are restrictions ");
 			}
@@ -919,8 +1188,8 @@ public class BinaryRoutePlanner {
 		return nextCurrentSegment;
 	}
 
-	private boolean processOneRoadIntersection(RoutingContext ctx, boolean reverseWaySearch, PriorityQueue<RouteSegmentCost> graphSegments,
-			TLongObjectMap<RouteSegment> visitedSegments, RouteSegment segment, RouteSegment next) {
+	private boolean processOneRoadIntersection(RoutingContext ctx, boolean reverseWaySearch, RouteSegmentQueue graphSegments,
+			VisitedSegments visitedSegments, RouteSegment segment, RouteSegment next) {
 		if (next != null) {
 			if (!checkMovementAllowed(ctx, reverseWaySearch, next)) {
 				return false;
@@ -962,11 +1231,13 @@ public class BinaryRoutePlanner {
 							if (RoutingContext.PRINT_ROUTING_ALERTS) {
 								System.err.println("! ALERT new faster path to a visited segment: "
 										+ (distFromStart + routeSegmentTime) + " < " + visIt.distanceFromStart + ": " + next + " - " + visIt);
+							} else if (ctx.parallelSearch != null) {
+								ctx.parallelSearch.getStats(reverseWaySearch).alertFasterRoadToVisitedSegments++;
 							} else {
 								ctx.alertFasterRoadToVisitedSegments++;
 							}
 						}
-						visitedSegments.remove(calculateRoutePointId(next));
+						visitedSegments.put(calculateRoutePointId(next), null);
 					} else {
 						return false;
 					}
@@ -984,7 +1255,7 @@ public class BinaryRoutePlanner {
 				// put additional information to recover whole route after
 				next.setParentRoute(segment);
 				if (graphSegments != null) {
-					graphSegments.add(new RouteSegmentCost(next, ctx));
+					addToQueue(graphSegments, next, ctx);
 				}
 				return true;
 			}
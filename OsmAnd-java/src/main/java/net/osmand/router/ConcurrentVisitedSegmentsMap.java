@@ -0,0 +1,64 @@
+package net.osmand.router;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.osmand.router.BinaryRoutePlanner.RouteSegment;
+
+// visited segments shared between forward and reverse threads of parallel bidirectional search:
+// primitive maps (see VisitedSegmentsMap) split by key hash into stripes with own locks
+public class ConcurrentVisitedSegmentsMap implements VisitedSegments {
+
+	private static final int STRIPES_BITS = 4;
+	private final VisitedSegmentsMap[] stripes = new VisitedSegmentsMap[1 << STRIPES_BITS];
+	private final AtomicInteger size = new AtomicInteger();
+
+	public ConcurrentVisitedSegmentsMap(int capacity) {
+		for (int i = 0; i < stripes.length; i++) {
+			stripes[i] = new VisitedSegmentsMap(Math.max(16, capacity >> STRIPES_BITS));
+		}
+	}
+
+	private VisitedSegmentsMap stripe(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return stripes[(int) (h >>> (64 - STRIPES_BITS))];
+	}
+
+	@Override
+	public RouteSegment get(long key) {
+		VisitedSegmentsMap s = stripe(key);
+		synchronized (s) {
+			return s.get(key);
+		}
+	}
+
+	@Override
+	public RouteSegment put(long key, RouteSegment value) {
+		VisitedSegmentsMap s = stripe(key);
+		synchronized (s) {
+			int before = s.size();
+			RouteSegment prev = s.put(key, value);
+			size.addAndGet(s.size() - before);
+			return prev;
+		}
+	}
+
+	@Override
+	public boolean containsKey(long key) {
+		return get(key) != null;
+	}
+
+	@Override
+	public void clear() {
+		for (VisitedSegmentsMap s : stripes) {
+			synchronized (s) {
+				s.clear();
+			}
+		}
+		size.set(0);
+	}
+
+	@Override
+	public int size() {
+		return size.get();
+	}
+}
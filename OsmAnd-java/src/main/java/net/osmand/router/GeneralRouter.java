@@ -92,7 +92,9 @@ public class GeneralRouter implements VehicleRouter {
 	
 	private GeneralRouterProfile profile;
 	
-	Map<RouteRegion, Map<IntHolder, Float>>[] evalCache;
+	// evaluated attributes per region, values are indexed by types combination id (see getCache)
+	private Map<RouteRegion, RegionEvalCache> evalCache;
+	private volatile RegionEvalCache lastRegionCache;
 
 	public String[] hhNativeFilter = new String[0]; // getFilteredTags() as flat Array (JNI)
 	public String[] hhNativeParameterValues = new String[0]; // parameterValues as flat Array (JNI)
@@ -221,13 +223,9 @@ public class GeneralRouter implements VehicleRouter {
 
 	}
 
-	@SuppressWarnings("unchecked")
 	private void initCaches() {
-		int l = RouteDataObjectAttribute.values().length;
-		evalCache = new Map[l];
-		for (int i = 0; i < l; i++) {
-			evalCache[i] = new HashMap<>();
-		}
+		evalCache = new HashMap<>();
+		lastRegionCache = null;
 	}
 
 	public String getFilename() {
@@ -333,8 +331,8 @@ public class GeneralRouter implements VehicleRouter {
 
 	@Override
 	public boolean acceptLine(RouteDataObject way) {
-		Float res = getCache(RouteDataObjectAttribute.ACCESS, way);
-		if (res == null) {
+		float res = getCache(RouteDataObjectAttribute.ACCESS, way);
+		if (Float.isNaN(res)) {
 			res = (float) getObjContext(RouteDataObjectAttribute.ACCESS).evaluateInt(way, 0);
 			putCache(RouteDataObjectAttribute.ACCESS, way, res);
 		}
@@ -357,17 +355,20 @@ public class GeneralRouter implements VehicleRouter {
 	
 	public int registerTagValueAttribute(String tag, String value) {
 		String key = tag +"$"+value;
-		if(universalRules.containsKey(key)) {
-			return universalRules.get(key);
-		}
-		int id = universalRules.size();
-		universalRulesById.add(key);
-		universalRules.put(key, id);
-		if(!tagRuleMask.containsKey(tag)) {
-			tagRuleMask.put(tag, new BitSet());
+		// rules are shared between router copies and could be extended from parallel searches
+		synchronized (universalRules) {
+			if (universalRules.containsKey(key)) {
+				return universalRules.get(key);
+			}
+			int id = universalRules.size();
+			universalRulesById.add(key);
+			universalRules.put(key, id);
+			if (!tagRuleMask.containsKey(tag)) {
+				tagRuleMask.put(tag, new BitSet());
+			}
+			tagRuleMask.get(tag).set(id);
+			return id;
 		}
-		tagRuleMask.get(tag).set(id);
-		return id;
 	}
 	
 	
@@ -427,11 +428,12 @@ public class GeneralRouter implements VehicleRouter {
 	public float defineObstacle(RouteDataObject road, int point, boolean dir) {
 		int[] pointTypes = road.getPointTypes(point);
 		if(pointTypes != null) {
-			Float obst = getCache(RouteDataObjectAttribute.OBSTACLES, road.region, pointTypes, dir);
-			if (obst == null) {
+			int pointTypesId = getPointTypesId(road, point);
+			float obst = getCache(RouteDataObjectAttribute.OBSTACLES, road.region, pointTypesId, dir);
+			if (Float.isNaN(obst)) {
 				int[] filteredPointTypes = filterDirectionTags(road, pointTypes, dir);
 				obst = getObjContext(RouteDataObjectAttribute.OBSTACLES).evaluateFloat(road.region, filteredPointTypes, 0);
-				putCache(RouteDataObjectAttribute.OBSTACLES, road.region, pointTypes, obst, dir);
+				putCache(RouteDataObjectAttribute.OBSTACLES, road.region, pointTypesId, obst, dir);
 			}
 			return obst;
 		}
@@ -442,11 +444,12 @@ public class GeneralRouter implements VehicleRouter {
 	public float defineRoutingObstacle(RouteDataObject road, int point, boolean dir) {
 		int[] pointTypes = road.getPointTypes(point);
 		if(pointTypes != null) {
-			Float obst = getCache(RouteDataObjectAttribute.ROUTING_OBSTACLES, road.region, pointTypes, dir);
-			if (obst == null) {
+			int pointTypesId = getPointTypesId(road, point);
+			float obst = getCache(RouteDataObjectAttribute.ROUTING_OBSTACLES, road.region, pointTypesId, dir);
+			if (Float.isNaN(obst)) {
 				int[] filteredPointTypes = filterDirectionTags(road, pointTypes, dir);
 				obst = getObjContext(RouteDataObjectAttribute.ROUTING_OBSTACLES).evaluateFloat(road.region, filteredPointTypes, 0);
-				putCache(RouteDataObjectAttribute.ROUTING_OBSTACLES, road.region, pointTypes, obst, dir);
+				putCache(RouteDataObjectAttribute.ROUTING_OBSTACLES, road.region, pointTypesId, obst, dir);
 			}
 			return obst;
 		}
@@ -510,8 +513,10 @@ public class GeneralRouter implements VehicleRouter {
 				int percentIncl = (int) (incl * 100);
 				percentIncl = (percentIncl + 2)/ 3 * 3 - 2; // 1, 4, 7, 10, .   
 				if(percentIncl >= 1) {
-					objContext.paramContext.incline = diff > 0 ? percentIncl : -percentIncl;
-					sum += objContext.evaluateFloat(road, 0) * (diff > 0? diff : -diff );
+					synchronized (objContext) {
+						objContext.paramContext.incline = diff > 0 ? percentIncl : -percentIncl;
+						sum += objContext.evaluateFloat(road, 0) * (diff > 0? diff : -diff );
+					}
 				}
 			}
 		}
@@ -521,12 +526,12 @@ public class GeneralRouter implements VehicleRouter {
 	
 	@Override
 	public int isOneWay(RouteDataObject road) {
-		Float res = getCache(RouteDataObjectAttribute.ONEWAY, road);
-		if(res == null) {
+		float res = getCache(RouteDataObjectAttribute.ONEWAY, road);
+		if (Float.isNaN(res)) {
 			res = (float) getObjContext(RouteDataObjectAttribute.ONEWAY).evaluateInt(road, 0);
 			putCache(RouteDataObjectAttribute.ONEWAY, road, res);
 		}
-		return res.intValue();
+		return (int) res;
 	}
 	
 	@Override
@@ -536,8 +541,8 @@ public class GeneralRouter implements VehicleRouter {
 	
 	@Override
 	public float getPenaltyTransition(RouteDataObject road) {
-		Float vl = getCache(RouteDataObjectAttribute.PENALTY_TRANSITION, road);
-		if (vl == null) {
+		float vl = getCache(RouteDataObjectAttribute.PENALTY_TRANSITION, road);
+		if (Float.isNaN(vl)) {
 			vl = (float) getObjContext(RouteDataObjectAttribute.PENALTY_TRANSITION).evaluateInt(road, 0);
 			putCache(RouteDataObjectAttribute.PENALTY_TRANSITION, road, vl);
 		}
@@ -546,8 +551,8 @@ public class GeneralRouter implements VehicleRouter {
 
 	@Override
 	public float defineRoutingSpeed(RouteDataObject road, boolean dir) {
-		Float definedSpd = getCache(RouteDataObjectAttribute.ROAD_SPEED, road, dir);
-		if (definedSpd == null) {
+		float definedSpd = getCache(RouteDataObjectAttribute.ROAD_SPEED, road, dir);
+		if (Float.isNaN(definedSpd)) {
 			// not implemented direction usage
 			float spd = getObjContext(RouteDataObjectAttribute.ROAD_SPEED).evaluateFloat(road, defaultSpeed);
  			definedSpd = Math.max(Math.min(spd, maxSpeed), minSpeed);
@@ -564,8 +569,8 @@ public class GeneralRouter implements VehicleRouter {
 			float spd = getObjContext(RouteDataObjectAttribute.ROAD_SPEED).evaluateFloat(road, defaultSpeed);
 			return Math.max(Math.min(spd, maxVehicleSpeed), minSpeed);
 		}
-		Float sp = getCache(RouteDataObjectAttribute.ROAD_SPEED, road, dir);
-		if (sp == null) {
+		float sp = getCache(RouteDataObjectAttribute.ROAD_SPEED, road, dir);
+		if (Float.isNaN(sp)) {
 			// not implemented direction usage
 			float spd = getObjContext(RouteDataObjectAttribute.ROAD_SPEED).evaluateFloat(road, defaultSpeed);
 			sp = Math.max(Math.min(spd, maxVehicleSpeed), minSpeed);
@@ -576,8 +581,8 @@ public class GeneralRouter implements VehicleRouter {
 	
 	@Override
 	public float defineSpeedPriority(RouteDataObject road, boolean dir) {
-		Float sp = getCache(RouteDataObjectAttribute.ROAD_PRIORITIES, road, dir);
-		if(sp == null) {
+		float sp = getCache(RouteDataObjectAttribute.ROAD_PRIORITIES, road, dir);
+		if (Float.isNaN(sp)) {
 			// not implemented direction usage
 			sp = getObjContext(RouteDataObjectAttribute.ROAD_PRIORITIES).evaluateFloat(road, 1f);
 			putCache(RouteDataObjectAttribute.ROAD_PRIORITIES, road, sp, dir);
@@ -587,89 +592,101 @@ public class GeneralRouter implements VehicleRouter {
 	
 	@Override
 	public float defineDestinationPriority(RouteDataObject road) {
-		Float sp = getCache(RouteDataObjectAttribute.DESTINATION_PRIORITIES, road);
-		if(sp == null) {
+		float sp = getCache(RouteDataObjectAttribute.DESTINATION_PRIORITIES, road);
+		if (Float.isNaN(sp)) {
 			sp = getObjContext(RouteDataObjectAttribute.DESTINATION_PRIORITIES).evaluateFloat(road, 1f);
 			putCache(RouteDataObjectAttribute.DESTINATION_PRIORITIES, road, sp, false);
 		}
 		return sp;
 	}
 
-	private void putCache(RouteDataObjectAttribute attr, RouteDataObject road, Float val) {
-		putCache(attr, road.region, road.types, val, false);
+	private void putCache(RouteDataObjectAttribute attr, RouteDataObject road, float val) {
+		putCache(attr, road.region, getTypesId(road), val, false);
 	}
 	
-	private void putCache(RouteDataObjectAttribute attr, RouteDataObject road, Float val, boolean extra) {
-		putCache(attr, road.region, road.types, val, extra);
+	private void putCache(RouteDataObjectAttribute attr, RouteDataObject road, float val, boolean extra) {
+		putCache(attr, road.region, getTypesId(road), val, extra);
 	}
 	
-	private void putCache(RouteDataObjectAttribute attr, RouteRegion reg, int[] types, Float val, boolean extra) {
-//		TIMER -= System.nanoTime();
-		Map<RouteRegion, Map<IntHolder, Float>> ch = evalCache[attr.ordinal()];
-		if (USE_CACHE) {
-			Map<IntHolder, Float> rM = ch.get(reg);
-			if (rM == null) {
-				rM = new HashMap<IntHolder, Float>();
-				ch.put(reg, rM);
-			}
-			rM.put(new IntHolder(types, extra), val);
-		}
-//		TIMER += System.nanoTime();
+	// types are interned when objects are loaded from region, others (created outside of reader)
+	// have -1 id and are evaluated without cache, so region doesn't collect one-off types
+	private static int getTypesId(RouteDataObject road) {
+		return road.getTypesCombinationId();
 	}
 	
-	class IntHolder {
-		private final int[] array;
-		private final boolean extra;
-
-		IntHolder(int[] ts, boolean extra) {
-			array = ts;
-			this.extra = extra;
-		}
-
-		@Override
-		public int hashCode() {
-			return Arrays.hashCode(array) + (extra ? 1 : 0);
-		}
-
-		@Override
-		public boolean equals(Object other) {
-			if (array == other) {
-				return true;
-			}
-			if (!(other instanceof IntHolder)) {
-				return false;
-			}
-			if (((IntHolder) other).extra != this.extra) {
-				return false;
+	private static int getPointTypesId(RouteDataObject road, int point) {
+		return road.getPointTypesCombinationId(point);
+	}
+	
+	private void putCache(RouteDataObjectAttribute attr, RouteRegion reg, int typesId, float val, boolean extra) {
+		if (USE_CACHE && reg != null && typesId >= 0) {
+			RegionEvalCache rc = getRegionCache(reg);
+			int ind = (typesId << 1) + (extra ? 1 : 0);
+			int[] vls = rc.values[attr.ordinal()];
+			if (vls == null || ind >= vls.length) {
+				synchronized (rc) {
+					vls = rc.values[attr.ordinal()];
+					if (vls == null || ind >= vls.length) {
+						// values stored to old array meanwhile are evaluated again
+						int[] nvls = new int[Math.max(ind + 1, vls == null ? 64 : vls.length * 2)];
+						if (vls != null) {
+							System.arraycopy(vls, 0, nvls, 0, vls.length);
+						}
+						vls = nvls;
+						rc.values[attr.ordinal()] = vls;
+					}
+				}
 			}
-			// noinspection unchecked
-			return Arrays.equals(array, ((IntHolder) other).array);
+			vls[ind] = Float.floatToIntBits(val) ^ CACHED_VALUE_MASK;
 		}
 	}
-
-	private Float getCache(RouteDataObjectAttribute attr, RouteDataObject road) {
-		return getCache(attr, road.region, road.types, false);
+	
+	private float getCache(RouteDataObjectAttribute attr, RouteDataObject road) {
+		return getCache(attr, road.region, getTypesId(road), false);
 	}
 	
-	private Float getCache(RouteDataObjectAttribute attr, RouteDataObject road, boolean extra) {
-		return getCache(attr, road.region, road.types, extra);
+	private float getCache(RouteDataObjectAttribute attr, RouteDataObject road, boolean extra) {
+		return getCache(attr, road.region, getTypesId(road), extra);
 	}
 	
-	private Float getCache(RouteDataObjectAttribute attr, RouteRegion reg, int[] types, boolean extra) {
-		Map<RouteRegion, Map<IntHolder, Float>> ch = evalCache[attr.ordinal()];
-//		TIMER -= System.nanoTime();
-		if (USE_CACHE) {
-			Map<IntHolder, Float> rM = ch.get(reg);
-			if (rM == null) {
-				return null;
+	// returns NaN if value is not cached
+	private float getCache(RouteDataObjectAttribute attr, RouteRegion reg, int typesId, boolean extra) {
+		if (USE_CACHE && reg != null && typesId >= 0) {
+			int[] vls = getRegionCache(reg).values[attr.ordinal()];
+			int ind = (typesId << 1) + (extra ? 1 : 0);
+			if (vls != null && ind < vls.length && vls[ind] != 0) {
+				return Float.intBitsToFloat(vls[ind] ^ CACHED_VALUE_MASK);
 			}
-			Float vl = rM.get(new IntHolder(types, extra));
-			if(vl != null) {
-//				TIMER += System.nanoTime();
-				return vl;
+		}
+		return Float.NaN;
+	}
+	
+	private RegionEvalCache getRegionCache(RouteRegion reg) {
+		RegionEvalCache rc = lastRegionCache;
+		if (rc == null || rc.region != reg) {
+			synchronized (evalCache) {
+				rc = evalCache.get(reg);
+				if (rc == null) {
+					rc = new RegionEvalCache(reg);
+					evalCache.put(reg, rc);
+				}
 			}
+			lastRegionCache = rc;
+		}
+		return rc;
+	}
+	
+	// values are stored as float bits xor mask (NaN bits never match it), so 0 of new array means not cached
+	// and arrays could be read without locks
+	private static final int CACHED_VALUE_MASK = 0x7fc00001;
+	
+	private static class RegionEvalCache {
+		final RouteRegion region;
+		final int[][] values = new int[RouteDataObjectAttribute.values().length][];
+		
+		RegionEvalCache(RouteRegion region) {
+			this.region = region;
 		}
-		return null;
 	}
 
 	@Override
@@ -951,19 +968,21 @@ public class GeneralRouter implements VehicleRouter {
 		
 		private BitSet convert(RouteRegion reg, int[] types) {
 			BitSet b = new BitSet(universalRules.size());
-			Map<Integer, Integer> map = regionConvert.get(reg);
-			if(map == null){
-				map = new HashMap<Integer, Integer>();
-				regionConvert.put(reg, map);
-			}
-			for(int k = 0; k < types.length; k++) {
-				Integer nid = map.get(types[k]);
-				if (nid == null) {
-					RouteTypeRule r = reg.quickGetEncodingRule(types[k]);
-					nid = registerTagValueAttribute(r.getTag(), r.getValue());
-					map.put(types[k], nid);
+			synchronized (regionConvert) {
+				Map<Integer, Integer> map = regionConvert.get(reg);
+				if (map == null) {
+					map = new HashMap<Integer, Integer>();
+					regionConvert.put(reg, map);
+				}
+				for (int k = 0; k < types.length; k++) {
+					Integer nid = map.get(types[k]);
+					if (nid == null) {
+						RouteTypeRule r = reg.quickGetEncodingRule(types[k]);
+						nid = registerTagValueAttribute(r.getTag(), r.getValue());
+						map.put(types[k], nid);
+					}
+					b.set(nid);
 				}
-				b.set(nid);
 			}
 			return b;
 		}
@@ -1309,9 +1328,10 @@ public class GeneralRouter implements VehicleRouter {
 	
 	public void clearCaches() {
 		if (evalCache != null) {
-			for (int i = 0; i < evalCache.length; i++) {
-				evalCache[i].clear();
+			synchronized (evalCache) {
+				evalCache.clear();
 			}
+			lastRegionCache = null;
 		}
 	}
 
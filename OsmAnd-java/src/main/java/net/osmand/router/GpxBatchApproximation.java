@@ -0,0 +1,345 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.commons.logging.Log;
+
+import gnu.trove.list.array.TIntArrayList;
+import net.osmand.PlatformUtil;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.router.RoutePlannerFrontEnd.GpxPoint;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
+import net.osmand.util.MapUtils;
+import net.osmand.util.ParallelTasks;
+
+/**
+ * Offline approximation of many tracks (java approximation, same algorithm as
+ * {@link RoutePlannerFrontEnd#searchGpxRoute}). Long tracks are split at anchor points into chunks of
+ * ~{@link #chunkDistance} m, chunks of all tracks are approximated in parallel on {@link ParallelTasks} (own
+ * RoutingContext over pooled file cursors, decoded tiles are shared with {@link RoutingTileCache}) and joined back
+ * in track order.
+ */
+public class GpxBatchApproximation {
+
+	private static final Log log = PlatformUtil.getLog(GpxBatchApproximation.class);
+
+	public static final double DEFAULT_CHUNK_DISTANCE = 10000;
+	public static final long DEFAULT_TILE_CACHE_SIZE = 256L * 1024 * 1024;
+	// anchor is searched in the last part of the chunk (of chunk distance)
+	private static final double ANCHOR_WINDOW = 0.25;
+	// track should go straight this distance before and after the anchor
+	private static final double ANCHOR_STRAIGHT_DIST = 50;
+	// anchor should not be a jump or a stop
+	private static final double ANCHOR_MIN_STEP = 1;
+	private static final double ANCHOR_MAX_STEP = 100;
+
+	private final RoutePlannerFrontEnd router;
+	private final RoutingConfiguration config;
+	private final BinaryMapIndexReader[] files;
+	private final RouteCalculationMode mode;
+	private final int threads;
+	private final RoutingTileCache tileCache;
+
+	public double chunkDistance = DEFAULT_CHUNK_DISTANCE;
+	public boolean useExternalTimestamps = false;
+
+	private volatile boolean cancelled;
+	private final List<RouteCalculationProgress> running = new ArrayList<>();
+
+	public static class GpxBatchResult {
+		public final int trackIndex;
+		public final int points;
+		public int chunks;
+		public GpxRouteApproximation approximation;
+		// time from start of the first chunk till the end of the last chunk and sum of chunks calculation time
+		public long timeMs;
+		public long calculationTimeMs;
+
+		GpxBatchResult(int trackIndex, int points) {
+			this.trackIndex = trackIndex;
+			this.points = points;
+		}
+
+		public double getPointsPerSecond() {
+			return timeMs == 0 ? points * 1000.0 : points * 1000.0 / timeMs;
+		}
+
+		/**
+		 * Part of track distance which is matched to roads (not approximated with straight lines)
+		 */
+		public double getMatchRate() {
+			if (approximation == null || approximation.routeDistance <= 0) {
+				return 0;
+			}
+			double unmatched = Math.min(approximation.getRouteDistanceUnmatched(), approximation.routeDistance);
+			return 1 - unmatched / approximation.routeDistance;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.US, "Track %d: %d points (%d chunks) in %d ms (%.1f points/s, %d ms calculation), match rate %.1f%%",
+					trackIndex, points, chunks, timeMs, getPointsPerSecond(), calculationTimeMs, getMatchRate() * 100);
+		}
+	}
+
+	static class Chunk {
+		final int start;
+		final List<GpxPoint> points;
+		GpxRouteApproximation result;
+		long startTime;
+		long endTime;
+
+		Chunk(int start, List<GpxPoint> points) {
+			this.start = start;
+			this.points = points;
+		}
+	}
+
+	/**
+	 * Configuration is shared by all chunks, tiles are shared with tile cache of configuration or
+	 * with own cache of {@link #DEFAULT_TILE_CACHE_SIZE} (configuration is not modified).
+	 */
+	public GpxBatchApproximation(RoutePlannerFrontEnd router, RoutingConfiguration config, BinaryMapIndexReader[] files,
+			RouteCalculationMode mode, int threads) {
+		this.router = router;
+		this.config = config;
+		this.files = files;
+		this.mode = mode;
+		this.threads = Math.max(1, threads);
+		this.tileCache = config.tileCache != null ? config.tileCache : new RoutingTileCache(DEFAULT_TILE_CACHE_SIZE);
+	}
+
+	public void cancel() {
+		cancelled = true;
+		synchronized (running) {
+			for (RouteCalculationProgress p : running) {
+				p.isCancelled = true;
+			}
+		}
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Approximates tracks (points as generated by {@link RoutePlannerFrontEnd#generateGpxPoints}),
+	 * returns results in tracks order, approximation is null if it was cancelled or track has less than 2 points.
+	 */
+	public List<GpxBatchResult> approximate(List<List<GpxPoint>> tracks) throws IOException, InterruptedException {
+		List<List<Chunk>> trackChunks = new ArrayList<>();
+		List<Callable<Chunk>> callables = new ArrayList<>();
+		for (List<GpxPoint> track : tracks) {
+			List<Chunk> chunks = splitTrack(track, chunkDistance);
+			trackChunks.add(chunks);
+			for (final Chunk c : chunks) {
+				callables.add(new Callable<Chunk>() {
+					@Override
+					public Chunk call() throws Exception {
+						return approximateChunk(c);
+					}
+				});
+			}
+		}
+		// chunks not taken by shared pool are approximated by calling thread
+		ParallelTasks<Chunk> tasks = new ParallelTasks<Chunk>(callables).start(threads);
+		try {
+			List<GpxBatchResult> results = new ArrayList<>();
+			int task = 0;
+			for (int i = 0; i < tracks.size(); i++) {
+				List<Chunk> chunks = trackChunks.get(i);
+				for (int k = 0; k < chunks.size(); k++) {
+					tasks.get(task++);
+				}
+				GpxBatchResult res = joinChunks(i, tracks.get(i).size(), chunks);
+				log.info(res);
+				results.add(res);
+			}
+			return results;
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			if (e.getCause() instanceof InterruptedException) {
+				throw (InterruptedException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			tasks.cancel(false);
+		}
+	}
+
+	private Chunk approximateChunk(Chunk c) throws IOException, InterruptedException {
+		c.startTime = System.nanoTime();
+		if (cancelled) {
+			c.endTime = c.startTime;
+			return c;
+		}
+		BinaryMapIndexReader[] cursors = new BinaryMapIndexReader[files.length];
+		RoutingContext ctx = null;
+		RouteCalculationProgress progress = new RouteCalculationProgress();
+		synchronized (running) {
+			running.add(progress);
+		}
+		try {
+			for (int i = 0; i < files.length; i++) {
+				cursors[i] = files[i].acquireCursor();
+			}
+			ctx = router.buildRoutingContext(config, null, cursors, mode, tileCache);
+			ctx.calculationProgress = progress;
+			progress.isCancelled = cancelled;
+			GpxRouteApproximation gctx = new GpxRouteApproximation(ctx);
+			gctx.routeDistance = (int) c.points.get(c.points.size() - 1).cumDist;
+			c.result = router.searchGpxRoute(gctx, c.points, null, useExternalTimestamps);
+			ctx.unloadAllData();
+			ctx = null;
+			for (int i = 0; i < files.length; i++) {
+				files[i].releaseCursor(cursors[i]);
+				cursors[i] = null;
+			}
+		} finally {
+			synchronized (running) {
+				running.remove(progress);
+			}
+			if (ctx != null) {
+				ctx.unloadAllData();
+			}
+			// stream state of cursors is not known after failure
+			for (BinaryMapIndexReader cursor : cursors) {
+				if (cursor != null) {
+					cursor.close();
+				}
+			}
+			c.endTime = System.nanoTime();
+		}
+		return c;
+	}
+
+	private GpxBatchResult joinChunks(int trackIndex, int points, List<Chunk> chunks) {
+		GpxBatchResult res = new GpxBatchResult(trackIndex, points);
+		res.chunks = chunks.size();
+		if (chunks.isEmpty()) {
+			return res;
+		}
+		long start = Long.MAX_VALUE, end = 0;
+		boolean completed = true;
+		for (Chunk c : chunks) {
+			start = Math.min(start, c.startTime);
+			end = Math.max(end, c.endTime);
+			res.calculationTimeMs += (c.endTime - c.startTime) / 1000000;
+			completed &= c.result != null && !c.result.ctx.calculationProgress.isCancelled;
+		}
+		res.timeMs = (end - start) / 1000000;
+		if (completed) {
+			res.approximation = joinChunks(chunks);
+		}
+		return res;
+	}
+
+	/**
+	 * Joins approximations of chunks, contexts of chunks are unloaded and their cursors are released,
+	 * so result has new context over files.
+	 */
+	GpxRouteApproximation joinChunks(List<Chunk> chunks) {
+		RoutingContext ctx = router.buildRoutingContext(config, null, files, mode, tileCache);
+		ctx.calculationProgress = new RouteCalculationProgress();
+		GpxRouteApproximation gctx = new GpxRouteApproximation(ctx);
+		for (Chunk c : chunks) {
+			gctx.appendChunk(c.result, c.start);
+		}
+		gctx.reconstructFinalPointsFromFullRoute();
+		ctx.releaseSharedTiles();
+		return gctx;
+	}
+
+	private static List<Chunk> splitTrack(List<GpxPoint> track, double chunkDistance) {
+		TIntArrayList anchors = findAnchors(track, chunkDistance);
+		List<Chunk> chunks = new ArrayList<>();
+		for (int i = 0; i + 1 < anchors.size(); i++) {
+			int start = anchors.get(i);
+			int end = anchors.get(i + 1);
+			GpxPoint first = track.get(start);
+			List<GpxPoint> points = new ArrayList<>(end - start + 1);
+			for (int k = start; k <= end; k++) {
+				// approximation modifies points, indexes and distances are relative to the chunk
+				GpxPoint src = track.get(k);
+				GpxPoint p = new GpxPoint(src);
+				p.ind = k - start;
+				p.time = src.time;
+				p.cumDist = src.cumDist - first.cumDist;
+				points.add(p);
+			}
+			chunks.add(new Chunk(start, points));
+		}
+		return chunks;
+	}
+
+	/**
+	 * Returns indexes of chunk borders (including first and last point), chunks are split at points where track
+	 * goes straight (to not split at junctions or turns where neighbour chunks could choose different roads).
+	 */
+	static TIntArrayList findAnchors(List<GpxPoint> track, double chunkDistance) {
+		TIntArrayList anchors = new TIntArrayList();
+		if (track.size() < 2) {
+			return anchors;
+		}
+		anchors.add(0);
+		int last = track.size() - 1;
+		int start = 0;
+		while (track.get(last).cumDist - track.get(start).cumDist > chunkDistance * (1 + ANCHOR_WINDOW)) {
+			double windowStart = track.get(start).cumDist + chunkDistance * (1 - ANCHOR_WINDOW);
+			double windowEnd = track.get(start).cumDist + chunkDistance;
+			int anchor = -1;
+			int fallback = -1;
+			double minDeviation = Double.MAX_VALUE;
+			int before = start;
+			int after = start;
+			for (int i = start + 1; i < last && track.get(i).cumDist <= windowEnd; i++) {
+				if (track.get(i).cumDist < windowStart) {
+					continue;
+				}
+				fallback = i;
+				while (track.get(i).cumDist - track.get(before + 1).cumDist >= ANCHOR_STRAIGHT_DIST) {
+					before++;
+				}
+				after = Math.max(after, i);
+				while (after < last && track.get(after).cumDist - track.get(i).cumDist < ANCHOR_STRAIGHT_DIST) {
+					after++;
+				}
+				double stepBefore = track.get(i).cumDist - track.get(i - 1).cumDist;
+				double stepAfter = track.get(i + 1).cumDist - track.get(i).cumDist;
+				if (track.get(i).cumDist - track.get(before).cumDist < ANCHOR_STRAIGHT_DIST
+						|| track.get(after).cumDist - track.get(i).cumDist < ANCHOR_STRAIGHT_DIST || stepBefore < ANCHOR_MIN_STEP || stepAfter < ANCHOR_MIN_STEP
+						|| stepBefore > ANCHOR_MAX_STEP || stepAfter > ANCHOR_MAX_STEP) {
+					continue;
+				}
+				GpxPoint p = track.get(i), b = track.get(before), a = track.get(after);
+				double deviation = MapUtils.getOrthogonalDistance(p.loc.getLatitude(), p.loc.getLongitude(),
+						b.loc.getLatitude(), b.loc.getLongitude(), a.loc.getLatitude(), a.loc.getLongitude());
+				if (deviation < minDeviation) {
+					minDeviation = deviation;
+					anchor = i;
+				}
+			}
+			if (anchor == -1) {
+				anchor = fallback;
+			}
+			if (anchor == -1) {
+				// no points in window (long jump)
+				anchor = start + 1;
+				while (anchor < last && track.get(anchor).cumDist < windowStart) {
+					anchor++;
+				}
+			}
+			anchors.add(anchor);
+			start = anchor;
+		}
+		anchors.add(last);
+		return anchors;
+	}
+}
@@ -43,6 +43,50 @@ public class GpxRouteApproximation {
 				routeCalculations, routeDistCalculations, routePointsSearched, routeDistance, routeDistanceUnmatched);
 	}
 
+	public int getRouteDistanceUnmatched() {
+		return routeDistanceUnmatched;
+	}
+
+	/**
+	 * Appends approximation of the track part which starts at gpx point offset (see GpxBatchApproximation),
+	 * first point of the part is the last point of the previous part (it is kept once, as start of the part).
+	 * Road segment continued over the border is joined, finalPoints should be reconstructed after all parts
+	 * are appended.
+	 */
+	void appendChunk(GpxRouteApproximation chunk, int offset) {
+		routeCalculations += chunk.routeCalculations;
+		routeDistCalculations += chunk.routeDistCalculations;
+		routePointsSearched += chunk.routePointsSearched;
+		routeDistance += chunk.routeDistance;
+		routeDistanceUnmatched += chunk.routeDistanceUnmatched;
+		for (RoutePlannerFrontEnd.GpxPoint p : chunk.finalPoints) {
+			p.ind += offset;
+			if (p.targetInd != -1) {
+				p.targetInd += offset;
+			}
+			if (!finalPoints.isEmpty() && finalPoints.get(finalPoints.size() - 1).ind == p.ind) {
+				finalPoints.remove(finalPoints.size() - 1);
+			}
+			finalPoints.add(p);
+		}
+		for (int i = 0; i < chunk.fullRoute.size(); i++) {
+			RouteSegmentResult seg = chunk.fullRoute.get(i);
+			if (seg.getGpxPointIndex() != -1) {
+				seg.setGpxPointIndex(seg.getGpxPointIndex() + offset);
+			}
+			RouteSegmentResult last = i == 0 && !fullRoute.isEmpty() ? fullRoute.get(fullRoute.size() - 1) : null;
+			if (last != null && last.getObject().getId() > 0 && last.getObject().getId() == seg.getObject().getId()
+					&& last.isForwardDirection() == seg.isForwardDirection()
+					&& last.getEndPointIndex() == seg.getStartPointIndex()) {
+				last.setEndPointIndex(seg.getEndPointIndex());
+				last.setDistance(last.getDistance() + seg.getDistance());
+				last.setSegmentTime(last.getSegmentTime() + seg.getSegmentTime());
+			} else {
+				fullRoute.add(seg);
+			}
+		}
+	}
+
 	public GpxRouteApproximation searchGpxRouteInternal(RoutePlannerFrontEnd router,
 			List<RoutePlannerFrontEnd.GpxPoint> gpxPoints, ResultMatcher<GpxRouteApproximation> resultMatcher,
 			boolean useExternalTimestamps) throws IOException, InterruptedException {
@@ -137,7 +181,7 @@ public class GpxRouteApproximation {
 		return true;
 	}
 
-	private void reconstructFinalPointsFromFullRoute() {
+	void reconstructFinalPointsFromFullRoute() {
 		// create gpx-to-final index map, clear routeToTarget(s)
 		Map<Integer, Integer> gpxIndexFinalIndex = new HashMap<>();
 		for (int i = 0; i < finalPoints.size(); i++) {
@@ -541,7 +585,11 @@ public class GpxRouteApproximation {
 			gctx.routeDistCalculations += (target.cumDist - start.cumDist);
 			gctx.routeCalculations++;
 			RoutingContext local = new RoutingContext(gctx.ctx);
-			res = router.searchRouteInternalPrepare(local, start.pnt, target.pnt, null);
+			try {
+				res = router.searchRouteInternalPrepare(local, start.pnt, target.pnt, null);
+			} finally {
+				local.releaseSharedTiles();
+			}
 			//BinaryRoutePlanner.printDebugMemoryInformation(gctx.ctx);
 			routeIsCorrect = res != null && res.isCorrect();
 			for (int k = start.ind + 1; routeIsCorrect && k < target.ind; k++) {
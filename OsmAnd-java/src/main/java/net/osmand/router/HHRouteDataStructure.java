@@ -4,6 +4,7 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.Iterator;
@@ -70,6 +71,10 @@ public class HHRouteDataStructure {
 		int MIDPOINT_ERROR = 3;
 		int MIDPOINT_MAX_DEPTH = 20 + MIDPOINT_ERROR;
 		
+		int MATRIX_THREADS = Runtime.getRuntime().availableProcessors(); // origins calculated in parallel
+		// matrix search stops for not reached destination at cost: ratio * straight distance / min speed
+		double MATRIX_MAX_COST_RATIO = 1;
+		
 		public static HHRoutingConfig dijkstra(int direction) {
 			HHRoutingConfig df = new HHRoutingConfig();
 			df.HEURISTIC_COEFFICIENT = 0;
@@ -149,6 +154,11 @@ public class HHRouteDataStructure {
 			MAX_SETTLE_POINTS = maxPoints;
 			return this;
 		}
+		
+		public HHRoutingConfig matrixThreads(int threads) {
+			MATRIX_THREADS = Math.max(1, threads);
+			return this;
+		}
 
 		@Override
 		public String toString() {
@@ -456,6 +466,33 @@ public class HHRouteDataStructure {
 		double prepTime = 0;
 	}
 	
+	public static class HHRoutingMatrix {
+		public static final float UNREACHABLE = -1;
+		
+		// [origin][destination]
+		public final float[][] times; // routing time (s) 
+		public final float[][] distances; // approximate distance (m) - straight lines between passed network points
+		public String error;
+		
+		public HHRoutingMatrix(int origins, int destinations) {
+			times = new float[origins][destinations];
+			distances = new float[origins][destinations];
+			for (int i = 0; i < origins; i++) {
+				Arrays.fill(times[i], UNREACHABLE);
+				Arrays.fill(distances[i], UNREACHABLE);
+			}
+		}
+		
+		public HHRoutingMatrix(String error) {
+			this(0, 0);
+			this.error = error;
+		}
+		
+		public boolean isReachable(int origin, int destination) {
+			return times[origin][destination] >= 0;
+		}
+	}
+	
 	public static class HHNetworkRouteRes extends RouteCalcResult {
 
 		public RoutingStats stats;
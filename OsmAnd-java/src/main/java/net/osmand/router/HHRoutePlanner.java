@@ -10,17 +10,21 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
+import java.util.PriorityQueue;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Queue;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.map.TLongObjectMap;
 import gnu.trove.map.hash.TIntObjectHashMap;
 import gnu.trove.map.hash.TLongObjectHashMap;
 import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TIntHashSet;
 import gnu.trove.set.hash.TLongHashSet;
 import net.osmand.binary.BinaryHHRouteReaderAdapter.HHRouteRegion;
 import net.osmand.binary.BinaryMapIndexReader;
@@ -39,6 +43,7 @@ import net.osmand.router.HHRouteDataStructure.HHNetworkSegmentRes;
 import net.osmand.router.HHRouteDataStructure.HHRouteRegionPointsCtx;
 import net.osmand.router.HHRouteDataStructure.HHRoutingConfig;
 import net.osmand.router.HHRouteDataStructure.HHRoutingContext;
+import net.osmand.router.HHRouteDataStructure.HHRoutingMatrix;
 import net.osmand.router.HHRouteDataStructure.NetworkDBPoint;
 import net.osmand.router.HHRouteDataStructure.NetworkDBPointCost;
 import net.osmand.router.HHRouteDataStructure.NetworkDBSegment;
@@ -48,6 +53,7 @@ import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
 import net.osmand.router.RoutingConfiguration.Builder;
 import net.osmand.router.RoutingConfiguration.RoutingMemoryLimits;
 import net.osmand.util.MapUtils;
+import net.osmand.util.ParallelTasks;
 
 public class HHRoutePlanner<T extends NetworkDBPoint> {
 	public static int DEBUG_VERBOSE_LEVEL = 0;
@@ -294,6 +300,374 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 		return route;
 	}
 
+	/**
+	 * Many-to-many travel time matrix. Last mile to the network is calculated once per origin / destination,
+	 * network search runs once per origin (origins in parallel) and meets destinations through buckets
+	 * attached to their network access points, so N x M matrix needs N + M last mile and N network searches.
+	 * Pairs in the same or neighbour clusters are also routed directly without network points (as runRouting does).
+	 * Routes are not built, times are HH network costs.
+	 */
+	@SuppressWarnings("unchecked")
+	public HHRoutingMatrix runMatrix(final List<LatLon> origins, List<LatLon> destinations, HHRoutingConfig config)
+			throws SQLException, IOException, InterruptedException {
+		long startTime = System.nanoTime();
+		final RouteCalculationProgress progress = currentCtx.rctx.calculationProgress;
+		if (origins.isEmpty() || destinations.isEmpty()) {
+			return new HHRoutingMatrix(origins.size(), destinations.size());
+		}
+		if (config.cacheCtx != null && config.cacheCtx.rctx == currentCtx.rctx) {
+			currentCtx = (HHRoutingContext<T>) config.cacheCtx;
+		}
+		config = prepareDefaultRoutingConfig(config);
+		final HHRoutingContext<T> hctx = initHCtx(config, origins.get(0), destinations.get(0));
+		if (config.CACHE_CALCULATION_CONTEXT) {
+			config.cacheCtx = (HHRoutingContext<NetworkDBPoint>) hctx;
+		}
+		if (hctx == null) {
+			return new HHRoutingMatrix("Files for hh routing were not initialized. Matrix couldn't be calculated.");
+		}
+		try {
+			return runMatrix(hctx, origins, destinations, progress, startTime);
+		} finally {
+			// start / end are changed by last mile searches, keep them as initialized
+			hctx.setStartEnd(origins.get(0), destinations.get(0));
+		}
+	}
+
+	private HHRoutingMatrix runMatrix(final HHRoutingContext<T> hctx, List<LatLon> origins, List<LatLon> destinations,
+			final RouteCalculationProgress progress, long startTime) throws SQLException, IOException, InterruptedException {
+		filterPointsBasedOnConfiguration(hctx);
+		progress.hhIteration(HHIteration.START_END_POINT);
+		long time = System.nanoTime();
+		final List<MatrixPoint<T>> originPoints = new ArrayList<>();
+		for (LatLon o : origins) {
+			originPoints.add(findMatrixAccessPoints(hctx, o, false));
+		}
+		final List<MatrixPoint<T>> destPoints = new ArrayList<>();
+		// buckets: network point -> destinations reachable from it
+		final TIntObjectHashMap<List<MatrixBucket>> buckets = new TIntObjectHashMap<>();
+		for (int j = 0; j < destinations.size(); j++) {
+			MatrixPoint<T> d = findMatrixAccessPoints(hctx, destinations.get(j), true);
+			destPoints.add(d);
+			for (NetworkDBPointCost<T> p : d.access) {
+				List<MatrixBucket> l = buckets.get(p.point.index);
+				if (l == null) {
+					l = new ArrayList<>();
+					buckets.put(p.point.index, l);
+				}
+				l.add(new MatrixBucket(j, p.cost, squareRootDist31(p.point.midX(), p.point.midY(), d.x, d.y)));
+			}
+		}
+		final HHRoutingMatrix matrix = new HHRoutingMatrix(origins.size(), destinations.size());
+		if (hctx.config.ROUTE_LAST_MILE) {
+			for (int i = 0; i < originPoints.size() && !progress.isCancelled; i++) {
+				MatrixPoint<T> o = originPoints.get(i);
+				for (int j = 0; j < destPoints.size(); j++) {
+					MatrixPoint<T> d = destPoints.get(j);
+					if (!o.isNeighbour(d)) {
+						continue;
+					}
+					double cost = findMatrixShortRoute(hctx, o, d);
+					if (cost >= 0) {
+						matrix.times[i][j] = (float) cost;
+						matrix.distances[i][j] = (float) squareRootDist31(o.x, o.y, d.x, d.y);
+					}
+				}
+			}
+		}
+		hctx.stats.searchPointsTime = (System.nanoTime() - time) / 1e6;
+		if (progress.isCancelled) {
+			return new HHRoutingMatrix("Routing was cancelled.");
+		}
+
+		progress.hhIteration(HHIteration.ROUTING);
+		time = System.nanoTime();
+		int threads = Math.min(hctx.config.MATRIX_THREADS, origins.size());
+		List<Callable<Void>> originTasks = new ArrayList<>();
+		for (int i = 0; i < originPoints.size(); i++) {
+			final MatrixPoint<T> o = originPoints.get(i);
+			final float[] times = matrix.times[i];
+			final float[] distances = matrix.distances[i];
+			originTasks.add(new Callable<Void>() {
+				@Override
+				public Void call() throws SQLException, IOException {
+					if (!progress.isCancelled) {
+						runMatrixOrigin(hctx, o, destPoints, buckets, times, distances);
+					}
+					return null;
+				}
+			});
+		}
+		ParallelTasks<Void> tasks = new ParallelTasks<Void>(originTasks).start(threads);
+		try {
+			for (int i = 0; i < tasks.size(); i++) {
+				tasks.get(i);
+			}
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof SQLException) {
+				throw (SQLException) cause;
+			} else if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException(cause);
+		} finally {
+			// stop other origins on error or interrupt
+			tasks.cancel(true);
+		}
+		if (progress.isCancelled) {
+			return new HHRoutingMatrix("Routing was cancelled.");
+		}
+		hctx.stats.routingTime = (System.nanoTime() - time) / 1e6;
+		printf(HHRoutingConfig.STATS_VERBOSE_LEVEL >= 0,
+				"Matrix %d x %d %.1f ms: load/filter points %.1f ms, last mile %.1f ms, routing %.1f ms (%d threads) - %s\n",
+				origins.size(), destinations.size(), (System.nanoTime() - startTime) / 1e6, hctx.stats.loadPointsTime,
+				hctx.stats.searchPointsTime, hctx.stats.routingTime, threads, hctx.getRoutingInfo());
+		return matrix;
+	}
+
+	private static class MatrixPoint<T extends NetworkDBPoint> {
+		final LatLon pnt;
+		final int x;
+		final int y;
+		RouteSegmentPoint segment;
+		final List<NetworkDBPointCost<T>> access = new ArrayList<>();
+		// access points and their dual points
+		final TIntHashSet accessIndexes = new TIntHashSet();
+
+		MatrixPoint(LatLon pnt) {
+			this.pnt = pnt;
+			x = MapUtils.get31TileNumberX(pnt.getLongitude());
+			y = MapUtils.get31TileNumberY(pnt.getLatitude());
+		}
+
+		// points are in the same or neighbour clusters (share boundary network point)
+		boolean isNeighbour(MatrixPoint<T> d) {
+			if (segment == null || d.segment == null) {
+				return false;
+			}
+			for (NetworkDBPointCost<T> p : access) {
+				if (d.accessIndexes.contains(p.point.index)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	private static class MatrixBucket {
+		final int destination;
+		final double cost;
+		final double dist;
+
+		MatrixBucket(int destination, double cost, double dist) {
+			this.destination = destination;
+			this.cost = cost;
+			this.dist = dist;
+		}
+	}
+
+	private static class MatrixLabel {
+		double cost;
+		double dist;
+		boolean settled;
+	}
+
+	private MatrixPoint<T> findMatrixAccessPoints(HHRoutingContext<T> hctx, LatLon pnt, boolean reverse)
+			throws IOException, InterruptedException {
+		MatrixPoint<T> res = new MatrixPoint<>(pnt);
+		hctx.setStartEnd(pnt, pnt);
+		TLongObjectHashMap<T> pnts = new TLongObjectHashMap<>();
+		if (!hctx.config.ROUTE_LAST_MILE) {
+			initStart(hctx, null, reverse, pnts);
+		} else {
+			RouteSegmentPoint s = new RoutePlannerFrontEnd().findRouteSegment(pnt.getLatitude(), pnt.getLongitude(),
+					hctx.rctx, null);
+			List<RouteSegmentPoint> others = s == null ? null : s.others;
+			int reiterate = 0;
+			Double prev = hctx.rctx.config.initialDirection;
+			if (!reverse) {
+				hctx.rctx.config.initialDirection = hctx.config.INITIAL_DIRECTION;
+			}
+			try {
+				while (s != null) {
+					initStart(hctx, s, reverse, pnts);
+					res.segment = s;
+					if (!pnts.isEmpty() || others == null || reiterate >= others.size()
+							|| reiterate >= hctx.config.MAX_START_END_REITERATIONS) {
+						break;
+					}
+					s = others.get(reiterate++);
+				}
+			} finally {
+				hctx.rctx.config.initialDirection = prev;
+			}
+		}
+		for (T p : pnts.valueCollection()) {
+			if (p.index != PNT_SHORT_ROUTE_START_END && !p.rtExclude) {
+				res.access.add(new NetworkDBPointCost<T>(p, p.rt(reverse).rtDistanceFromStart, reverse));
+				res.accessIndexes.add(p.index);
+				if (p.dualPoint != null) {
+					res.accessIndexes.add(p.dualPoint.index);
+				}
+			}
+			clearMatrixRouting(p);
+		}
+		return res;
+	}
+
+	// direct route from origin to destination without network points (PNT_SHORT_ROUTE_START_END in runRouting)
+	private double findMatrixShortRoute(HHRoutingContext<T> hctx, MatrixPoint<T> o, MatrixPoint<T> d)
+			throws IOException, InterruptedException {
+		hctx.setStartEnd(o.pnt, d.pnt);
+		long[] ids = { calcRPId(d.segment, d.segment.getSegmentEnd(), d.segment.getSegmentStart()),
+				calcRPId(d.segment, d.segment.getSegmentStart(), d.segment.getSegmentEnd()) };
+		// destination could be on network point segment, keep its boundary
+		boolean[] added = new boolean[ids.length];
+		for (int k = 0; k < ids.length; k++) {
+			if (!hctx.boundaries.containsKey(ids[k])) {
+				hctx.boundaries.put(ids[k], null);
+				added[k] = true;
+			}
+		}
+		TLongObjectHashMap<T> pnts = new TLongObjectHashMap<>();
+		Double prev = hctx.rctx.config.initialDirection;
+		hctx.rctx.config.initialDirection = hctx.config.INITIAL_DIRECTION;
+		try {
+			initStart(hctx, o.segment, false, pnts);
+		} finally {
+			hctx.rctx.config.initialDirection = prev;
+			for (int k = 0; k < ids.length; k++) {
+				if (added[k]) {
+					hctx.boundaries.remove(ids[k]);
+				}
+			}
+		}
+		double cost = -1;
+		for (T p : pnts.valueCollection()) {
+			if (p.index == PNT_SHORT_ROUTE_START_END) {
+				cost = p.rt(false).rtDistanceFromStart;
+			}
+			clearMatrixRouting(p);
+		}
+		return cost;
+	}
+
+	// search state isn't kept in points, keep only exclusion
+	private void clearMatrixRouting(T p) {
+		boolean exclude = p.rtExclude;
+		p.clearRouting();
+		p.rtExclude = exclude;
+	}
+
+	// one to many dijkstra, state is local so origins could be calculated in parallel
+	@SuppressWarnings("unchecked")
+	private void runMatrixOrigin(HHRoutingContext<T> hctx, MatrixPoint<T> origin, List<MatrixPoint<T>> destinations,
+			TIntObjectHashMap<List<MatrixBucket>> buckets, float[] times, float[] distances) throws SQLException, IOException {
+		RouteCalculationProgress progress = hctx.rctx.calculationProgress;
+		TIntObjectHashMap<MatrixLabel> labels = new TIntObjectHashMap<>();
+		PriorityQueue<NetworkDBPointCost<T>> queue = new PriorityQueue<>(new Comparator<NetworkDBPointCost<T>>() {
+			@Override
+			public int compare(NetworkDBPointCost<T> o1, NetworkDBPointCost<T> o2) {
+				return Double.compare(o1.cost, o2.cost);
+			}
+		});
+		for (NetworkDBPointCost<T> s : origin.access) {
+			double dist = squareRootDist31(origin.x, origin.y, s.point.midX(), s.point.midY());
+			addMatrixPoint(labels, queue, s.point, s.cost, dist);
+		}
+		// best cost (short routes are already set) and bound of search for not reached destinations
+		double[] best = new double[times.length];
+		double[] bound = new double[times.length];
+		float minSpeed = hctx.rctx.getRouter().getMinSpeed();
+		for (int j = 0; j < times.length; j++) {
+			best[j] = times[j] >= 0 ? times[j] : Double.POSITIVE_INFINITY;
+			MatrixPoint<T> d = destinations.get(j);
+			if (!d.access.isEmpty()) {
+				bound[j] = hctx.config.MATRIX_MAX_COST_RATIO * squareRootDist31(origin.x, origin.y, d.x, d.y) / minSpeed;
+			}
+		}
+		double limit = matrixSearchLimit(best, bound);
+		while (!queue.isEmpty()) {
+			if (progress.isCancelled || Thread.currentThread().isInterrupted()) {
+				return;
+			}
+			NetworkDBPointCost<T> pc = queue.poll();
+			T point = pc.point;
+			MatrixLabel label = labels.get(point.index);
+			if (label.settled || pc.cost > label.cost) {
+				continue;
+			}
+			label.settled = true;
+			if (pc.cost >= limit) {
+				break;
+			}
+			if (hctx.config.MAX_COST > 0 && pc.cost > hctx.config.MAX_COST) {
+				break;
+			}
+			List<MatrixBucket> bucket = buckets.get(point.index);
+			if (bucket != null) {
+				boolean improved = false;
+				for (MatrixBucket b : bucket) {
+					double cost = pc.cost + b.cost;
+					if (cost < best[b.destination]) {
+						best[b.destination] = cost;
+						times[b.destination] = (float) cost;
+						distances[b.destination] = (float) (label.dist + b.dist);
+						improved = true;
+					}
+				}
+				if (improved) {
+					limit = matrixSearchLimit(best, bound);
+				}
+			}
+			List<NetworkDBSegment> connected;
+			synchronized (hctx) {
+				hctx.loadNetworkSegmentPoint(point, false);
+				connected = point.connected(false);
+			}
+			for (NetworkDBSegment segment : connected) {
+				T nextPoint = (T) segment.end;
+				if (!hctx.config.USE_CH && !hctx.config.USE_CH_SHORTCUTS && segment.shortcut) {
+					continue;
+				}
+				if (nextPoint.rtExclude || segment.dist < 0) {
+					continue;
+				}
+				double dist = label.dist + squareRootDist31(point.midX(), point.midY(), nextPoint.midX(), nextPoint.midY());
+				addMatrixPoint(labels, queue, nextPoint, pc.cost + segment.dist, dist);
+			}
+		}
+	}
+
+	// search stops when cost passes best costs of reached and bounds of not reached destinations
+	private static double matrixSearchLimit(double[] best, double[] bound) {
+		double limit = 0;
+		for (int j = 0; j < best.length; j++) {
+			limit = Math.max(limit, Double.isInfinite(best[j]) ? bound[j] : best[j]);
+		}
+		return limit;
+	}
+
+	private void addMatrixPoint(TIntObjectHashMap<MatrixLabel> labels, PriorityQueue<NetworkDBPointCost<T>> queue,
+			T point, double cost, double dist) {
+		MatrixLabel label = labels.get(point.index);
+		if (label == null) {
+			label = new MatrixLabel();
+			label.cost = Double.POSITIVE_INFINITY;
+			labels.put(point.index, label);
+		}
+		if (!label.settled && cost < label.cost) {
+			label.cost = cost;
+			label.dist = dist;
+			queue.add(new NetworkDBPointCost<T>(point, cost, false));
+		}
+	}
+
 	public static TreeMap<String, String> getFilteredTags(GeneralRouter generalRouter) {
 		Map<String, RoutingParameter> parameters = generalRouter.getParameters();
 		TreeMap<String, String> tm = new TreeMap<String, String>();
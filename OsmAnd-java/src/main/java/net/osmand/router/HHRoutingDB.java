@@ -1,6 +1,7 @@
 package net.osmand.router;
 
 import java.io.File;
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -12,9 +13,12 @@ import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
 
+import org.apache.commons.logging.Log;
+
 import gnu.trove.iterator.TIntObjectIterator;
 import gnu.trove.map.hash.TIntObjectHashMap;
 import gnu.trove.map.hash.TLongObjectHashMap;
+import net.osmand.PlatformUtil;
 import net.osmand.binary.BinaryMapIndexReader.TagValuePair;
 import net.osmand.data.LatLon;
 import net.osmand.router.HHRouteDataStructure.HHRouteRegionPointsCtx;
@@ -27,6 +31,8 @@ import net.osmand.util.MapUtils;
 
 public class HHRoutingDB {
 
+	private static final Log LOG = PlatformUtil.getLog(HHRoutingDB.class);
+
 	public static final String EXT = ".hhdb";
 	public static final String CEXT = ".chdb";
 
@@ -44,6 +50,7 @@ public class HHRoutingDB {
 	protected String routingProfile = "";
 	protected TIntObjectHashMap<String> routingProfiles = new TIntObjectHashMap<String>();
 	protected boolean compactDB;
+	protected HHRoutingPointsFile pointsFile;
 	
 	protected static Comparator<NetworkDBPoint> indexComparator = new Comparator<NetworkDBPoint>() {
 
@@ -84,6 +91,44 @@ public class HHRoutingDB {
 			routingProfiles.put(rs.getInt(2), rs.getString(3));
 		}
 		st.close();
+		File pf = f == null ? null : getPointsFile(f);
+		if (pf != null && pf.exists()) {
+			try {
+				pointsFile = HHRoutingPointsFile.open(pf, f.lastModified());
+			} catch (IOException e) {
+				LOG.error("Error reading points file " + pf.getName() + ": " + e.getMessage(), e);
+			}
+		}
+	}
+	
+	public static File getPointsFile(File dbFile) {
+		return new File(dbFile.getParentFile(), dbFile.getName() + HHRoutingPointsFile.EXT);
+	}
+	
+	/**
+	 * Exports points (and segments of not compact db) into columnar snapshot which is used instead of db tables next time
+	 */
+	public File writePointsFile() throws SQLException, IOException {
+		TLongObjectHashMap<NetworkDBPointCh> pnts = loadNetworkPointsDB((short) 0, NetworkDBPointCh.class);
+		TIntObjectHashMap<List<NetworkDBSegment>> segments = new TIntObjectHashMap<>();
+		if (!compactDB) {
+			for (int profile : routingProfiles.keys()) {
+				for (NetworkDBPoint p : pnts.valueCollection()) {
+					p.connected = new ArrayList<>();
+					p.connectedReverse = new ArrayList<>();
+				}
+				loadNetworkSegmentsDB(pnts.valueCollection(), profile, false);
+				List<NetworkDBSegment> l = new ArrayList<>();
+				for (NetworkDBPoint p : pnts.valueCollection()) {
+					l.addAll(p.connected);
+				}
+				segments.put(profile, l);
+			}
+		}
+		File pf = getPointsFile(file);
+		HHRoutingPointsFile.write(pf, file.lastModified(), pnts.valueCollection(), segments);
+		pointsFile = HHRoutingPointsFile.open(pf, file.lastModified());
+		return pf;
 	}
 	
 	public String getRoutingProfile() {
@@ -125,6 +170,13 @@ public class HHRoutingDB {
 	}
 	
 	public <T extends NetworkDBPoint> TLongObjectHashMap<T> loadNetworkPoints(short mapId, Class<T> cl) throws SQLException {
+		if (pointsFile != null) {
+			return pointsFile.loadNetworkPoints(mapId, cl);
+		}
+		return loadNetworkPointsDB(mapId, cl);
+	}
+	
+	private <T extends NetworkDBPoint> TLongObjectHashMap<T> loadNetworkPointsDB(short mapId, Class<T> cl) throws SQLException {
 		Statement st = conn.createStatement();
 		ResultSet rs = st.executeQuery("SELECT dualIdPoint, idPoint, clusterId, chInd, roadId, start, end, sx31, sy31, ex31, ey31, tagValues "
 				+ " from points");
@@ -271,6 +323,16 @@ public class HHRoutingDB {
 	}
 	
 	public int loadNetworkSegmentsInternal(Collection<? extends NetworkDBPoint> points, int routingProfile, boolean excludeShortcuts) throws SQLException {
+		if (pointsFile != null) {
+			int loaded = pointsFile.loadNetworkSegments(points, routingProfile, excludeShortcuts);
+			if (loaded >= 0) {
+				return loaded;
+			}
+		}
+		return loadNetworkSegmentsDB(points, routingProfile, excludeShortcuts);
+	}
+	
+	private int loadNetworkSegmentsDB(Collection<? extends NetworkDBPoint> points, int routingProfile, boolean excludeShortcuts) throws SQLException {
 		TLongObjectHashMap<NetworkDBPoint> pntsById = new TLongObjectHashMap<>();
 		for (NetworkDBPoint p : points) {
 			pntsById.put(p.index, p);
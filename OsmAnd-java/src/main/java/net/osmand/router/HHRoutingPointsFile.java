@@ -0,0 +1,380 @@
+package net.osmand.router;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+
+import gnu.trove.iterator.TIntObjectIterator;
+import gnu.trove.map.hash.TIntLongHashMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.osmand.PlatformUtil;
+import net.osmand.binary.BinaryMapIndexReader.TagValuePair;
+import net.osmand.router.HHRouteDataStructure.NetworkDBPoint;
+import net.osmand.router.HHRouteDataStructure.NetworkDBPointCh;
+import net.osmand.router.HHRouteDataStructure.NetworkDBSegment;
+
+/**
+ * Columnar binary snapshot of HHRoutingDB points and segments tables: primitive columns and dictionary of tags.
+ * File is memory mapped by chunks (pages are shared between processes) and points are materialized only on request,
+ * so it replaces slow sqlite scan of points table. Snapshot is stored next to db file (db name + EXT).
+ */
+public class HHRoutingPointsFile {
+
+	private static final Log LOG = PlatformUtil.getLog(HHRoutingPointsFile.class);
+
+	public static final String EXT = ".hhpts";
+	private static final int MAGIC = 0x48485054; // HHPT
+	private static final int VERSION = 1;
+	// chunks overlap by size of largest primitive, so single value is never split between chunks
+	private static final int CHUNK_OVERLAP = 8;
+	static int MAP_CHUNK_SIZE = 1 << 30;
+
+	private final File file;
+	private final ByteBuffer[] chunks;
+	private final long chunkSize;
+	private final String[] dictionary;
+	private final int pointsCount;
+	private final long pointsOffset;
+	private final long tagsOffset;
+	private final int tagsCount;
+	// profile -> offset of segments
+	private final TIntLongHashMap profileSegments = new TIntLongHashMap();
+
+	private HHRoutingPointsFile(File file, ByteBuffer[] chunks, long chunkSize) throws IOException {
+		this.file = file;
+		this.chunks = chunks;
+		this.chunkSize = chunkSize;
+		if (getInt(0) != MAGIC || getInt(4) != VERSION) {
+			throw new IOException("Unsupported points file " + file.getName());
+		}
+		long pos = 16;
+		dictionary = new String[getInt(pos)];
+		pos += 4;
+		for (int i = 0; i < dictionary.length; i++) {
+			int len = getInt(pos);
+			byte[] bytes = new byte[len];
+			for (int j = 0; j < len; j++) {
+				bytes[j] = get(pos + 4 + j);
+			}
+			dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+			pos += 4 + len;
+		}
+		pointsCount = getInt(pos);
+		pointsOffset = pos + 4;
+		pos = pointsOffset + (long) pointsCount * (4 * 8 + 8 + 2 * 2) + (pointsCount + 1L) * 4;
+		tagsCount = getInt(pos);
+		tagsOffset = pos + 4;
+		pos = tagsOffset + tagsCount * 4L;
+		int profiles = getInt(pos);
+		pos += 4;
+		for (int i = 0; i < profiles; i++) {
+			int profile = getInt(pos);
+			int segments = getInt(pos + 4);
+			profileSegments.put(profile, pos + 8);
+			pos += 8 + segments * (4L + 4 + 8 + 1);
+		}
+	}
+
+	/**
+	 * @return null if file is not a valid snapshot or it is older than db
+	 */
+	public static HHRoutingPointsFile open(File file, long dbModified) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			long size = channel.size();
+			if (size < 16) {
+				return null;
+			}
+			long chunkSize = MAP_CHUNK_SIZE;
+			ByteBuffer[] chunks = new ByteBuffer[(int) ((size + chunkSize - 1) / chunkSize)];
+			for (int i = 0; i < chunks.length; i++) {
+				long start = i * chunkSize;
+				chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(chunkSize + CHUNK_OVERLAP, size - start));
+			}
+			if (chunks[0].getInt(0) != MAGIC || chunks[0].getLong(8) < dbModified) {
+				return null;
+			}
+			return new HHRoutingPointsFile(file, chunks, chunkSize);
+		} finally {
+			// mapping stays valid after channel is closed
+			raf.close();
+		}
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public int getPointsCount() {
+		return pointsCount;
+	}
+
+	private ByteBuffer chunk(long pos) {
+		return chunks[(int) (pos / chunkSize)];
+	}
+
+	private byte get(long pos) {
+		return chunk(pos).get((int) (pos % chunkSize));
+	}
+
+	private short getShort(long pos) {
+		return chunk(pos).getShort((int) (pos % chunkSize));
+	}
+
+	private int getInt(long pos) {
+		return chunk(pos).getInt((int) (pos % chunkSize));
+	}
+
+	private long getLong(long pos) {
+		return chunk(pos).getLong((int) (pos % chunkSize));
+	}
+
+	private double getDouble(long pos) {
+		return chunk(pos).getDouble((int) (pos % chunkSize));
+	}
+
+	// columns: index, dualIndex, clusterId, chInd, roadId, start, end, sx31, sy31, ex31, ey31, tagsStart
+	private long column(int col) {
+		if (col <= 4) {
+			return pointsOffset + col * 4L * pointsCount;
+		} else if (col <= 7) {
+			return pointsOffset + (4 * 4 + 8 + (col - 5) * 2) * (long) pointsCount;
+		}
+		return pointsOffset + (4 * 4 + 8 + 2 * 2 + (col - 7) * 4) * (long) pointsCount;
+	}
+
+	public <T extends NetworkDBPoint> TLongObjectHashMap<T> loadNetworkPoints(short mapId, Class<T> cl) {
+		Constructor<T> constructor;
+		try {
+			constructor = cl.getDeclaredConstructor();
+		} catch (NoSuchMethodException e) {
+			throw new IllegalStateException(e);
+		}
+		long indexCol = column(0), dualCol = column(1), clusterCol = column(2), chCol = column(3), roadCol = column(4),
+				startCol = column(5), endCol = column(6), sxCol = column(7), syCol = column(8), exCol = column(9),
+				eyCol = column(10), tagsCol = column(11);
+		TLongObjectHashMap<TagValuePair> tagValues = new TLongObjectHashMap<>();
+		TLongObjectHashMap<T> mp = new TLongObjectHashMap<>(pointsCount);
+		for (int i = 0; i < pointsCount; i++) {
+			int dualIdPoint = getInt(dualCol + i * 4L);
+			if (dualIdPoint == 0) {
+				continue;
+			}
+			T pnt;
+			try {
+				pnt = constructor.newInstance();
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+			pnt.mapId = mapId;
+			pnt.index = getInt(indexCol + i * 4L);
+			pnt.clusterId = getInt(clusterCol + i * 4L);
+			if (pnt instanceof NetworkDBPointCh) {
+				((NetworkDBPointCh) pnt).chInd = getInt(chCol + i * 4L);
+			}
+			pnt.roadId = getLong(roadCol + i * 8L);
+			pnt.start = getShort(startCol + i * 2L);
+			pnt.end = getShort(endCol + i * 2L);
+			pnt.startX = getInt(sxCol + i * 4L);
+			pnt.startY = getInt(syCol + i * 4L);
+			pnt.endX = getInt(exCol + i * 4L);
+			pnt.endY = getInt(eyCol + i * 4L);
+			int tagsStart = getInt(tagsCol + i * 4L);
+			int tagsEnd = getInt(tagsCol + i * 4L + 4);
+			if (tagsEnd > tagsStart) {
+				pnt.tagValues = new ArrayList<>((tagsEnd - tagsStart) / 2);
+				for (int t = tagsStart; t < tagsEnd; t += 2) {
+					int tag = getInt(tagsOffset + t * 4L);
+					int value = getInt(tagsOffset + t * 4L + 4);
+					long key = (((long) tag) << 32) | value;
+					// same tag values are shared between points (read only)
+					TagValuePair tv = tagValues.get(key);
+					if (tv == null) {
+						tv = new TagValuePair(dictionary[tag], dictionary[value], -1);
+						tagValues.put(key, tv);
+					}
+					pnt.tagValues.add(tv);
+				}
+			}
+			mp.put(pnt.index, pnt);
+			if (mp.contains(dualIdPoint)) {
+				pnt.dualPoint = mp.get(dualIdPoint);
+				pnt.dualPoint.dualPoint = pnt;
+			}
+		}
+		return mp;
+	}
+
+	/**
+	 * Segments with points which are not present in collection are skipped.
+	 * @return number of loaded segments or -1 if segments of profile are not present in snapshot
+	 */
+	public int loadNetworkSegments(Collection<? extends NetworkDBPoint> points, int routingProfile, boolean excludeShortcuts) {
+		if (!profileSegments.containsKey(routingProfile)) {
+			return -1;
+		}
+		long offset = profileSegments.get(routingProfile);
+		TLongObjectHashMap<NetworkDBPoint> pntsById = new TLongObjectHashMap<>();
+		for (NetworkDBPoint p : points) {
+			pntsById.put(p.index, p);
+		}
+		int count = getInt(offset - 4);
+		long startCol = offset, endCol = startCol + count * 4L, distCol = endCol + count * 4L,
+				shortcutCol = distCol + count * 8L;
+		int x = 0;
+		int missing = 0;
+		for (int i = 0; i < count; i++) {
+			boolean shortcut = get(shortcutCol + i) > 0;
+			if (excludeShortcuts && shortcut) {
+				continue;
+			}
+			NetworkDBPoint start = pntsById.get(getInt(startCol + i * 4L));
+			NetworkDBPoint end = pntsById.get(getInt(endCol + i * 4L));
+			if (start == null || end == null) {
+				missing++;
+				continue;
+			}
+			x++;
+			double dist = getDouble(distCol + i * 8L);
+			start.connected.add(new NetworkDBSegment(start, end, dist, true, shortcut));
+			end.connectedReverse.add(new NetworkDBSegment(start, end, dist, false, shortcut));
+		}
+		if (missing > 0) {
+			LOG.warn(String.format("Points file %s: %d segments of profile %d skipped (points are missing)",
+					file.getName(), missing, routingProfile));
+		}
+		return x;
+	}
+
+	/**
+	 * Writes snapshot, segments are optional (profile -> segments with direction = true).
+	 */
+	public static void write(File out, long dbModified, Collection<? extends NetworkDBPoint> points,
+			TIntObjectHashMap<List<NetworkDBSegment>> segments) throws IOException {
+		List<NetworkDBPoint> pnts = new ArrayList<>(points);
+		Collections.sort(pnts, HHRoutingDB.indexComparator);
+		List<String> dictionary = new ArrayList<>();
+		Map<String, Integer> dictionaryIds = new HashMap<>();
+		List<int[]> tags = new ArrayList<>();
+		int tagsCount = 0;
+		for (NetworkDBPoint p : pnts) {
+			int[] pt = new int[p.tagValues == null ? 0 : p.tagValues.size() * 2];
+			for (int i = 0; i < pt.length; i += 2) {
+				TagValuePair tv = p.tagValues.get(i / 2);
+				pt[i] = dictionaryId(tv.tag, dictionary, dictionaryIds);
+				pt[i + 1] = dictionaryId(tv.value, dictionary, dictionaryIds);
+			}
+			tags.add(pt);
+			tagsCount += pt.length;
+		}
+		DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(out), 1 << 16));
+		try {
+			dos.writeInt(MAGIC);
+			dos.writeInt(VERSION);
+			dos.writeLong(dbModified);
+			dos.writeInt(dictionary.size());
+			for (String s : dictionary) {
+				byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+				dos.writeInt(bytes.length);
+				dos.write(bytes);
+			}
+			dos.writeInt(pnts.size());
+			for (NetworkDBPoint p : pnts) {
+				dos.writeInt(p.index);
+			}
+			for (NetworkDBPoint p : pnts) {
+				dos.writeInt(p.dualPoint == null ? 0 : p.dualPoint.index);
+			}
+			for (NetworkDBPoint p : pnts) {
+				dos.writeInt(p.clusterId);
+			}
+			for (NetworkDBPoint p : pnts) {
+				dos.writeInt(p.chInd());
+			}
+			for (NetworkDBPoint p : pnts) {
+				dos.writeLong(p.roadId);
+			}
+			for (NetworkDBPoint p : pnts) {
+				dos.writeShort(p.start);
+			}
+			for (NetworkDBPoint p : pnts) {
+				dos.writeShort(p.end);
+			}
+			for (NetworkDBPoint p : pnts) {
+				dos.writeInt(p.startX);
+			}
+			for (NetworkDBPoint p : pnts) {
+				dos.writeInt(p.startY);
+			}
+			for (NetworkDBPoint p : pnts) {
+				dos.writeInt(p.endX);
+			}
+			for (NetworkDBPoint p : pnts) {
+				dos.writeInt(p.endY);
+			}
+			int tagsStart = 0;
+			for (int[] pt : tags) {
+				dos.writeInt(tagsStart);
+				tagsStart += pt.length;
+			}
+			dos.writeInt(tagsStart);
+			dos.writeInt(tagsCount);
+			for (int[] pt : tags) {
+				for (int t : pt) {
+					dos.writeInt(t);
+				}
+			}
+			dos.writeInt(segments == null ? 0 : segments.size());
+			if (segments != null) {
+				TIntObjectIterator<List<NetworkDBSegment>> it = segments.iterator();
+				while (it.hasNext()) {
+					it.advance();
+					List<NetworkDBSegment> l = it.value();
+					dos.writeInt(it.key());
+					dos.writeInt(l.size());
+					for (NetworkDBSegment s : l) {
+						dos.writeInt(s.start.index);
+					}
+					for (NetworkDBSegment s : l) {
+						dos.writeInt(s.end.index);
+					}
+					for (NetworkDBSegment s : l) {
+						dos.writeDouble(s.dist);
+					}
+					for (NetworkDBSegment s : l) {
+						dos.writeByte(s.shortcut ? 1 : 0);
+					}
+				}
+			}
+		} finally {
+			dos.close();
+		}
+	}
+
+	private static int dictionaryId(String s, List<String> dictionary, Map<String, Integer> dictionaryIds) {
+		Integer id = dictionaryIds.get(s);
+		if (id != null) {
+			return id;
+		}
+		dictionaryIds.put(s, dictionary.size());
+		dictionary.add(s);
+		return dictionary.size() - 1;
+	}
+}
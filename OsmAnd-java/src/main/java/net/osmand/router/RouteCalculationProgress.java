@@ -29,6 +29,9 @@ public class RouteCalculationProgress implements Serializable {
 	public int directQueueSize = 0;
 	public int oppositeQueueSize = 0;
 	public int finalSegmentsFound = 0;
+	// queue insertions and arrays (re)allocated by A* queues and visited maps
+	public int queueInsertions = 0;
+	public int searchAllocations = 0;
 
 	public int totalIterations = 1;
 	public int iteration = -1;
@@ -72,6 +75,8 @@ public class RouteCalculationProgress implements Serializable {
 		p.visitedDirectSegments = cp.visitedDirectSegments;
 		p.visitedOppositeSegments = cp.visitedOppositeSegments;
 		p.finalSegmentsFound = cp.finalSegmentsFound;
+		p.queueInsertions = cp.queueInsertions;
+		p.searchAllocations = cp.searchAllocations;
 		
 		p.loadedTiles = cp.loadedTiles;
 		p.distinctLoadedTiles = cp.distinctLoadedTiles;
@@ -102,6 +107,8 @@ public class RouteCalculationProgress implements Serializable {
 		segms.put("visitedDirectPoints", this.visitedDirectSegments - firstPhase.visitedDirectSegments);
 		segms.put("visitedOppositePoints", this.visitedOppositeSegments - firstPhase.visitedOppositeSegments);
 		segms.put("finalSegmentsFound", this.finalSegmentsFound -  firstPhase.finalSegmentsFound);
+		segms.put("queueInsertions", this.queueInsertions - firstPhase.queueInsertions);
+		segms.put("searchAllocations", this.searchAllocations - firstPhase.searchAllocations);
 		Map<String, Object> time = new LinkedHashMap<String, Object>();
 		map.put("time", time);
 		float timeToCalc = (float) ((this.timeToCalculate - firstPhase.timeToCalculate) / 1.0e9);
@@ -3,6 +3,7 @@ package net.osmand.router;
 import net.osmand.binary.BinaryMapRouteReaderAdapter;
 import net.osmand.binary.RouteDataObject;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -52,6 +53,7 @@ public class RouteConditionalHelper {
 				}
 			}
 		}
+		rdo.internTypes();
 	}
 
 	public void processConditionalTags(RouteDataObject rdo, long conditionalTime) {
@@ -87,11 +89,8 @@ public class RouteConditionalHelper {
 											break;
 										}
 									}
-									if (ks == pTypes.length) {
-										int[] ntypes = new int[pTypes.length + 1];
-										System.arraycopy(pTypes, 0, ntypes, 0, pTypes.length);
-										pTypes = ntypes;
-									}
+									// point types could be shared (interned), so they are not modified in place
+									pTypes = Arrays.copyOf(pTypes, Math.max(ks + 1, pTypes.length));
 									pTypes[ks] = vl;
 
 								}
@@ -102,6 +101,7 @@ public class RouteConditionalHelper {
 				}
 			}
 		}
+		rdo.internTypes();
 	}
 
 	public void updateTypesByTagValue(RouteDataObject rdo, String tag, String value) {
@@ -122,12 +122,10 @@ public class RouteConditionalHelper {
 					break;
 				}
 			}
-			if (ks == rdo.types.length) {
-				int[] ntypes = new int[rdo.types.length + 1];
-				System.arraycopy(rdo.types, 0, ntypes, 0, rdo.types.length);
-				rdo.types = ntypes;
-			}
-			rdo.types[ks] = ruleId;
+			// types array could be shared (copies, interned types), so it is not modified in place
+			int[] ntypes = Arrays.copyOf(rdo.types, Math.max(ks + 1, rdo.types.length));
+			ntypes[ks] = ruleId;
+			rdo.types = ntypes;
 		}
 	}
 }
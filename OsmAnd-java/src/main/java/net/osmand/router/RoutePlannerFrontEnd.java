@@ -109,11 +109,16 @@ public class RoutePlannerFrontEnd {
 	}
 
 	public RoutingContext buildRoutingContext(RoutingConfiguration config, NativeLibrary nativeLibrary, BinaryMapIndexReader[] map, RouteCalculationMode rm) {
+		return buildRoutingContext(config, nativeLibrary, map, rm, config.tileCache);
+	}
+
+	RoutingContext buildRoutingContext(RoutingConfiguration config, NativeLibrary nativeLibrary, BinaryMapIndexReader[] map,
+			RouteCalculationMode rm, RoutingTileCache tileCache) {
 		if (rm == null) {
 			rm = config.router.getProfile() == GeneralRouterProfile.CAR ? RouteCalculationMode.COMPLEX
 					: RouteCalculationMode.NORMAL;
 		}
-		return new RoutingContext(config, nativeLibrary, map, rm);
+		return new RoutingContext(config, nativeLibrary, map, rm, tileCache);
 	}
 
 	public RoutingContext buildRoutingContext(RoutingConfiguration config, NativeLibrary nativeLibrary, BinaryMapIndexReader[] map) {
@@ -849,8 +854,13 @@ public class RoutePlannerFrontEnd {
 					local.previouslyCalculatedRoute = firstPartRecalculatedRoute;
 				}
 			}
-			RouteCalcResult res = searchRouteInternalPrepare(local, points.get(i), points.get(i + 1), routeDirection);
-			makeStartEndPointsPrecise(local, res, points.get(i).getPreciseLatLon(), points.get(i + 1).getPreciseLatLon(), null);
+			RouteCalcResult res;
+			try {
+				res = searchRouteInternalPrepare(local, points.get(i), points.get(i + 1), routeDirection);
+				makeStartEndPointsPrecise(local, res, points.get(i).getPreciseLatLon(), points.get(i + 1).getPreciseLatLon(), null);
+			} finally {
+				local.releaseSharedTiles();
+			}
 			results.detailed.addAll(res.detailed);
 			ctx.routingTime += local.routingTime;
 //			local.unloadAllData(ctx);
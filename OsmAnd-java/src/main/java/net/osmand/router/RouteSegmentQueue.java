@@ -0,0 +1,108 @@
+package net.osmand.router;
+
+import java.util.Arrays;
+
+import net.osmand.router.BinaryRoutePlanner.RouteSegment;
+
+/**
+ * Binary min-heap of (cost, segment) pairs stored in parallel arrays, so A* queue insertions don't allocate
+ * wrapper objects. Queue is reused by RoutingContext between searches.
+ */
+public class RouteSegmentQueue {
+
+	private float[] costs;
+	private RouteSegment[] segments;
+	private int size;
+	private int insertions;
+	private int allocations;
+
+	public RouteSegmentQueue(int capacity) {
+		costs = new float[Math.max(capacity, 16)];
+		segments = new RouteSegment[costs.length];
+		allocations++;
+	}
+
+	public void add(RouteSegment segment, float cost) {
+		if (size == costs.length) {
+			int newCapacity = costs.length + (costs.length >> 1);
+			costs = Arrays.copyOf(costs, newCapacity);
+			segments = Arrays.copyOf(segments, newCapacity);
+			allocations++;
+		}
+		insertions++;
+		int i = size++;
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (costs[parent] <= cost) {
+				break;
+			}
+			costs[i] = costs[parent];
+			segments[i] = segments[parent];
+			i = parent;
+		}
+		costs[i] = cost;
+		segments[i] = segment;
+	}
+
+	public RouteSegment peek() {
+		return size == 0 ? null : segments[0];
+	}
+
+	public float peekCost() {
+		return size == 0 ? Float.NaN : costs[0];
+	}
+
+	public RouteSegment poll() {
+		if (size == 0) {
+			return null;
+		}
+		RouteSegment result = segments[0];
+		int last = --size;
+		float cost = costs[last];
+		RouteSegment segment = segments[last];
+		segments[last] = null;
+		if (last > 0) {
+			int i = 0;
+			int half = last >>> 1;
+			while (i < half) {
+				int child = 2 * i + 1;
+				int right = child + 1;
+				if (right < last && costs[right] < costs[child]) {
+					child = right;
+				}
+				if (cost <= costs[child]) {
+					break;
+				}
+				costs[i] = costs[child];
+				segments[i] = segments[child];
+				i = child;
+			}
+			costs[i] = cost;
+			segments[i] = segment;
+		}
+		return result;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		Arrays.fill(segments, 0, size, null);
+		size = 0;
+		insertions = 0;
+		allocations = 0;
+	}
+
+	public int getInsertions() {
+		return insertions;
+	}
+
+	public int getAllocations() {
+		return allocations;
+	}
+}
@@ -43,10 +43,16 @@ public class RoutingConfiguration {
 	public int ZOOM_TO_LOAD_TILES = 16;
 	public long memoryLimitation;
 	public long nativeMemoryLimitation;
+	// keep point index of loaded tiles in primitive arrays and create segments on demand
+	public boolean compactTiles = false;
+	// decoded route tiles shared with other contexts (null - each context loads own tiles)
+	public RoutingTileCache tileCache = null;
 
 	// 1.2 Build A* graph in backward/forward direction (can affect results)
 	// 0 - 2 ways, 1 - direct way, -1 - reverse way
 	public int planRoadDirection = 0;
+	// run forward and reverse A* frontiers in 2 threads (only for 2 directions search without HH boundaries)
+	public boolean parallelBidirectionalSearch = false;
 
 	// 1.3 Router specific coefficients and restrictions
 	// use GeneralRouter and not interface to simplify native access !
@@ -148,6 +154,7 @@ public class RoutingConfiguration {
 		private Map<String, String> attributes = new LinkedHashMap<>();
 		private Set<Long> impassableRoadLocations = new HashSet<>();
 		private QuadTree<Node> directionPointsBuilder;
+		private RoutingTileCache tileCache;
 
 		public Builder() {
 		}
@@ -230,6 +237,7 @@ public class RoutingConfiguration {
 				i.nativeMemoryLimitation = memoryLimits.nativeMemoryLimitMb * (1l << 20);
 			}
 			i.planRoadDirection = parseSilentInt(getAttribute(i.router, "planRoadDirection"), i.planRoadDirection);
+			i.tileCache = tileCache;
 			if (directionPointsBuilder != null) {
 				QuadRect rect = new QuadRect(0, 0, Integer.MAX_VALUE, Integer.MAX_VALUE);
 				List<net.osmand.osm.edit.Node> lst = directionPointsBuilder.queryInBox(rect, new ArrayList<Node>());
@@ -245,6 +253,11 @@ public class RoutingConfiguration {
 			return i;
 		}
 		
+		public Builder setTileCache(RoutingTileCache tileCache) {
+			this.tileCache = tileCache;
+			return this;
+		}
+
 		public Builder setDirectionPoints(QuadTree<Node> directionPoints) {
 			this.directionPointsBuilder = directionPoints;
 			return this;
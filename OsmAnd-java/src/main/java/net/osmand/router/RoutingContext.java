@@ -16,7 +16,9 @@ import org.apache.commons.logging.Log;
 
 import gnu.trove.iterator.TIntObjectIterator;
 import gnu.trove.iterator.TLongIterator;
+import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
 import gnu.trove.map.hash.TLongObjectHashMap;
 import gnu.trove.set.hash.TLongHashSet;
 import net.osmand.NativeLibrary;
@@ -36,6 +38,7 @@ import net.osmand.router.BinaryRoutePlanner.RouteSegmentPoint;
 import net.osmand.router.BinaryRoutePlanner.RouteSegmentVisitor;
 import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
 import net.osmand.router.RoutingConfiguration.DirectionPoint;
+import net.osmand.util.LongIntHashMap;
 import net.osmand.util.MapUtils;
 
 
@@ -49,6 +52,8 @@ public class RoutingContext {
 	
 	// Final context variables
 	public final RoutingConfiguration config;
+	// decoded route tiles shared with other contexts (config tile cache unless it is set for context)
+	final RoutingTileCache tileCache;
 	public final RouteCalculationMode calculationMode;
 	public final Map<BinaryMapIndexReader, List<RouteSubregion>> map = new LinkedHashMap<BinaryMapIndexReader, List<RouteSubregion>>();
 	public final Map<RouteRegion, BinaryMapIndexReader> reverseMap = new LinkedHashMap<RouteRegion, BinaryMapIndexReader>();
@@ -73,6 +78,8 @@ public class RoutingContext {
 	public int targetSegmentInd;
 	public boolean targetTransportStop;
 	public int dijkstraMode;
+	// set while 2 directions are searched by 2 threads
+	BinaryRoutePlanner.ParallelSearchState parallelSearch;
 	public boolean publicTransport;
 	public HashSet<BinaryMapIndexReader> mapIndexReaderFilter = new HashSet<>();
 	
@@ -93,6 +100,14 @@ public class RoutingContext {
 	// 3. Warm object caches
 	ArrayList<RouteSegment> segmentsToVisitPrescripted = new ArrayList<BinaryRoutePlanner.RouteSegment>(5);
 	ArrayList<RouteSegment> segmentsToVisitNotForbidden = new ArrayList<BinaryRoutePlanner.RouteSegment>(5);
+	// separate lists for reverse search which could run in parallel thread
+	ArrayList<RouteSegment> reverseSegmentsToVisitPrescripted = new ArrayList<BinaryRoutePlanner.RouteSegment>(5);
+	ArrayList<RouteSegment> reverseSegmentsToVisitNotForbidden = new ArrayList<BinaryRoutePlanner.RouteSegment>(5);
+	// A* queues and visited segments reused between searches
+	private RouteSegmentQueue graphDirectSegments;
+	private RouteSegmentQueue graphReverseSegments;
+	private VisitedSegmentsMap visitedDirectSegments;
+	private VisitedSegmentsMap visitedOppositeSegments;
 	
 	
 	// 5. debug information (package accessor)
@@ -113,6 +128,7 @@ public class RoutingContext {
 	
 	RoutingContext(RoutingContext cp) {
 		this.config = cp.config;
+		this.tileCache = cp.tileCache;
 		this.map.putAll(cp.map);
 		this.calculationMode = cp.calculationMode;
 		this.leftSideNavigation = cp.leftSideNavigation;
@@ -123,7 +139,13 @@ public class RoutingContext {
 	}
 	
 	RoutingContext(RoutingConfiguration config, NativeLibrary nativeLibrary, BinaryMapIndexReader[] list, RouteCalculationMode calcMode) {
+		this(config, nativeLibrary, list, calcMode, config.tileCache);
+	}
+
+	RoutingContext(RoutingConfiguration config, NativeLibrary nativeLibrary, BinaryMapIndexReader[] list,
+			RouteCalculationMode calcMode, RoutingTileCache tileCache) {
 		this.calculationMode = calcMode;
+		this.tileCache = tileCache;
 		for (BinaryMapIndexReader mr : list) {
 			List<RouteRegion> rr = mr.getRoutingIndexes();
 			List<RouteSubregion> subregions = new ArrayList<BinaryMapRouteReaderAdapter.RouteSubregion>();
@@ -131,7 +153,8 @@ public class RoutingContext {
 				List<RouteSubregion> subregs = calcMode == RouteCalculationMode.BASE ? r.getBaseSubregions() :
 					r.getSubregions();
 				for (RouteSubregion rs : subregs) {
-					subregions.add(new RouteSubregion(rs));
+					// with shared tile cache headers tree is loaded once in reader's subregions
+					subregions.add(tileCache != null ? rs : new RouteSubregion(rs));
 				}
 				this.reverseMap.put(r, mr);
 			}
@@ -144,6 +167,29 @@ public class RoutingContext {
 	}
 	
 	
+	RouteSegmentQueue getSearchQueue(boolean reverse) {
+		if (graphDirectSegments == null) {
+			graphDirectSegments = new RouteSegmentQueue(64);
+			graphReverseSegments = new RouteSegmentQueue(64);
+		}
+		return reverse ? graphReverseSegments : graphDirectSegments;
+	}
+	
+	VisitedSegmentsMap getVisitedSegments(boolean reverse) {
+		if (visitedDirectSegments == null) {
+			visitedDirectSegments = new VisitedSegmentsMap(1024);
+			visitedOppositeSegments = new VisitedSegmentsMap(1024);
+		}
+		return reverse ? visitedOppositeSegments : visitedDirectSegments;
+	}
+	
+	void clearSearchStructures() {
+		getSearchQueue(false).clear();
+		getSearchQueue(true).clear();
+		getVisitedSegments(false).clear();
+		getVisitedSegments(true).clear();
+	}
+	
 	public RouteSegmentVisitor getVisitor() {
 		return visitor;
 	}
@@ -214,8 +260,11 @@ public class RoutingContext {
 					if (calculationProgress != null) {
 						calculationProgress.unloadedTiles ++;
 					}
-					global.size -= tl.tileStatistics.size;
+				} else {
+					tl.releaseSharedTile();
 				}
+				// tile kept for except is not accounted by this context anymore
+				global.size -= tl.tileStatistics.size;
 			}
 		}
 		subregionTiles.clear();
@@ -223,6 +272,16 @@ public class RoutingContext {
 		mapIndexReaderFilter = new HashSet<>();
 	}
 	
+	/**
+	 * Returns borrowed tiles to shared tile cache, loaded tiles stay usable by this context.
+	 * Should be called when context is not used anymore (contexts are not unloaded by finalize).
+	 */
+	public void releaseSharedTiles() {
+		for (RoutingSubregionTile tl : subregionTiles) {
+			tl.releaseSharedTile();
+		}
+	}
+	
 	private int searchSubregionTile(RouteSubregion subregion){
 		RoutingSubregionTile key = new RoutingSubregionTile(subregion);
 		int ind = Collections.binarySearch(subregionTiles, key, new Comparator<RoutingSubregionTile>() {
@@ -252,7 +311,8 @@ public class RoutingContext {
 		return loadRouteSegment(x31, y31, memoryLimit, false);
 	}
 	
-	public RouteSegment loadRouteSegment(int x31, int y31, long memoryLimit, boolean reverseWaySearch) {
+	// synchronized: forward and reverse searches could load tiles from different threads
+	public synchronized RouteSegment loadRouteSegment(int x31, int y31, long memoryLimit, boolean reverseWaySearch) {
 		long tileId = getRoutingTile(x31, y31, memoryLimit);
 		TLongObjectHashMap<RouteDataObject> excludeDuplications = new TLongObjectHashMap<RouteDataObject>();
 		RouteSegment original = null;
@@ -292,8 +352,19 @@ public class RoutingContext {
 
 			try {
 				BinaryMapIndexReader reader = reverseMap.get(ts.subregion.routeReg);
-				ts.setLoadedNonNative();
-				List<RouteDataObject> res = reader.loadRouteIndexData(ts.subregion);
+				ts.setLoadedNonNative(config.compactTiles);
+				List<RouteDataObject> res;
+				// shared objects are not modified by conditional tags and direction points
+				if (tileCache != null && toLoad == null && points.isEmpty()
+						&& config.ambiguousConditionalTags == null && config.routeCalculationTime == 0) {
+					ts.sharedTile = tileCache.acquire(ts.subregion);
+					if (ts.sharedTile == null) {
+						ts.sharedTile = tileCache.put(ts.subregion, loadRouteIndexData(reader, ts.subregion));
+					}
+					res = ts.sharedTile.getObjects();
+				} else {
+					res = loadRouteIndexData(reader, ts.subregion);
+				}
 				
 				if (toLoad != null) {
 					toLoad.addAll(res);
@@ -359,11 +430,31 @@ public class RoutingContext {
 		}
 	}
 	
+	// with tile cache reader's stream and route trees are shared by contexts
+	private List<RouteDataObject> loadRouteIndexData(BinaryMapIndexReader reader, RouteSubregion subregion) throws IOException {
+		if (tileCache == null) {
+			return reader.loadRouteIndexData(subregion);
+		}
+		synchronized (reader) {
+			return reader.loadRouteIndexData(subregion);
+		}
+	}
+
+	private List<RouteSubregion> searchRouteIndexTree(BinaryMapIndexReader reader, SearchRequest<?> request,
+			List<RouteSubregion> list) throws IOException {
+		if (tileCache == null) {
+			return reader.searchRouteIndexTree(request, list);
+		}
+		synchronized (reader) {
+			return reader.searchRouteIndexTree(request, list);
+		}
+	}
+
 	public List<RoutingSubregionTile> loadAllSubregionTiles(BinaryMapIndexReader reader, RouteSubregion reg) throws IOException {
 		List<RoutingSubregionTile> list = new ArrayList<RoutingContext.RoutingSubregionTile>();
 		SearchRequest<RouteDataObject> request = BinaryMapIndexReader.buildSearchRouteRequest(0,
 				Integer.MAX_VALUE, 0, Integer.MAX_VALUE, null);
-		List<RouteSubregion> subregs = reader.searchRouteIndexTree(request, Collections.singletonList(reg));
+		List<RouteSubregion> subregs = searchRouteIndexTree(reader, request, Collections.singletonList(reg));
 		for(RouteSubregion s : subregs) {
 			list.add(new RoutingSubregionTile(s));
 		}
@@ -398,7 +489,7 @@ public class RoutingContext {
 //					long now = System.nanoTime();
 					// int rg = r.getValue().get(0).routeReg.regionsRead;
 					
-					List<RouteSubregion> subregs = r.getKey().searchRouteIndexTree(request, r.getValue());
+					List<RouteSubregion> subregs = searchRouteIndexTree(r.getKey(), request, r.getValue());
 //					if (calculationProgress != null) {
 //						calculationProgress.timeToLoadHeaders += (System.nanoTime() - now);
 //					}
@@ -741,6 +832,13 @@ public class RoutingContext {
 		private int isLoaded = 0;
 		private TLongObjectMap<RouteSegment> routes = null;
 		private TLongHashSet excludedIds = null;
+		// borrowed objects of shared tile cache
+		private RoutingTileCache.CachedTile sharedTile = null;
+		// compact mode: point -> first entry, entry = (object index, point index, next entry)
+		private List<RouteDataObject> compactObjects = null;
+		private LongIntHashMap compactPoints = null;
+		private TIntArrayList compactEntries = null;
+		private TIntObjectHashMap<RouteSegment> compactSegments = null;
 
 		public RoutingSubregionTile(RouteSubregion subregion) {
 			this.subregion = subregion;
@@ -764,6 +862,13 @@ public class RoutingContext {
 						rs = rs.nextLoaded;
 					}
 				}
+			} else if (compactObjects != null) {
+				for (RouteDataObject ro : compactObjects) {
+					if (!excludeDuplications.contains(ro.id)) {
+						excludeDuplications.put(ro.id, ro);
+						toFillIn.add(ro);
+					}
+				}
 			} else if(searchResult != null) {
 				RouteDataObject[] objects = searchResult.objects;
 				if(objects != null) {
@@ -777,7 +882,7 @@ public class RoutingContext {
 			}
 		}
 		
-		private RouteSegment loadRouteSegment(int x31, int y31, RoutingContext ctx,
+		RouteSegment loadRouteSegment(int x31, int y31, RoutingContext ctx,
 				TLongObjectHashMap<RouteDataObject> excludeDuplications, RouteSegment original, List<RoutingSubregionTile> subregions, int subregionIndex, 
 				boolean reverseWaySearch) {
 			access++;
@@ -807,12 +912,45 @@ public class RoutingContext {
 					}
 					segment = segment.nextLoaded;
 				}
+			} else if (compactPoints != null) {
+				long l = (((long) x31) << 31) + (long) y31;
+				int entry = compactPoints.get(l);
+				while (entry != LongIntHashMap.NO_VALUE) {
+					RouteSegment segment = getCompactSegment(entry);
+					RouteDataObject ro = segment.road;
+					RouteDataObject toCmp = excludeDuplications.get(calcRouteId(ro, segment.getSegmentStart()));
+					if (!isExcluded(ro.id, subregions, subregionIndex)
+							&& (toCmp == null || toCmp.getPointsLength() < ro.getPointsLength())) {
+						excludeDuplications.put(calcRouteId(ro, segment.getSegmentStart()), ro);
+						if (reverseWaySearch) {
+							if (segment.reverseSearch == null) {
+								segment.reverseSearch = new RouteSegment(ro, segment.getSegmentStart());
+								segment.reverseSearch.reverseSearch = segment;
+							}
+							segment = segment.reverseSearch;
+						}
+						segment.next = original;
+						original = segment;
+					}
+					entry = compactEntries.getQuick(entry * 3 + 2);
+				}
 			} else {
 				throw new UnsupportedOperationException("Not clear how it could be used with native");
 			}		
 			return original;
 		}
 
+		private RouteSegment getCompactSegment(int entry) {
+			// segments keep search state (next, reverseSearch) so the same instance is returned for the entry
+			RouteSegment segment = compactSegments.get(entry);
+			if (segment == null) {
+				RouteDataObject ro = compactObjects.get(compactEntries.getQuick(entry * 3));
+				segment = new RouteSegment(ro, compactEntries.getQuick(entry * 3 + 1));
+				compactSegments.put(entry, segment);
+			}
+			return segment;
+		}
+
 		private static boolean isExcluded(long id, List<RoutingSubregionTile> subregions, int subregionIndex) {
 			for (int i = 0; i < subregionIndex; i++ ) {
 				if (subregions.get(i).excludedIds != null && subregions.get(i).excludedIds.contains(id)) {
@@ -845,16 +983,48 @@ public class RoutingContext {
 			}
 			searchResult = null;
 			routes = null;
+			compactObjects = null;
+			compactPoints = null;
+			compactEntries = null;
+			compactSegments = null;
 			excludedIds = null;
+			releaseSharedTile();
+		}
+		
+		public void releaseSharedTile() {
+			if (sharedTile != null) {
+				sharedTile.release();
+				sharedTile = null;
+			}
 		}
 		
 		public void setLoadedNonNative(){
+			setLoadedNonNative(false);
+		}
+		
+		public void setLoadedNonNative(boolean compact) {
 			isLoaded = Math.abs(isLoaded) + 1;
-			routes = new TLongObjectHashMap<BinaryRoutePlanner.RouteSegment>();
+			releaseSharedTile();
+			if (compact) {
+				compactObjects = new ArrayList<RouteDataObject>();
+				compactPoints = new LongIntHashMap();
+				compactEntries = new TIntArrayList();
+				compactSegments = new TIntObjectHashMap<RouteSegment>();
+			} else {
+				routes = new TLongObjectHashMap<BinaryRoutePlanner.RouteSegment>();
+			}
 			tileStatistics = new TileStatistics();
 		}
 		
+		public boolean isCompact() {
+			return compactPoints != null;
+		}
+		
 		public void add(RouteDataObject ro) {
+			if (compactPoints != null) {
+				addCompact(ro);
+				return;
+			}
 			tileStatistics.addObject(ro);
 			for (int i = 0; i < ro.pointsX.length; i++) {
 				int x31 = ro.getPoint31XTile(i);
@@ -873,6 +1043,30 @@ public class RoutingContext {
 			}
 		}
 		
+		private void addCompact(RouteDataObject ro) {
+			tileStatistics.addCompactObject(ro);
+			int objectIndex = compactObjects.size();
+			compactObjects.add(ro);
+			for (int i = 0; i < ro.pointsX.length; i++) {
+				long l = (((long) ro.getPoint31XTile(i)) << 31) + (long) ro.getPoint31YTile(i);
+				int entry = compactEntries.size() / 3;
+				compactEntries.add(objectIndex);
+				compactEntries.add(i);
+				compactEntries.add(-1);
+				int last = compactPoints.get(l);
+				if (last == LongIntHashMap.NO_VALUE) {
+					compactPoints.put(l, entry);
+				} else {
+					// keep insertion order as in linked segments
+					int nxt;
+					while ((nxt = compactEntries.getQuick(last * 3 + 2)) != -1) {
+						last = nxt;
+					}
+					compactEntries.setQuick(last * 3 + 2, entry);
+				}
+			}
+		}
+		
 		public void setLoadedNative(NativeRouteSearchResult r, RoutingContext ctx) {
 			isLoaded = Math.abs(isLoaded) + 1;
 			tileStatistics = new TileStatistics();
@@ -924,6 +1118,12 @@ public class RoutingContext {
 		return  (int) (sz * 3.5);
 	}
 	
+	static int getEstimatedCompactSize(RouteDataObject o) {
+		// per point segment (~48 bytes) and map entry are replaced with 3 ints of entry and primitive map slot
+		int sz = getEstimatedSize(o) - 36 * o.getPointsLength();
+		return Math.max(sz, getEstimatedSize(o) / 2);
+	}
+	
 	protected static class TileStatistics {
 		public int size = 0;
 		public int allRoutes = 0;
@@ -942,6 +1142,12 @@ public class RoutingContext {
 			size += getEstimatedSize(o);
 		}
 
+		public void addCompactObject(RouteDataObject o) {
+			allRoutes++;
+			coordinates += o.getPointsLength() * 2;
+			size += getEstimatedCompactSize(o);
+		}
+
 		
 	}
 	
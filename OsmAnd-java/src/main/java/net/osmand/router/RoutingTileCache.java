@@ -0,0 +1,210 @@
+package net.osmand.router;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+import net.osmand.binary.RouteDataObject;
+
+/**
+ * Process wide store of decoded route tiles (RouteDataObjects of leaf RouteSubregion) shared by RoutingContexts.
+ * Contexts borrow tiles (reference counting) and build their own RouteSegment chains over shared read-only objects.
+ * Tiles not borrowed by any context are evicted in LRU order when estimated size exceeds the limit.
+ * Contexts return tiles with {@link RoutingContext#unloadAllData()} or {@link RoutingContext#releaseSharedTiles()}.
+ */
+public class RoutingTileCache {
+
+	private static final int TILE_OVERHEAD = 100;
+
+	private final long maxSizeBytes;
+	private long sizeBytes;
+	private final LinkedHashMap<TileKey, CachedTile> tiles = new LinkedHashMap<>(256, 0.75f, true);
+
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	public RoutingTileCache(long maxSizeBytes) {
+		this.maxSizeBytes = maxSizeBytes;
+	}
+
+	/**
+	 * @return borrowed tile (should be released) or null if tile is not loaded yet
+	 */
+	public synchronized CachedTile acquire(RouteSubregion subregion) {
+		CachedTile tile = tiles.get(new TileKey(subregion));
+		if (tile != null) {
+			tile.refs++;
+			hits++;
+		} else {
+			misses++;
+		}
+		return tile;
+	}
+
+	/**
+	 * Stores loaded tile and borrows it, if tile was loaded by another context meanwhile that one is returned.
+	 */
+	public CachedTile put(RouteSubregion subregion, List<RouteDataObject> objects) {
+		// lazy fields are computed before objects are published (types are interned by reader)
+		for (RouteDataObject o : objects) {
+			if (o != null) {
+				o.calculateHeightArray();
+			}
+		}
+		synchronized (this) {
+			TileKey key = new TileKey(subregion);
+			CachedTile tile = tiles.get(key);
+			if (tile == null) {
+				tile = new CachedTile(this, key, objects);
+				tiles.put(key, tile);
+				sizeBytes += tile.sizeBytes;
+			}
+			tile.refs++;
+			evict();
+			return tile;
+		}
+	}
+
+	synchronized void release(CachedTile tile) {
+		if (tile.refs > 0) {
+			tile.refs--;
+		}
+		if (tile.refs == 0 && sizeBytes > maxSizeBytes) {
+			evict();
+		}
+	}
+
+	private void evict() {
+		Iterator<CachedTile> it = tiles.values().iterator();
+		while (sizeBytes > maxSizeBytes && it.hasNext()) {
+			CachedTile eldest = it.next();
+			if (eldest.refs == 0) {
+				sizeBytes -= eldest.sizeBytes;
+				it.remove();
+				evictions++;
+			}
+		}
+	}
+
+	public synchronized void clear() {
+		Iterator<CachedTile> it = tiles.values().iterator();
+		while (it.hasNext()) {
+			CachedTile tile = it.next();
+			if (tile.refs == 0) {
+				sizeBytes -= tile.sizeBytes;
+				it.remove();
+			}
+		}
+	}
+
+	public synchronized long getSizeBytes() {
+		return sizeBytes;
+	}
+
+	public long getMaxSizeBytes() {
+		return maxSizeBytes;
+	}
+
+	public synchronized int getTilesCount() {
+		return tiles.size();
+	}
+
+	public synchronized int getBorrowedTilesCount() {
+		int cnt = 0;
+		for (CachedTile tile : tiles.values()) {
+			if (tile.refs > 0) {
+				cnt++;
+			}
+		}
+		return cnt;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	@Override
+	public synchronized String toString() {
+		long total = hits + misses;
+		return String.format("Routing tile cache: %d tiles (%d borrowed), %d / %d KB, hits %d, misses %d (%.1f%% hit ratio), evictions %d",
+				tiles.size(), getBorrowedTilesCount(), sizeBytes >> 10, maxSizeBytes >> 10, hits, misses,
+				total == 0 ? 0 : hits * 100.0 / total, evictions);
+	}
+
+	public static class CachedTile {
+		private final RoutingTileCache cache;
+		private final TileKey key;
+		private final List<RouteDataObject> objects;
+		private final long sizeBytes;
+		private int refs;
+
+		CachedTile(RoutingTileCache cache, TileKey key, List<RouteDataObject> objects) {
+			this.cache = cache;
+			this.key = key;
+			this.objects = objects;
+			long size = TILE_OVERHEAD;
+			for (RouteDataObject o : objects) {
+				if (o != null) {
+					size += RoutingContext.getEstimatedSize(o);
+				}
+			}
+			this.sizeBytes = size;
+		}
+
+		// shared objects should not be modified
+		public List<RouteDataObject> getObjects() {
+			return objects;
+		}
+
+		public long getSizeBytes() {
+			return sizeBytes;
+		}
+
+		public void release() {
+			cache.release(this);
+		}
+
+		@Override
+		public String toString() {
+			return "Tile " + key.filePointer + " objects " + objects.size() + " refs " + refs;
+		}
+	}
+
+	private static class TileKey {
+		final RouteRegion region;
+		final long filePointer;
+
+		TileKey(RouteSubregion subregion) {
+			this.region = subregion.routeReg;
+			this.filePointer = subregion.filePointer;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(region) * 31 + Long.hashCode(filePointer);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof TileKey)) {
+				return false;
+			}
+			TileKey other = (TileKey) obj;
+			return filePointer == other.filePointer && region == other.region;
+		}
+	}
+}
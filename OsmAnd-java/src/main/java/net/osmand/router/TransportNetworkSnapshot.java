@@ -0,0 +1,327 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.apache.commons.logging.Log;
+
+import gnu.trove.iterator.TLongObjectIterator;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.osmand.PlatformUtil;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapIndexReader.CloseListener;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+import net.osmand.binary.BinaryMapTransportReaderAdapter.TransportIndex;
+import net.osmand.data.TransportRoute;
+import net.osmand.data.TransportStop;
+import net.osmand.util.ParallelTasks;
+
+/**
+ * Transport network of a set of files read once: merged stops in a spatial grid, combined routes
+ * (incomplete route parts merged, ways merged) and stop to route adjacency (route and position of stop in route).
+ * Snapshot is immutable after build and shared by routing contexts ({@link TransportRoutingContext}),
+ * so queries don't read and merge stops / routes from files again.
+ */
+public class TransportNetworkSnapshot {
+
+	private static final Log LOG = PlatformUtil.getLog(TransportNetworkSnapshot.class);
+
+	public static final int GRID_ZOOM = 15;
+	public static boolean PARALLEL_BUILD = true;
+	public static int PARALLEL_BUILD_THREADS = 4;
+
+	// snapshots are released with clear(reader) when reader is closed
+	private static final Map<List<BinaryMapIndexReader>, FutureTask<TransportNetworkSnapshot>> snapshots =
+			new HashMap<List<BinaryMapIndexReader>, FutureTask<TransportNetworkSnapshot>>();
+	private static final CloseListener CLEAR_ON_CLOSE = new CloseListener() {
+		@Override
+		public void readerClosed(BinaryMapIndexReader reader) {
+			clear(reader);
+		}
+	};
+
+	final List<BinaryMapIndexReader> readers;
+	final TransportStop[] stops;
+	final TransportRoute[] routes;
+	// routes passing stop s: stopRoutes[stopStart[s]] ... (route index and position of stop in route)
+	final int[] stopStart;
+	final int[] stopRoutes;
+	final int[] stopRoutePos;
+	private final TLongObjectHashMap<int[]> grid;
+
+	/**
+	 * Returns snapshot for the files, builds it once (concurrent callers wait for the same snapshot,
+	 * snapshots of other files are not blocked by the build)
+	 */
+	public static TransportNetworkSnapshot get(BinaryMapIndexReader... readers) throws IOException {
+		final List<BinaryMapIndexReader> key = new ArrayList<BinaryMapIndexReader>(Arrays.asList(readers));
+		FutureTask<TransportNetworkSnapshot> task;
+		boolean build = false;
+		synchronized (snapshots) {
+			task = snapshots.get(key);
+			if (task == null) {
+				task = new FutureTask<TransportNetworkSnapshot>(new Callable<TransportNetworkSnapshot>() {
+					@Override
+					public TransportNetworkSnapshot call() throws Exception {
+						return build(key, PARALLEL_BUILD);
+					}
+				});
+				snapshots.put(key, task);
+				build = true;
+			}
+		}
+		if (build) {
+			for (BinaryMapIndexReader r : key) {
+				r.addCloseListener(CLEAR_ON_CLOSE);
+			}
+		}
+		if (build) {
+			task.run();
+		}
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			// failed build is not kept, next call builds again
+			synchronized (snapshots) {
+				if (snapshots.get(key) == task) {
+					snapshots.remove(key);
+				}
+			}
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+
+	/**
+	 * Releases snapshots built with the file (file closed or updated)
+	 */
+	public static void clear(BinaryMapIndexReader reader) {
+		synchronized (snapshots) {
+			Iterator<List<BinaryMapIndexReader>> it = snapshots.keySet().iterator();
+			while (it.hasNext()) {
+				if (it.next().contains(reader)) {
+					it.remove();
+				}
+			}
+		}
+	}
+
+	public static TransportNetworkSnapshot build(List<BinaryMapIndexReader> readers, boolean parallel) throws IOException {
+		long time = System.currentTimeMillis();
+		List<IndexLoader> loaders = new ArrayList<IndexLoader>();
+		for (BinaryMapIndexReader r : readers) {
+			for (TransportIndex ind : r.getTransportIndexes()) {
+				loaders.add(new IndexLoader(r, ind));
+			}
+		}
+		if (parallel && loaders.size() > 1) {
+			List<Callable<Void>> loads = new ArrayList<Callable<Void>>();
+			for (final IndexLoader l : loaders) {
+				loads.add(new Callable<Void>() {
+					@Override
+					public Void call() throws IOException {
+						BinaryMapIndexReader cursor = l.reader.acquireCursor();
+						try {
+							l.load(cursor);
+						} finally {
+							l.reader.releaseCursor(cursor);
+						}
+						return null;
+					}
+				});
+			}
+			ParallelTasks<Void> tasks = new ParallelTasks<Void>(loads).start(PARALLEL_BUILD_THREADS);
+			try {
+				for (int i = 0; i < tasks.size(); i++) {
+					try {
+						tasks.get(i);
+					} catch (ExecutionException e) {
+						throw new IOException("Error reading transport index of " + loaders.get(i).reader.getFile().getName(),
+								e.getCause());
+					}
+				}
+			} catch (InterruptedException e) {
+				throw new IOException(e);
+			} finally {
+				tasks.cancel(true);
+			}
+		} else {
+			for (IndexLoader l : loaders) {
+				l.load(l.reader);
+			}
+		}
+		long readTime = System.currentTimeMillis() - time;
+
+		// merge files in the same order as TransportRoutingContext does
+		TransportStopsRouteReader merger = new TransportStopsRouteReader(readers);
+		TLongObjectHashMap<TransportStop> loadedStops = new TLongObjectHashMap<TransportStop>();
+		for (BinaryMapIndexReader r : readers) {
+			List<TransportStop> fileStops = new ArrayList<TransportStop>();
+			for (IndexLoader l : loaders) {
+				if (l.reader == r) {
+					fileStops.addAll(l.stops);
+					merger.addFileRoutes(r, l.routes);
+				}
+			}
+			merger.mergeFileTransportStops(r, loadedStops, fileStops);
+		}
+		TransportNetworkSnapshot s = new TransportNetworkSnapshot(readers, loadedStops.valueCollection());
+		LOG.info(String.format(Locale.US, "Transport snapshot: %d stops, %d routes (%d files): read %d ms, total %d ms",
+				s.stops.length, s.routes.length, readers.size(), readTime, System.currentTimeMillis() - time));
+		return s;
+	}
+
+	TransportNetworkSnapshot(List<BinaryMapIndexReader> readers, Collection<TransportStop> loadedStops) {
+		this.readers = new ArrayList<BinaryMapIndexReader>(readers);
+		List<TransportStop> stopsList = new ArrayList<TransportStop>();
+		List<TransportRoute> routesList = new ArrayList<TransportRoute>();
+		TLongObjectHashMap<Integer> routeInd = new TLongObjectHashMap<Integer>();
+		TIntArrayList start = new TIntArrayList();
+		TIntArrayList adjRoutes = new TIntArrayList();
+		TIntArrayList adjPos = new TIntArrayList();
+		for (TransportStop s : loadedStops) {
+			if (s.isDeleted() || s.getRoutes() == null) {
+				continue;
+			}
+			start.add(adjRoutes.size());
+			stopsList.add(s);
+			for (TransportRoute route : s.getRoutes()) {
+				int stopIndex = TransportRoutingContext.findStopIndex(route, s);
+				if (stopIndex == -1) {
+					LOG.warn(String.format(Locale.US, "Routing error: missing stop '%s' in route '%s' id: %d",
+							s.toString(), route.getRef(), route.getId() / 2));
+					continue;
+				}
+				Integer r = routeInd.get(route.getId());
+				if (r == null) {
+					r = routesList.size();
+					routeInd.put(route.getId(), r);
+					routesList.add(route);
+					route.mergeForwardWays();
+				}
+				adjRoutes.add(r);
+				adjPos.add(stopIndex);
+			}
+		}
+		start.add(adjRoutes.size());
+		stops = stopsList.toArray(new TransportStop[0]);
+		routes = routesList.toArray(new TransportRoute[0]);
+		stopStart = start.toArray();
+		stopRoutes = adjRoutes.toArray();
+		stopRoutePos = adjPos.toArray();
+
+		TLongObjectHashMap<TIntArrayList> cells = new TLongObjectHashMap<TIntArrayList>();
+		for (int i = 0; i < stops.length; i++) {
+			long key = gridKey(stops[i].x31 >> (31 - GRID_ZOOM), stops[i].y31 >> (31 - GRID_ZOOM));
+			TIntArrayList l = cells.get(key);
+			if (l == null) {
+				l = new TIntArrayList(4);
+				cells.put(key, l);
+			}
+			l.add(i);
+		}
+		grid = new TLongObjectHashMap<int[]>(cells.size());
+		TLongObjectIterator<TIntArrayList> it = cells.iterator();
+		while (it.hasNext()) {
+			it.advance();
+			grid.put(it.key(), it.value().toArray());
+		}
+	}
+
+	/**
+	 * Adds stops (indexes) inside the bbox
+	 */
+	public void findStops(int left31, int top31, int right31, int bottom31, TIntArrayList res) {
+		int shift = 31 - GRID_ZOOM;
+		for (int x = left31 >> shift; x <= right31 >> shift; x++) {
+			for (int y = top31 >> shift; y <= bottom31 >> shift; y++) {
+				int[] cell = grid.get(gridKey(x, y));
+				if (cell == null) {
+					continue;
+				}
+				for (int s : cell) {
+					TransportStop st = stops[s];
+					if (st.x31 >= left31 && st.x31 <= right31 && st.y31 >= top31 && st.y31 <= bottom31) {
+						res.add(s);
+					}
+				}
+			}
+		}
+	}
+
+	public List<BinaryMapIndexReader> getReaders() {
+		return readers;
+	}
+
+	public int getStopsCount() {
+		return stops.length;
+	}
+
+	public int getRoutesCount() {
+		return routes.length;
+	}
+
+	public TransportStop getStop(int ind) {
+		return stops[ind];
+	}
+
+	public TransportRoute getRoute(int ind) {
+		return routes[ind];
+	}
+
+	private static long gridKey(int x, int y) {
+		return (((long) x) << 32) | (y & 0xffffffffL);
+	}
+
+	private static class IndexLoader {
+		final BinaryMapIndexReader reader;
+		final TransportIndex index;
+		List<TransportStop> stops;
+		final TLongObjectHashMap<TransportRoute> routes = new TLongObjectHashMap<TransportRoute>();
+
+		IndexLoader(BinaryMapIndexReader reader, TransportIndex index) {
+			this.reader = reader;
+			this.index = index;
+		}
+
+		// decodes stops of the index and all routes referenced by them
+		void load(BinaryMapIndexReader r) throws IOException {
+			SearchRequest<TransportStop> sr = BinaryMapIndexReader.buildSearchTransportRequest(0, Integer.MAX_VALUE,
+					0, Integer.MAX_VALUE, -1, null);
+			stops = new ArrayList<TransportStop>(r.searchTransportIndex(index, sr));
+			TLongArrayList refs = new TLongArrayList();
+			for (TransportStop s : stops) {
+				if (!s.isDeleted() && s.getReferencesToRoutes() != null) {
+					refs.add(s.getReferencesToRoutes());
+				}
+			}
+			refs.sort();
+			TLongArrayList unique = new TLongArrayList(refs.size());
+			for (int i = 0; i < refs.size(); i++) {
+				if (i == 0 || refs.getQuick(i) != refs.getQuick(i - 1)) {
+					unique.add(refs.getQuick(i));
+				}
+			}
+			r.loadTransportRoutes(unique.toArray(), routes);
+		}
+	}
+}
@@ -0,0 +1,316 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.commons.logging.Log;
+
+import gnu.trove.list.array.TIntArrayList;
+import net.osmand.PlatformUtil;
+import net.osmand.data.LatLon;
+import net.osmand.data.QuadRect;
+import net.osmand.router.TransportRoutePlanner.TransportRouteResultSegment;
+import net.osmand.util.MapUtils;
+
+/**
+ * Round based (RAPTOR) public transport planner over {@link TransportTimetable}. Round k finds earliest arrival
+ * to every stop with k routes, so each result is the fastest route for its number of changes.
+ * Uses the same configuration, context (tiles) and result type as {@link TransportRoutePlanner}.
+ */
+public class TransportRaptorPlanner {
+
+	private static final Log LOG = PlatformUtil.getLog(TransportRaptorPlanner.class);
+	private static final double INF = Double.POSITIVE_INFINITY;
+	private static final int REACHED_BY_ROUTE = -1;
+
+	/**
+	 * Builds timetable for routes around start / end (bbox extended by walk radius and quarter of distance)
+	 */
+	public TransportTimetable buildTimetable(TransportRoutingContext ctx, LatLon start, LatLon end) throws IOException {
+		double ext = ctx.cfg.walkRadius + MapUtils.getDistance(start, end) / 4;
+		QuadRect bbox = MapUtils.calculateLatLonBbox(start.getLatitude(), start.getLongitude(), (int) ext);
+		QuadRect endBbox = MapUtils.calculateLatLonBbox(end.getLatitude(), end.getLongitude(), (int) ext);
+		int left = MapUtils.get31TileNumberX(Math.min(bbox.left, endBbox.left));
+		int right = MapUtils.get31TileNumberX(Math.max(bbox.right, endBbox.right));
+		int top = MapUtils.get31TileNumberY(Math.max(bbox.top, endBbox.top));
+		int bottom = MapUtils.get31TileNumberY(Math.min(bbox.bottom, endBbox.bottom));
+		return TransportTimetable.build(ctx.getTransportRoutes(left, top, right, bottom), ctx.cfg);
+	}
+
+	public List<TransportRouteResult> buildRoute(TransportRoutingContext ctx, LatLon start, LatLon end) throws IOException, InterruptedException {
+		ctx.startCalcTime = System.currentTimeMillis();
+		TransportTimetable tt = buildTimetable(ctx, start, end);
+		return buildRoute(ctx, tt, start, end);
+	}
+
+	public List<TransportRouteResult> buildRoute(TransportRoutingContext ctx, TransportTimetable tt, LatLon start, LatLon end)
+			throws InterruptedException {
+		if (ctx.startCalcTime == 0) {
+			ctx.startCalcTime = System.currentTimeMillis();
+		}
+		TransportRoutingConfiguration cfg = ctx.cfg;
+		double totalDistance = MapUtils.getDistance(start, end);
+		double finishTime = cfg.maxRouteTime;
+		ctx.finishTimeSeconds = cfg.finishTimeSeconds;
+		if (totalDistance > cfg.maxRouteDistance && cfg.maxRouteIncreaseSpeed > 0) {
+			int increaseTime = (int) ((totalDistance - cfg.maxRouteDistance) * 3.6 / cfg.maxRouteIncreaseSpeed);
+			finishTime += increaseTime;
+			ctx.finishTimeSeconds += increaseTime / 6;
+		}
+		double maxTravelTimeCmpToWalk = totalDistance / cfg.walkSpeed - cfg.changeTime / 2;
+
+		int stopsCount = tt.getStopsCount();
+		int rounds = cfg.maxNumberOfChanges + 1;
+		Round[] rs = new Round[rounds + 1];
+		rs[0] = new Round(stopsCount);
+		double[] best = new double[stopsCount];
+		Arrays.fill(best, INF);
+
+		TIntArrayList startStops = new TIntArrayList();
+		tt.findStops(start, cfg.walkRadius, startStops);
+		if (startStops.isEmpty()) {
+			LOG.info("Public transport. Start stop is empty");
+			return Collections.emptyList();
+		}
+		TIntArrayList endStops = new TIntArrayList();
+		tt.findStops(end, cfg.walkRadius, endStops);
+		double[] endDist = new double[endStops.size()];
+		for (int i = 0; i < endDist.length; i++) {
+			endDist[i] = tt.getDistance(end, endStops.getQuick(i));
+		}
+		boolean[] marked = new boolean[stopsCount];
+		for (int i = 0; i < startStops.size(); i++) {
+			int s = startStops.getQuick(i);
+			double walkDist = tt.getDistance(start, s);
+			rs[0].label[s] = walkDist / cfg.walkSpeed;
+			rs[0].walkDist[s] = (float) walkDist;
+			best[s] = rs[0].label[s];
+			marked[s] = true;
+		}
+
+		double targetBest = INF;
+		int[] targetStop = new int[rounds + 1];
+		double[] targetTime = new double[rounds + 1];
+		Arrays.fill(targetTime, INF);
+		int[] routeFrom = new int[tt.getRoutesCount()];
+		Arrays.fill(routeFrom, Integer.MAX_VALUE);
+		TIntArrayList routesToScan = new TIntArrayList();
+		TIntArrayList improved = new TIntArrayList();
+		for (int k = 1; k <= rounds; k++) {
+			if (ctx.calculationProgress != null && ctx.calculationProgress.isCancelled) {
+				return null;
+			}
+			Round prev = rs[k - 1];
+			Round cur = rs[k] = new Round(stopsCount);
+			double bound = Math.min(targetBest, finishTime + ctx.finishTimeSeconds);
+			double boardCost = k == 1 ? 0 : cfg.getChangeTime() + cfg.getBoardingTime();
+			// collect routes passing marked stops and the earliest marked position
+			routesToScan.resetQuick();
+			for (int s = 0; s < stopsCount; s++) {
+				if (!marked[s]) {
+					continue;
+				}
+				marked[s] = false;
+				for (int i = tt.stopStart[s]; i < tt.stopStart[s + 1]; i++) {
+					int r = tt.stopRoutes[i];
+					if (routeFrom[r] == Integer.MAX_VALUE) {
+						routesToScan.add(r);
+					}
+					routeFrom[r] = Math.min(routeFrom[r], tt.stopRoutePos[i]);
+				}
+			}
+			improved.resetQuick();
+			for (int ri = 0; ri < routesToScan.size(); ri++) {
+				int r = routesToScan.getQuick(ri);
+				int from = routeFrom[r];
+				routeFrom[r] = Integer.MAX_VALUE;
+				ctx.visitedRoutesCount++;
+				int rs0 = tt.routeStart[r];
+				int len = tt.getRouteLength(r);
+				int[] trips = tt.routeTrips[r];
+				double base = INF; // arrival to stop p = base + routeStopTime[p]
+				int boardPos = -1;
+				int trip = -1;
+				for (int p = from; p < len; p++) {
+					int s = tt.routeStops[rs0 + p];
+					if (boardPos >= 0) {
+						double arrival = base + tt.routeStopTime[rs0 + p];
+						if (arrival < best[s] && arrival < bound) {
+							if (cur.arrival[s] == INF) {
+								improved.add(s);
+							}
+							best[s] = arrival;
+							cur.arrival[s] = arrival;
+							cur.route[s] = r;
+							cur.boardPos[s] = boardPos;
+							cur.alightPos[s] = p;
+							cur.trip[s] = trip;
+						}
+					}
+					double ready = prev.label[s];
+					if (ready == INF) {
+						continue;
+					}
+					ready += boardCost;
+					if (trips == null) {
+						double b = ready - tt.routeStopTime[rs0 + p];
+						if (b < base) {
+							base = b;
+							boardPos = p;
+						}
+					} else {
+						// earliest trip departing at this stop after ready time (10 seconds based)
+						int stopOffset = (int) (tt.routeStopTime[rs0 + p] / 10);
+						int t = earliestTrip(trips, cfg.scheduleTimeOfDay - stopOffset + (int) Math.ceil(ready / 10));
+						if (t >= 0 && trips[t] + stopOffset <= cfg.scheduleTimeOfDay + cfg.scheduleMaxTime) {
+							double b = (trips[t] - cfg.scheduleTimeOfDay) * 10;
+							if (b < base) {
+								base = b;
+								boardPos = p;
+								trip = trips[t] + stopOffset;
+							}
+						}
+					}
+				}
+			}
+			if (improved.isEmpty()) {
+				break;
+			}
+			// walking transfers after arrival
+			for (int i = 0; i < improved.size(); i++) {
+				int s = improved.getQuick(i);
+				ctx.visitedStops++;
+				if (cur.arrival[s] < cur.label[s]) {
+					cur.label[s] = cur.arrival[s];
+					cur.walkFrom[s] = REACHED_BY_ROUTE;
+					cur.walkDist[s] = 0;
+					marked[s] = true;
+				}
+				for (int j = tt.transferStart[s]; j < tt.transferStart[s + 1]; j++) {
+					int n = tt.transferStops[j];
+					double t = cur.arrival[s] + tt.transferDist[j] / cfg.walkSpeed;
+					if (t < cur.label[n] && t < best[n]) {
+						best[n] = t;
+						cur.label[n] = t;
+						cur.walkFrom[n] = s;
+						cur.walkDist[n] = tt.transferDist[j];
+						marked[n] = true;
+					}
+				}
+			}
+			for (int i = 0; i < endStops.size(); i++) {
+				int s = endStops.getQuick(i);
+				double t = cur.arrival[s] + endDist[i] / cfg.walkSpeed;
+				if (t < targetTime[k]) {
+					targetTime[k] = t;
+					targetStop[k] = i;
+				}
+			}
+			targetBest = Math.min(targetBest, targetTime[k]);
+			if (ctx.calculationProgress != null) {
+				ctx.calculationProgress.distanceFromBegin = (float) Math.max(ctx.calculationProgress.distanceFromBegin,
+						Math.min(targetBest, finishTime));
+			}
+		}
+
+		List<TransportRouteResult> results = new ArrayList<TransportRouteResult>();
+		double fastest = INF;
+		for (int k = 1; k <= rounds; k++) {
+			if (targetTime[k] < fastest) {
+				fastest = targetTime[k];
+			}
+		}
+		double prevBest = INF;
+		for (int k = 1; k <= rounds && rs[k] != null; k++) {
+			double t = targetTime[k];
+			// pareto optimal by changes, alternatives not much slower than fastest and than walking
+			if (t >= prevBest || t > fastest + ctx.finishTimeSeconds || t > finishTime + ctx.finishTimeSeconds) {
+				continue;
+			}
+			prevBest = t;
+			if (t < maxTravelTimeCmpToWalk || results.isEmpty()) {
+				results.add(createResult(ctx, tt, rs, k, endStops.getQuick(targetStop[k]), endDist[targetStop[k]], t));
+			}
+		}
+		Collections.sort(results, new Comparator<TransportRouteResult>() {
+			@Override
+			public int compare(TransportRouteResult o1, TransportRouteResult o2) {
+				return Double.compare(o1.routeTime, o2.routeTime);
+			}
+		});
+		System.out.println(String.format(Locale.US, "RAPTOR calculated %.1f seconds, found %d results, %d stops / %d routes in timetable, visited %d routes / %d stops",
+				(System.currentTimeMillis() - ctx.startCalcTime) / 1000.0, results.size(), stopsCount,
+				tt.getRoutesCount(), ctx.visitedRoutesCount, ctx.visitedStops));
+		return results;
+	}
+
+	private TransportRouteResult createResult(TransportRoutingContext ctx, TransportTimetable tt, Round[] rs, int k,
+			int stop, double finishWalkDist, double time) {
+		TransportRouteResult res = new TransportRouteResult(ctx);
+		res.routeTime = time;
+		res.finishWalkDist = finishWalkDist;
+		for (; k > 0; k--) {
+			Round cur = rs[k];
+			int r = cur.route[stop];
+			int rs0 = tt.routeStart[r];
+			TransportRouteResultSegment sg = new TransportRouteResultSegment();
+			sg.route = tt.routes[r];
+			sg.start = cur.boardPos[stop];
+			sg.end = cur.alightPos[stop];
+			sg.depTime = cur.trip[stop];
+			sg.travelTime = tt.routeStopTime[rs0 + sg.end] - tt.routeStopTime[rs0 + sg.start];
+			sg.travelDistApproximate = tt.routeStopDist[rs0 + sg.end] - tt.routeStopDist[rs0 + sg.start];
+			// boarding stop was reached in previous round by walking from stop (or start) or by route
+			int boardStop = tt.routeStops[rs0 + sg.start];
+			Round prev = rs[k - 1];
+			sg.walkDist = prev.walkDist[boardStop];
+			sg.walkTime = sg.walkDist / ctx.cfg.walkSpeed;
+			res.segments.add(0, sg);
+			stop = prev.walkFrom[boardStop] == REACHED_BY_ROUTE ? boardStop : prev.walkFrom[boardStop];
+		}
+		return res;
+	}
+
+	private static int earliestTrip(int[] trips, int minDeparture) {
+		int ind = Arrays.binarySearch(trips, minDeparture);
+		if (ind < 0) {
+			ind = -ind - 1;
+		} else {
+			while (ind > 0 && trips[ind - 1] == minDeparture) {
+				ind--;
+			}
+		}
+		return ind < trips.length ? ind : -1;
+	}
+
+	private static class Round {
+		final double[] label; // ready to board at stop (after walking)
+		final double[] arrival; // arrived by route
+		final int[] walkFrom;
+		final float[] walkDist;
+		final int[] route;
+		final int[] boardPos;
+		final int[] alightPos;
+		final int[] trip;
+
+		Round(int stops) {
+			label = new double[stops];
+			arrival = new double[stops];
+			Arrays.fill(label, INF);
+			Arrays.fill(arrival, INF);
+			walkFrom = new int[stops];
+			Arrays.fill(walkFrom, REACHED_BY_ROUTE);
+			walkDist = new float[stops];
+			route = new int[stops];
+			boardPos = new int[stops];
+			alightPos = new int[stops];
+			trip = new int[stops];
+			Arrays.fill(trip, -1);
+		}
+	}
+}
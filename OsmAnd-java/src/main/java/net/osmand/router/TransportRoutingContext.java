@@ -34,6 +34,8 @@ public class TransportRoutingContext {
 	// Incomplete routes usually don't need more files than around Max-BBOX of start/end,
 	// so here an improvement could be introduced
 	final TransportStopsRouteReader transportStopsReader;
+	// preloaded network shared between contexts, tiles are taken from it instead of files
+	final TransportNetworkSnapshot network;
 	public int finishTimeSeconds;
 
 	// stats
@@ -49,12 +51,22 @@ public class TransportRoutingContext {
 	private final int walkChangeRadiusIn31;
 
 	public TransportRoutingContext(TransportRoutingConfiguration cfg, NativeLibrary library, BinaryMapIndexReader... readers) {
+		this(cfg, library, Arrays.asList(readers), null);
+	}
+
+	public TransportRoutingContext(TransportRoutingConfiguration cfg, NativeLibrary library, TransportNetworkSnapshot network) {
+		this(cfg, library, network.getReaders(), network);
+	}
+
+	private TransportRoutingContext(TransportRoutingConfiguration cfg, NativeLibrary library,
+			List<BinaryMapIndexReader> readers, TransportNetworkSnapshot network) {
 		this.cfg = cfg;
 		walkRadiusIn31 = (int) (cfg.walkRadius / MapUtils.getTileDistanceWidth(31));
 		walkChangeRadiusIn31 = (int) (cfg.walkChangeRadius / MapUtils.getTileDistanceWidth(31));
 		quadTree = new TLongObjectHashMap<List<TransportRouteSegment>>();
 		this.library = library;
-		transportStopsReader = new TransportStopsRouteReader(Arrays.asList(readers));
+		transportStopsReader = new TransportStopsRouteReader(readers);
+		this.network = network;
 	}
 
 	public List<TransportRouteSegment> getTransportStops(LatLon loc) throws IOException {
@@ -67,6 +79,30 @@ public class TransportRoutingContext {
 		return loadNativeTransportStops(x, y, change, res);
 	}
 
+	/**
+	 * Loads all tiles of the area and returns routes passing its stops (each route once)
+	 */
+	public List<TransportRoute> getTransportRoutes(int left31, int top31, int right31, int bottom31) throws IOException {
+		long nanoTime = System.nanoTime();
+		int pz = 31 - cfg.ZOOM_TO_LOAD_TILES;
+		TLongObjectHashMap<TransportRoute> routes = new TLongObjectHashMap<TransportRoute>();
+		for (int x = left31 >> pz; x <= right31 >> pz; x++) {
+			for (int y = top31 >> pz; y <= bottom31 >> pz; y++) {
+				long tileId = (((long) x) << (cfg.ZOOM_TO_LOAD_TILES + 1)) + y;
+				List<TransportRouteSegment> list = quadTree.get(tileId);
+				if (list == null) {
+					list = loadTile(x, y);
+					quadTree.put(tileId, list);
+				}
+				for (TransportRouteSegment r : list) {
+					routes.put(r.road.getId(), r.road);
+				}
+			}
+		}
+		loadTime += System.nanoTime() - nanoTime;
+		return new ArrayList<TransportRoute>(routes.valueCollection());
+	}
+
 	private List<TransportRouteSegment> loadNativeTransportStops(int sx, int sy, boolean change, List<TransportRouteSegment> res) throws IOException {
 		long nanoTime = System.nanoTime();
 		int d = change ? walkChangeRadiusIn31 : walkRadiusIn31;
@@ -102,6 +138,11 @@ public class TransportRoutingContext {
 		long nanoTime = System.nanoTime();
 		List<TransportRouteSegment> lst = new ArrayList<TransportRouteSegment>();
 		int pz = (31 - cfg.ZOOM_TO_LOAD_TILES);
+		if (network != null) {
+			loadNetworkSegments(x << pz, y << pz, ((x + 1) << pz) - 1, ((y + 1) << pz) - 1, lst);
+			readTime += System.nanoTime() - nanoTime;
+			return lst;
+		}
 		BinaryMapIndexReader.SearchRequest<TransportStop> sr = BinaryMapIndexReader.buildSearchTransportRequest(x << pz, (x + 1) << pz,
 				y << pz, (y + 1) << pz, -1, null);
 		Collection<TransportStop> stops = transportStopsReader.readMergedTransportStops(sr);
@@ -110,26 +151,29 @@ public class TransportRoutingContext {
 		return lst;
 	}
 
+	private void loadNetworkSegments(int left31, int top31, int right31, int bottom31, List<TransportRouteSegment> lst) {
+		TIntArrayList stops = new TIntArrayList();
+		network.findStops(left31, top31, right31, bottom31, stops);
+		for (int i = 0; i < stops.size(); i++) {
+			int s = stops.getQuick(i);
+			for (int k = network.stopStart[s]; k < network.stopStart[s + 1]; k++) {
+				TransportRoute route = network.routes[network.stopRoutes[k]];
+				if (cfg.useSchedule) {
+					loadScheduleRouteSegment(lst, route, network.stopRoutePos[k]);
+				} else {
+					lst.add(new TransportRouteSegment(route, network.stopRoutePos[k]));
+				}
+			}
+		}
+	}
+
 	private void loadTransportSegments(Collection<TransportStop> stops, List<TransportRouteSegment> lst) throws IOException {
 		for(TransportStop s : stops) {
 			if (s.isDeleted() || s.getRoutes() == null) {
 				continue;
 			}
 			for (TransportRoute route : s.getRoutes()) {
-				int stopIndex = -1;
-				double dist = TransportRoute.SAME_STOP;
-				for (int k = 0; k < route.getForwardStops().size(); k++) {
-					TransportStop st = route.getForwardStops().get(k);
-					if(st.getId().longValue() == s.getId().longValue() ) {
-						stopIndex = k;
-						break;
-					}
-					double d = MapUtils.getDistance(st.getLocation(), s.getLocation());
-					if (d < dist) {
-						stopIndex = k;
-						dist = d;
-					}
-				}
+				int stopIndex = findStopIndex(route, s);
 				if (stopIndex != -1) {
 					if (cfg != null && cfg.useSchedule) {
 						loadScheduleRouteSegment(lst, route, stopIndex);
@@ -145,6 +189,24 @@ public class TransportRoutingContext {
 		}
 	}
 
+	// stop position in route: by id or the closest stop within SAME_STOP
+	static int findStopIndex(TransportRoute route, TransportStop s) {
+		int stopIndex = -1;
+		double dist = TransportRoute.SAME_STOP;
+		for (int k = 0; k < route.getForwardStops().size(); k++) {
+			TransportStop st = route.getForwardStops().get(k);
+			if (st.getId().longValue() == s.getId().longValue()) {
+				return k;
+			}
+			double d = MapUtils.getDistance(st.getLocation(), s.getLocation());
+			if (d < dist) {
+				stopIndex = k;
+				dist = d;
+			}
+		}
+		return stopIndex;
+	}
+
 	private void loadScheduleRouteSegment(List<TransportRouteSegment> lst, TransportRoute route, int stopIndex) {
 		if(route.getSchedule() != null) {
 			TIntArrayList ti = route.getSchedule().tripIntervals;
@@ -40,42 +40,56 @@ public class TransportStopsRouteReader {
 		for (BinaryMapIndexReader r : routesFilesCache.keySet()) {
 			sr.clearSearchResults();
 			List<TransportStop> stops = r.searchTransportIndex(sr);
-			TLongObjectHashMap<TransportRoute> routesToLoad = mergeTransportStops(r, loadedTransportStops, stops);
-			loadRoutes(r, routesToLoad);
-			for (TransportStop stop : stops) {
-				// skip missing stops
-				if (stop.isMissingStop()) {
-					continue;
-				}
-				long stopId = stop.getId();
-				TransportStop multifileStop = loadedTransportStops.get(stopId);
-				long[] rrs = stop.getReferencesToRoutes();
-				// clear up so it won't be used because there is multi file stop
-				stop.setReferencesToRoutes(null);
-				if (rrs != null && !multifileStop.isDeleted()) {
-					for (long rr : rrs) {
-						TransportRoute route = routesToLoad.get(rr);
-						if (route == null) {
-							if (routesToLoad.containsKey(rr)) {
-								System.err.println(String.format(
-										"Something went wrong by loading combined route %d for stop %s", rr, stop));
-							}
-						} else {
-							TransportRoute combinedRoute = getCombinedRoute(route);
-							if (multifileStop == stop || (!multifileStop.hasRoute(combinedRoute.getId())
-									&& !multifileStop.isRouteDeleted(combinedRoute.getId()))) {
-								// duplicates won't be added
-								multifileStop.addRouteId(combinedRoute.getId());
-								multifileStop.addRoute(combinedRoute);
-							}
+			mergeFileTransportStops(r, loadedTransportStops, stops);
+		}
+		// There should go stops with complete routes:
+		return loadedTransportStops.valueCollection();
+	}
+
+	/**
+	 * Merges stops read from the file into loaded stops, routes are read unless they're already in file routes cache
+	 */
+	public void mergeFileTransportStops(BinaryMapIndexReader r, TLongObjectHashMap<TransportStop> loadedTransportStops,
+			List<TransportStop> stops) throws IOException {
+		TLongObjectHashMap<TransportRoute> routesToLoad = mergeTransportStops(r, loadedTransportStops, stops);
+		loadRoutes(r, routesToLoad);
+		for (TransportStop stop : stops) {
+			// skip missing stops
+			if (stop.isMissingStop()) {
+				continue;
+			}
+			long stopId = stop.getId();
+			TransportStop multifileStop = loadedTransportStops.get(stopId);
+			long[] rrs = stop.getReferencesToRoutes();
+			// clear up so it won't be used because there is multi file stop
+			stop.setReferencesToRoutes(null);
+			if (rrs != null && !multifileStop.isDeleted()) {
+				for (long rr : rrs) {
+					TransportRoute route = routesToLoad.get(rr);
+					if (route == null) {
+						if (routesToLoad.containsKey(rr)) {
+							System.err.println(String.format(
+									"Something went wrong by loading combined route %d for stop %s", rr, stop));
+						}
+					} else {
+						TransportRoute combinedRoute = getCombinedRoute(route);
+						if (multifileStop == stop || (!multifileStop.hasRoute(combinedRoute.getId())
+								&& !multifileStop.isRouteDeleted(combinedRoute.getId()))) {
+							// duplicates won't be added
+							multifileStop.addRouteId(combinedRoute.getId());
+							multifileStop.addRoute(combinedRoute);
 						}
 					}
 				}
 			}
 		}
-		// There should go stops with complete routes:
-		return loadedTransportStops.valueCollection();
-						
+	}
+
+	/**
+	 * Adds routes of the file which were read separately (by file pointer), so merge doesn't read them again
+	 */
+	public void addFileRoutes(BinaryMapIndexReader r, TLongObjectHashMap<TransportRoute> routes) {
+		routesFilesCache.get(r).putAll(routes);
 	}
 	
 
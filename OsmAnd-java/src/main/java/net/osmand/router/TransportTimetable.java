@@ -0,0 +1,235 @@
+package net.osmand.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.osmand.data.LatLon;
+import net.osmand.data.TransportRoute;
+import net.osmand.data.TransportSchedule;
+import net.osmand.data.TransportStop;
+import net.osmand.util.MapUtils;
+
+/**
+ * Array based timetable for round based (RAPTOR) transport routing. Stops and routes are numbered,
+ * stop sequences, cumulative travel times / distances, trips and walking transfers are stored in flat arrays
+ * and calculated once, so search doesn't measure distances or create objects per expansion.
+ * Travel times depend on configuration (schedule or speed by route type).
+ */
+public class TransportTimetable {
+
+	private static final int GRID_ZOOM = 16;
+
+	final boolean useSchedule;
+	final TransportRoute[] routes;
+	final TransportStop[] stops;
+	// stops of route r: routeStops[routeStart[r]] ... routeStops[routeStart[r + 1] - 1]
+	final int[] routeStart;
+	final int[] routeStops;
+	final float[] routeStopTime; // cumulative travel time from first stop of route (seconds)
+	final float[] routeStopDist; // cumulative distance from first stop of route (meters)
+	final int[][] routeTrips; // departures from first stop (10 seconds based), only with schedule
+	// routes passing stop s: stopRoutes[stopStart[s]] ... (route index and position of stop in route)
+	final int[] stopStart;
+	final int[] stopRoutes;
+	final int[] stopRoutePos;
+	// walking transfers from stop s: transferStops[transferStart[s]] ...
+	final int[] transferStart;
+	final int[] transferStops;
+	final float[] transferDist;
+
+	private final TLongObjectHashMap<TIntArrayList> grid = new TLongObjectHashMap<>();
+
+	/**
+	 * Routes with zero speed (or without schedule in schedule mode) are skipped.
+	 */
+	public static TransportTimetable build(Collection<TransportRoute> routes, TransportRoutingConfiguration cfg) {
+		List<TransportRoute> rts = new ArrayList<>();
+		List<TransportStop> stops = new ArrayList<>();
+		TLongObjectHashMap<Integer> stopIds = new TLongObjectHashMap<>();
+		TIntArrayList routeStart = new TIntArrayList();
+		TIntArrayList routeStops = new TIntArrayList();
+		float[] routeStopTime = new float[256];
+		float[] routeStopDist = new float[256];
+		List<int[]> trips = new ArrayList<>();
+		for (TransportRoute r : routes) {
+			List<TransportStop> fs = r.getForwardStops();
+			int length = fs.size();
+			int[] rtrips = null;
+			float speed = 0;
+			TransportSchedule sc = r.getSchedule();
+			if (cfg.useSchedule) {
+				if (sc == null || sc.tripIntervals.isEmpty()) {
+					continue;
+				}
+				length = Math.min(length, sc.avgStopIntervals.size() + 1);
+				rtrips = new int[sc.tripIntervals.size()];
+				int t = 0;
+				for (int i = 0; i < rtrips.length; i++) {
+					t += sc.tripIntervals.getQuick(i);
+					rtrips[i] = t;
+				}
+			} else {
+				speed = cfg.getSpeedByRouteType(r.getType());
+				if (speed == 0) {
+					continue;
+				}
+			}
+			if (length < 2) {
+				continue;
+			}
+			routeStart.add(routeStops.size());
+			rts.add(r);
+			trips.add(rtrips);
+			float time = 0, dist = 0;
+			for (int i = 0; i < length; i++) {
+				TransportStop s = fs.get(i);
+				Integer ind = stopIds.get(s.getId());
+				if (ind == null) {
+					ind = stops.size();
+					stopIds.put(s.getId(), ind);
+					stops.add(s);
+				}
+				if (i > 0) {
+					double segmentDist = MapUtils.getDistance(fs.get(i - 1).getLocation(), s.getLocation());
+					dist += segmentDist;
+					if (cfg.useSchedule) {
+						time += sc.avgStopIntervals.getQuick(i - 1) * 10;
+					} else {
+						time += cfg.stopTime + segmentDist / speed;
+					}
+				}
+				if (routeStops.size() == routeStopTime.length) {
+					routeStopTime = Arrays.copyOf(routeStopTime, routeStopTime.length * 2);
+					routeStopDist = Arrays.copyOf(routeStopDist, routeStopDist.length * 2);
+				}
+				routeStopTime[routeStops.size()] = time;
+				routeStopDist[routeStops.size()] = dist;
+				routeStops.add(ind);
+			}
+		}
+		routeStart.add(routeStops.size());
+		return new TransportTimetable(cfg, rts, stops, routeStart, routeStops,
+				Arrays.copyOf(routeStopTime, routeStops.size()), Arrays.copyOf(routeStopDist, routeStops.size()),
+				trips.toArray(new int[0][]));
+	}
+
+	private TransportTimetable(TransportRoutingConfiguration cfg, List<TransportRoute> routes, List<TransportStop> stops,
+			TIntArrayList routeStart, TIntArrayList routeStops, float[] routeStopTime, float[] routeStopDist,
+			int[][] routeTrips) {
+		this.useSchedule = cfg.useSchedule;
+		this.routes = routes.toArray(new TransportRoute[0]);
+		this.stops = stops.toArray(new TransportStop[0]);
+		this.routeStart = routeStart.toArray();
+		this.routeStops = routeStops.toArray();
+		this.routeStopTime = routeStopTime;
+		this.routeStopDist = routeStopDist;
+		this.routeTrips = routeTrips;
+
+		int[] pos = new int[this.stops.length + 1];
+		for (int s : this.routeStops) {
+			pos[s + 1]++;
+		}
+		for (int i = 0; i < this.stops.length; i++) {
+			pos[i + 1] += pos[i];
+		}
+		stopStart = pos.clone();
+		stopRoutes = new int[this.routeStops.length];
+		stopRoutePos = new int[this.routeStops.length];
+		for (int r = 0; r < this.routes.length; r++) {
+			for (int i = this.routeStart[r]; i < this.routeStart[r + 1]; i++) {
+				int s = this.routeStops[i];
+				stopRoutes[pos[s]] = r;
+				stopRoutePos[pos[s]++] = i - this.routeStart[r];
+			}
+		}
+
+		for (int s = 0; s < this.stops.length; s++) {
+			long key = gridKey(this.stops[s].x31 >> (31 - GRID_ZOOM), this.stops[s].y31 >> (31 - GRID_ZOOM));
+			TIntArrayList l = grid.get(key);
+			if (l == null) {
+				l = new TIntArrayList(4);
+				grid.put(key, l);
+			}
+			l.add(s);
+		}
+		transferStart = new int[this.stops.length + 1];
+		TIntArrayList tStops = new TIntArrayList();
+		float[] tDist = new float[256];
+		TIntArrayList near = new TIntArrayList();
+		for (int s = 0; s < this.stops.length; s++) {
+			transferStart[s] = tStops.size();
+			near.resetQuick();
+			LatLon loc = this.stops[s].getLocation();
+			findStops(loc, cfg.walkChangeRadius, near);
+			for (int i = 0; i < near.size(); i++) {
+				int n = near.getQuick(i);
+				if (n != s) {
+					if (tStops.size() == tDist.length) {
+						tDist = Arrays.copyOf(tDist, tDist.length * 2);
+					}
+					tDist[tStops.size()] = (float) getDistance(loc, n);
+					tStops.add(n);
+				}
+			}
+		}
+		transferStart[this.stops.length] = tStops.size();
+		transferStops = tStops.toArray();
+		transferDist = Arrays.copyOf(tDist, tStops.size());
+	}
+
+	public double getDistance(LatLon loc, int stop) {
+		return MapUtils.getDistance(loc, stops[stop].getLocation());
+	}
+
+	/**
+	 * Adds stops (indexes) within radius
+	 */
+	public void findStops(LatLon loc, double radius, TIntArrayList res) {
+		int x31 = MapUtils.get31TileNumberX(loc.getLongitude());
+		int y31 = MapUtils.get31TileNumberY(loc.getLatitude());
+		int shift = 31 - GRID_ZOOM;
+		int d = (int) (radius / MapUtils.getTileDistanceWidth(loc.getLatitude(), GRID_ZOOM) * (1 << shift)) + 1;
+		for (int x = (x31 - d) >> shift; x <= (x31 + d) >> shift; x++) {
+			for (int y = (y31 - d) >> shift; y <= (y31 + d) >> shift; y++) {
+				TIntArrayList l = grid.get(gridKey(x, y));
+				if (l == null) {
+					continue;
+				}
+				for (int i = 0; i < l.size(); i++) {
+					int s = l.getQuick(i);
+					if (getDistance(loc, s) <= radius) {
+						res.add(s);
+					}
+				}
+			}
+		}
+	}
+
+	public int getStopsCount() {
+		return stops.length;
+	}
+
+	public int getRoutesCount() {
+		return routes.length;
+	}
+
+	public TransportStop getStop(int ind) {
+		return stops[ind];
+	}
+
+	public TransportRoute getRoute(int ind) {
+		return routes[ind];
+	}
+
+	public int getRouteLength(int route) {
+		return routeStart[route + 1] - routeStart[route];
+	}
+
+	private static long gridKey(int x, int y) {
+		return (((long) x) << 32) | (y & 0xffffffffL);
+	}
+}
@@ -0,0 +1,18 @@
+package net.osmand.router;
+
+import net.osmand.router.BinaryRoutePlanner.RouteSegment;
+
+// visited segments of A* search by route point id
+public interface VisitedSegments {
+
+	RouteSegment get(long key);
+
+	// returns previous segment, null value removes segment
+	RouteSegment put(long key, RouteSegment value);
+
+	boolean containsKey(long key);
+
+	void clear();
+
+	int size();
+}
@@ -0,0 +1,98 @@
+package net.osmand.router;
+
+import java.util.Arrays;
+
+import net.osmand.router.BinaryRoutePlanner.RouteSegment;
+import net.osmand.util.LongIntHashMap;
+
+// visited segments of A* search: route point id -> index in segments array (removed segments leave null slot)
+public class VisitedSegmentsMap implements VisitedSegments {
+
+	private final int initialCapacity;
+	private LongIntHashMap index;
+	private RouteSegment[] segments;
+	private int used = 0;
+	private int size = 0;
+	private int allocations = 0;
+
+	public VisitedSegmentsMap(int capacity) {
+		initialCapacity = capacity;
+		index = new LongIntHashMap(capacity);
+		segments = new RouteSegment[Math.max(capacity, 16)];
+		allocations += 2;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean containsKey(long key) {
+		return get(key) != null;
+	}
+
+	@Override
+	public RouteSegment get(long key) {
+		int ind = index.get(key);
+		return ind == LongIntHashMap.NO_VALUE ? null : segments[ind];
+	}
+
+	@Override
+	public RouteSegment put(long key, RouteSegment value) {
+		if (value == null) {
+			return remove(key);
+		}
+		int ind = index.get(key);
+		if (ind != LongIntHashMap.NO_VALUE) {
+			RouteSegment prev = segments[ind];
+			segments[ind] = value;
+			if (prev == null) {
+				size++;
+			}
+			return prev;
+		}
+		if (used == segments.length) {
+			segments = Arrays.copyOf(segments, segments.length * 2);
+			allocations++;
+		}
+		int capacity = index.capacity();
+		index.put(key, used);
+		if (capacity != index.capacity()) {
+			allocations++;
+		}
+		segments[used++] = value;
+		size++;
+		return null;
+	}
+
+	private RouteSegment remove(long key) {
+		int ind = index.get(key);
+		if (ind == LongIntHashMap.NO_VALUE || segments[ind] == null) {
+			return null;
+		}
+		RouteSegment prev = segments[ind];
+		segments[ind] = null;
+		size--;
+		return prev;
+	}
+
+	@Override
+	public void clear() {
+		allocations = 0;
+		if (index.capacity() > 8 * Math.max(used, initialCapacity)) {
+			// don't pay for clearing huge table after long search
+			index = new LongIntHashMap(initialCapacity);
+			allocations++;
+		} else {
+			index.clear();
+		}
+		Arrays.fill(segments, 0, used, null);
+		used = 0;
+		size = 0;
+	}
+
+	public int getAllocations() {
+		return allocations;
+	}
+}
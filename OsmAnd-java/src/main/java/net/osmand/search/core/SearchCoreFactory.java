@@ -31,6 +31,8 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import net.osmand.Collator;
@@ -69,6 +71,7 @@ import net.osmand.util.GeoPointParserUtil;
 import net.osmand.util.LocationParser;
 import net.osmand.util.LocationParser.ParsedOpenLocationCode;
 import net.osmand.util.MapUtils;
+import net.osmand.util.ParallelTasks;
 
 public class SearchCoreFactory {
 
@@ -122,6 +125,186 @@ public class SearchCoreFactory {
 	public static final int SEARCH_OLC_WITH_CITY_PRIORITY = 8;
 	public static final int SEARCH_OLC_WITH_CITY_TOTAL_LIMIT = 500;
 
+	// > 1 reads files in parallel for address / poi by name and poi by type search (results are published in files order)
+	public static int PARALLEL_FILE_SEARCH_THREADS = 1;
+	// address / poi by name search filters objects read for the previous query when query is extended (typing)
+	public static boolean INCREMENTAL_SEARCH = false;
+
+	/**
+	 * Reads objects of a file (on a separate cursor of the file) and publishes them in the search thread.
+	 * Methods except publish are called from reading threads.
+	 */
+	protected interface FileSearch<T> {
+
+		void read(BinaryMapIndexReader file, ResultMatcher<T> collector) throws IOException;
+
+		// checks of object which don't depend on published results, rejected objects are not kept
+		boolean accept(T object);
+
+		// max number of accepted objects of one file which could be published
+		int getLimit();
+
+		boolean isCancelled();
+
+		void publish(BinaryMapIndexReader file, List<T> objects) throws IOException;
+	}
+
+	private static List<BinaryMapIndexReader> toList(Iterator<BinaryMapIndexReader> it) {
+		List<BinaryMapIndexReader> files = new ArrayList<BinaryMapIndexReader>();
+		while (it.hasNext()) {
+			files.add(it.next());
+		}
+		return files;
+	}
+
+	protected static boolean isParallelFileSearch(SearchPhrase phrase, List<BinaryMapIndexReader> files) {
+		return PARALLEL_FILE_SEARCH_THREADS > 1 && files.size() > 1 && !phrase.getSettings().isExportObjects();
+	}
+
+	/**
+	 * Files are read in parallel (shared pool, see ParallelTasks) while objects are published by file in the
+	 * original order, so results and priorities are the same as with sequential search. Returns objects read by file.
+	 */
+	protected static <T> List<List<T>> searchFilesInParallel(List<BinaryMapIndexReader> files, final FileSearch<T> search)
+			throws IOException {
+		List<Callable<List<T>>> reads = new ArrayList<Callable<List<T>>>();
+		final int limit = search.getLimit();
+		for (final BinaryMapIndexReader file : files) {
+			reads.add(new Callable<List<T>>() {
+				@Override
+				public List<T> call() throws Exception {
+					final List<T> objects = new ArrayList<T>();
+					// idle cursors are reused by next queries
+					final BinaryMapIndexReader cursor = file.acquireCursor();
+					boolean read = false;
+					try {
+						if (!search.isCancelled()) {
+							search.read(cursor, new ResultMatcher<T>() {
+								@Override
+								public boolean publish(T object) {
+									if (objects.size() < limit && search.accept(object)) {
+										objects.add(object);
+									}
+									return false;
+								}
+
+								@Override
+								public boolean isCancelled() {
+									return objects.size() >= limit || search.isCancelled();
+								}
+							});
+						}
+						read = true;
+					} finally {
+						if (read) {
+							file.releaseCursor(cursor);
+						} else {
+							// stream state is not known after failure
+							cursor.close();
+						}
+					}
+					return objects;
+				}
+			});
+		}
+		ParallelTasks<List<T>> tasks = new ParallelTasks<List<T>>(reads).start(PARALLEL_FILE_SEARCH_THREADS);
+		try {
+			List<List<T>> res = new ArrayList<List<T>>();
+			for (int i = 0; i < files.size(); i++) {
+				List<T> objects = tasks.get(i);
+				search.publish(files.get(i), objects);
+				res.add(objects);
+			}
+			return res;
+		} catch (InterruptedException e) {
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			// not started tasks don't take cursors
+			tasks.cancel(false);
+		}
+	}
+
+	/**
+	 * Objects read by name from files for the last query of api (before api filters and limits). Query which
+	 * extends the last one (typing) in the same files and area finds subset of them, so objects are filtered
+	 * in memory instead of reading files again.
+	 */
+	protected static class NameSearchCache<T> {
+		private String query;
+		private List<Object> area;
+		private List<BinaryMapIndexReader> files;
+		private List<List<T>> objects;
+
+		/**
+		 * Returns objects by file read for the last query if query extends it
+		 */
+		public List<List<T>> get(String query, List<Object> area, List<BinaryMapIndexReader> files) {
+			if (!INCREMENTAL_SEARCH || objects == null || !query.startsWith(this.query)
+					|| !area.equals(this.area) || !files.equals(this.files)) {
+				return null;
+			}
+			return objects;
+		}
+
+		/**
+		 * Objects should be all objects found for the query by file (search was not cancelled or limited)
+		 */
+		public void put(String query, StringMatcherMode mode, List<Object> area, List<BinaryMapIndexReader> files,
+				List<List<T>> objects) {
+			if (!INCREMENTAL_SEARCH || mode != CHECK_STARTS_FROM_SPACE) {
+				clear();
+				return;
+			}
+			this.query = query;
+			this.area = area;
+			this.files = files;
+			this.objects = objects;
+		}
+
+		public void clear() {
+			query = null;
+			area = null;
+			files = null;
+			objects = null;
+		}
+	}
+
+	/**
+	 * Collects objects published by file search, search request is built with it
+	 */
+	protected static class RecordingMatcher<T> implements ResultMatcher<T> {
+		private final ResultMatcher<T> matcher;
+		private final List<List<T>> objects = new ArrayList<List<T>>();
+
+		public RecordingMatcher(ResultMatcher<T> matcher) {
+			this.matcher = matcher;
+		}
+
+		public void startFile() {
+			objects.add(new ArrayList<T>());
+		}
+
+		public List<List<T>> getObjects() {
+			return objects;
+		}
+
+		@Override
+		public boolean publish(T object) {
+			objects.get(objects.size() - 1).add(object);
+			return matcher.publish(object);
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return matcher.isCancelled();
+		}
+	}
+
 	public static abstract class SearchBaseAPI implements SearchCoreAPI {
 
 		private ObjectType[] searchTypes;
@@ -313,6 +496,7 @@ public class SearchCoreFactory {
 		private QuadTree<City> townCitiesQR = new QuadTree<City>(new QuadRect(0, 0, Integer.MAX_VALUE, Integer.MAX_VALUE),
 				8, 0.55f);
 		private List<City> resArray = new ArrayList<>();
+		private final NameSearchCache<MapObject> nameSearchCache = new NameSearchCache<MapObject>();
 		private SearchStreetByCityAPI cityApi;
 		private SearchBuildingAndIntersectionsByStreetAPI streetsApi;
 
@@ -432,12 +616,56 @@ public class SearchCoreFactory {
 			}
 		}
 
+		// type of found object or null if it is not accepted (checks object only, called from reading threads)
+		private static ObjectType getAddressObjectType(SearchPhrase phrase, MapObject object, boolean locSpecified,
+				QuadRect cityBbox, QuadRect postcodeBbox, QuadRect villagesBbox) {
+			int y = MapUtils.get31TileNumberY(object.getLocation().getLatitude());
+			int x = MapUtils.get31TileNumberX(object.getLocation().getLongitude());
+			if (object instanceof Street) {
+				// remove limitation by location
+				if (  //(locSpecified && !streetBbox.contains(x, y, x, y)) || 
+					!phrase.isSearchTypeAllowed(ObjectType.STREET)) {
+					return null;
+				}
+				if (object.getName().startsWith("<")) {
+					return null;
+				}
+				return ObjectType.STREET;
+			} else if (object instanceof City) {
+				CityType type = ((City)object).getType();
+				if (type == CityType.CITY || type == CityType.TOWN) {
+					if (phrase.isNoSelectedType()) {
+						// ignore city/town
+						return null;
+					}
+					if ((locSpecified && !cityBbox.contains(x, y, x, y))
+							|| !phrase.isSearchTypeAllowed(ObjectType.CITY)) {
+						return null;
+					}
+					return ObjectType.CITY;
+				} else if (((City)object).isPostcode()) {
+					if ((locSpecified && !postcodeBbox.contains(x, y, x, y))
+							|| !phrase.isSearchTypeAllowed(ObjectType.POSTCODE)) {
+						return null;
+					}
+					return ObjectType.POSTCODE;
+				} else {
+					if ((locSpecified && !villagesBbox.contains(x, y, x, y))
+							|| !phrase.isSearchTypeAllowed(ObjectType.VILLAGE)) {
+						return null;
+					}
+					return ObjectType.VILLAGE;
+				}
+			}
+			return null;
+		}
+
 		private void searchByName(final SearchPhrase phrase, final SearchResultMatcher resultMatcher)
 				throws IOException {
 			if (phrase.getRadiusLevel() > 1 || phrase.getUnknownWordToSearch().length() > 3 ||
 					phrase.hasMoreThanOneUnknownSearchWord()|| phrase.isSearchTypeAllowed(ObjectType.POSTCODE, true)) {
 				final boolean locSpecified = phrase.getLastTokenLocation() != null;
-				LatLon loc = phrase.getLastTokenLocation();
+				final LatLon loc = phrase.getLastTokenLocation();
 				final List<SearchResult> immediateResults = new ArrayList<>();
 				final QuadRect streetBbox = phrase.getRadiusBBoxToSearch(DEFAULT_ADDRESS_BBOX_RADIUS);
 				final QuadRect postcodeBbox = phrase.getRadiusBBoxToSearch(DEFAULT_ADDRESS_BBOX_RADIUS * 5);
@@ -464,46 +692,21 @@ public class SearchCoreFactory {
 						sr.location = object.getLocation();
 						sr.priorityDistance = 1;
 						sr.priority = priority;
-						int y = MapUtils.get31TileNumberY(object.getLocation().getLatitude());
-						int x = MapUtils.get31TileNumberX(object.getLocation().getLongitude());
 						List<City> closestCities = null;
-						if (object instanceof Street) {
-							// remove limitation by location
-							if (  //(locSpecified && !streetBbox.contains(x, y, x, y)) || 
-								!phrase.isSearchTypeAllowed(ObjectType.STREET)) {
-								return false;
-							}
-							if (object.getName().startsWith("<")) {
-								return false;
-							}
+						ObjectType objectType = getAddressObjectType(phrase, object, locSpecified, cityBbox,
+								postcodeBbox, villagesBbox);
+						if (objectType == ObjectType.STREET) {
 							sr.objectType = ObjectType.STREET;
 							sr.localeRelatedObjectName = ((Street)object).getCity().getName(phrase.getSettings().getLang(), phrase.getSettings().isTransliterate());
 							sr.relatedObject = ((Street)object).getCity();
-						} else if (object instanceof City) {
-							CityType type = ((City)object).getType();
-							if (type == CityType.CITY || type == CityType.TOWN) {
-								if (phrase.isNoSelectedType()) {
-									// ignore city/town
-									return false;
-								}
-								if ((locSpecified && !cityBbox.contains(x, y, x, y))
-										|| !phrase.isSearchTypeAllowed(ObjectType.CITY)) {
-									return false;
-								}
+						} else if (objectType != null) {
+							if (objectType == ObjectType.CITY) {
 								sr.objectType = ObjectType.CITY;
 								sr.priorityDistance = 0.1;
-							} else if (((City)object).isPostcode()) {
-								if ((locSpecified && !postcodeBbox.contains(x, y, x, y))
-										|| !phrase.isSearchTypeAllowed(ObjectType.POSTCODE)) {
-									return false;
-								}
+							} else if (objectType == ObjectType.POSTCODE) {
 								sr.objectType = ObjectType.POSTCODE;
 								sr.priorityDistance = 0;
 							} else {
-								if ((locSpecified && !villagesBbox.contains(x, y, x, y))
-										|| !phrase.isSearchTypeAllowed(ObjectType.VILLAGE)) {
-									return false;
-								}
 								City c = null;
 								if (closestCities == null) {
 									closestCities = townCitiesQR.queryInBox(villagesBbox, new ArrayList<City>());
@@ -564,27 +767,115 @@ public class SearchCoreFactory {
 					String normalized = ArabicNormalizer.normalize(wordToSearch);
 					wordToSearch = normalized == null ? wordToSearch : normalized;
 				}
-				while (offlineIterator.hasNext() && wordToSearch.length() > 0) {
-					BinaryMapIndexReader r = offlineIterator.next();
-					currentFile[0] = r;
-					immediateResults.clear();
-					SearchRequest<MapObject> req = BinaryMapIndexReader.buildAddressByNameRequest(rm, rawDataCollector, wordToSearch.toLowerCase(),
-							phrase.isMainUnknownSearchWordComplete() ? StringMatcherMode.CHECK_EQUALS_FROM_SPACE
-									: StringMatcherMode.CHECK_STARTS_FROM_SPACE);
-					if (locSpecified) {
-						req.setBBoxRadius(loc.getLatitude(), loc.getLongitude(),
-								phrase.getRadiusSearch(DEFAULT_ADDRESS_BBOX_RADIUS * 5));
-					}
-					r.searchAddressDataByName(req);
-					for (SearchResult res : immediateResults) {
-						if (res.objectType == ObjectType.STREET) {
-							subSearchApiOrPublish(phrase, resultMatcher, res, streetsApi);
-						} else {
-							SearchPhrase nphrase = subSearchApiOrPublish(phrase, resultMatcher, res, cityApi);
-							searchPoiInCity(nphrase, res, resultMatcher);
+				List<BinaryMapIndexReader> files = toList(offlineIterator);
+				if (wordToSearch.length() == 0) {
+					return;
+				}
+				final String nameQuery = wordToSearch.toLowerCase();
+				final StringMatcherMode mode = phrase.isMainUnknownSearchWordComplete()
+						? StringMatcherMode.CHECK_EQUALS_FROM_SPACE : StringMatcherMode.CHECK_STARTS_FROM_SPACE;
+				final ResultMatcher<MapObject> fileMatcher = rm;
+				final SearchBaseAPI api = this;
+				FileSearch<MapObject> fileSearch = new FileSearch<MapObject>() {
+
+					@Override
+					public void read(BinaryMapIndexReader file, ResultMatcher<MapObject> collector) throws IOException {
+						SearchRequest<MapObject> req = BinaryMapIndexReader.buildAddressByNameRequest(collector, null,
+								nameQuery, mode);
+						if (locSpecified) {
+							req.setBBoxRadius(loc.getLatitude(), loc.getLongitude(),
+									phrase.getRadiusSearch(DEFAULT_ADDRESS_BBOX_RADIUS * 5));
 						}
+						file.searchAddressDataByName(req);
 					}
-					resultMatcher.apiSearchRegionFinished(this, r, phrase);
+
+					@Override
+					public boolean accept(MapObject object) {
+						return getAddressObjectType(phrase, object, locSpecified, cityBbox, postcodeBbox,
+								villagesBbox) != null;
+					}
+
+					@Override
+					public int getLimit() {
+						// matcher is cancelled once it accepted more than limit
+						return LIMIT * phrase.getRadiusLevel() + 1;
+					}
+
+					@Override
+					public boolean isCancelled() {
+						return resultMatcher.isCancelled();
+					}
+
+					@Override
+					public void publish(BinaryMapIndexReader file, List<MapObject> objects) throws IOException {
+						currentFile[0] = file;
+						immediateResults.clear();
+						for (MapObject o : objects) {
+							fileMatcher.publish(o);
+						}
+						publishAddressResults(phrase, resultMatcher, immediateResults);
+						resultMatcher.apiSearchRegionFinished(api, file, phrase);
+					}
+				};
+				List<Object> area = locSpecified ? Arrays.<Object>asList(loc,
+						phrase.getRadiusSearch(DEFAULT_ADDRESS_BBOX_RADIUS * 5)) : Collections.emptyList();
+				// postcodes are matched by normalized query
+				boolean cacheable = !phrase.getSettings().isExportObjects() && !hasDigits(nameQuery);
+				List<List<MapObject>> objects = cacheable ? nameSearchCache.get(nameQuery, area, files) : null;
+				if (objects != null) {
+					SearchRequest<MapObject> req = BinaryMapIndexReader.buildAddressByNameRequest(null, null, nameQuery, mode);
+					List<List<MapObject>> filtered = new ArrayList<List<MapObject>>();
+					for (int i = 0; i < files.size() && !fileMatcher.isCancelled(); i++) {
+						List<MapObject> fileObjects = files.get(i).filterAddressDataByName(req, objects.get(i));
+						fileSearch.publish(files.get(i), fileObjects);
+						filtered.add(fileObjects);
+					}
+					objects = filtered;
+				} else if (isParallelFileSearch(phrase, files)) {
+					objects = searchFilesInParallel(files, fileSearch);
+				} else {
+					RecordingMatcher<MapObject> recorder = new RecordingMatcher<MapObject>(rm);
+					for (BinaryMapIndexReader r : files) {
+						currentFile[0] = r;
+						immediateResults.clear();
+						recorder.startFile();
+						SearchRequest<MapObject> req = BinaryMapIndexReader.buildAddressByNameRequest(recorder,
+								rawDataCollector, nameQuery, mode);
+						if (locSpecified) {
+							req.setBBoxRadius(loc.getLatitude(), loc.getLongitude(),
+									phrase.getRadiusSearch(DEFAULT_ADDRESS_BBOX_RADIUS * 5));
+						}
+						r.searchAddressDataByName(req);
+						publishAddressResults(phrase, resultMatcher, immediateResults);
+						resultMatcher.apiSearchRegionFinished(this, r, phrase);
+					}
+					objects = recorder.getObjects();
+				}
+				if (cacheable && !fileMatcher.isCancelled()) {
+					nameSearchCache.put(nameQuery, mode, area, files, objects);
+				} else {
+					nameSearchCache.clear();
+				}
+			}
+		}
+
+		private static boolean hasDigits(String s) {
+			for (int i = 0; i < s.length(); i++) {
+				if (Character.isDigit(s.charAt(i))) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private void publishAddressResults(SearchPhrase phrase, SearchResultMatcher resultMatcher,
+				List<SearchResult> immediateResults) throws IOException {
+			for (SearchResult res : immediateResults) {
+				if (res.objectType == ObjectType.STREET) {
+					subSearchApiOrPublish(phrase, resultMatcher, res, streetsApi);
+				} else {
+					SearchPhrase nphrase = subSearchApiOrPublish(phrase, resultMatcher, res, cityApi);
+					searchPoiInCity(nphrase, res, resultMatcher);
 				}
 			}
 		}
@@ -597,10 +888,31 @@ public class SearchCoreFactory {
 		private static final int BBOX_RADIUS_POI_IN_CITY = 25 * 1000;
 		private static final int FIRST_WORD_MIN_LENGTH = 3;
 
+		private final NameSearchCache<Amenity> nameSearchCache = new NameSearchCache<Amenity>();
+
 		public SearchAmenityByNameAPI() {
 			super(ObjectType.POI);
 		}
 
+		// objects found for the previous query filtered with the query, null if files should be read
+		private List<List<Amenity>> filterCachedByName(String nameQuery, List<Object> area,
+				List<BinaryMapIndexReader> files) {
+			List<List<Amenity>> objects = nameSearchCache.get(nameQuery, area, files);
+			if (objects == null) {
+				return null;
+			}
+			SearchRequest<Amenity> req = BinaryMapIndexReader.buildSearchPoiRequest(0, 0, nameQuery, 0, 0, 0, 0, null);
+			List<List<Amenity>> filtered = new ArrayList<List<Amenity>>();
+			int count = 0;
+			for (int i = 0; i < files.size(); i++) {
+				List<Amenity> fileObjects = files.get(i).filterPoiByName(req, objects.get(i));
+				count += fileObjects.size();
+				filtered.add(fileObjects);
+			}
+			// order of objects read by name depends on query, it matters only when limit is reached
+			return count > LIMIT ? null : filtered;
+		}
+
 		@Override
 		public boolean search(final SearchPhrase phrase, final SearchResultMatcher resultMatcher) throws IOException {
 			if (!phrase.isUnknownSearchWordPresent()) {
@@ -622,7 +934,7 @@ public class SearchCoreFactory {
 				searchWord = normalized == null ? searchWord : normalized;
 			}
 			final NameStringMatcher nm = phrase.getMainUnknownNameStringMatcher();
-			QuadRect bbox = phrase.getFileRequest() != null ? phrase.getRadiusBBoxToSearch(BBOX_RADIUS_POI_IN_CITY) : phrase.getRadiusBBoxToSearch(BBOX_RADIUS_INSIDE);
+			final QuadRect bbox = phrase.getFileRequest() != null ? phrase.getRadiusBBoxToSearch(BBOX_RADIUS_POI_IN_CITY) : phrase.getRadiusBBoxToSearch(BBOX_RADIUS_INSIDE);
 			final Set<String> ids = new HashSet<String>();
 
 			ResultMatcher<Amenity> rawDataCollector = null;
@@ -703,27 +1015,91 @@ public class SearchCoreFactory {
 				}
 			};
 
-			SearchRequest<Amenity> req = BinaryMapIndexReader.buildSearchPoiRequest(
-					(int) bbox.centerX(), (int) bbox.centerY(), searchWord,
-					(int) bbox.left, (int) bbox.right, (int) bbox.top, (int) bbox.bottom,
-					matcher, rawDataCollector);
-
-			SearchRequest<Amenity> reqUnlimited = BinaryMapIndexReader.buildSearchPoiRequest(
-					(int) bbox.centerX(), (int) bbox.centerY(), searchWord,
-					0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE,
-					matcher, rawDataCollector);
-
 			BinaryMapIndexReader fileRequest = phrase.getFileRequest();
 			if (fileRequest != null) {
+				SearchRequest<Amenity> req = BinaryMapIndexReader.buildSearchPoiRequest(
+						(int) bbox.centerX(), (int) bbox.centerY(), searchWord,
+						(int) bbox.left, (int) bbox.right, (int) bbox.top, (int) bbox.bottom,
+						matcher, rawDataCollector);
 				fileRequest.searchPoiByName(req);
 				resultMatcher.apiSearchRegionFinished(this, fileRequest, phrase);
+				return true;
+			}
+			final String nameQuery = searchWord;
+			final ResultMatcher<Amenity> fileMatcher = matcher;
+			final SearchBaseAPI api = this;
+			FileSearch<Amenity> fileSearch = new FileSearch<Amenity>() {
+
+				@Override
+				public void read(BinaryMapIndexReader file, ResultMatcher<Amenity> collector) throws IOException {
+					QuadRect b = file.isBasemap() ? new QuadRect(0, 0, Integer.MAX_VALUE, Integer.MAX_VALUE) : bbox;
+					file.searchPoiByName(BinaryMapIndexReader.buildSearchPoiRequest((int) bbox.centerX(),
+							(int) bbox.centerY(), nameQuery, (int) b.left, (int) b.right, (int) b.top,
+							(int) b.bottom, collector, null));
+				}
+
+				@Override
+				public boolean accept(Amenity object) {
+					return true;
+				}
+
+				@Override
+				public int getLimit() {
+					// matcher skips objects after limit
+					return LIMIT + 1;
+				}
+
+				@Override
+				public boolean isCancelled() {
+					return resultMatcher.isCancelled();
+				}
+
+				@Override
+				public void publish(BinaryMapIndexReader file, List<Amenity> objects) {
+					currentFile[0] = file;
+					for (Amenity a : objects) {
+						fileMatcher.publish(a);
+					}
+					resultMatcher.apiSearchRegionFinished(api, file, phrase);
+				}
+			};
+			List<BinaryMapIndexReader> files = toList(offlineIterator);
+			List<Object> area = Arrays.<Object>asList(bbox.left, bbox.top, bbox.right, bbox.bottom);
+			boolean cacheable = !phrase.getSettings().isExportObjects();
+			List<List<Amenity>> objects = cacheable ? filterCachedByName(searchWord, area, files) : null;
+			if (objects != null) {
+				for (int i = 0; i < files.size() && !resultMatcher.isCancelled(); i++) {
+					fileSearch.publish(files.get(i), objects.get(i));
+				}
+			} else if (isParallelFileSearch(phrase, files)) {
+				objects = searchFilesInParallel(files, fileSearch);
+				for (List<Amenity> fileObjects : objects) {
+					// objects after limit are not read, so they can't be filtered for the next query
+					cacheable &= fileObjects.size() < fileSearch.getLimit();
+				}
 			} else {
-				while (offlineIterator.hasNext()) {
-					BinaryMapIndexReader r = offlineIterator.next();
+				RecordingMatcher<Amenity> recorder = new RecordingMatcher<Amenity>(matcher);
+				SearchRequest<Amenity> req = BinaryMapIndexReader.buildSearchPoiRequest(
+						(int) bbox.centerX(), (int) bbox.centerY(), searchWord,
+						(int) bbox.left, (int) bbox.right, (int) bbox.top, (int) bbox.bottom,
+						recorder, rawDataCollector);
+				SearchRequest<Amenity> reqUnlimited = BinaryMapIndexReader.buildSearchPoiRequest(
+						(int) bbox.centerX(), (int) bbox.centerY(), searchWord,
+						0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE,
+						recorder, rawDataCollector);
+				for (BinaryMapIndexReader r : files) {
 					currentFile[0] = r;
+					recorder.startFile();
 					r.searchPoiByName(r.isBasemap() ? reqUnlimited : req);
 					resultMatcher.apiSearchRegionFinished(this, r, phrase);
 				}
+				objects = recorder.getObjects();
+			}
+			// objects are read till the end unless search is cancelled
+			if (cacheable && !resultMatcher.isCancelled()) {
+				nameSearchCache.put(searchWord, CHECK_STARTS_FROM_SPACE, area, files, objects);
+			} else {
+				nameSearchCache.clear();
 			}
 			return true;
 		}
@@ -1312,9 +1688,14 @@ public class SearchCoreFactory {
 						radius = BBOX_RADIUS_NEAREST;
 					}
 				}
-				QuadRect bbox = phrase.getRadiusBBoxToSearch(radius);
+				final QuadRect bbox = phrase.getRadiusBBoxToSearch(radius);
 				List<BinaryMapIndexReader> offlineIndexes = phrase.getOfflineIndexes();
-				Set<String> searchedPois = new TreeSet<>();
+				final Set<String> searchedPois = new TreeSet<>();
+				if (isParallelFileSearch(phrase, offlineIndexes)) {
+					searchPoiByTypeInParallel(phrase, resultMatcher, offlineIndexes, bbox, poiTypeFilter,
+							poiAdditionalFilter, nameFilter, searchedPois, poiAdditionals, countExtraWords);
+					return true;
+				}
 				for (BinaryMapIndexReader r : offlineIndexes) {
 					ResultMatcher<Amenity> rm = getResultMatcher(phrase, poiTypeFilter, resultMatcher, nameFilter, r,
 							searchedPois, poiAdditionals, countExtraWords);
@@ -1331,6 +1712,116 @@ public class SearchCoreFactory {
 		}
 
 
+		private void searchPoiByTypeInParallel(final SearchPhrase phrase, final SearchResultMatcher resultMatcher,
+				List<BinaryMapIndexReader> files, final QuadRect bbox, final SearchPoiTypeFilter poiTypeFilter,
+				final SearchPoiAdditionalFilter poiAdditionalFilter, final String nameFilter,
+				final Set<String> searchedPois, final Set<String> poiAdditionals, final int countExtraWords)
+				throws IOException {
+			final SearchBaseAPI api = this;
+			searchFilesInParallel(files, new FileSearch<Amenity>() {
+
+				@Override
+				public void read(BinaryMapIndexReader file, final ResultMatcher<Amenity> collector) throws IOException {
+					ResultMatcher<Amenity> rm = collector;
+					if (nameFilter != null) {
+						// matcher (collator) of each reading thread
+						final NameStringMatcher ns = new NameStringMatcher(nameFilter, CHECK_STARTS_FROM_SPACE);
+						rm = new ResultMatcher<Amenity>() {
+							@Override
+							public boolean publish(Amenity object) {
+								String ref = object.getTagContent(Amenity.REF, null);
+								if (ns.matches(getLocaleName(phrase, object)) || ns.matches(object.getOtherNames(true))
+										|| (ref != null && ns.matches(ref))) {
+									collector.publish(object);
+								}
+								return false;
+							}
+
+							@Override
+							public boolean isCancelled() {
+								return collector.isCancelled();
+							}
+						};
+					}
+					// same as sequential search wrapped matcher gets all objects of file and could cancel reading
+					if (poiTypeFilter instanceof CustomSearchPoiFilter) {
+						rm = ((CustomSearchPoiFilter) poiTypeFilter).wrapResultMatcher(rm);
+					}
+					file.searchPoi(BinaryMapIndexReader.buildSearchPoiRequest((int) bbox.left, (int) bbox.right,
+							(int) bbox.top, (int) bbox.bottom, -1, poiTypeFilter, poiAdditionalFilter, rm));
+				}
+
+				@Override
+				public boolean accept(Amenity object) {
+					// id of rejected object is not marked as searched, object is rejected in other files as well
+					return isAccepted(phrase, object, poiAdditionals);
+				}
+
+				@Override
+				public int getLimit() {
+					return Integer.MAX_VALUE;
+				}
+
+				@Override
+				public boolean isCancelled() {
+					return resultMatcher.isCancelled();
+				}
+
+				@Override
+				public void publish(BinaryMapIndexReader file, List<Amenity> objects) {
+					// objects are accepted by wrapped matcher in reading thread
+					ResultMatcher<Amenity> rm = getResultMatcher(phrase, poiTypeFilter, resultMatcher, nameFilter, file,
+							searchedPois, poiAdditionals, countExtraWords);
+					for (Amenity a : objects) {
+						if (rm.isCancelled()) {
+							break;
+						}
+						rm.publish(a);
+					}
+					resultMatcher.apiSearchRegionFinished(api, file, phrase);
+				}
+			});
+		}
+
+		// checks of object only (could be called from reading threads)
+		private static boolean isAccepted(SearchPhrase phrase, Amenity object, Collection<String> poiAdditionals) {
+			if (object.isClosed()) {
+				return false;
+			}
+			if (!phrase.isAcceptPrivate() && object.isPrivateAccess()) {
+				return false;
+			}
+			if (!poiAdditionals.isEmpty()) {
+				boolean found = false;
+				for (String add : poiAdditionals) {
+					if (object.getAdditionalInfoKeys().contains(add)) {
+						found = true;
+						break;
+					}
+				}
+				if (!found) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private String getLocaleName(SearchPhrase phrase, Amenity object) {
+			String localeName = object.getName(phrase.getSettings().getLang(), phrase.getSettings().isTransliterate());
+			if (Algorithms.isEmpty(localeName) && object.isRouteTrack()) {
+				localeName = object.getAdditionalInfo(Amenity.ROUTE_ID);
+			}
+			if (Algorithms.isEmpty(localeName)) {
+				AbstractPoiType st = types.getAnyPoiTypeByKey(object.getSubType());
+				if (st != null) {
+					localeName = st.getTranslation();
+				} else {
+					localeName = object.getSubType();
+				}
+			}
+			return localeName;
+		}
+
 		private ResultMatcher<Amenity> getResultMatcher(final SearchPhrase phrase, final SearchPoiTypeFilter poiTypeFilter,
 		                                                final SearchResultMatcher resultMatcher, final String nameFilter,
 		                                                final BinaryMapIndexReader selected, final Set<String> searchedPois,
@@ -1350,37 +1841,11 @@ public class SearchCoreFactory {
 					if (!searchedPois.add(poiID)) {
 						return false;
 					}
-					if (object.isClosed()) {
-						return false;
-					}
-					if (!phrase.isAcceptPrivate() && object.isPrivateAccess()) {
+					if (!isAccepted(phrase, object, poiAdditionals)) {
 						return false;
 					}
-					if (!poiAdditionals.isEmpty()) {
-						boolean found = false;
-						for (String add : poiAdditionals) {
-							if (object.getAdditionalInfoKeys().contains(add)) {
-								found = true;
-								break;
-							}
-						}
-						if (!found) {
-							return false;
-						}
-					}
-					res.localeName = object.getName(phrase.getSettings().getLang(), phrase.getSettings().isTransliterate());
+					res.localeName = getLocaleName(phrase, object);
 					res.otherNames = object.getOtherNames(true);
-					if (Algorithms.isEmpty(res.localeName) && object.isRouteTrack()) {
-						res.localeName = object.getAdditionalInfo(Amenity.ROUTE_ID);
-					}
-					if (Algorithms.isEmpty(res.localeName)) {
-						AbstractPoiType st = types.getAnyPoiTypeByKey(object.getSubType());
-						if (st != null) {
-							res.localeName = st.getTranslation();
-						} else {
-							res.localeName = object.getSubType();
-						}
-					}
 					if (ns != null) {
 						if (ns.matches(res.localeName) || ns.matches(res.otherNames)) {
 							phrase.countUnknownWordsMatchMainResult(res, countExtraWords);
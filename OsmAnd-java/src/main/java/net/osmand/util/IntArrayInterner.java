@@ -0,0 +1,76 @@
+package net.osmand.util;
+
+import java.util.Arrays;
+
+/**
+ * Assigns dense ids (0, 1, 2...) to distinct int arrays by content. Lookup doesn't allocate,
+ * entries are immutable and could be shared between threads.
+ */
+public class IntArrayInterner {
+
+	public static final class Entry {
+		public final int[] array;
+		public final int id;
+
+		Entry(int[] array, int id) {
+			this.array = array;
+			this.id = id;
+		}
+	}
+
+	private Entry[] table = new Entry[32];
+	private int size;
+
+	public synchronized Entry intern(int[] array) {
+		return intern(array, false);
+	}
+
+	/**
+	 * Same as {@link #intern(int[])} but keeps a copy of the array if it is new (array could be changed by caller)
+	 */
+	public synchronized Entry internCopy(int[] array) {
+		return intern(array, true);
+	}
+
+	private Entry intern(int[] array, boolean copy) {
+		int mask = table.length - 1;
+		int i = mix(Arrays.hashCode(array)) & mask;
+		Entry e;
+		while ((e = table[i]) != null) {
+			if (e.array == array || Arrays.equals(e.array, array)) {
+				return e;
+			}
+			i = (i + 1) & mask;
+		}
+		e = new Entry(copy ? array.clone() : array, size++);
+		table[i] = e;
+		if (size * 2 > table.length) {
+			rehash();
+		}
+		return e;
+	}
+
+	public synchronized int size() {
+		return size;
+	}
+
+	private void rehash() {
+		Entry[] old = table;
+		table = new Entry[old.length * 2];
+		int mask = table.length - 1;
+		for (Entry e : old) {
+			if (e != null) {
+				int i = mix(Arrays.hashCode(e.array)) & mask;
+				while (table[i] != null) {
+					i = (i + 1) & mask;
+				}
+				table[i] = e;
+			}
+		}
+	}
+
+	private static int mix(int h) {
+		h *= 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
@@ -0,0 +1,105 @@
+package net.osmand.util;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing long -> int map without boxing (bundled trove doesn't contain TLongIntHashMap).
+ * Values are non negative, {@link #NO_VALUE} is returned for absent keys.
+ */
+public class LongIntHashMap {
+
+	public static final int NO_VALUE = -1;
+
+	private long[] keys;
+	private int[] values;
+	private int size;
+	private int mask;
+
+	public LongIntHashMap() {
+		this(16);
+	}
+
+	public LongIntHashMap(int expectedSize) {
+		int cap = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+		allocate(cap);
+	}
+
+	private void allocate(int cap) {
+		keys = new long[cap];
+		values = new int[cap];
+		Arrays.fill(values, NO_VALUE);
+		mask = cap - 1;
+	}
+
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	public int get(long key) {
+		int i = hash(key) & mask;
+		while (values[i] != NO_VALUE) {
+			if (keys[i] == key) {
+				return values[i];
+			}
+			i = (i + 1) & mask;
+		}
+		return NO_VALUE;
+	}
+
+	public boolean containsKey(long key) {
+		return get(key) != NO_VALUE;
+	}
+
+	public void put(long key, int value) {
+		if (value < 0) {
+			throw new IllegalArgumentException("Negative values are not supported: " + value);
+		}
+		int i = hash(key) & mask;
+		while (values[i] != NO_VALUE) {
+			if (keys[i] == key) {
+				values[i] = value;
+				return;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		values[i] = value;
+		if (++size * 2 > keys.length) {
+			rehash(keys.length << 1);
+		}
+	}
+
+	private void rehash(int cap) {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		allocate(cap);
+		for (int j = 0; j < oldKeys.length; j++) {
+			if (oldValues[j] != NO_VALUE) {
+				int i = hash(oldKeys[j]) & mask;
+				while (values[i] != NO_VALUE) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = oldKeys[j];
+				values[i] = oldValues[j];
+			}
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		Arrays.fill(values, NO_VALUE);
+		size = 0;
+	}
+
+	public int capacity() {
+		return keys.length;
+	}
+}
@@ -0,0 +1,112 @@
+package net.osmand.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs tasks by the calling thread and helper threads of one shared daemon pool. The pool is created
+ * once with {@link #MAX_THREADS} and is never shut down, so concurrent callers with different
+ * parallelism don't affect each other. Helper threads are taken only if the pool has a free one
+ * and the calling thread runs tasks which are not taken, so nested and concurrent calls always progress.
+ */
+public class ParallelTasks<T> {
+
+	// max threads of the shared pool, read when pool is created
+	public static int MAX_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+	private static ThreadPoolExecutor executor;
+
+	private final List<FutureTask<T>> tasks = new ArrayList<FutureTask<T>>();
+	private final AtomicInteger next = new AtomicInteger();
+
+	public ParallelTasks(List<? extends Callable<T>> callables) {
+		for (Callable<T> c : callables) {
+			tasks.add(new FutureTask<T>(c));
+		}
+	}
+
+	/**
+	 * Starts up to threads - 1 helper threads, tasks are taken in order.
+	 */
+	public ParallelTasks<T> start(int threads) {
+		int helpers = Math.min(threads, tasks.size()) - 1;
+		for (int i = 0; i < helpers; i++) {
+			Runnable worker = new Runnable() {
+				@Override
+				public void run() {
+					int k;
+					while ((k = next.getAndIncrement()) < tasks.size()) {
+						tasks.get(k).run();
+					}
+				}
+			};
+			if (tryStart(worker) == null) {
+				break;
+			}
+		}
+		return this;
+	}
+
+	public int size() {
+		return tasks.size();
+	}
+
+	/**
+	 * Returns result of task i, the calling thread runs not taken tasks up to i.
+	 */
+	public T get(int i) throws InterruptedException, ExecutionException {
+		while (next.get() <= i) {
+			int k = next.getAndIncrement();
+			if (k < tasks.size()) {
+				tasks.get(k).run();
+			}
+		}
+		return tasks.get(i).get();
+	}
+
+	/**
+	 * Not taken tasks are not run anymore, running tasks are interrupted if mayInterrupt.
+	 */
+	public void cancel(boolean mayInterrupt) {
+		next.set(tasks.size());
+		for (FutureTask<T> t : tasks) {
+			t.cancel(mayInterrupt);
+		}
+	}
+
+	/**
+	 * Starts task in a free thread of the shared pool, returns null if all threads are busy.
+	 */
+	public static Future<?> tryStart(Runnable task) {
+		try {
+			return getExecutor().submit(task);
+		} catch (RejectedExecutionException e) {
+			return null;
+		}
+	}
+
+	private static synchronized ThreadPoolExecutor getExecutor() {
+		if (executor == null) {
+			// no queue: task is taken by a free thread or rejected
+			executor = new ThreadPoolExecutor(0, Math.max(1, MAX_THREADS), 30L, TimeUnit.SECONDS,
+					new SynchronousQueue<Runnable>(), new ThreadFactory() {
+						@Override
+						public Thread newThread(Runnable r) {
+							Thread t = new Thread(r, "Parallel tasks");
+							t.setDaemon(true);
+							return t;
+						}
+					});
+		}
+		return executor;
+	}
+}
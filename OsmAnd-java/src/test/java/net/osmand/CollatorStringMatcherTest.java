@@ -0,0 +1,75 @@
+package net.osmand;
+
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.CollatorStringMatcher.StringMatcherMode;
+
+public class CollatorStringMatcherTest {
+
+	private static final String ALPHABET = "abcsyzAZCSYnoöőüéèeEÉ ñ-.'1ıIİßσΣςДдЁёйnйнsź̃";
+	private static final String[] NAMES = { "Main Street", "Hauptstraße", "Rue de l'Église", "Csepel", "Szeged", "Öböl",
+			"İstanbul Caddesi", "Ulica Świętokrzyska", "Ленинский проспект", "Ёлкино", "St. Peter-Ording", "Año Nuevo" };
+
+	@Test
+	public void testSameAsCollator() {
+		Locale def = Locale.getDefault();
+		boolean useKeys = CollatorStringMatcher.USE_COLLATION_KEYS;
+		try {
+			for (String lang : new String[] { "en", "hu", "tr", "es", "ru" }) {
+				Locale.setDefault(new Locale(lang));
+				Random rnd = new Random(7);
+				for (int t = 0; t < 300; t++) {
+					String part = t < NAMES.length ? NAMES[t].substring(0, 1 + t % NAMES[t].length())
+							: random(rnd, 1 + rnd.nextInt(4));
+					for (StringMatcherMode mode : StringMatcherMode.values()) {
+						CollatorStringMatcher.USE_COLLATION_KEYS = true;
+						CollatorStringMatcher keys = new CollatorStringMatcher(part, mode);
+						CollatorStringMatcher.USE_COLLATION_KEYS = false;
+						CollatorStringMatcher collator = new CollatorStringMatcher(part, mode);
+						for (String name : NAMES) {
+							check(lang, part, mode, name, keys, collator);
+						}
+						for (int k = 0; k < 20; k++) {
+							String name = random(rnd, rnd.nextInt(12));
+							if (rnd.nextBoolean()) {
+								name = name + part + random(rnd, rnd.nextInt(3));
+							}
+							check(lang, part, mode, name, keys, collator);
+						}
+					}
+				}
+			}
+		} finally {
+			Locale.setDefault(def);
+			CollatorStringMatcher.USE_COLLATION_KEYS = useKeys;
+		}
+	}
+
+	@Test
+	public void testMatches() {
+		CollatorStringMatcher m = new CollatorStringMatcher("stre", StringMatcherMode.CHECK_STARTS_FROM_SPACE);
+		Assert.assertTrue(m.matches("Main Street"));
+		Assert.assertFalse(m.matches("Mainstreet"));
+		m = new CollatorStringMatcher("eglise", StringMatcherMode.CHECK_EQUALS_FROM_SPACE);
+		Assert.assertTrue(m.matches("Rue de l'Église"));
+		Assert.assertFalse(m.matches("Rue de l'Églises"));
+	}
+
+	private void check(String lang, String part, StringMatcherMode mode, String name, CollatorStringMatcher keys,
+			CollatorStringMatcher collator) {
+		Assert.assertEquals(lang + " " + mode + " '" + part + "' in '" + name + "'", collator.matches(name),
+				keys.matches(name));
+	}
+
+	private String random(Random rnd, int length) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			sb.append(ALPHABET.charAt(rnd.nextInt(ALPHABET.length())));
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,186 @@
+package net.osmand.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.osmand.ResultMatcher;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+import net.osmand.data.Amenity;
+
+public class BinaryMapIndexReaderCursorTest {
+
+	private final ObfTestFiles obfFiles = new ObfTestFiles();
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		BinaryMapIndexReader reader = obfFiles.openResources().find(ObfTestFiles.ROUTE_DATA);
+		file = reader == null ? null : reader.getFile();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		obfFiles.close();
+	}
+
+	@Test
+	public void testIdleCursors() throws IOException {
+		Assume.assumeTrue("poi_types.xml is not present", ObfTestFiles.isPoiTypesPresent());
+		File empty = ObfTestFiles.writeEmptyObf(File.createTempFile("empty", ".obf"));
+		try {
+			BinaryMapIndexReader parent = open(empty);
+			BinaryMapIndexReader cursor = parent.acquireCursor();
+			Assert.assertTrue(cursor.isCursor());
+			Assert.assertFalse(parent.isCursor());
+			Assert.assertEquals(parent.getDateCreated(), cursor.getDateCreated());
+			parent.releaseCursor(cursor);
+			Assert.assertSame(cursor, parent.acquireCursor());
+			cursor.close();
+			// closing cursor doesn't close the file
+			BinaryMapIndexReader other = parent.acquireCursor();
+			Assert.assertNotSame(cursor, other);
+			Assert.assertEquals(2, other.getVersion());
+			parent.releaseCursor(other);
+		} finally {
+			empty.delete();
+		}
+	}
+
+	@Test
+	public void testCursorAsParent() throws IOException {
+		Assume.assumeTrue("Test obf with route data is not present", file != null);
+		BinaryMapIndexReader reference = open(file);
+		BinaryMapIndexReader parent = open(file);
+		// cursor is created before parent reads lazy parts of the structure
+		BinaryMapIndexReader cursor = parent.createCursor();
+		Assert.assertTrue(cursor.isCursor());
+		for (int[] box : boxes(reference, 10, new Random(7))) {
+			String msg = Arrays.toString(box);
+			List<Long> roads = searchRoads(reference, box);
+			Assert.assertEquals(msg, roads, searchRoads(cursor, box));
+			Assert.assertEquals(msg, roads, searchRoads(parent, box));
+			List<Long> pois = searchPoi(reference, box);
+			Assert.assertEquals(msg, pois, searchPoi(cursor, box));
+			Assert.assertEquals(msg, pois, searchPoi(parent, box));
+		}
+		cursor.close();
+		// closing cursor doesn't close the file
+		Assert.assertFalse(searchRoads(parent, boxes(reference, 1, new Random(7)).get(0)).isEmpty());
+	}
+
+	@Test
+	public void testConcurrentCursors() throws Exception {
+		Assume.assumeTrue("Test obf with route data is not present", file != null);
+		BinaryMapIndexReader reference = open(file);
+		final List<int[]> boxes = boxes(reference, 20, new Random(11));
+		final List<List<Long>> roads = new ArrayList<>();
+		final List<List<Long>> pois = new ArrayList<>();
+		for (int[] box : boxes) {
+			roads.add(searchRoads(reference, box));
+			pois.add(searchPoi(reference, box));
+		}
+		BinaryMapIndexReader parent = open(file);
+		final List<String> errors = Collections.synchronizedList(new ArrayList<String>());
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final BinaryMapIndexReader cursor = parent.createCursor();
+			final Random random = new Random(t);
+			threads[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						for (int k = 0; k < boxes.size() * 2; k++) {
+							int i = random.nextInt(boxes.size());
+							if (!roads.get(i).equals(searchRoads(cursor, boxes.get(i)))) {
+								errors.add("roads " + Arrays.toString(boxes.get(i)));
+							}
+							if (!pois.get(i).equals(searchPoi(cursor, boxes.get(i)))) {
+								errors.add("poi " + Arrays.toString(boxes.get(i)));
+							}
+						}
+						cursor.close();
+					} catch (Throwable e) {
+						errors.add(e.toString());
+					}
+				}
+			});
+		}
+		for (Thread th : threads) {
+			th.start();
+		}
+		for (Thread th : threads) {
+			th.join();
+		}
+		Assert.assertEquals(Collections.emptyList(), errors);
+	}
+
+	private BinaryMapIndexReader open(File f) throws IOException {
+		return obfFiles.open(f);
+	}
+
+	private List<int[]> boxes(BinaryMapIndexReader r, int count, Random random) {
+		int left = Integer.MAX_VALUE, right = 0, top = Integer.MAX_VALUE, bottom = 0;
+		for (RouteRegion reg : r.getRoutingIndexes()) {
+			for (RouteSubregion s : reg.getSubregions()) {
+				left = Math.min(left, s.left);
+				right = Math.max(right, s.right);
+				top = Math.min(top, s.top);
+				bottom = Math.max(bottom, s.bottom);
+			}
+		}
+		// ~ 2 km boxes
+		int size = 1 << 16;
+		List<int[]> boxes = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			int x = left + (int) (random.nextDouble() * Math.max(1, right - left - size));
+			int y = top + (int) (random.nextDouble() * Math.max(1, bottom - top - size));
+			boxes.add(new int[] { x, x + size, y, y + size });
+		}
+		return boxes;
+	}
+
+	private List<Long> searchRoads(BinaryMapIndexReader r, int[] box) throws IOException {
+		final List<Long> ids = new ArrayList<>();
+		SearchRequest<RouteDataObject> req = BinaryMapIndexReader.buildSearchRouteRequest(box[0], box[1], box[2],
+				box[3], null);
+		for (RouteRegion reg : r.getRoutingIndexes()) {
+			List<RouteSubregion> subregions = r.searchRouteIndexTree(req, reg.getSubregions());
+			r.loadRouteIndexData(subregions, new ResultMatcher<RouteDataObject>() {
+				@Override
+				public boolean publish(RouteDataObject object) {
+					ids.add(object.getId());
+					return false;
+				}
+
+				@Override
+				public boolean isCancelled() {
+					return false;
+				}
+			});
+		}
+		return ids;
+	}
+
+	private List<Long> searchPoi(BinaryMapIndexReader r, int[] box) throws IOException {
+		List<Long> ids = new ArrayList<>();
+		SearchRequest<Amenity> req = BinaryMapIndexReader.buildSearchPoiRequest(box[0], box[1], box[2], box[3], 15,
+				BinaryMapIndexReader.ACCEPT_ALL_POI_TYPE_FILTER, null);
+		for (Amenity a : r.searchPoi(req)) {
+			ids.add(a.getId());
+		}
+		return ids;
+	}
+}
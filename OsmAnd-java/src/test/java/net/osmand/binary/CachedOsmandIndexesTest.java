@@ -0,0 +1,172 @@
+package net.osmand.binary;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+
+import net.osmand.binary.OsmandIndex.FileIndex;
+import net.osmand.binary.OsmandIndex.OsmAndStoredIndex;
+import net.osmand.osm.MapPoiTypes;
+
+public class CachedOsmandIndexesTest {
+
+	private static final int OBF_VERSION = 2;
+
+	private File dir;
+	private final List<File> files = new ArrayList<>();
+	private int threads;
+
+	@Before
+	public void setUp() throws IOException {
+		// readers load default poi types (poi_types.xml is collected by collectTestResources)
+		Assume.assumeTrue("poi_types.xml is not present", MapPoiTypes.class.getResource("poi_types.xml") != null);
+		threads = CachedOsmandIndexes.PARALLEL_INIT_THREADS;
+		dir = Files.createTempDirectory("indexes").toFile();
+		for (int i = 0; i < 12; i++) {
+			File f = new File(dir, "map_" + i + ".obf");
+			writeObf(f, 1000L * (i + 1), i);
+			files.add(f);
+		}
+		File broken = new File(dir, "broken.obf");
+		FileOutputStream fous = new FileOutputStream(broken);
+		fous.write(new byte[] { 1, 2, 3 });
+		fous.close();
+		files.add(5, broken);
+	}
+
+	@After
+	public void tearDown() {
+		if (dir == null) {
+			return;
+		}
+		CachedOsmandIndexes.PARALLEL_INIT_THREADS = threads;
+		File[] list = dir.listFiles();
+		if (list != null) {
+			for (File f : list) {
+				f.delete();
+			}
+		}
+		dir.delete();
+	}
+
+	@Test
+	public void testParallelAsSequential() throws IOException {
+		CachedOsmandIndexes.PARALLEL_INIT_THREADS = 1;
+		File sequentialCache = new File(dir, "sequential.cache");
+		List<BinaryMapIndexReader> sequential = new CachedOsmandIndexes().getReaders(files, true, sequentialCache);
+		CachedOsmandIndexes.PARALLEL_INIT_THREADS = 4;
+		File parallelCache = new File(dir, "parallel.cache");
+		List<BinaryMapIndexReader> parallel = new CachedOsmandIndexes().getReaders(files, true, parallelCache);
+		assertSameReaders(sequential, parallel);
+		Assert.assertNull(parallel.get(5));
+		Assert.assertEquals(fileIndexes(sequentialCache), fileIndexes(parallelCache));
+
+		// readers from cache file
+		CachedOsmandIndexes cached = new CachedOsmandIndexes();
+		cached.readFromFile(parallelCache);
+		for (File f : files) {
+			Assert.assertEquals(f.getName().startsWith("map"), cached.getFileIndex(f, false) != null);
+		}
+		assertSameReaders(sequential, cached.getReaders(files, true, null));
+		close(sequential);
+		close(parallel);
+	}
+
+	@Test
+	public void testStoredFilesWithSameName() throws IOException {
+		File other = new File(dir, "other");
+		Assert.assertTrue(other.mkdir());
+		File f = files.get(0);
+		File same = new File(other, f.getName());
+		writeObf(same, 5000, 100);
+		Assert.assertNotEquals(f.length(), same.length());
+		try {
+			OsmAndStoredIndex.Builder builder = OsmAndStoredIndex.newBuilder();
+			builder.setVersion(CachedOsmandIndexes.VERSION);
+			builder.setDateCreated(System.currentTimeMillis());
+			builder.addFileIndex(fileIndex(f, 1000));
+			builder.addFileIndex(fileIndex(same, 5000));
+			File cacheFile = new File(dir, "stored.cache");
+			FileOutputStream fous = new FileOutputStream(cacheFile);
+			builder.build().writeTo(fous);
+			fous.close();
+
+			CachedOsmandIndexes cached = new CachedOsmandIndexes();
+			cached.readFromFile(cacheFile);
+			Assert.assertEquals(1000, cached.getFileIndex(f, false).getDateModified());
+			Assert.assertEquals(5000, cached.getFileIndex(same, false).getDateModified());
+
+			// both stored entries are kept when other file is added
+			List<BinaryMapIndexReader> readers = cached.getReaders(files.subList(1, 3), true, cacheFile);
+			Assert.assertEquals(4, fileIndexes(cacheFile).size());
+			close(readers);
+		} finally {
+			same.delete();
+			other.delete();
+		}
+	}
+
+	private void assertSameReaders(List<BinaryMapIndexReader> expected, List<BinaryMapIndexReader> readers) {
+		Assert.assertEquals(expected.size(), readers.size());
+		for (int i = 0; i < expected.size(); i++) {
+			BinaryMapIndexReader e = expected.get(i);
+			BinaryMapIndexReader r = readers.get(i);
+			Assert.assertEquals(e == null, r == null);
+			if (e != null) {
+				Assert.assertEquals(e.getFile(), r.getFile());
+				Assert.assertEquals(e.getVersion(), r.getVersion());
+				Assert.assertEquals(e.getDateCreated(), r.getDateCreated());
+				Assert.assertEquals(e.getIndexes().size(), r.getIndexes().size());
+			}
+		}
+	}
+
+	private List<String> fileIndexes(File cacheFile) throws IOException {
+		OsmAndStoredIndex stored = OsmAndStoredIndex.parseFrom(Files.readAllBytes(cacheFile.toPath()));
+		List<String> res = new ArrayList<>();
+		for (FileIndex fi : stored.getFileIndexList()) {
+			res.add(fi.getFileName() + " " + fi.getSize() + " " + fi.getDateModified());
+		}
+		return res;
+	}
+
+	private FileIndex fileIndex(File f, long dateModified) {
+		return FileIndex.newBuilder().setFileName(f.getName()).setSize(f.length()).setDateModified(dateModified)
+				.setVersion(OBF_VERSION).build();
+	}
+
+	private void close(List<BinaryMapIndexReader> readers) throws IOException {
+		for (BinaryMapIndexReader r : readers) {
+			if (r != null) {
+				r.close();
+			}
+		}
+	}
+
+	// file without sections: version, date created and version confirm, unknown field changes size
+	private static void writeObf(File f, long dateCreated, int padding) throws IOException {
+		FileOutputStream fous = new FileOutputStream(f);
+		CodedOutputStream cos = CodedOutputStream.newInstance(fous);
+		cos.writeUInt32(OsmandOdb.OsmAndStructure.VERSION_FIELD_NUMBER, OBF_VERSION);
+		cos.writeInt64(OsmandOdb.OsmAndStructure.DATECREATED_FIELD_NUMBER, dateCreated);
+		byte[] bytes = new byte[padding];
+		Arrays.fill(bytes, (byte) 1);
+		cos.writeBytes(100, ByteString.copyFrom(bytes));
+		cos.writeUInt32(OsmandOdb.OsmAndStructure.VERSIONCONFIRM_FIELD_NUMBER, OBF_VERSION);
+		cos.flush();
+		fous.close();
+	}
+}
@@ -0,0 +1,109 @@
+package net.osmand.binary;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.GeocodingUtilities.AddressStreetCache;
+import net.osmand.binary.GeocodingUtilities.GeocodingResult;
+import net.osmand.binary.GeocodingUtilities.ReverseGeocodingBatch;
+import net.osmand.data.LatLon;
+import net.osmand.router.RoutePlannerFrontEnd;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
+import net.osmand.router.RoutingConfiguration;
+import net.osmand.router.RoutingConfiguration.RoutingMemoryLimits;
+import net.osmand.router.RoutingContext;
+
+public class GeocodingUtilitiesTest {
+
+	private final ObfTestFiles obfFiles = new ObfTestFiles();
+	private BinaryMapIndexReader reader;
+
+	@Before
+	public void setUp() throws IOException {
+		reader = obfFiles.openResources(ObfTestFiles.RESOURCES_PATH, ObfTestFiles.ROUTING_RESOURCES_PATH,
+				ObfTestFiles.SEARCH_RESOURCES_PATH).find(new ObfTestFiles.ReaderFilter() {
+			@Override
+			public boolean accept(BinaryMapIndexReader r) {
+				return r.containsRouteData() && r.containsAddressData();
+			}
+		});
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		obfFiles.close();
+	}
+
+	@Test
+	public void testBatchStatistics() {
+		List<LatLon> points = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			points.add(new LatLon(50, 10 + i));
+		}
+		ReverseGeocodingBatch batch = new ReverseGeocodingBatch(points);
+		long[] latencyMs = { 4, 1, 3, 2 };
+		for (int i = 0; i < latencyMs.length; i++) {
+			batch.latencyNs[i] = latencyMs[i] * 1000000;
+		}
+		batch.timeNs = 2000000000L;
+		Assert.assertEquals(2, batch.getPointsPerSecond(), 1e-9);
+		Assert.assertEquals(2.5, batch.getAverageLatencyMs(), 1e-9);
+		Assert.assertEquals(2, batch.getLatencyMs(50), 1e-9);
+		Assert.assertEquals(4, batch.getLatencyMs(95), 1e-9);
+		Assert.assertEquals(1, batch.getLatencyMs(0), 1e-9);
+		Assert.assertEquals(0, new ReverseGeocodingBatch(new ArrayList<LatLon>()).getLatencyMs(50), 0);
+		Locale def = Locale.getDefault();
+		try {
+			// report doesn't depend on decimal separator of default locale
+			Locale.setDefault(Locale.GERMANY);
+			Assert.assertEquals("Reverse geocoding of 4 points in 2000 ms: 2.0 points/s, latency avg 2.50 ms, "
+					+ "p50 2.00 ms, p95 4.00 ms, max 4.00 ms", batch.toString());
+		} finally {
+			Locale.setDefault(def);
+		}
+	}
+
+	@Test
+	public void testBatchEqualsSearchByPoint() throws Exception {
+		Assume.assumeTrue("Test obf with route and address data is not present", reader != null);
+		RouteRegion region = reader.getRoutingIndexes().get(0);
+		Random random = new Random(17);
+		List<LatLon> points = new ArrayList<>();
+		for (int i = 0; i < 150; i++) {
+			double lat = region.getBottomLatitude() + random.nextDouble() * (region.getTopLatitude() - region.getBottomLatitude());
+			double lon = region.getLeftLongitude() + random.nextDouble() * (region.getRightLongitude() - region.getLeftLongitude());
+			points.add(new LatLon(lat, lon));
+		}
+		BinaryMapIndexReader[] files = { reader };
+		RoutingConfiguration config = RoutingConfiguration.getDefault().build("car", new RoutingMemoryLimits(
+				RoutingConfiguration.DEFAULT_MEMORY_LIMIT * 3, RoutingConfiguration.DEFAULT_NATIVE_MEMORY_LIMIT));
+		GeocodingUtilities gu = new GeocodingUtilities();
+		ReverseGeocodingBatch batch = gu.reverseGeocodingSearch(config, files, points, false, 3);
+		Assert.assertEquals(points.size(), batch.results.size());
+
+		RoutingContext ctx = new RoutePlannerFrontEnd().buildRoutingContext(config, null, files,
+				RouteCalculationMode.NORMAL);
+		List<BinaryMapIndexReader> list = Arrays.asList(files);
+		AddressStreetCache cache = new AddressStreetCache();
+		for (int i = 0; i < points.size(); i++) {
+			LatLon l = points.get(i);
+			List<GeocodingResult> expected = gu.sortGeocodingResults(list,
+					gu.reverseGeocodingSearch(ctx, l.getLatitude(), l.getLongitude(), false));
+			List<GeocodingResult> cached = gu.sortGeocodingResults(list,
+					gu.reverseGeocodingSearch(ctx, l.getLatitude(), l.getLongitude(), false), cache);
+			Assert.assertEquals(l.toString(), expected.toString(), cached.toString());
+			Assert.assertEquals(l.toString(), expected.toString(), batch.results.get(i).toString());
+		}
+	}
+}
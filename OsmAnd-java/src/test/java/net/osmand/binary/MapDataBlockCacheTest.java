@@ -0,0 +1,139 @@
+package net.osmand.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import gnu.trove.list.array.TIntArrayList;
+import net.osmand.binary.BinaryMapIndexReader.MapIndex;
+import net.osmand.binary.BinaryMapIndexReader.MapRoot;
+import net.osmand.binary.BinaryMapIndexReader.SearchFilter;
+
+public class MapDataBlockCacheTest {
+
+	private static final File FILE = new File("Test.obf");
+
+	private final ObfTestFiles obfFiles = new ObfTestFiles();
+
+	@After
+	public void tearDown() throws IOException {
+		obfFiles.close();
+	}
+
+	@Test
+	public void testHitsAndMisses() {
+		MapDataBlockCache cache = new MapDataBlockCache(1 << 20);
+		Assert.assertNull(cache.get(FILE, 100, 13));
+		cache.put(FILE, 100, 13, createObjects(10, 20));
+		MapDataBlockCache.MapDataBlock block = cache.get(FILE, 100, 13);
+		Assert.assertNotNull(block);
+		Assert.assertEquals(10, block.getObjects().size());
+		Assert.assertNull(cache.get(FILE, 100, 15));
+		Assert.assertNull(cache.get(new File("Other.obf"), 100, 13));
+		Assert.assertEquals(1, cache.getHits());
+		Assert.assertEquals(3, cache.getMisses());
+	}
+
+	@Test
+	public void testEvictionBySize() {
+		MapDataBlockCache cache = new MapDataBlockCache(1 << 20);
+		long blockSize = cache.put(FILE, 0, 13, createObjects(100, 100)).sizeBytes;
+		cache = new MapDataBlockCache(blockSize * 3);
+		for (int i = 0; i < 3; i++) {
+			cache.put(FILE, i, 13, createObjects(100, 100));
+		}
+		// access first block, so the second one is least recently used
+		Assert.assertNotNull(cache.get(FILE, 0, 13));
+		cache.put(FILE, 3, 13, createObjects(100, 100));
+		Assert.assertEquals(1, cache.getEvictions());
+		Assert.assertEquals(3, cache.getBlocksCount());
+		Assert.assertNull(cache.get(FILE, 1, 13));
+		Assert.assertNotNull(cache.get(FILE, 0, 13));
+		Assert.assertTrue(cache.getSizeBytes() <= cache.getMaxSizeBytes());
+	}
+
+	@Test
+	public void testObjectBbox() {
+		MapDataBlockCache cache = new MapDataBlockCache(1 << 20);
+		MapDataBlockCache.MapDataBlock block = cache.put(FILE, 0, 13, createObjects(2, 4));
+		Assert.assertTrue(block.intersects(0, 0, 0, 10, 10));
+		Assert.assertFalse(block.intersects(0, 1000, 1000, 2000, 2000));
+		Assert.assertTrue(block.intersects(1, 1000, 1000, 2000, 2000));
+	}
+
+	@Test
+	public void testSearchAsWithoutCache() throws IOException {
+		BinaryMapIndexReader reader = obfFiles.openResources().find(new ObfTestFiles.ReaderFilter() {
+			@Override
+			public boolean accept(BinaryMapIndexReader r) {
+				return r.containsMapData();
+			}
+		});
+		Assume.assumeTrue("Test obf with map data is not present", reader != null);
+		BinaryMapIndexReader cached = obfFiles.open(reader.getFile());
+		MapDataBlockCache cache = new MapDataBlockCache(64 << 20);
+		cached.setMapDataBlockCache(cache);
+		SearchFilter evenTypes = new SearchFilter() {
+			@Override
+			public boolean accept(TIntArrayList types, MapIndex index) {
+				return types.size() > 0 && types.get(0) % 2 == 0;
+			}
+		};
+		Random random = new Random(3);
+		int found = 0;
+		// second pass reads blocks from cache
+		for (int pass = 0; pass < 2; pass++) {
+			for (MapIndex index : reader.getMapIndexes()) {
+				for (MapRoot root : index.getRoots()) {
+					for (int i = 0; i < 5; i++) {
+						int w = (root.getRight() - root.getLeft()) / 8;
+						int h = (root.getBottom() - root.getTop()) / 8;
+						int left = root.getLeft() + random.nextInt(Math.max(1, w * 7));
+						int top = root.getTop() + random.nextInt(Math.max(1, h * 7));
+						SearchFilter filter = i % 2 == 0 ? null : evenTypes;
+						String msg = root.getMinZoom() + " " + left + " " + top + " " + (filter != null);
+						List<String> expected = search(reader, left, top, w, h, root.getMinZoom(), filter);
+						Assert.assertEquals(msg, expected, search(cached, left, top, w, h, root.getMinZoom(), filter));
+						found += expected.size();
+					}
+				}
+			}
+		}
+		Assert.assertTrue(found > 0);
+		Assert.assertTrue(cache.getBlocksCount() > 0);
+		Assert.assertTrue(cache.getHits() > 0);
+	}
+
+	private List<String> search(BinaryMapIndexReader r, int left, int top, int w, int h, int zoom, SearchFilter filter)
+			throws IOException {
+		List<String> res = new ArrayList<>();
+		for (BinaryMapDataObject o : r.searchMapIndex(BinaryMapIndexReader.buildSearchRequest(left, left + w, top,
+				top + h, zoom, filter))) {
+			res.add(o.getId() + " " + Arrays.toString(o.getTypes()) + " " + o.getPointsLength());
+		}
+		Collections.sort(res);
+		return res;
+	}
+
+	private static List<BinaryMapDataObject> createObjects(int count, int points) {
+		List<BinaryMapDataObject> objects = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			int[] coordinates = new int[points * 2];
+			for (int k = 0; k < coordinates.length; k++) {
+				coordinates[k] = i * 1000 + k;
+			}
+			objects.add(new BinaryMapDataObject(i, coordinates, new int[0][0], 0, false,
+					new int[] { 1 }, new int[0], 0, 0));
+		}
+		return objects;
+	}
+}
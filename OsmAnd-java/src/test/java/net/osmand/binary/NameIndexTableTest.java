@@ -0,0 +1,135 @@
+package net.osmand.binary;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.osmand.Collator;
+import net.osmand.CollatorStringMatcher;
+import net.osmand.OsmAndCollator;
+
+public class NameIndexTableTest {
+
+	@Test
+	public void testSearch() {
+		NameIndexTable table = createTable();
+		Assert.assertArrayEquals(new int[] { 1 }, search(table, "berl").get(0));
+		Assert.assertArrayEquals(new int[] { 10, 1, 2 }, search(table, "be").get(0));
+		Assert.assertArrayEquals(new int[] {}, search(table, "bex").get(0));
+		Assert.assertArrayEquals(new int[] { 3 }, search(table, "Paris").get(0));
+		List<int[]> res = search(table, "bern", "par");
+		Assert.assertArrayEquals(new int[] { 2 }, res.get(0));
+		Assert.assertArrayEquals(new int[] { 3 }, res.get(1));
+		Assert.assertArrayEquals(new int[] {}, search(table, "rome").get(0));
+	}
+
+	@Test
+	public void testStoredFile() throws Exception {
+		File obf = File.createTempFile("names", ".obf");
+		File f = new File(obf.getParentFile(), obf.getName() + NameIndexTable.EXT);
+		try {
+			TLongObjectHashMap<NameIndexTable> tables = new TLongObjectHashMap<>();
+			tables.put(1024, createTable());
+			NameIndexTable.writeFile(f, obf, tables);
+			TLongObjectHashMap<NameIndexTable> read = NameIndexTable.readFile(f, obf);
+			Assert.assertNotNull(read);
+			NameIndexTable table = read.get(1024);
+			Assert.assertEquals(createTable().getSize(), table.getSize());
+			Assert.assertArrayEquals(new int[] { 10, 1, 2 }, search(table, "be").get(0));
+
+			Assert.assertTrue(obf.setLastModified(obf.lastModified() - 10000));
+			Assert.assertNull(NameIndexTable.readFile(f, obf));
+		} finally {
+			f.delete();
+			obf.delete();
+		}
+	}
+
+	@Test
+	public void testSameAsLinearSearch() {
+		String[] parts = { "a", "b", "ab", "ä", "Be", "ss", "ß", "-", " ", "o", "ö", "1", "x" };
+		Random random = new Random(11);
+		NameIndexTable table = new NameIndexTable();
+		addRandomLevel(table, parts, random, 0);
+		boolean useKeys = CollatorStringMatcher.USE_COLLATION_KEYS;
+		try {
+			for (int i = 0; i < 500; i++) {
+				String[] queries = new String[1 + random.nextInt(2)];
+				for (int k = 0; k < queries.length; k++) {
+					queries[k] = randomName(parts, random, 1 + random.nextInt(4));
+				}
+				CollatorStringMatcher.USE_COLLATION_KEYS = false;
+				List<int[]> linear = search(table, queries);
+				CollatorStringMatcher.USE_COLLATION_KEYS = true;
+				List<int[]> indexed = search(table, queries);
+				for (int k = 0; k < queries.length; k++) {
+					Assert.assertArrayEquals(Arrays.toString(queries), linear.get(k), indexed.get(k));
+				}
+			}
+		} finally {
+			CollatorStringMatcher.USE_COLLATION_KEYS = useKeys;
+		}
+	}
+
+	private void addRandomLevel(NameIndexTable table, String[] parts, Random random, int depth) {
+		int keys = 2 + random.nextInt(depth == 0 ? 30 : 6);
+		for (int i = 0; i < keys; i++) {
+			table.addKey(randomName(parts, random, 1 + random.nextInt(2)));
+			for (int v = random.nextInt(3); v > 0; v--) {
+				table.addValue(random.nextInt(1000));
+			}
+			if (depth < 2 && random.nextInt(3) == 0) {
+				int sub = table.startSubtable();
+				addRandomLevel(table, parts, random, depth + 1);
+				table.endSubtable(sub);
+			}
+		}
+	}
+
+	private String randomName(String[] parts, Random random, int len) {
+		StringBuilder b = new StringBuilder();
+		for (int i = 0; i < len; i++) {
+			b.append(parts[random.nextInt(parts.length)]);
+		}
+		return b.toString();
+	}
+
+	// ber (10) -> [berlin (1), bern (2)], paris (3), subtable keys are suffixes of parent key
+	private NameIndexTable createTable() {
+		NameIndexTable table = new NameIndexTable();
+		table.addKey("ber");
+		table.addValue(10);
+		int sub = table.startSubtable();
+		table.addKey("lin");
+		table.addValue(1);
+		table.addKey("n");
+		table.addValue(2);
+		table.endSubtable(sub);
+		table.addKey("paris");
+		table.addValue(3);
+		return table;
+	}
+
+	private List<int[]> search(NameIndexTable table, String... queries) {
+		Collator collator = OsmAndCollator.primaryCollator();
+		List<TIntArrayList> offsets = new ArrayList<>();
+		TIntArrayList chars = new TIntArrayList();
+		for (int i = 0; i < queries.length; i++) {
+			offsets.add(new TIntArrayList());
+			chars.add(0);
+		}
+		table.search(collator, Arrays.asList(queries), offsets, chars);
+		List<int[]> res = new ArrayList<>();
+		for (TIntArrayList l : offsets) {
+			res.add(l.toArray());
+		}
+		return res;
+	}
+}
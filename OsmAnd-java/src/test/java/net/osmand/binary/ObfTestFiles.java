@@ -0,0 +1,123 @@
+package net.osmand.binary;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.protobuf.CodedOutputStream;
+
+import net.osmand.osm.MapPoiTypes;
+
+/**
+ * Readers of obf files opened by a test and closed after it. Test resources are collected by
+ * collectTestResources task, tests which need them are skipped when files are not present.
+ */
+public class ObfTestFiles {
+
+	public static final String RESOURCES_PATH = "src/test/resources/";
+	public static final String ROUTING_RESOURCES_PATH = "src/test/resources/routing/";
+	public static final String SEARCH_RESOURCES_PATH = "src/test/resources/search/";
+
+	public interface ReaderFilter {
+
+		boolean accept(BinaryMapIndexReader r);
+	}
+
+	public static final ReaderFilter ROUTE_DATA = new ReaderFilter() {
+		@Override
+		public boolean accept(BinaryMapIndexReader r) {
+			return r.containsRouteData();
+		}
+	};
+
+	private final List<BinaryMapIndexReader> readers = new ArrayList<>();
+
+	/**
+	 * Opens obf files of test resources and routing test resources
+	 */
+	public ObfTestFiles openResources() throws IOException {
+		return openResources(RESOURCES_PATH, ROUTING_RESOURCES_PATH);
+	}
+
+	/**
+	 * Opens obf files of directories (sorted by name in each directory)
+	 */
+	public ObfTestFiles openResources(String... dirs) throws IOException {
+		for (String dir : dirs) {
+			File[] files = new File(dir).listFiles();
+			if (files == null) {
+				continue;
+			}
+			Arrays.sort(files);
+			for (File f : files) {
+				if (f.getName().endsWith(".obf")) {
+					open(f);
+				}
+			}
+		}
+		return this;
+	}
+
+	public BinaryMapIndexReader open(File f) throws IOException {
+		BinaryMapIndexReader r = new BinaryMapIndexReader(new RandomAccessFile(f, "r"), f);
+		readers.add(r);
+		return r;
+	}
+
+	/**
+	 * First opened reader accepted by filter or null
+	 */
+	public BinaryMapIndexReader find(ReaderFilter filter) {
+		for (BinaryMapIndexReader r : readers) {
+			if (filter.accept(r)) {
+				return r;
+			}
+		}
+		return null;
+	}
+
+	public List<BinaryMapIndexReader> findAll(ReaderFilter filter) {
+		List<BinaryMapIndexReader> res = new ArrayList<>();
+		for (BinaryMapIndexReader r : readers) {
+			if (filter.accept(r)) {
+				res.add(r);
+			}
+		}
+		return res;
+	}
+
+	public void close() throws IOException {
+		for (BinaryMapIndexReader r : readers) {
+			r.close();
+		}
+		readers.clear();
+	}
+
+	/**
+	 * Readers load default poi types (poi_types.xml is collected by collectTestResources task)
+	 */
+	public static boolean isPoiTypesPresent() {
+		return MapPoiTypes.class.getResource("poi_types.xml") != null;
+	}
+
+	/**
+	 * Writes obf without sections (header only), so readers could be created without test resources
+	 */
+	public static File writeEmptyObf(File f) throws IOException {
+		FileOutputStream fous = new FileOutputStream(f);
+		try {
+			CodedOutputStream cos = CodedOutputStream.newInstance(fous);
+			cos.writeUInt32(OsmandOdb.OsmAndStructure.VERSION_FIELD_NUMBER, 2);
+			cos.writeInt64(OsmandOdb.OsmAndStructure.DATECREATED_FIELD_NUMBER, 1000);
+			cos.writeUInt32(OsmandOdb.OsmAndStructure.VERSIONCONFIRM_FIELD_NUMBER, 2);
+			cos.flush();
+		} finally {
+			fous.close();
+		}
+		return f;
+	}
+}
@@ -0,0 +1,82 @@
+package net.osmand.binary;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.router.RouteConditionalHelper;
+
+public class RouteDataObjectTest {
+
+	private RouteRegion region;
+
+	@Before
+	public void setUp() {
+		region = new RouteRegion();
+		region.initRouteEncodingRule(0, "highway", "primary");
+		region.initRouteEncodingRule(1, "oneway", "yes");
+		region.initRouteEncodingRule(2, "maxspeed", "50");
+		region.initRouteEncodingRule(3, "maxspeed", "30");
+		region.initRouteEncodingRule(4, "highway", "traffic_signals");
+		region.initRouteEncodingRule(5, "barrier", "gate");
+	}
+
+	@Test
+	public void testInternTypes() {
+		RouteDataObject a = createObject(new int[] { 0, 1, 2 }, new int[][] { null, { 4 }, { 5 } });
+		RouteDataObject b = createObject(new int[] { 0, 1, 2 }, new int[][] { { 5 } });
+		int[] types = a.types;
+		// not interned objects have no id, getter doesn't change them
+		Assert.assertEquals(-1, a.getTypesCombinationId());
+		Assert.assertEquals(-1, a.getPointTypesCombinationId(1));
+		Assert.assertSame(types, a.types);
+
+		a.internTypes();
+		b.internTypes();
+		Assert.assertTrue(a.getTypesCombinationId() >= 0);
+		Assert.assertEquals(a.getTypesCombinationId(), b.getTypesCombinationId());
+		Assert.assertSame(a.types, b.types);
+		Assert.assertEquals(-1, a.getPointTypesCombinationId(0));
+		Assert.assertEquals(a.getPointTypesCombinationId(2), b.getPointTypesCombinationId(0));
+		Assert.assertNotEquals(a.getPointTypesCombinationId(1), a.getPointTypesCombinationId(2));
+		Assert.assertNotEquals(a.getTypesCombinationId(), a.getPointTypesCombinationId(1));
+
+		// copy shares interned types
+		RouteDataObject copy = new RouteDataObject(a);
+		Assert.assertEquals(a.getTypesCombinationId(), copy.getTypesCombinationId());
+
+		// point types ids are moved with inserted point
+		int signals = a.getPointTypesCombinationId(1);
+		a.insert(1, 5, 5);
+		Assert.assertEquals(-1, a.getPointTypesCombinationId(1));
+		Assert.assertEquals(signals, a.getPointTypesCombinationId(2));
+	}
+
+	@Test
+	public void testReplacedTypesNotShared() {
+		RouteDataObject a = createObject(new int[] { 0, 1, 2 }, null);
+		RouteDataObject b = createObject(new int[] { 0, 1, 2 }, null);
+		a.internTypes();
+		b.internTypes();
+		int id = b.getTypesCombinationId();
+
+		new RouteConditionalHelper().updateTypesByTagRuleId(a, "maxspeed", 3);
+		Assert.assertArrayEquals(new int[] { 0, 1, 3 }, a.types);
+		Assert.assertArrayEquals(new int[] { 0, 1, 2 }, b.types);
+		// replaced types are not interned until internTypes is called
+		Assert.assertEquals(-1, a.getTypesCombinationId());
+		Assert.assertEquals(id, b.getTypesCombinationId());
+		a.internTypes();
+		Assert.assertNotEquals(id, a.getTypesCombinationId());
+	}
+
+	private RouteDataObject createObject(int[] types, int[][] pointTypes) {
+		RouteDataObject o = new RouteDataObject(region);
+		o.types = types;
+		o.pointsX = new int[] { 0, 10, 20 };
+		o.pointsY = new int[] { 0, 10, 20 };
+		o.pointTypes = pointTypes;
+		return o;
+	}
+}
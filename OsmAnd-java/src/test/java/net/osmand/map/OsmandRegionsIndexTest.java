@@ -0,0 +1,149 @@
+package net.osmand.map;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapDataObject;
+import net.osmand.data.LatLon;
+import net.osmand.util.Algorithms;
+import net.osmand.util.MapUtils;
+
+public class OsmandRegionsIndexTest {
+
+	private static final int AREA = 1 << 20;
+
+	@Test
+	public void testSameAsPolygonCheck() throws InterruptedException {
+		Random rnd = new Random(7);
+		List<BinaryMapDataObject> polygons = new ArrayList<>();
+		for (int i = 0; i < 300; i++) {
+			polygons.add(createPolygon(rnd, i));
+		}
+		OsmandRegionsIndex index = new OsmandRegionsIndex(polygons);
+		Assert.assertEquals(polygons.size(), index.getPolygonsCount());
+		int[] xs = new int[5000];
+		int[] ys = new int[xs.length];
+		for (int k = 0; k < xs.length; k++) {
+			xs[k] = rnd.nextInt(AREA);
+			ys[k] = rnd.nextInt(AREA);
+			Set<BinaryMapDataObject> expected = identitySet(null);
+			for (BinaryMapDataObject o : polygons) {
+				if (OsmandRegions.contain(o, xs[k], ys[k])) {
+					expected.add(o);
+				}
+			}
+			Assert.assertEquals(expected, identitySet(index.query(xs[k], ys[k])));
+
+			int lx = xs[k], ty = ys[k], rx = lx + rnd.nextInt(AREA / 20), by = ty + rnd.nextInt(AREA / 20);
+			Set<BinaryMapDataObject> intersected = identitySet(null);
+			for (BinaryMapDataObject o : polygons) {
+				if (OsmandRegions.intersect(o, lx, ty, rx, by)) {
+					intersected.add(o);
+				}
+			}
+			Assert.assertEquals(intersected, identitySet(index.queryIntersecting(lx, ty, rx, by)));
+		}
+		int[] classified = index.classify(xs, ys, 4);
+		for (int k = 0; k < xs.length; k++) {
+			BinaryMapDataObject smallest = null;
+			for (BinaryMapDataObject o : polygons) {
+				if (OsmandRegions.contain(o, xs[k], ys[k])
+						&& (smallest == null || OsmandRegions.getArea(o) < OsmandRegions.getArea(smallest))) {
+					smallest = o;
+				}
+			}
+			Assert.assertSame(smallest, classified[k] == -1 ? null : index.getPolygon(classified[k]));
+		}
+	}
+
+	@Test
+	public void testSameAsCachedCountries() throws IOException {
+		InputStream is = OsmandRegions.class.getResourceAsStream("regions.ocbf");
+		Assume.assumeTrue("regions.ocbf is not present", is != null);
+		File f = File.createTempFile("regions", ".ocbf");
+		f.deleteOnExit();
+		FileOutputStream fous = new FileOutputStream(f);
+		Algorithms.streamCopy(is, fous);
+		fous.close();
+		is.close();
+		OsmandRegions cached = new OsmandRegions();
+		cached.prepareFile(f.getAbsolutePath());
+		Map<String, LinkedList<BinaryMapDataObject>> countries = cached.cacheAllCountries();
+		OsmandRegions indexed = new OsmandRegions();
+		indexed.prepareFile(f.getAbsolutePath());
+		indexed.buildRegionsIndex();
+
+		// points around regions of many polygons (islands, exclaves)
+		Random rnd = new Random(5);
+		int checked = 0;
+		for (List<BinaryMapDataObject> polygons : countries.values()) {
+			if (polygons.size() < 2) {
+				continue;
+			}
+			for (BinaryMapDataObject o : polygons) {
+				for (int k = 0; k < 5; k++) {
+					int p = rnd.nextInt(o.getPointsLength());
+					int x = o.getPoint31XTile(p) + rnd.nextInt(1 << 16) - (1 << 15);
+					int y = o.getPoint31YTile(p) + rnd.nextInt(1 << 16) - (1 << 15);
+					Assert.assertEquals(downloadNames(cached, cached.query(x, y)), downloadNames(indexed, indexed.query(x, y)));
+					int d = rnd.nextInt(1 << 18);
+					Assert.assertEquals(downloadNames(cached, cached.query(x - d, x + d, y - d, y + d, false)),
+							downloadNames(indexed, indexed.query(x - d, x + d, y - d, y + d, false)));
+					LatLon l = new LatLon(MapUtils.get31LatitudeY(y), MapUtils.get31LongitudeX(x));
+					Assert.assertEquals(cached.getCountryName(l), indexed.getCountryName(l));
+					checked++;
+				}
+			}
+		}
+		Assert.assertTrue(checked > 0);
+	}
+
+	private Set<String> downloadNames(OsmandRegions or, List<BinaryMapDataObject> objects) {
+		Set<String> set = new HashSet<>();
+		for (BinaryMapDataObject o : objects) {
+			set.add(or.getDownloadName(o));
+		}
+		return set;
+	}
+
+	private Set<BinaryMapDataObject> identitySet(List<BinaryMapDataObject> objects) {
+		Set<BinaryMapDataObject> set = Collections.newSetFromMap(new IdentityHashMap<BinaryMapDataObject, Boolean>());
+		if (objects != null) {
+			set.addAll(objects);
+		}
+		return set;
+	}
+
+	private BinaryMapDataObject createPolygon(Random rnd, int id) {
+		// closed star shaped polygon
+		int cx = rnd.nextInt(AREA);
+		int cy = rnd.nextInt(AREA);
+		int radius = 1000 + rnd.nextInt(AREA / 8);
+		int n = 3 + rnd.nextInt(200);
+		int[] coordinates = new int[(n + 1) * 2];
+		for (int i = 0; i < n; i++) {
+			double angle = 2 * Math.PI * i / n;
+			double r = radius * (0.3 + 0.7 * rnd.nextDouble());
+			coordinates[i * 2] = cx + (int) (r * Math.cos(angle));
+			coordinates[i * 2 + 1] = cy + (int) (r * Math.sin(angle));
+		}
+		coordinates[n * 2] = coordinates[0];
+		coordinates[n * 2 + 1] = coordinates[1];
+		return new BinaryMapDataObject(id, coordinates, null, 0, true, new int[0], null, 0, 0);
+	}
+}
@@ -0,0 +1,130 @@
+package net.osmand.render;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserException;
+
+import gnu.trove.list.array.TIntArrayList;
+import net.osmand.binary.BinaryMapDataObject;
+import net.osmand.binary.BinaryMapIndexReader.MapIndex;
+
+public class RenderingRuleSearchCacheTest {
+
+	private static final String[][] TAG_VALUES = { { "highway", "primary" }, { "highway", "secondary" },
+			{ "highway", "footway" }, { "railway", "rail" }, { "waterway", "river" }, { "waterway", "stream" } };
+	private static final String[][] ADDITIONAL = { { "service", "yard" }, { "service", "siding" },
+			{ "bridge", "yes" }, { "surface", "asphalt" }, { "lanes", "2" } };
+
+	private RenderingRulesStorage storage;
+	private MapIndex mapIndex;
+
+	@Before
+	public void setUp() throws XmlPullParserException, IOException {
+		storage = new RenderingRulesStorage("test", null);
+		storage.parseRulesFromXmlInputStream(
+				new ByteArrayInputStream(RenderingRulesCompiledTest.STYLE.getBytes(StandardCharsets.UTF_8)), null, false);
+		mapIndex = new MapIndex();
+		int id = 1;
+		for (String[] tv : TAG_VALUES) {
+			mapIndex.initMapEncodingRule(0, id++, tv[0], tv[1]);
+		}
+		for (String[] tv : ADDITIONAL) {
+			mapIndex.initMapEncodingRule(0, id++, tv[0], tv[1]);
+		}
+	}
+
+	@Test
+	public void testSameResults() {
+		RenderingRuleSearchRequest plain = RenderingRuleSearchRequest.initWithCustomProperties(storage, 0, null);
+		RenderingRuleSearchRequest cached = RenderingRuleSearchRequest.initWithCustomProperties(storage, 0, null);
+		RenderingRuleSearchCache cache = new RenderingRuleSearchCache(64);
+		cached.setSearchCache(cache);
+
+		Random random = new Random(11);
+		for (int i = 0; i < 20000; i++) {
+			BinaryMapDataObject obj = createObject(random);
+			String[] tv = TAG_VALUES[random.nextInt(TAG_VALUES.length)];
+			int zoom = 5 + random.nextInt(14);
+			int layer = random.nextInt(3) - 1;
+			// without clear state values of previous search are kept
+			boolean clear = random.nextInt(4) != 0;
+			for (RenderingRuleSearchRequest req : new RenderingRuleSearchRequest[] { plain, cached }) {
+				if (clear) {
+					req.setInitialTagValueZoom(tv[0], tv[1], zoom, obj);
+				}
+				req.setTagValueZoomLayer(tv[0], tv[1], zoom, layer, obj);
+				req.search(RenderingRulesStorage.LINE_RULES);
+			}
+			Assert.assertEquals(plain.isFound(), cached.isFound());
+			for (RenderingRuleProperty p : storage.PROPS.getPoperties()) {
+				String msg = tv[0] + "=" + tv[1] + " zoom " + zoom + " " + p.getAttrName();
+				Assert.assertEquals(msg, plain.getIntPropertyValue(p), cached.getIntPropertyValue(p));
+				Assert.assertEquals(msg, plain.getFloatPropertyValue(p), cached.getFloatPropertyValue(p), 0);
+			}
+		}
+		Assert.assertTrue(cache.size() <= 64);
+		Assert.assertTrue(cache.getEvictions() > 0);
+	}
+
+	@Test
+	public void testTileHitRatio() {
+		RenderingRuleSearchRequest req = RenderingRuleSearchRequest.initWithCustomProperties(storage, 15, null);
+		RenderingRuleSearchCache cache = new RenderingRuleSearchCache();
+		req.setSearchCache(cache);
+		Random random = new Random(13);
+		// objects of one tile: same zoom, few type combinations
+		for (int i = 0; i < 5000; i++) {
+			String[] tv = TAG_VALUES[random.nextInt(TAG_VALUES.length)];
+			req.setInitialTagValueZoom(tv[0], tv[1], 15, createObject(random));
+			req.setIntFilter(req.ALL.R_LAYER, 0);
+			req.search(RenderingRulesStorage.LINE_RULES);
+		}
+		Assert.assertTrue(cache.toString(), cache.getHitRatio() > 0.9);
+	}
+
+	@Test
+	public void testSavedStateChangeClearsCache() {
+		RenderingRuleSearchRequest req = RenderingRuleSearchRequest.initWithCustomProperties(storage, 0, null);
+		RenderingRuleSearchCache cache = new RenderingRuleSearchCache();
+		req.setSearchCache(cache);
+		req.setInitialTagValueZoom("highway", "primary", 15, null);
+		Assert.assertTrue(req.search(RenderingRulesStorage.LINE_RULES));
+		int dayColor = req.getIntPropertyValue(storage.PROPS.R_COLOR);
+		req.setInitialTagValueZoom("highway", "primary", 15, null);
+		req.search(RenderingRulesStorage.LINE_RULES);
+		Assert.assertEquals(1, cache.getHits());
+		Assert.assertEquals(1, cache.size());
+
+		req.clearState();
+		req.setBooleanFilter(storage.PROPS.R_NIGHT_MODE, true);
+		req.saveState();
+		Assert.assertEquals(0, cache.size());
+		req.setInitialTagValueZoom("highway", "primary", 15, null);
+		Assert.assertTrue(req.search(RenderingRulesStorage.LINE_RULES));
+		Assert.assertNotEquals(dayColor, req.getIntPropertyValue(storage.PROPS.R_COLOR));
+
+		// text rules are not cached
+		req.setInitialTagValueZoom("highway", "primary", 15, null);
+		req.search(RenderingRulesStorage.TEXT_RULES);
+		Assert.assertEquals(1, cache.getSkipped());
+	}
+
+	private BinaryMapDataObject createObject(Random random) {
+		TIntArrayList additional = new TIntArrayList();
+		for (int k = 0; k < ADDITIONAL.length; k++) {
+			if (random.nextInt(3) == 0) {
+				additional.add(mapIndex.getRule(ADDITIONAL[k][0], ADDITIONAL[k][1]));
+			}
+		}
+		BinaryMapDataObject obj = new BinaryMapDataObject(1, new int[] { 0, 0, 10, 10 }, null, 2, false,
+				new int[] { 1 }, additional.toArray(), 0, 0);
+		obj.setMapIndex(mapIndex);
+		return obj;
+	}
+}
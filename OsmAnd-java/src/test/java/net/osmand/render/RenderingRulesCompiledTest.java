@@ -0,0 +1,135 @@
+package net.osmand.render;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserException;
+
+public class RenderingRulesCompiledTest {
+
+	static final String STYLE = "<renderingStyle name=\"test\" depends=\"\" version=\"1\">\n"
+			+ " <renderingProperty attr=\"appMode\" name=\"Mode\" type=\"string\" possibleValues=\"browse map,car,bicycle\"/>\n"
+			+ " <renderingProperty attr=\"hideFootways\" name=\"Hide footways\" type=\"boolean\"/>\n"
+			+ " <renderingAttribute name=\"roadColor\">\n"
+			+ "  <case nightMode=\"true\" attrColorValue=\"#333333\"/>\n"
+			+ "  <case appMode=\"car\" attrColorValue=\"#ff8800\"/>\n"
+			+ "  <case attrColorValue=\"#ffffff\"/>\n"
+			+ " </renderingAttribute>\n"
+			+ " <renderingAttribute name=\"roadWidth\">\n"
+			+ "  <case maxzoom=\"12\" attrIntValue=\"2\"/>\n"
+			+ "  <case attrIntValue=\"5\"/>\n"
+			+ " </renderingAttribute>\n"
+			+ " <line>\n"
+			+ "  <switch minzoom=\"8\">\n"
+			+ "   <case tag=\"highway\" value=\"primary\" color=\"$roadColor\" strokeWidth=\"$roadWidth\"/>\n"
+			+ "   <case tag=\"highway\" value=\"secondary\" minzoom=\"10\" color=\"#00ff00\" strokeWidth=\"2.5\"/>\n"
+			+ "   <case tag=\"highway\" value=\"footway\" disable=\"true\" hideFootways=\"true\"/>\n"
+			+ "   <case tag=\"highway\" value=\"footway\" minzoom=\"14\" color=\"#aa0000\" strokeWidth=\"1\"/>\n"
+			+ "   <case tag=\"railway\" value=\"rail\" layer=\"-1\" color=\"#555555\" strokeWidth=\"1.5\"/>\n"
+			+ "   <case tag=\"railway\" value=\"rail\" additional=\"service=yard\" maxzoom=\"15\" color=\"#999999\"/>\n"
+			+ "   <case tag=\"railway\" value=\"rail\" additional=\"bridge\" color=\"#111111\"/>\n"
+			+ "   <case tag=\"railway\" value=\"rail\" color=\"#222222\" strokeWidth=\"2\"/>\n"
+			+ "   <apply nightMode=\"true\" strokeWidth_2=\"1\"/>\n"
+			+ "  </switch>\n"
+			+ "  <switch tag=\"highway\" value=\"\">\n"
+			+ "   <case minzoom=\"15\" appMode=\"bicycle\" color=\"#0000ff\"/>\n"
+			+ "   <case minzoom=\"16\" color=\"#cccccc\" strokeWidth=\"0.5\"/>\n"
+			+ "  </switch>\n"
+			+ "  <group>\n"
+			+ "   <filter tag=\"waterway\" value=\"river\" color=\"#0000aa\">\n"
+			+ "    <filter maxzoom=\"10\" strokeWidth=\"1\"/>\n"
+			+ "    <filter nightMode=\"true\" strokeWidth=\"2\" color=\"#000055\"/>\n"
+			+ "    <groupFilter minzoom=\"12\" order=\"12\"/>\n"
+			+ "   </filter>\n"
+			+ "   <filter tag=\"waterway\" value=\"stream\" layer=\"1\" disable=\"true\"/>\n"
+			+ "   <filter tag=\"waterway\" value=\"stream\" minzoom=\"13\" color=\"#0000cc\" order=\"10\"/>\n"
+			+ "  </group>\n"
+			+ " </line>\n"
+			+ "</renderingStyle>\n";
+
+	private static final String[][] TAG_VALUES = { { "highway", "primary" }, { "highway", "secondary" },
+			{ "highway", "footway" }, { "highway", "track" }, { "railway", "rail" }, { "waterway", "river" },
+			{ "waterway", "stream" }, { "natural", "coastline" } };
+	private static final String[] ADDITIONAL = { "", "service=yard", "service=siding", "bridge=yes" };
+	private static final String[] APP_MODES = { "", "car", "bicycle" };
+
+	private RenderingRulesStorage storage;
+
+	@Before
+	public void setUp() throws XmlPullParserException, IOException {
+		storage = new RenderingRulesStorage("test", null);
+		storage.parseRulesFromXmlInputStream(new ByteArrayInputStream(STYLE.getBytes(StandardCharsets.UTF_8)),
+				null, false);
+	}
+
+	@Test
+	public void testSameResults() {
+		RenderingRulesCompiled compiledRules = storage.compileRules();
+		RenderingRuleSearchRequest tree = new RenderingRuleSearchRequest(storage);
+		tree.setCompiledRules(null);
+		RenderingRuleSearchRequest compiled = new RenderingRuleSearchRequest(storage);
+		Assert.assertSame(compiledRules, compiled.getCompiledRules());
+
+		Random random = new Random(7);
+		RenderingRuleProperty appMode = storage.PROPS.getCustomRule("appMode");
+		RenderingRuleProperty hideFootways = storage.PROPS.getCustomRule("hideFootways");
+		int found = 0;
+		for (int i = 0; i < 20000; i++) {
+			String[] tv = TAG_VALUES[random.nextInt(TAG_VALUES.length)];
+			int zoom = 5 + random.nextInt(14);
+			int layer = random.nextInt(3) - 1;
+			boolean night = random.nextBoolean();
+			String mode = APP_MODES[random.nextInt(APP_MODES.length)];
+			boolean hide = random.nextBoolean();
+			String additional = ADDITIONAL[random.nextInt(ADDITIONAL.length)];
+			for (RenderingRuleSearchRequest req : new RenderingRuleSearchRequest[] { tree, compiled }) {
+				req.clearState();
+				req.setTagValueZoomLayer(tv[0], tv[1], zoom, layer, null);
+				req.setBooleanFilter(storage.PROPS.R_NIGHT_MODE, night);
+				req.setStringFilter(appMode, mode);
+				req.setBooleanFilter(hideFootways, hide);
+				req.setStringFilter(storage.PROPS.R_ADDITIONAL, additional);
+				req.search(RenderingRulesStorage.LINE_RULES);
+			}
+			Assert.assertEquals(tree.isFound(), compiled.isFound());
+			for (RenderingRuleProperty p : storage.PROPS.getPoperties()) {
+				String msg = tv[0] + "=" + tv[1] + " zoom " + zoom + " " + p.getAttrName();
+				Assert.assertEquals(msg, tree.getIntPropertyValue(p), compiled.getIntPropertyValue(p));
+				Assert.assertEquals(msg, tree.getFloatPropertyValue(p), compiled.getFloatPropertyValue(p), 0);
+			}
+			if (tree.isFound()) {
+				found++;
+			}
+		}
+		Assert.assertTrue(found > 0);
+
+		for (RenderingRuleSearchRequest req : new RenderingRuleSearchRequest[] { tree, compiled }) {
+			req.clearState();
+			req.setStringFilter(appMode, "car");
+			req.searchRenderingAttribute("roadColor");
+		}
+		Assert.assertTrue(compiled.isFound());
+		Assert.assertEquals(tree.getIntPropertyValue(storage.PROPS.R_ATTR_COLOR_VALUE),
+				compiled.getIntPropertyValue(storage.PROPS.R_ATTR_COLOR_VALUE));
+	}
+
+	@Test
+	public void testCompiledRulesReset() throws XmlPullParserException, IOException {
+		RenderingRuleSearchRequest req = new RenderingRuleSearchRequest(storage);
+		RenderingRulesCompiled compiledRules = req.getCompiledRules();
+		Assert.assertNotNull(compiledRules);
+		Assert.assertSame(compiledRules, storage.getCompiledRules());
+		storage.parseRulesFromXmlInputStream(new ByteArrayInputStream(STYLE.getBytes(StandardCharsets.UTF_8)),
+				null, true);
+		// existing request searches recompiled rules
+		Assert.assertNotSame(compiledRules, req.getCompiledRules());
+		Assert.assertSame(storage.getCompiledRules(), req.getCompiledRules());
+		req.setCompiledRules(null);
+		Assert.assertNull(req.getCompiledRules());
+	}
+}
@@ -0,0 +1,163 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.ObfTestFiles;
+import net.osmand.data.LatLon;
+import net.osmand.router.BinaryRoutePlanner.FinalRouteSegment;
+import net.osmand.router.BinaryRoutePlanner.ParallelSearchState;
+import net.osmand.router.BinaryRoutePlanner.RouteSegment;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
+import net.osmand.router.RouteResultPreparation.RouteCalcResult;
+import net.osmand.router.RoutingConfiguration.RoutingMemoryLimits;
+
+public class BinaryRoutePlannerParallelTest {
+
+	private final ObfTestFiles obfFiles = new ObfTestFiles();
+	private BinaryMapIndexReader reader;
+
+	@Before
+	public void setUp() throws IOException {
+		reader = obfFiles.openResources().find(ObfTestFiles.ROUTE_DATA);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		obfFiles.close();
+	}
+
+	@Test
+	public void testBoundReached() {
+		ParallelSearchState state = new ParallelSearchState();
+		state.directTop = 50;
+		state.reverseTop = 60;
+		Assert.assertFalse(state.isBoundReached(true));
+		FinalRouteSegment first = finalSegment(100);
+		state.offer(first);
+		state.offer(finalSegment(120));
+		Assert.assertSame(first, state.finalSegment);
+		Assert.assertTrue(state.isBoundReached(true));
+		// A* costs estimate whole route, both queues should reach best route
+		Assert.assertFalse(state.isBoundReached(false));
+		state.directTop = 100;
+		Assert.assertFalse(state.isBoundReached(false));
+		state.reverseTop = 101;
+		Assert.assertTrue(state.isBoundReached(false));
+		FinalRouteSegment better = finalSegment(90);
+		state.offer(better);
+		Assert.assertSame(better, state.finalSegment);
+		Assert.assertEquals(90, state.bestCost, 0);
+	}
+
+	@Test
+	public void testConcurrentVisitedSegments() throws Exception {
+		final ConcurrentVisitedSegmentsMap map = new ConcurrentVisitedSegmentsMap(16);
+		final RouteSegment[] segments = new RouteSegment[4];
+		final int keys = 5000;
+		Thread[] threads = new Thread[segments.length];
+		final Throwable[] error = new Throwable[1];
+		for (int t = 0; t < threads.length; t++) {
+			final int thread = t;
+			segments[t] = new RouteSegment(null, t, t + 1);
+			threads[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						// each thread puts own keys and removes every third of them
+						for (long k = thread; k < keys * segments.length; k += segments.length) {
+							Assert.assertNull(map.put(k, segments[thread]));
+						}
+						for (long k = thread; k < keys * segments.length; k += segments.length * 3) {
+							Assert.assertSame(segments[thread], map.put(k, null));
+						}
+					} catch (Throwable e) {
+						error[0] = e;
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread t : threads) {
+			t.join();
+		}
+		Assert.assertNull(error[0]);
+		int expected = 0;
+		for (long k = 0; k < keys * segments.length; k++) {
+			boolean removed = (k / segments.length) % 3 == 0;
+			Assert.assertEquals(removed ? null : segments[(int) (k % segments.length)], map.get(k));
+			Assert.assertEquals(!removed, map.containsKey(k));
+			expected += removed ? 0 : 1;
+		}
+		Assert.assertEquals(expected, map.size());
+		map.clear();
+		Assert.assertEquals(0, map.size());
+		Assert.assertFalse(map.containsKey(1));
+	}
+
+	@Test
+	public void testParallelAsSequential() throws Exception {
+		Assume.assumeTrue("Test obf with route data is not present", reader != null);
+		RouteRegion reg = reader.getRoutingIndexes().get(0);
+		Random random = new Random(23);
+		BinaryMapIndexReader[] files = { reader };
+		RoutePlannerFrontEnd router = new RoutePlannerFrontEnd().disableHHRoutingConfig();
+		RoutingConfiguration config = RoutingConfiguration.getDefault().build("car", new RoutingMemoryLimits(
+				RoutingConfiguration.DEFAULT_MEMORY_LIMIT * 3, RoutingConfiguration.DEFAULT_NATIVE_MEMORY_LIMIT));
+		int compared = 0;
+		for (int i = 0; i < 10; i++) {
+			LatLon start = randomPoint(reg, random);
+			LatLon end = randomPoint(reg, random);
+			config.parallelBidirectionalSearch = false;
+			RouteCalcResult expected = router.searchRoute(
+					router.buildRoutingContext(config, null, files, RouteCalculationMode.NORMAL), start, end, null);
+			config.parallelBidirectionalSearch = true;
+			RouteCalcResult res = router.searchRoute(
+					router.buildRoutingContext(config, null, files, RouteCalculationMode.NORMAL), start, end, null);
+			String msg = start + " -> " + end;
+			Assert.assertEquals(msg, expected.isCorrect(), res.isCorrect());
+			if (expected.isCorrect()) {
+				Assert.assertEquals(msg, distance(expected), distance(res), 0.1);
+				Assert.assertEquals(msg, time(expected), time(res), 0.1);
+				compared++;
+			}
+		}
+		Assert.assertTrue(compared > 0);
+	}
+
+	private FinalRouteSegment finalSegment(float cost) {
+		FinalRouteSegment s = new FinalRouteSegment(null, 0, 1);
+		s.distanceFromStart = cost;
+		return s;
+	}
+
+	private LatLon randomPoint(RouteRegion reg, Random random) {
+		double lat = reg.getBottomLatitude() + random.nextDouble() * (reg.getTopLatitude() - reg.getBottomLatitude());
+		double lon = reg.getLeftLongitude() + random.nextDouble() * (reg.getRightLongitude() - reg.getLeftLongitude());
+		return new LatLon(lat, lon);
+	}
+
+	private double distance(RouteCalcResult res) {
+		double d = 0;
+		for (RouteSegmentResult s : res.getList()) {
+			d += s.getDistance();
+		}
+		return d;
+	}
+
+	private double time(RouteCalcResult res) {
+		double t = 0;
+		for (RouteSegmentResult s : res.getList()) {
+			t += s.getRoutingTime();
+		}
+		return t;
+	}
+}
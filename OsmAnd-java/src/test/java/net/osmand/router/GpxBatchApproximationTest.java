@@ -0,0 +1,229 @@
+package net.osmand.router;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import gnu.trove.list.array.TIntArrayList;
+import net.osmand.LocationsHolder;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.data.LatLon;
+import net.osmand.gpx.GPXFile;
+import net.osmand.gpx.GPXUtilities;
+import net.osmand.router.GpxBatchApproximation.Chunk;
+import net.osmand.router.GpxBatchApproximation.GpxBatchResult;
+import net.osmand.router.RoutePlannerFrontEnd.GpxPoint;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
+import net.osmand.router.RoutingConfiguration.RoutingMemoryLimits;
+import net.osmand.util.MapUtils;
+
+public class GpxBatchApproximationTest {
+
+	private static final double STEP = 10;
+
+	@Test
+	public void testShortTrackIsNotSplit() {
+		List<GpxPoint> track = new ArrayList<>();
+		LatLon l = new LatLon(52, 4);
+		for (int i = 0; i < 500; i++) {
+			l = add(track, l, 90);
+		}
+		TIntArrayList anchors = GpxBatchApproximation.findAnchors(track, 10000);
+		Assert.assertArrayEquals(new int[] { 0, track.size() - 1 }, anchors.toArray());
+	}
+
+	@Test
+	public void testAnchorsAvoidTurns() {
+		List<GpxPoint> track = new ArrayList<>();
+		TIntArrayList turns = new TIntArrayList();
+		LatLon l = new LatLon(52, 4);
+		double bearing = 90;
+		for (int i = 0; i < 4000; i++) {
+			// zigzag every 200 m
+			if (i % 20 == 0) {
+				bearing = bearing == 90 ? 0 : 90;
+				turns.add(i);
+			}
+			l = add(track, l, bearing);
+		}
+		double chunkDistance = 10000;
+		TIntArrayList anchors = GpxBatchApproximation.findAnchors(track, chunkDistance);
+		Assert.assertEquals(0, anchors.get(0));
+		Assert.assertEquals(track.size() - 1, anchors.get(anchors.size() - 1));
+		Assert.assertTrue(anchors.size() > 2);
+		for (int k = 1; k < anchors.size(); k++) {
+			double len = track.get(anchors.get(k)).cumDist - track.get(anchors.get(k - 1)).cumDist;
+			Assert.assertTrue(len > 0 && len <= chunkDistance * 1.25 + STEP);
+		}
+		for (int k = 1; k < anchors.size() - 1; k++) {
+			int a = anchors.get(k);
+			for (int t = 0; t < turns.size(); t++) {
+				Assert.assertTrue("Anchor " + a + " at turn", Math.abs(turns.get(t) - a) * STEP >= 50);
+			}
+		}
+	}
+
+	@Test
+	public void testJoinChunksAsSinglePass() {
+		RoutingConfiguration config = new RoutingConfiguration();
+		RoutingContext chunkCtx = new RoutePlannerFrontEnd().buildRoutingContext(config, null,
+				new BinaryMapIndexReader[0], RouteCalculationMode.NORMAL);
+		// chunk 0: points 0..5, chunk 1: points 5..9 (anchor 5), road 2 continues over anchor
+		GpxRouteApproximation c0 = new GpxRouteApproximation(chunkCtx);
+		c0.fullRoute.addAll(Arrays.asList(segment(1, 0, 3, 0), segment(2, 0, 2, -1), segment(3, 0, 1, 3)));
+		c0.finalPoints.addAll(Arrays.asList(finalPoint(0), finalPoint(3), finalPoint(5)));
+		GpxRouteApproximation c1 = new GpxRouteApproximation(chunkCtx);
+		c1.fullRoute.addAll(Arrays.asList(segment(3, 1, 4, 0), segment(4, 0, 2, 2), segment(5, 3, 1, -1)));
+		c1.finalPoints.addAll(Arrays.asList(finalPoint(0), finalPoint(2), finalPoint(4)));
+
+		GpxRouteApproximation single = new GpxRouteApproximation(chunkCtx);
+		single.fullRoute.addAll(Arrays.asList(segment(1, 0, 3, 0), segment(2, 0, 2, -1), segment(3, 0, 4, 3),
+				segment(4, 0, 2, 7), segment(5, 3, 1, -1)));
+		single.finalPoints.addAll(Arrays.asList(finalPoint(0), finalPoint(3), finalPoint(7), finalPoint(9)));
+		single.reconstructFinalPointsFromFullRoute();
+
+		GpxBatchApproximation batch = new GpxBatchApproximation(new RoutePlannerFrontEnd(), config,
+				new BinaryMapIndexReader[0], RouteCalculationMode.NORMAL, 1);
+		Chunk k0 = new Chunk(0, Collections.<GpxPoint>emptyList());
+		k0.result = c0;
+		Chunk k1 = new Chunk(5, Collections.<GpxPoint>emptyList());
+		k1.result = c1;
+		GpxRouteApproximation joined = batch.joinChunks(Arrays.asList(k0, k1));
+
+		Assert.assertEquals(describe(single), describe(joined));
+		Assert.assertNotSame(chunkCtx, joined.ctx);
+		Assert.assertNotNull(joined.ctx.tileCache);
+		Assert.assertNull(config.tileCache);
+	}
+
+	@Test
+	public void testResultReport() {
+		GpxBatchResult res = new GpxBatchResult(1, 125);
+		res.chunks = 2;
+		res.timeMs = 2000;
+		res.calculationTimeMs = 3500;
+		Locale def = Locale.getDefault();
+		try {
+			// report doesn't depend on decimal separator of default locale
+			Locale.setDefault(Locale.GERMANY);
+			Assert.assertEquals("Track 1: 125 points (2 chunks) in 2000 ms (62.5 points/s, 3500 ms calculation), "
+					+ "match rate 0.0%", res.toString());
+		} finally {
+			Locale.setDefault(def);
+		}
+	}
+
+	@Test
+	public void testBatchAsSinglePass() throws Exception {
+		String path = "src/test/resources/approximation/";
+		File json = new File(path, "test.json");
+		Assume.assumeTrue("Approximation test resources are not present", json.exists());
+		Reader reader = new InputStreamReader(new FileInputStream(json), "UTF-8");
+		JsonArray entries = new Gson().fromJson(reader, JsonArray.class);
+		reader.close();
+		JsonObject entry = null;
+		for (JsonElement e : entries) {
+			JsonObject o = e.getAsJsonObject();
+			if (!o.has("ignore") || !o.get("ignore").getAsBoolean()) {
+				entry = o;
+				break;
+			}
+		}
+		Assume.assumeTrue(entry != null);
+		File obf = new File(path, entry.get("obfFile").getAsString());
+		BinaryMapIndexReader[] files = { new BinaryMapIndexReader(new RandomAccessFile(obf, "r"), obf) };
+		GPXFile gpxFile = GPXUtilities.loadGPXFile(new File(path, entry.get("gpxFile").getAsString()));
+		List<GPXUtilities.WptPt> waypoints = gpxFile.tracks.get(0).segments.get(0).points;
+		RoutingMemoryLimits limits = new RoutingMemoryLimits(RoutingConfiguration.DEFAULT_MEMORY_LIMIT * 8,
+				RoutingConfiguration.DEFAULT_NATIVE_MEMORY_LIMIT);
+		try {
+			RoutePlannerFrontEnd router = new RoutePlannerFrontEnd();
+			RoutingConfiguration config = RoutingConfiguration.getDefault().build("car", limits);
+			RoutingContext ctx = router.buildRoutingContext(config, null, files, RouteCalculationMode.NORMAL);
+			GpxRouteApproximation gctx = new GpxRouteApproximation(ctx);
+			List<GpxPoint> points = router.generateGpxPoints(gctx, new LocationsHolder(waypoints));
+			GpxRouteApproximation single = router.searchGpxRoute(gctx, points, null, false);
+
+			GpxBatchApproximation batch = new GpxBatchApproximation(router, config, files, RouteCalculationMode.NORMAL, 2);
+			batch.chunkDistance = 2000;
+			List<GpxPoint> track = router.generateGpxPoints(new GpxRouteApproximation(ctx), new LocationsHolder(waypoints));
+			GpxBatchResult res = batch.approximate(Collections.singletonList(track)).get(0);
+			Assert.assertNotNull(res.approximation);
+			for (int i = 1; i < res.approximation.finalPoints.size(); i++) {
+				Assert.assertTrue(res.approximation.finalPoints.get(i - 1).ind < res.approximation.finalPoints.get(i).ind);
+			}
+			double singleDist = distance(single), batchDist = distance(res.approximation);
+			Assert.assertEquals(singleDist, batchDist, singleDist * 0.05);
+		} finally {
+			files[0].close();
+		}
+	}
+
+	private double distance(GpxRouteApproximation gctx) {
+		double d = 0;
+		for (RouteSegmentResult r : gctx.collectFinalPointsAsRoute()) {
+			d += r.getDistance();
+		}
+		return d;
+	}
+
+	private String describe(GpxRouteApproximation gctx) {
+		StringBuilder b = new StringBuilder();
+		for (GpxPoint p : gctx.finalPoints) {
+			b.append(p.ind).append(':');
+			for (RouteSegmentResult r : p.routeToTarget) {
+				b.append(' ').append(r.getObject().getId()).append(' ').append(r.getStartPointIndex()).append('-')
+						.append(r.getEndPointIndex());
+			}
+			b.append('\n');
+		}
+		return b.toString();
+	}
+
+	private RouteSegmentResult segment(long id, int start, int end, int gpxIndex) {
+		RouteDataObject o = new RouteDataObject((RouteRegion) null);
+		o.id = id;
+		o.pointsX = new int[6];
+		o.pointsY = new int[6];
+		RouteSegmentResult r = new RouteSegmentResult(o, start, end);
+		r.setGpxPointIndex(gpxIndex);
+		return r;
+	}
+
+	private GpxPoint finalPoint(int ind) {
+		GpxPoint p = new GpxPoint();
+		p.ind = ind;
+		p.routeToTarget = new ArrayList<>();
+		return p;
+	}
+
+	private LatLon add(List<GpxPoint> track, LatLon l, double bearing) {
+		GpxPoint p = new GpxPoint();
+		p.ind = track.size();
+		p.loc = l;
+		if (!track.isEmpty()) {
+			GpxPoint prev = track.get(track.size() - 1);
+			p.cumDist = prev.cumDist + MapUtils.getDistance(prev.loc, p.loc);
+		}
+		track.add(p);
+		return MapUtils.rhumbDestinationPoint(l, STEP, bearing);
+	}
+}
@@ -0,0 +1,112 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryHHRouteReaderAdapter.HHRouteRegion;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.ObfTestFiles;
+import net.osmand.data.LatLon;
+import net.osmand.data.QuadRect;
+import net.osmand.router.HHRouteDataStructure.HHNetworkRouteRes;
+import net.osmand.router.HHRouteDataStructure.HHRoutingConfig;
+import net.osmand.router.HHRouteDataStructure.HHRoutingMatrix;
+import net.osmand.router.HHRouteDataStructure.NetworkDBPoint;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
+import net.osmand.router.RoutingConfiguration.RoutingMemoryLimits;
+
+public class HHRoutePlannerMatrixTest {
+
+	private final ObfTestFiles obfFiles = new ObfTestFiles();
+	private BinaryMapIndexReader reader;
+
+	@Before
+	public void setUp() throws IOException {
+		reader = obfFiles.openResources().find(new ObfTestFiles.ReaderFilter() {
+			@Override
+			public boolean accept(BinaryMapIndexReader r) {
+				return r.containsRouteData() && !r.getHHRoutingIndexes().isEmpty();
+			}
+		});
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		obfFiles.close();
+	}
+
+	@Test
+	public void testUnreachableByDefault() {
+		HHRoutingMatrix matrix = new HHRoutingMatrix(2, 3);
+		Assert.assertEquals(2, matrix.times.length);
+		Assert.assertEquals(3, matrix.distances[1].length);
+		for (int i = 0; i < 2; i++) {
+			for (int j = 0; j < 3; j++) {
+				Assert.assertFalse(matrix.isReachable(i, j));
+				Assert.assertEquals(HHRoutingMatrix.UNREACHABLE, matrix.distances[i][j], 0);
+			}
+		}
+		// route of zero time (same point) is reachable
+		matrix.times[1][2] = 0;
+		Assert.assertTrue(matrix.isReachable(1, 2));
+		HHRoutingMatrix error = new HHRoutingMatrix("error");
+		Assert.assertEquals(0, error.times.length);
+		Assert.assertEquals("error", error.error);
+	}
+
+	@Test
+	public void testMatrixAsRouting() throws Exception {
+		Assume.assumeTrue("Test obf with hh routing data is not present", reader != null);
+		HHRouteRegion region = reader.getHHRoutingIndexes().get(0);
+		QuadRect bbox = region.getLatLonBbox();
+		Random random = new Random(19);
+		List<LatLon> origins = new ArrayList<>();
+		List<LatLon> destinations = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			double lat = bbox.bottom + random.nextDouble() * (bbox.top - bbox.bottom);
+			double lon = bbox.left + random.nextDouble() * (bbox.right - bbox.left);
+			(i % 2 == 0 ? origins : destinations).add(new LatLon(lat, lon));
+		}
+		// close pair is routed without network points
+		LatLon o = origins.get(0);
+		destinations.add(new LatLon(o.getLatitude() + 0.001, o.getLongitude() + 0.001));
+
+		BinaryMapIndexReader[] files = { reader };
+		RoutingConfiguration config = RoutingConfiguration.getDefault().build(region.profile, new RoutingMemoryLimits(
+				RoutingConfiguration.DEFAULT_MEMORY_LIMIT * 3, RoutingConfiguration.DEFAULT_NATIVE_MEMORY_LIMIT));
+		RoutingContext ctx = new RoutePlannerFrontEnd().buildRoutingContext(config, null, files,
+				RouteCalculationMode.NORMAL);
+		HHRoutePlanner<NetworkDBPoint> planner = HHRoutePlanner.create(ctx);
+		HHRoutingMatrix matrix = planner.runMatrix(origins, destinations, matrixConfig().matrixThreads(3));
+		Assert.assertNull(matrix.error);
+
+		int compared = 0;
+		for (int i = 0; i < origins.size(); i++) {
+			for (int j = 0; j < destinations.size(); j++) {
+				HHNetworkRouteRes route = planner.runRouting(origins.get(i), destinations.get(j), matrixConfig());
+				String msg = origins.get(i) + " -> " + destinations.get(j);
+				if (route.error != null) {
+					Assert.assertFalse(msg, matrix.isReachable(i, j));
+					continue;
+				}
+				Assert.assertTrue(msg, matrix.isReachable(i, j));
+				Assert.assertEquals(msg, route.getHHRoutingTime(), matrix.times[i][j], 1 + route.getHHRoutingTime() * 0.001);
+				compared++;
+			}
+		}
+		Assert.assertTrue(compared > 0);
+	}
+
+	private HHRoutingConfig matrixConfig() {
+		// network costs only, same as matrix
+		return HHRoutingConfig.dijkstra(0).calcDetailed(0);
+	}
+}
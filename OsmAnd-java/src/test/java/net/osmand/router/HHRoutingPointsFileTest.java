@@ -0,0 +1,129 @@
+package net.osmand.router;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.osmand.binary.BinaryMapIndexReader.TagValuePair;
+import net.osmand.router.HHRouteDataStructure.NetworkDBPoint;
+import net.osmand.router.HHRouteDataStructure.NetworkDBPointCh;
+import net.osmand.router.HHRouteDataStructure.NetworkDBSegment;
+
+public class HHRoutingPointsFileTest {
+
+	@Test
+	public void testWriteAndLoad() throws Exception {
+		checkWriteAndLoad();
+	}
+
+	@Test
+	public void testLoadByChunks() throws Exception {
+		int chunkSize = HHRoutingPointsFile.MAP_CHUNK_SIZE;
+		// values are split by chunk borders
+		HHRoutingPointsFile.MAP_CHUNK_SIZE = 13;
+		try {
+			checkWriteAndLoad();
+		} finally {
+			HHRoutingPointsFile.MAP_CHUNK_SIZE = chunkSize;
+		}
+	}
+
+	@Test
+	public void testSegmentsWithMissingPoints() throws Exception {
+		List<NetworkDBPoint> points = new ArrayList<>();
+		for (int i = 1; i <= 3; i++) {
+			points.add(point(i, 10));
+		}
+		NetworkDBPointCh removed = point(4, 10);
+		TIntObjectHashMap<List<NetworkDBSegment>> segments = new TIntObjectHashMap<>();
+		segments.put(0, Arrays.asList(new NetworkDBSegment(points.get(0), points.get(1), 1, true, false),
+				new NetworkDBSegment(points.get(1), removed, 2, true, false),
+				new NetworkDBSegment(removed, points.get(2), 3, true, false),
+				new NetworkDBSegment(points.get(1), points.get(2), 4, true, false)));
+		File f = File.createTempFile("points", HHRoutingPointsFile.EXT);
+		f.deleteOnExit();
+		HHRoutingPointsFile.write(f, 1000, points, segments);
+		HHRoutingPointsFile pf = HHRoutingPointsFile.open(f, 1000);
+		Assert.assertEquals(2, pf.loadNetworkSegments(points, 0, false));
+		Assert.assertEquals(1, points.get(1).connected.size());
+		Assert.assertEquals(4, points.get(1).connected.get(0).dist, 0);
+		Assert.assertEquals(1, points.get(2).connectedReverse.size());
+	}
+
+	private void checkWriteAndLoad() throws Exception {
+		List<NetworkDBPoint> points = new ArrayList<>();
+		for (int i = 1; i <= 6; i += 2) {
+			NetworkDBPointCh p = point(i, 10 * i);
+			NetworkDBPointCh dual = point(i + 1, 10 * i);
+			p.dualPoint = dual;
+			dual.dualPoint = p;
+			points.add(dual);
+			points.add(p);
+		}
+		points.get(0).tagValues = new ArrayList<>(Arrays.asList(new TagValuePair("highway", "primary", -1),
+				new TagValuePair("maxspeed", "50", -1)));
+		points.get(1).tagValues = new ArrayList<>(Arrays.asList(new TagValuePair("highway", "primary", -1)));
+		TIntObjectHashMap<List<NetworkDBSegment>> segments = new TIntObjectHashMap<>();
+		segments.put(0, Arrays.asList(new NetworkDBSegment(points.get(0), points.get(2), 12.5, true, false),
+				new NetworkDBSegment(points.get(2), points.get(4), 30.25, true, true)));
+
+		File f = File.createTempFile("points", HHRoutingPointsFile.EXT);
+		f.deleteOnExit();
+		HHRoutingPointsFile.write(f, 1000, points, segments);
+		Assert.assertNull(HHRoutingPointsFile.open(f, 2000));
+		HHRoutingPointsFile pf = HHRoutingPointsFile.open(f, 1000);
+		Assert.assertEquals(6, pf.getPointsCount());
+
+		TLongObjectHashMap<NetworkDBPointCh> loaded = pf.loadNetworkPoints((short) 3, NetworkDBPointCh.class);
+		Assert.assertEquals(6, loaded.size());
+		for (NetworkDBPoint p : points) {
+			NetworkDBPointCh l = loaded.get(p.index);
+			Assert.assertEquals(3, l.mapId);
+			Assert.assertEquals(p.clusterId, l.clusterId);
+			Assert.assertEquals(p.chInd(), l.chInd());
+			Assert.assertEquals(p.roadId, l.roadId);
+			Assert.assertEquals(p.start, l.start);
+			Assert.assertEquals(p.end, l.end);
+			Assert.assertEquals(p.startX, l.startX);
+			Assert.assertEquals(p.endY, l.endY);
+			Assert.assertEquals(p.dualPoint.index, l.dualPoint.index);
+			Assert.assertSame(l, l.dualPoint.dualPoint);
+		}
+		NetworkDBPoint t0 = loaded.get(points.get(0).index);
+		NetworkDBPoint t1 = loaded.get(points.get(1).index);
+		Assert.assertEquals(2, t0.tagValues.size());
+		Assert.assertEquals("maxspeed", t0.tagValues.get(1).tag);
+		Assert.assertEquals("50", t0.tagValues.get(1).value);
+		Assert.assertSame(t0.tagValues.get(0), t1.tagValues.get(0));
+		Assert.assertNull(loaded.get(points.get(2).index).tagValues);
+
+		Assert.assertEquals(-1, pf.loadNetworkSegments(loaded.valueCollection(), 1, false));
+		Assert.assertEquals(1, pf.loadNetworkSegments(loaded.valueCollection(), 0, true));
+		NetworkDBPoint s0 = loaded.get(points.get(2).index);
+		Assert.assertEquals(1, s0.connectedReverse.size());
+		Assert.assertEquals(12.5, s0.connectedReverse.get(0).dist, 0);
+		Assert.assertSame(t0, s0.connectedReverse.get(0).start);
+		Assert.assertTrue(s0.connected.isEmpty());
+	}
+
+	private NetworkDBPointCh point(int index, int clusterId) {
+		NetworkDBPointCh p = new NetworkDBPointCh();
+		p.index = index;
+		p.clusterId = clusterId;
+		p.chInd = index * 3;
+		p.roadId = 1000L * index + (1L << 40);
+		p.start = (short) index;
+		p.end = (short) (index + 1);
+		p.startX = 100 * index;
+		p.startY = 200 * index;
+		p.endX = 100 * index + 5;
+		p.endY = 200 * index + 5;
+		return p;
+	}
+}
@@ -0,0 +1,56 @@
+package net.osmand.router;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.router.BinaryRoutePlanner.RouteSegment;
+
+public class RouteSegmentQueueTest {
+
+	@Test
+	public void testPollsInCostOrder() {
+		RouteSegmentQueue queue = new RouteSegmentQueue(4);
+		Random r = new Random(3);
+		float[] costs = new float[1000];
+		for (int i = 0; i < costs.length; i++) {
+			costs[i] = r.nextFloat() * 1000;
+			RouteSegment s = new RouteSegment(null, i, i + 1);
+			s.distanceFromStart = costs[i];
+			queue.add(s, costs[i]);
+		}
+		Assert.assertEquals(costs.length, queue.size());
+		Assert.assertEquals(costs.length, queue.getInsertions());
+		Assert.assertTrue(queue.getAllocations() > 1);
+		Arrays.sort(costs);
+		for (float cost : costs) {
+			Assert.assertEquals(cost, queue.peekCost(), 0);
+			Assert.assertEquals(cost, queue.poll().distanceFromStart, 0);
+		}
+		Assert.assertTrue(queue.isEmpty());
+		Assert.assertNull(queue.poll());
+	}
+
+	@Test
+	public void testVisitedSegmentsRemoveAndReuse() {
+		VisitedSegmentsMap visited = new VisitedSegmentsMap(2);
+		RouteSegment a = new RouteSegment(null, 0, 1);
+		RouteSegment b = new RouteSegment(null, 1, 2);
+		for (long k = 0; k < 100; k++) {
+			Assert.assertNull(visited.put(k << 11, a));
+		}
+		Assert.assertEquals(100, visited.size());
+		Assert.assertSame(a, visited.put(5 << 11, b));
+		Assert.assertSame(b, visited.put(5 << 11, null));
+		Assert.assertFalse(visited.containsKey(5 << 11));
+		Assert.assertNull(visited.put(5 << 11, null));
+		Assert.assertEquals(99, visited.size());
+		Assert.assertNull(visited.put(5 << 11, b));
+		Assert.assertSame(b, visited.get(5 << 11));
+		visited.clear();
+		Assert.assertEquals(0, visited.size());
+		Assert.assertNull(visited.get(1 << 11));
+	}
+}
@@ -0,0 +1,168 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+import net.osmand.binary.ObfTestFiles;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.data.LatLon;
+import net.osmand.router.BinaryRoutePlanner.RouteSegment;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
+import net.osmand.router.RouteResultPreparation.RouteCalcResult;
+import net.osmand.router.RoutingConfiguration.RoutingMemoryLimits;
+import net.osmand.router.RoutingContext.RoutingSubregionTile;
+
+public class RoutingCompactTilesTest {
+
+	private final ObfTestFiles obfFiles = new ObfTestFiles();
+	private BinaryMapIndexReader reader;
+
+	@Before
+	public void setUp() throws IOException {
+		reader = obfFiles.openResources().find(ObfTestFiles.ROUTE_DATA);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		obfFiles.close();
+	}
+
+	@Test
+	public void testCompactTileSegments() {
+		RouteRegion region = new RouteRegion();
+		Random random = new Random(5);
+		// roads on a small grid so points are shared by several roads and repeated in a road
+		List<RouteDataObject> objects = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			RouteDataObject o = new RouteDataObject(region);
+			o.id = i;
+			o.types = new int[0];
+			int len = 2 + random.nextInt(5);
+			o.pointsX = new int[len];
+			o.pointsY = new int[len];
+			for (int k = 0; k < len; k++) {
+				o.pointsX[k] = random.nextInt(4);
+				o.pointsY[k] = random.nextInt(4);
+			}
+			objects.add(o);
+		}
+		RoutingSubregionTile linked = new RoutingSubregionTile(new RouteSubregion(region));
+		linked.setLoadedNonNative(false);
+		RoutingSubregionTile compact = new RoutingSubregionTile(new RouteSubregion(region));
+		compact.setLoadedNonNative(true);
+		Assert.assertTrue(compact.isCompact());
+		Assert.assertFalse(linked.isCompact());
+		for (RouteDataObject o : objects) {
+			linked.add(o);
+			compact.add(o);
+		}
+		Assert.assertTrue(compact.tileStatistics.size < linked.tileStatistics.size);
+		for (int x = 0; x < 4; x++) {
+			for (int y = 0; y < 4; y++) {
+				for (boolean reverse : new boolean[] { false, true }) {
+					Assert.assertEquals(x + " " + y, segments(linked, x, y, reverse), segments(compact, x, y, reverse));
+				}
+			}
+		}
+		List<RouteDataObject> linkedObjects = new ArrayList<>();
+		linked.loadAllObjects(linkedObjects, null, new TLongObjectHashMap<RouteDataObject>());
+		List<RouteDataObject> compactObjects = new ArrayList<>();
+		compact.loadAllObjects(compactObjects, null, new TLongObjectHashMap<RouteDataObject>());
+		Assert.assertEquals(ids(linkedObjects), ids(compactObjects));
+	}
+
+	private List<Long> ids(List<RouteDataObject> objects) {
+		List<Long> l = new ArrayList<>();
+		for (RouteDataObject o : objects) {
+			l.add(o.getId());
+		}
+		Collections.sort(l);
+		return l;
+	}
+
+	private List<String> segments(RoutingSubregionTile tile, int x31, int y31, boolean reverse) {
+		List<String> l = new ArrayList<>();
+		RouteSegment s = tile.loadRouteSegment(x31, y31, null, new TLongObjectHashMap<RouteDataObject>(), null,
+				Collections.singletonList(tile), 0, reverse);
+		while (s != null) {
+			l.add(s.getRoad().getId() + " " + s.getSegmentStart());
+			s = s.getNext();
+		}
+		return l;
+	}
+
+	@Test
+	public void testCompactAsLinkedTiles() throws Exception {
+		Assume.assumeTrue("Test obf with route data is not present", reader != null);
+		RouteRegion reg = reader.getRoutingIndexes().get(0);
+		Random random = new Random(17);
+		BinaryMapIndexReader[] files = { reader };
+		RoutePlannerFrontEnd router = new RoutePlannerFrontEnd().disableHHRoutingConfig();
+		RoutingConfiguration config = RoutingConfiguration.getDefault().build("car", new RoutingMemoryLimits(
+				RoutingConfiguration.DEFAULT_MEMORY_LIMIT * 3, RoutingConfiguration.DEFAULT_NATIVE_MEMORY_LIMIT));
+		int compared = 0;
+		for (int i = 0; i < 10; i++) {
+			LatLon start = randomPoint(reg, random);
+			LatLon end = randomPoint(reg, random);
+			config.compactTiles = false;
+			RouteCalcResult expected = router.searchRoute(
+					router.buildRoutingContext(config, null, files, RouteCalculationMode.NORMAL), start, end, null);
+			config.compactTiles = true;
+			RouteCalcResult res = router.searchRoute(
+					router.buildRoutingContext(config, null, files, RouteCalculationMode.NORMAL), start, end, null);
+			String msg = start + " -> " + end;
+			Assert.assertEquals(msg, expected.isCorrect(), res.isCorrect());
+			if (expected.isCorrect()) {
+				Assert.assertEquals(msg, segments(expected), segments(res));
+				Assert.assertEquals(msg, distance(expected), distance(res), 0.1);
+				Assert.assertEquals(msg, time(expected), time(res), 0.1);
+				compared++;
+			}
+		}
+		Assert.assertTrue(compared > 0);
+	}
+
+	private LatLon randomPoint(RouteRegion reg, Random random) {
+		double lat = reg.getBottomLatitude() + random.nextDouble() * (reg.getTopLatitude() - reg.getBottomLatitude());
+		double lon = reg.getLeftLongitude() + random.nextDouble() * (reg.getRightLongitude() - reg.getLeftLongitude());
+		return new LatLon(lat, lon);
+	}
+
+	private List<String> segments(RouteCalcResult res) {
+		List<String> l = new ArrayList<>();
+		for (RouteSegmentResult s : res.getList()) {
+			l.add(s.getObject().getId() + " " + s.getStartPointIndex() + " " + s.getEndPointIndex());
+		}
+		return l;
+	}
+
+	private double distance(RouteCalcResult res) {
+		double d = 0;
+		for (RouteSegmentResult s : res.getList()) {
+			d += s.getDistance();
+		}
+		return d;
+	}
+
+	private double time(RouteCalcResult res) {
+		double t = 0;
+		for (RouteSegmentResult s : res.getList()) {
+			t += s.getRoutingTime();
+		}
+		return t;
+	}
+}
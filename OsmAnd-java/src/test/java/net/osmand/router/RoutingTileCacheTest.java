@@ -0,0 +1,181 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+import net.osmand.binary.ObfTestFiles;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.data.LatLon;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
+import net.osmand.router.RouteResultPreparation.RouteCalcResult;
+import net.osmand.router.RoutingConfiguration.RoutingMemoryLimits;
+
+public class RoutingTileCacheTest {
+
+	private final RouteRegion region = new RouteRegion();
+	private final ObfTestFiles obfFiles = new ObfTestFiles();
+	private BinaryMapIndexReader reader;
+
+	@Before
+	public void setUp() throws IOException {
+		reader = obfFiles.openResources().find(ObfTestFiles.ROUTE_DATA);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		obfFiles.close();
+	}
+
+	@Test
+	public void testSharedBetweenBorrowers() {
+		RoutingTileCache cache = new RoutingTileCache(1 << 20);
+		RouteSubregion sub = subregion(100);
+		Assert.assertNull(cache.acquire(sub));
+		List<RouteDataObject> objects = createObjects(10);
+		RoutingTileCache.CachedTile tile = cache.put(sub, objects);
+		// another context (own copy of header) borrows the same objects
+		RoutingTileCache.CachedTile other = cache.acquire(new RouteSubregion(sub));
+		Assert.assertSame(tile, other);
+		Assert.assertSame(objects, other.getObjects());
+		// tile loaded concurrently is not replaced
+		Assert.assertSame(tile, cache.put(sub, createObjects(10)));
+		Assert.assertNull(cache.acquire(subregion(200)));
+		Assert.assertEquals(1, cache.getTilesCount());
+		Assert.assertEquals(1, cache.getBorrowedTilesCount());
+		Assert.assertEquals(1, cache.getHits());
+		Assert.assertEquals(2, cache.getMisses());
+	}
+
+	@Test
+	public void testEvictsOnlyReleasedTiles() {
+		long tileSize = new RoutingTileCache(1 << 20).put(subregion(0), createObjects(100)).getSizeBytes();
+		RoutingTileCache cache = new RoutingTileCache(tileSize * 2);
+		RoutingTileCache.CachedTile t0 = cache.put(subregion(0), createObjects(100));
+		RoutingTileCache.CachedTile t1 = cache.put(subregion(1), createObjects(100));
+		RoutingTileCache.CachedTile t2 = cache.put(subregion(2), createObjects(100));
+		// all tiles are borrowed, limit is exceeded
+		Assert.assertEquals(3, cache.getTilesCount());
+		Assert.assertEquals(0, cache.getEvictions());
+		t1.release();
+		Assert.assertEquals(2, cache.getTilesCount());
+		Assert.assertNull(cache.acquire(subregion(1)));
+		t0.release();
+		t2.release();
+		Assert.assertEquals(2, cache.getTilesCount());
+		Assert.assertEquals(0, cache.getBorrowedTilesCount());
+		cache.clear();
+		Assert.assertEquals(0, cache.getTilesCount());
+		Assert.assertEquals(0, cache.getSizeBytes());
+	}
+
+	@Test
+	public void testContextsShareTiles() throws Exception {
+		Assume.assumeTrue("Test obf with route data is not present", reader != null);
+		RouteRegion reg = reader.getRoutingIndexes().get(0);
+		Random random = new Random(11);
+		final List<LatLon> points = new ArrayList<>();
+		for (int i = 0; i < 6; i++) {
+			double lat = reg.getBottomLatitude() + random.nextDouble() * (reg.getTopLatitude() - reg.getBottomLatitude());
+			double lon = reg.getLeftLongitude() + random.nextDouble() * (reg.getRightLongitude() - reg.getLeftLongitude());
+			points.add(new LatLon(lat, lon));
+		}
+		RoutingTileCache cache = new RoutingTileCache(64 << 20);
+		final RoutingConfiguration config = RoutingConfiguration.getDefault().setTileCache(cache).build("car",
+				new RoutingMemoryLimits(RoutingConfiguration.DEFAULT_MEMORY_LIMIT * 3,
+						RoutingConfiguration.DEFAULT_NATIVE_MEMORY_LIMIT));
+		final BinaryMapIndexReader[] files = { reader };
+		final RoutePlannerFrontEnd router = new RoutePlannerFrontEnd().disableHHRoutingConfig();
+		RoutingContext expectedCtx = router.buildRoutingContext(config, null, files, RouteCalculationMode.NORMAL, null);
+		final RoutingContext[] contexts = new RoutingContext[2];
+		final List<List<RouteCalcResult>> results = new ArrayList<>();
+		Thread[] threads = new Thread[contexts.length];
+		final Throwable[] error = new Throwable[1];
+		for (int t = 0; t < contexts.length; t++) {
+			contexts[t] = router.buildRoutingContext(config, null, files, RouteCalculationMode.NORMAL);
+			final RoutingContext ctx = contexts[t];
+			final List<RouteCalcResult> res = new ArrayList<>();
+			results.add(res);
+			threads[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						for (int i = 0; i + 1 < points.size(); i++) {
+							res.add(router.searchRoute(ctx, points.get(i), points.get(i + 1), null));
+						}
+					} catch (Throwable e) {
+						error[0] = e;
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread t : threads) {
+			t.join();
+		}
+		Assert.assertNull(error[0]);
+		Assert.assertTrue(cache.getHits() > 0);
+		for (int i = 0; i + 1 < points.size(); i++) {
+			RouteCalcResult expected = router.searchRoute(expectedCtx, points.get(i), points.get(i + 1), null);
+			for (List<RouteCalcResult> res : results) {
+				RouteCalcResult r = res.get(i);
+				Assert.assertEquals(expected.isCorrect(), r.isCorrect());
+				Assert.assertEquals(distance(expected), distance(r), 0.1);
+				Assert.assertEquals(time(expected), time(r), 0.1);
+			}
+		}
+
+		// tiles kept for other context are released and not accounted
+		contexts[1].unloadAllData(contexts[0]);
+		Assert.assertEquals(0, contexts[1].getCurrentEstimatedSize());
+		contexts[0].unloadAllData();
+		Assert.assertEquals(0, contexts[0].getCurrentEstimatedSize());
+		Assert.assertEquals(0, cache.getBorrowedTilesCount());
+	}
+
+	private double distance(RouteCalcResult res) {
+		double d = 0;
+		for (RouteSegmentResult s : res.getList()) {
+			d += s.getDistance();
+		}
+		return d;
+	}
+
+	private double time(RouteCalcResult res) {
+		double t = 0;
+		for (RouteSegmentResult s : res.getList()) {
+			t += s.getRoutingTime();
+		}
+		return t;
+	}
+
+	private RouteSubregion subregion(long filePointer) {
+		RouteSubregion sub = new RouteSubregion(region);
+		sub.filePointer = filePointer;
+		sub.shiftToData = 10;
+		return sub;
+	}
+
+	private List<RouteDataObject> createObjects(int count) {
+		List<RouteDataObject> objects = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			RouteDataObject o = new RouteDataObject(region);
+			o.id = i;
+			o.types = new int[0];
+			o.pointsX = new int[] { i, i + 1 };
+			o.pointsY = new int[] { i, i + 1 };
+			objects.add(o);
+		}
+		return objects;
+	}
+}
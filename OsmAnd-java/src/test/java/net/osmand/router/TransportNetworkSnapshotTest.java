@@ -0,0 +1,176 @@
+package net.osmand.router;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import gnu.trove.list.array.TIntArrayList;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.ObfTestFiles;
+import net.osmand.data.TransportRoute;
+import net.osmand.data.TransportStop;
+import net.osmand.util.MapUtils;
+
+public class TransportNetworkSnapshotTest {
+
+	private final ObfTestFiles obfFiles = new ObfTestFiles();
+	private List<BinaryMapIndexReader> readers;
+
+	@Before
+	public void setUp() throws IOException {
+		readers = obfFiles.openResources().findAll(new ObfTestFiles.ReaderFilter() {
+			@Override
+			public boolean accept(BinaryMapIndexReader r) {
+				return r.hasTransportData();
+			}
+		});
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		obfFiles.close();
+	}
+
+	@Test
+	public void testStopRoutes() throws IOException {
+		// A: s1 -> s2 -> s3, B: s4 -> s3' (30 m from s3, other id) -> s5, s6 references A but is far from its stops
+		TransportStop s1 = stop(1, 50.00, 10.0), s2 = stop(2, 50.02, 10.0), s3 = stop(3, 50.04, 10.0);
+		TransportStop s4 = stop(4, 50.04, 10.05), s3b = stop(5, 50.0403, 10.0), s5 = stop(6, 50.04, 9.95);
+		TransportStop s6 = stop(7, 51.0, 10.0);
+		TransportRoute a = route(1, s1, s2, s3);
+		TransportRoute b = route(2, s4, s3b, s5);
+		s1.setRoutes(list(a));
+		s2.setRoutes(list(a));
+		s3.setRoutes(list(a, b));
+		s4.setRoutes(list(b));
+		s5.setRoutes(list(b));
+		s6.setRoutes(list(a));
+		TransportStop noRoutes = stop(8, 50.01, 10.0);
+		TransportNetworkSnapshot network = new TransportNetworkSnapshot(Collections.<BinaryMapIndexReader>emptyList(),
+				Arrays.asList(s1, s2, s3, s4, s5, s6, noRoutes));
+		Assert.assertEquals(6, network.getStopsCount());
+		Assert.assertEquals(2, network.getRoutesCount());
+
+		int i3 = indexOf(network, s3);
+		Assert.assertEquals(2, network.stopStart[i3 + 1] - network.stopStart[i3]);
+		Assert.assertSame(a, network.getRoute(network.stopRoutes[network.stopStart[i3]]));
+		Assert.assertEquals(2, network.stopRoutePos[network.stopStart[i3]]);
+		// s3 is matched with the closest stop of B
+		Assert.assertSame(b, network.getRoute(network.stopRoutes[network.stopStart[i3] + 1]));
+		Assert.assertEquals(1, network.stopRoutePos[network.stopStart[i3] + 1]);
+		int i6 = indexOf(network, s6);
+		Assert.assertEquals(network.stopStart[i6], network.stopStart[i6 + 1]);
+
+		TIntArrayList found = new TIntArrayList();
+		network.findStops(s2.x31 - 10, s3.y31 - 10, s4.x31, s2.y31 + 10, found);
+		found.sort();
+		TIntArrayList expected = new TIntArrayList(new int[] { indexOf(network, s2), i3, indexOf(network, s4) });
+		expected.sort();
+		Assert.assertEquals(expected, found);
+
+		TransportRoutingConfiguration cfg = new TransportRoutingConfiguration(null, null);
+		TransportRoutingContext ctx = new TransportRoutingContext(cfg, null, network);
+		List<TransportRoute> routes = ctx.getTransportRoutes(s5.x31, s3.y31 - 10, s4.x31, s3.y31 + 10);
+		Assert.assertEquals(2, routes.size());
+	}
+
+	@Test
+	public void testParallelAsSequential() throws IOException {
+		Assume.assumeTrue("Test obf with transport data is not present", !readers.isEmpty());
+		TransportNetworkSnapshot sequential = TransportNetworkSnapshot.build(readers, false);
+		TransportNetworkSnapshot parallel = TransportNetworkSnapshot.build(readers, true);
+		Assert.assertTrue(sequential.getStopsCount() > 0);
+		Assert.assertEquals(sequential.getStopsCount(), parallel.getStopsCount());
+		Assert.assertEquals(sequential.getRoutesCount(), parallel.getRoutesCount());
+		for (int i = 0; i < sequential.getStopsCount(); i++) {
+			Assert.assertEquals(sequential.getStop(i).getId(), parallel.getStop(i).getId());
+			Assert.assertEquals(sequential.stopStart[i], parallel.stopStart[i]);
+		}
+		for (int i = 0; i < sequential.getRoutesCount(); i++) {
+			Assert.assertEquals(sequential.getRoute(i).getId(), parallel.getRoute(i).getId());
+		}
+		Assert.assertArrayEquals(sequential.stopRoutePos, parallel.stopRoutePos);
+	}
+
+	@Test
+	public void testSnapshotReleasedOnClose() throws IOException {
+		Assume.assumeTrue("Test obf with transport data is not present", !readers.isEmpty());
+		BinaryMapIndexReader r = readers.get(0);
+		BinaryMapIndexReader[] files = { r };
+		TransportNetworkSnapshot s = TransportNetworkSnapshot.get(files);
+		Assert.assertSame(s, TransportNetworkSnapshot.get(files));
+		TransportNetworkSnapshot.clear(r);
+		TransportNetworkSnapshot rebuilt = TransportNetworkSnapshot.get(files);
+		Assert.assertNotSame(s, rebuilt);
+		Assert.assertEquals(s.getStopsCount(), rebuilt.getStopsCount());
+
+		// closed file has no transport indexes, new (empty) snapshot is built
+		r.close();
+		TransportNetworkSnapshot closed = TransportNetworkSnapshot.get(files);
+		Assert.assertNotSame(rebuilt, closed);
+		Assert.assertEquals(0, closed.getStopsCount());
+		TransportNetworkSnapshot.clear(r);
+	}
+
+	@Test
+	public void testClearedOnCloseOfFile() throws IOException {
+		Assume.assumeTrue("poi_types.xml is not present", ObfTestFiles.isPoiTypesPresent());
+		File empty = ObfTestFiles.writeEmptyObf(File.createTempFile("empty", ".obf"));
+		try {
+			BinaryMapIndexReader r = obfFiles.open(empty);
+			BinaryMapIndexReader cursor = r.createCursor();
+			BinaryMapIndexReader[] files = { r };
+			TransportNetworkSnapshot s = TransportNetworkSnapshot.get(files);
+			Assert.assertEquals(0, s.getStopsCount());
+			Assert.assertSame(s, TransportNetworkSnapshot.get(files));
+			// closing cursor doesn't release snapshot of the file
+			cursor.close();
+			Assert.assertSame(s, TransportNetworkSnapshot.get(files));
+			r.close();
+			TransportNetworkSnapshot closed = TransportNetworkSnapshot.get(files);
+			Assert.assertNotSame(s, closed);
+			TransportNetworkSnapshot.clear(r);
+		} finally {
+			empty.delete();
+		}
+	}
+
+	private int indexOf(TransportNetworkSnapshot network, TransportStop s) {
+		for (int i = 0; i < network.getStopsCount(); i++) {
+			if (network.getStop(i) == s) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private List<TransportRoute> list(TransportRoute... routes) {
+		return new ArrayList<>(Arrays.asList(routes));
+	}
+
+	private TransportStop stop(long id, double lat, double lon) {
+		TransportStop s = new TransportStop();
+		s.setId(id);
+		s.setLocation(lat, lon);
+		s.x31 = MapUtils.get31TileNumberX(lon);
+		s.y31 = MapUtils.get31TileNumberY(lat);
+		return s;
+	}
+
+	private TransportRoute route(long id, TransportStop... stops) {
+		TransportRoute r = new TransportRoute();
+		r.setId(id);
+		r.setType("bus");
+		r.setForwardStops(new ArrayList<>(Arrays.asList(stops)));
+		return r;
+	}
+}
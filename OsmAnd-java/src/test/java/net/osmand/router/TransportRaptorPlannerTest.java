@@ -0,0 +1,83 @@
+package net.osmand.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import gnu.trove.list.array.TIntArrayList;
+import net.osmand.data.LatLon;
+import net.osmand.data.TransportRoute;
+import net.osmand.data.TransportSchedule;
+import net.osmand.data.TransportStop;
+import net.osmand.router.TransportRoutePlanner.TransportRouteResultSegment;
+import net.osmand.util.MapUtils;
+
+public class TransportRaptorPlannerTest {
+
+	private static final int NOON = 12 * 60 * 6;
+
+	@Test
+	public void testScheduleWithChange() throws Exception {
+		TransportRoutingConfiguration cfg = new TransportRoutingConfiguration(null, null);
+		cfg.useSchedule = true;
+		// A: s1 -> s2 -> s3 departs 12:01, B: s3' (50 m from s3) -> s4 -> s5 departs 12:10, 2 min between stops
+		TransportStop s1 = stop(1, 50.00, 10.0), s2 = stop(2, 50.02, 10.0), s3 = stop(3, 50.04, 10.0);
+		TransportStop s3b = stop(4, 50.04045, 10.0), s4 = stop(5, 50.06, 10.0), s5 = stop(6, 50.08, 10.0);
+		TransportRoute a = route(1, NOON + 6, s1, s2, s3);
+		TransportRoute b = route(2, NOON + 60, s3b, s4, s5);
+		TransportTimetable tt = TransportTimetable.build(Arrays.asList(a, b), cfg);
+		Assert.assertEquals(6, tt.getStopsCount());
+		Assert.assertEquals(2, tt.getRoutesCount());
+
+		TransportRoutingContext ctx = new TransportRoutingContext(cfg, null);
+		List<TransportRouteResult> res = new TransportRaptorPlanner().buildRoute(ctx, tt, s1.getLocation(), s5.getLocation());
+		Assert.assertEquals(1, res.size());
+		TransportRouteResult r = res.get(0);
+		// arrival at s5 12:14
+		Assert.assertEquals(840, r.getRouteTime(), 0.01);
+		Assert.assertEquals(1, r.getChanges());
+		TransportRouteResultSegment first = r.getSegments().get(0);
+		TransportRouteResultSegment second = r.getSegments().get(1);
+		Assert.assertSame(a, first.route);
+		Assert.assertEquals(0, first.start);
+		Assert.assertEquals(2, first.end);
+		Assert.assertEquals(NOON + 6, first.depTime);
+		Assert.assertSame(b, second.route);
+		Assert.assertEquals(0, second.start);
+		Assert.assertEquals(2, second.end);
+		Assert.assertEquals(NOON + 60, second.depTime);
+		Assert.assertEquals(MapUtils.getDistance(s3.getLocation(), s3b.getLocation()), second.walkDist, 0.1);
+		Assert.assertEquals(240, second.travelTime, 0.01);
+
+		// too late for the last trip of B
+		cfg.scheduleTimeOfDay = NOON + 30;
+		res = new TransportRaptorPlanner().buildRoute(new TransportRoutingContext(cfg, null), tt, s1.getLocation(),
+				new LatLon(50.08, 10.0));
+		Assert.assertTrue(res.isEmpty());
+	}
+
+	private TransportStop stop(long id, double lat, double lon) {
+		TransportStop s = new TransportStop();
+		s.setId(id);
+		s.setLocation(lat, lon);
+		s.x31 = MapUtils.get31TileNumberX(lon);
+		s.y31 = MapUtils.get31TileNumberY(lat);
+		return s;
+	}
+
+	private TransportRoute route(long id, int departure, TransportStop... stops) {
+		TransportRoute r = new TransportRoute();
+		r.setId(id);
+		r.setType("bus");
+		r.setForwardStops(new ArrayList<>(Arrays.asList(stops)));
+		TIntArrayList intervals = new TIntArrayList();
+		for (int i = 1; i < stops.length; i++) {
+			intervals.add(12);
+		}
+		r.setSchedule(new TransportSchedule(new TIntArrayList(new int[] { departure }), intervals, new TIntArrayList()));
+		return r;
+	}
+}
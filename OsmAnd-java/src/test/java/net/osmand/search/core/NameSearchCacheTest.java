@@ -0,0 +1,45 @@
+package net.osmand.search.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.CollatorStringMatcher.StringMatcherMode;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.search.core.SearchCoreFactory.NameSearchCache;
+
+public class NameSearchCacheTest {
+
+	@Test
+	public void testExtendedQuery() {
+		boolean incremental = SearchCoreFactory.INCREMENTAL_SEARCH;
+		try {
+			SearchCoreFactory.INCREMENTAL_SEARCH = true;
+			NameSearchCache<String> cache = new NameSearchCache<String>();
+			List<BinaryMapIndexReader> files = new ArrayList<BinaryMapIndexReader>();
+			List<Object> area = Arrays.<Object>asList(1.0, 2.0, 3.0, 4.0);
+			List<List<String>> objects = Collections.singletonList(Arrays.asList("Main Street", "Mainz"));
+			cache.put("mai", StringMatcherMode.CHECK_STARTS_FROM_SPACE, area, files, objects);
+
+			Assert.assertSame(objects, cache.get("main", area, files));
+			Assert.assertSame(objects, cache.get("mai", Arrays.<Object>asList(1.0, 2.0, 3.0, 4.0), files));
+			Assert.assertNull(cache.get("ma", area, files));
+			Assert.assertNull(cache.get("park", area, files));
+			Assert.assertNull(cache.get("main", Arrays.<Object>asList(1.0, 2.0, 3.0, 5.0), files));
+
+			// objects of complete word don't contain longer names
+			cache.put("main", StringMatcherMode.CHECK_EQUALS_FROM_SPACE, area, files, objects);
+			Assert.assertNull(cache.get("mainz", area, files));
+
+			SearchCoreFactory.INCREMENTAL_SEARCH = false;
+			cache.put("mai", StringMatcherMode.CHECK_STARTS_FROM_SPACE, area, files, objects);
+			Assert.assertNull(cache.get("main", area, files));
+		} finally {
+			SearchCoreFactory.INCREMENTAL_SEARCH = incremental;
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package net.osmand.search.core;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.protobuf.CodedOutputStream;
+
+import net.osmand.ResultMatcher;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.OsmandOdb;
+import net.osmand.osm.MapPoiTypes;
+import net.osmand.search.core.SearchCoreFactory.FileSearch;
+
+public class SearchFilesInParallelTest {
+
+	private File dir;
+	private final List<BinaryMapIndexReader> files = new ArrayList<>();
+	private int threads;
+
+	@Before
+	public void setUp() throws IOException {
+		// readers load default poi types (poi_types.xml is collected by collectTestResources)
+		Assume.assumeTrue("poi_types.xml is not present", MapPoiTypes.class.getResource("poi_types.xml") != null);
+		threads = SearchCoreFactory.PARALLEL_FILE_SEARCH_THREADS;
+		SearchCoreFactory.PARALLEL_FILE_SEARCH_THREADS = 3;
+		dir = Files.createTempDirectory("search").toFile();
+		for (int i = 0; i < 5; i++) {
+			File f = new File(dir, "map_" + i + ".obf");
+			FileOutputStream fous = new FileOutputStream(f);
+			CodedOutputStream cos = CodedOutputStream.newInstance(fous);
+			cos.writeUInt32(OsmandOdb.OsmAndStructure.VERSION_FIELD_NUMBER, 2);
+			cos.writeInt64(OsmandOdb.OsmAndStructure.DATECREATED_FIELD_NUMBER, 1000);
+			cos.writeUInt32(OsmandOdb.OsmAndStructure.VERSIONCONFIRM_FIELD_NUMBER, 2);
+			cos.flush();
+			fous.close();
+			files.add(new BinaryMapIndexReader(new RandomAccessFile(f, "r"), f));
+		}
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		if (dir == null) {
+			return;
+		}
+		SearchCoreFactory.PARALLEL_FILE_SEARCH_THREADS = threads;
+		for (BinaryMapIndexReader r : files) {
+			r.close();
+		}
+		File[] list = dir.listFiles();
+		if (list != null) {
+			for (File f : list) {
+				f.delete();
+			}
+		}
+		dir.delete();
+	}
+
+	@Test
+	public void testPublishedInFilesOrder() throws IOException {
+		final List<BinaryMapIndexReader> readCursors = Collections.synchronizedList(new ArrayList<BinaryMapIndexReader>());
+		final List<String> published = new ArrayList<>();
+		final List<BinaryMapIndexReader> publishedFiles = new ArrayList<>();
+		FileSearch<String> search = new FileSearch<String>() {
+
+			@Override
+			public void read(BinaryMapIndexReader file, ResultMatcher<String> collector) {
+				readCursors.add(file);
+				String name = file.getFile().getName();
+				// 1 of 2 objects is accepted, reading stops at limit
+				for (int i = 0; i < 100 && !collector.isCancelled(); i++) {
+					collector.publish(name + " " + i);
+				}
+			}
+
+			@Override
+			public boolean accept(String object) {
+				return object.endsWith("0") || object.endsWith("2") || object.endsWith("4") || object.endsWith("6")
+						|| object.endsWith("8");
+			}
+
+			@Override
+			public int getLimit() {
+				return 3;
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return false;
+			}
+
+			@Override
+			public void publish(BinaryMapIndexReader file, List<String> objects) {
+				publishedFiles.add(file);
+				published.addAll(objects);
+			}
+		};
+		List<List<String>> objects = SearchCoreFactory.searchFilesInParallel(files, search);
+		Assert.assertEquals(files, publishedFiles);
+		List<String> expected = new ArrayList<>();
+		for (int i = 0; i < files.size(); i++) {
+			String name = files.get(i).getFile().getName();
+			List<String> fileObjects = new ArrayList<>();
+			for (int k = 0; k < 6; k += 2) {
+				fileObjects.add(name + " " + k);
+			}
+			Assert.assertEquals(fileObjects, objects.get(i));
+			expected.addAll(fileObjects);
+		}
+		Assert.assertEquals(expected, published);
+
+		// cursors are reused by next search
+		List<BinaryMapIndexReader> firstCursors = new ArrayList<>(readCursors);
+		readCursors.clear();
+		SearchCoreFactory.searchFilesInParallel(files, search);
+		Assert.assertEquals(files.size(), readCursors.size());
+		for (BinaryMapIndexReader c : readCursors) {
+			Assert.assertTrue(c.isCursor());
+			Assert.assertTrue(firstCursors.contains(c));
+		}
+	}
+}
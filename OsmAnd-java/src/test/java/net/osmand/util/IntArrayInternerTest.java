@@ -0,0 +1,48 @@
+package net.osmand.util;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IntArrayInternerTest {
+
+	@Test
+	public void testDenseIdsByContent() {
+		IntArrayInterner interner = new IntArrayInterner();
+		IntArrayInterner.Entry a = interner.intern(new int[] { 1, 2, 3 });
+		IntArrayInterner.Entry empty = interner.intern(new int[0]);
+		Assert.assertEquals(0, a.id);
+		Assert.assertEquals(1, empty.id);
+		Assert.assertSame(a, interner.intern(new int[] { 1, 2, 3 }));
+		Assert.assertNotSame(a, interner.intern(new int[] { 3, 2, 1 }));
+		Assert.assertSame(empty, interner.intern(new int[0]));
+		Assert.assertEquals(3, interner.size());
+	}
+
+	@Test
+	public void testInternCopy() {
+		IntArrayInterner interner = new IntArrayInterner();
+		int[] array = { 1, 2 };
+		IntArrayInterner.Entry e = interner.internCopy(array);
+		Assert.assertNotSame(array, e.array);
+		array[0] = 5;
+		Assert.assertSame(e, interner.intern(new int[] { 1, 2 }));
+		Assert.assertSame(e, interner.internCopy(new int[] { 1, 2 }));
+	}
+
+	@Test
+	public void testRehash() {
+		IntArrayInterner interner = new IntArrayInterner();
+		Random r = new Random(5);
+		int[][] arrays = new int[5000][];
+		for (int i = 0; i < arrays.length; i++) {
+			arrays[i] = new int[] { i, r.nextInt(100) };
+			Assert.assertEquals(i, interner.intern(arrays[i]).id);
+		}
+		for (int i = 0; i < arrays.length; i++) {
+			Assert.assertSame(arrays[i], interner.intern(arrays[i].clone()).array);
+		}
+		Assert.assertEquals(arrays.length, interner.size());
+	}
+}
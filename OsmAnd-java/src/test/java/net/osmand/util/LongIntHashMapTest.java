@@ -0,0 +1,45 @@
+package net.osmand.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LongIntHashMapTest {
+
+	@Test
+	public void testPutGet() {
+		LongIntHashMap map = new LongIntHashMap();
+		Assert.assertEquals(LongIntHashMap.NO_VALUE, map.get(5));
+		map.put(5, 1);
+		map.put(0, 2);
+		map.put(Long.MIN_VALUE, 3);
+		map.put(5, 4);
+		Assert.assertEquals(3, map.size());
+		Assert.assertEquals(4, map.get(5));
+		Assert.assertEquals(2, map.get(0));
+		Assert.assertEquals(3, map.get(Long.MIN_VALUE));
+		Assert.assertFalse(map.containsKey(6));
+		map.clear();
+		Assert.assertTrue(map.isEmpty());
+		Assert.assertEquals(LongIntHashMap.NO_VALUE, map.get(5));
+	}
+
+	@Test
+	public void testRehashWithTileKeys() {
+		LongIntHashMap map = new LongIntHashMap(4);
+		Map<Long, Integer> expected = new HashMap<>();
+		Random r = new Random(17);
+		for (int i = 0; i < 50000; i++) {
+			long key = (((long) r.nextInt(1 << 20)) << 31) + r.nextInt(1 << 20);
+			map.put(key, i);
+			expected.put(key, i);
+		}
+		Assert.assertEquals(expected.size(), map.size());
+		for (Map.Entry<Long, Integer> e : expected.entrySet()) {
+			Assert.assertEquals(e.getValue().intValue(), map.get(e.getKey()));
+		}
+	}
+}
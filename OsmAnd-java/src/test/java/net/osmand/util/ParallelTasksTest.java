@@ -0,0 +1,85 @@
+package net.osmand.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ParallelTasksTest {
+
+	@Test
+	public void testResultsInOrder() throws Exception {
+		ParallelTasks<Integer> tasks = new ParallelTasks<Integer>(squares(100)).start(4);
+		for (int i = 0; i < tasks.size(); i++) {
+			Assert.assertEquals(i * i, tasks.get(i).intValue());
+		}
+	}
+
+	@Test
+	public void testNestedCallsProgress() throws Exception {
+		// more nested calls than pool threads, calling threads run tasks which are not taken
+		List<Callable<Integer>> outer = new ArrayList<>();
+		for (int i = 0; i < ParallelTasks.MAX_THREADS * 2; i++) {
+			outer.add(new Callable<Integer>() {
+				@Override
+				public Integer call() throws Exception {
+					ParallelTasks<Integer> inner = new ParallelTasks<Integer>(squares(20)).start(8);
+					int sum = 0;
+					for (int k = 0; k < inner.size(); k++) {
+						sum += inner.get(k);
+					}
+					return sum;
+				}
+			});
+		}
+		ParallelTasks<Integer> tasks = new ParallelTasks<Integer>(outer).start(outer.size());
+		for (int i = 0; i < tasks.size(); i++) {
+			Assert.assertEquals(2470, tasks.get(i).intValue());
+		}
+	}
+
+	@Test
+	public void testErrorAndCancel() throws Exception {
+		List<Callable<Integer>> list = squares(10);
+		list.set(3, new Callable<Integer>() {
+			@Override
+			public Integer call() throws Exception {
+				throw new IOException("task 3");
+			}
+		});
+		ParallelTasks<Integer> tasks = new ParallelTasks<Integer>(list).start(1);
+		Assert.assertEquals(4, tasks.get(2).intValue());
+		try {
+			tasks.get(3);
+			Assert.fail();
+		} catch (ExecutionException e) {
+			Assert.assertEquals("task 3", e.getCause().getMessage());
+		}
+		tasks.cancel(false);
+		// single thread: tasks after failed one are not run
+		try {
+			tasks.get(5);
+			Assert.fail();
+		} catch (RuntimeException e) {
+			// cancelled
+		}
+	}
+
+	private static List<Callable<Integer>> squares(int n) {
+		List<Callable<Integer>> list = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			final int v = i;
+			list.add(new Callable<Integer>() {
+				@Override
+				public Integer call() {
+					return v * v;
+				}
+			});
+		}
+		return list;
+	}
+}
@@ -0,0 +1,175 @@
+package net.osmand.shared.gpx
+
+import net.osmand.shared.gpx.GpxUtilities.getExtensionsSupportedTag
+import net.osmand.shared.gpx.GpxUtilities.parseWptAttributes
+import net.osmand.shared.gpx.GpxUtilities.readPointExtension
+import net.osmand.shared.gpx.GpxUtilities.readPointTag
+import net.osmand.shared.gpx.GpxUtilities.readTextMap
+import net.osmand.shared.gpx.primitives.Link
+import net.osmand.shared.gpx.primitives.WptPt
+import net.osmand.shared.io.KFile
+import net.osmand.shared.xml.XmlPullParser
+import okio.Source
+
+// Pull reader of gpx points, unlike GpxUtilities.loadGpxFile it doesn't build GpxFile,
+// every point is read with its tags and extensions and is returned once it is complete.
+// Metadata, gpx / track extensions (osmand route segments and route points) are skipped.
+class GpxStreamReader private constructor(private val parser: XmlPullParser, val path: String) {
+
+	enum class Event {
+		WAYPOINT,
+		ROUTE,
+		ROUTE_POINT,
+		TRACK,
+		SEGMENT,
+		TRACK_POINT
+	}
+
+	fun interface GpxStreamListener {
+		fun onEvent(event: Event, point: WptPt?)
+	}
+
+	companion object {
+		fun open(file: KFile): GpxStreamReader {
+			val parser = XmlPullParser()
+			parser.setInput(file, "UTF-8")
+			return GpxStreamReader(parser, file.absolutePath())
+		}
+
+		fun open(source: Source): GpxStreamReader {
+			val parser = XmlPullParser()
+			parser.setInput(source, "UTF-8")
+			return GpxStreamReader(parser, "")
+		}
+	}
+
+	private var point: WptPt? = null
+	private var pointTag: String? = null
+	private var pointExtensions = false
+	private var skipExtensions = 0
+	private var insideTrack = false
+	private var insideRoute = false
+	private var trackHasSegment = false
+
+	var trackIndex = -1
+		private set
+	var segmentIndex = -1
+		private set
+	var routeIndex = -1
+		private set
+
+	// point of the last WAYPOINT, ROUTE_POINT or TRACK_POINT event
+	fun getPoint(): WptPt? {
+		return point.takeIf { pointTag == null }
+	}
+
+	// returns null at the end of document
+	fun next(): Event? {
+		if (pointTag == null) {
+			point = null
+		}
+		var tok: Int
+		while (parser.next().also { tok = it } != XmlPullParser.END_DOCUMENT) {
+			val tag = parser.getName() ?: ""
+			val point = this.point
+			if (tok == XmlPullParser.START_TAG) {
+				if (point != null) {
+					if (pointExtensions) {
+						val values = readTextMap(parser, tag)
+						for ((t, value) in values) {
+							point.getExtensionsToWrite()[getExtensionsSupportedTag(t.lowercase())] = value
+							readPointExtension(tag, value, point)
+						}
+					} else if (tag == "extensions") {
+						pointExtensions = true
+					} else if (tag == "link") {
+						point.link = Link(parser.getAttributeValue("", "href"))
+					} else {
+						readPointTag(parser, tag, point)
+					}
+				} else if (skipExtensions > 0 || tag == "extensions") {
+					if (tag == "extensions") {
+						skipExtensions++
+					}
+				} else if (insideTrack) {
+					when (tag) {
+						"trkseg" -> {
+							trackHasSegment = true
+							segmentIndex++
+							return Event.SEGMENT
+						}
+
+						"trkpt" -> {
+							startPoint(tag)
+							if (!trackHasSegment) {
+								trackHasSegment = true
+								segmentIndex++
+								return Event.SEGMENT
+							}
+						}
+					}
+				} else if (insideRoute) {
+					if (tag == "rtept") {
+						startPoint(tag)
+					}
+				} else {
+					when (tag) {
+						"wpt" -> startPoint(tag)
+						"trk" -> {
+							insideTrack = true
+							trackHasSegment = false
+							trackIndex++
+							segmentIndex = -1
+							return Event.TRACK
+						}
+
+						"rte" -> {
+							insideRoute = true
+							routeIndex++
+							return Event.ROUTE
+						}
+					}
+				}
+			} else if (tok == XmlPullParser.END_TAG) {
+				if (point != null) {
+					if (tag == "extensions") {
+						pointExtensions = false
+					} else if (tag == pointTag && !pointExtensions) {
+						pointTag = null
+						return when (tag) {
+							"trkpt" -> Event.TRACK_POINT
+							"rtept" -> Event.ROUTE_POINT
+							else -> Event.WAYPOINT
+						}
+					}
+				} else if (tag == "extensions" && skipExtensions > 0) {
+					skipExtensions--
+				} else if (skipExtensions == 0) {
+					when (tag) {
+						"trk" -> insideTrack = false
+						"rte" -> insideRoute = false
+					}
+				}
+			}
+		}
+		return null
+	}
+
+	private fun startPoint(tag: String) {
+		point = parseWptAttributes(parser)
+		pointTag = tag
+		pointExtensions = false
+	}
+
+	fun read(listener: GpxStreamListener) {
+		var event = next()
+		while (event != null) {
+			listener.onEvent(event, getPoint())
+			event = next()
+		}
+	}
+
+	fun close() {
+		parser.close()
+	}
+}
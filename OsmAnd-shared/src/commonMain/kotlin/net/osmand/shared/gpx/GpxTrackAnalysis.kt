@@ -3,6 +3,7 @@ package net.osmand.shared.gpx
 import net.osmand.shared.data.KLatLon
 import net.osmand.shared.gpx.GpxUtilities.POINT_ELEVATION
 import net.osmand.shared.gpx.GpxUtilities.POINT_SPEED
+import net.osmand.shared.gpx.primitives.PackedTrkSegment
 import net.osmand.shared.gpx.primitives.TrkSegment
 import net.osmand.shared.gpx.primitives.WptPt
 import net.osmand.shared.routing.RouteColorize.ColorizationType
@@ -22,6 +23,30 @@ class GpxTrackAnalysis {
 			analysis.joinSegments = joinSegments
 			return analysis.prepareInformation(fileTimeStamp, pointsAnalyzer, SplitSegment(segment))
 		}
+
+		fun prepareInformation(fileTimeStamp: Long,
+		                       joinSegments: Boolean,
+		                       pointsAnalyzer: TrackPointsAnalyser?,
+		                       segment: PackedTrkSegment): GpxTrackAnalysis {
+			val analysis = GpxTrackAnalysis()
+			analysis.joinSegments = joinSegments
+			return analysis.prepareInformation(fileTimeStamp, pointsAnalyzer, listOf(segment))
+		}
+
+		// Same analysis as GpxFile.getAnalysis made in one pass over the stream, points are not kept
+		// (no point attributes, expected route duration of osmand route segments is not calculated)
+		fun prepareInformation(fileTimeStamp: Long,
+		                       reader: GpxStreamReader,
+		                       parameters: Map<GpxParameter, Any?>?,
+		                       pointsAnalyzer: TrackPointsAnalyser?): GpxTrackAnalysis {
+			val analysis = GpxTrackAnalysis()
+			analysis.name = reader.path
+			if (parameters != null) {
+				analysis.setGpxParameters(parameters)
+			}
+			analysis.prepareInformation(fileTimeStamp, reader, pointsAnalyzer)
+			return analysis
+		}
 	}
 
 	var name: String? = null
@@ -281,235 +306,394 @@ class GpxTrackAnalysis {
 		pointsAnalyser: TrackPointsAnalyser?,
 		vararg splitSegments: SplitSegment
 	): GpxTrackAnalysis {
-		val calculations = FloatArray(1)
-
-		var startTimeOfSingleSegment: Long = 0
-		var endTimeOfSingleSegment: Long = 0
-
-		var distanceOfSingleSegment = 0f
-		var distanceMovingOfSingleSegment = 0f
-		var timeMovingOfSingleSegment: Long = 0
-
-		var totalElevation = 0f
-		var elevationPoints = 0
-		var speedCount = 0
-		var timeDiffMillis: Long = 0
-		var timeDiff = 0
-		var totalSpeedSum = 0.0
-
-		var sensorSpeedCount = 0
-		var totalSensorSpeedSum = 0.0
-		var sensorHrCount = 0
-		var totalSensorHrSum = 0.0
-		var sensorPowerCount = 0
-		var totalSensorPowerSum = 0.0
-		var sensorTemperatureCount = 0
-		var totalSensorTemperatureSum = 0.0
-		var sensorCadenceCount = 0
-		var totalSensorCadenceSum = 0.0
-
-		var _totalDistance = 0.0f
-
-		points = 0
-
-		pointAttributes = mutableListOf()
-		availableAttributes = mutableSetOf()
-
+		val calculator = PointsCalculator(pointsAnalyser, true)
 		for (s in splitSegments) {
 			val numberOfPoints = s.getNumberOfPoints()
-			var segmentDistance = 0f
 			metricEnd += s.metricEnd
 			secondaryMetricEnd += s.secondaryMetricEnd
-			points += numberOfPoints
 			expectedRouteDuration += getExpectedRouteSegmentDuration(s)
 
+			calculator.startSegment(s.metricEnd == 0.0, s.segment.generalSegment)
 			for (j in 0 until numberOfPoints) {
-				val point = s[j]
-				if (j == 0 && locationStart == null) {
-					locationStart = point
-					setLatLonStart(point.lat, point.lon)
-				}
-				if (j == numberOfPoints - 1) {
-					locationEnd = point
+				calculator.addPoint(s[j])
+			}
+			calculator.finishSegment()
+		}
+		calculator.finish(fileTimeStamp)
+		return this
+	}
+
+	// Same as prepareInformation of split segments (whole segments) for packed segments,
+	// calculated distance and speed are stored in segment columns, point attributes are kept only with analyser
+	fun prepareInformation(
+		fileTimeStamp: Long,
+		pointsAnalyser: TrackPointsAnalyser?,
+		segments: List<PackedTrkSegment>
+	): GpxTrackAnalysis {
+		val calculator = PointsCalculator(pointsAnalyser, pointsAnalyser != null)
+		for (segment in segments) {
+			if (segment.size < 2) {
+				continue
+			}
+			calculator.startSegment(true, false)
+			for (i in 0 until segment.size) {
+				calculator.addPoint(segment, i)
+			}
+			calculator.finishSegment()
+			locationEnd = segment.getPoint(segment.size - 1)
+		}
+		calculator.finish(fileTimeStamp)
+		return this
+	}
+
+	private fun prepareInformation(fileTimeStamp: Long, reader: GpxStreamReader,
+	                               pointsAnalyser: TrackPointsAnalyser?) {
+		// all track points are analysed as general segment (as with several segments),
+		// point is analysed after the next one is read to know if it is the last one of segment
+		val calculator = PointsCalculator(pointsAnalyser, false)
+		calculator.startSegment(true, true)
+		val categories = mutableSetOf<String>()
+		var wpts = 0
+		var segments = 0
+		var nonEmptySegments = 0
+		var trackPoints = 0
+		var segmentPoints = 0
+		var pending: WptPt? = null
+		var event = reader.next()
+		while (event != null) {
+			when (event) {
+				GpxStreamReader.Event.SEGMENT -> {
+					segments++
+					segmentPoints = 0
 				}
 
-				val time = point.time
-				if (time != 0L) {
-					if (s.metricEnd == 0.0) {
-						if (s.segment.generalSegment) {
-							if (point.firstPoint) {
-								startTimeOfSingleSegment = time
-							} else if (point.lastPoint) {
-								endTimeOfSingleSegment = time
-							}
-							if (startTimeOfSingleSegment != 0L && endTimeOfSingleSegment != 0L) {
-								timeSpanWithoutGaps += endTimeOfSingleSegment - startTimeOfSingleSegment
-								startTimeOfSingleSegment = 0
-								endTimeOfSingleSegment = 0
-							}
-						}
+				GpxStreamReader.Event.TRACK_POINT -> {
+					val point = reader.getPoint()!!
+					if (segmentPoints == 0) {
+						nonEmptySegments++
+						point.firstPoint = true
+						pending?.lastPoint = true
 					}
-					startTime = minOf(startTime, time)
-					endTime = maxOf(endTime, time)
+					pending?.let { calculator.addPoint(it) }
+					pending = point
+					segmentPoints++
+					trackPoints++
 				}
-				updateBounds(point)
 
-				var speed = point.speed.toFloat()
-				if (speed > 0) {
-					hasSpeedInTrack = true
+				GpxStreamReader.Event.WAYPOINT -> {
+					wpts++
+					categories.add(reader.getPoint()!!.category ?: "")
 				}
-				updateHdop(point)
-
-				if (j > 0) {
-					val prev = s[j - 1]
 
-					calculations[0] = KMapUtils.getEllipsoidDistance(prev.lat, prev.lon, point.lat, point.lon).toFloat()
+				else -> {}
+			}
+			event = reader.next()
+		}
+		if (pending != null && (nonEmptySegments > 1 || trackPoints > 1)) {
+			pending.lastPoint = true
+			calculator.addPoint(pending)
+		}
+		calculator.finishSegment()
+		if (nonEmptySegments <= 1) {
+			// single segment is analysed as is
+			timeSpanWithoutGaps = 0
+			totalDistanceWithoutGaps = 0f
+			timeMovingWithoutGaps = 0
+			totalDistanceMovingWithoutGaps = 0f
+			totalTracks = segments
+		}
+		calculator.finish(fileTimeStamp)
+		wptPoints = wpts
+		setWptCategoryNames(categories)
+	}
 
-					if (calculations[0] > maxDistanceBetweenPoints) {
-						maxDistanceBetweenPoints = calculations[0]
-					}
+	// Calculates statistics point by point, points are not kept (besides point attributes if requested)
+	internal inner class PointsCalculator(
+		private val pointsAnalyser: TrackPointsAnalyser?,
+		private val keepAttributes: Boolean
+	) {
+		private var distance = 0f
+
+		private var startTimeOfSingleSegment: Long = 0
+		private var endTimeOfSingleSegment: Long = 0
+
+		private var distanceOfSingleSegment = 0f
+		private var distanceMovingOfSingleSegment = 0f
+		private var timeMovingOfSingleSegment: Long = 0
+
+		private var totalElevation = 0f
+		private var elevationPoints = 0
+		private var speedCount = 0
+		private var timeDiffMillis: Long = 0
+		private var timeDiff = 0
+		private var totalSpeedSum = 0.0
+
+		private var sensorSpeedCount = 0
+		private var totalSensorSpeedSum = 0.0
+		private var sensorHrCount = 0
+		private var totalSensorHrSum = 0.0
+		private var sensorPowerCount = 0
+		private var totalSensorPowerSum = 0.0
+		private var sensorTemperatureCount = 0
+		private var totalSensorTemperatureSum = 0.0
+		private var sensorCadenceCount = 0
+		private var totalSensorCadenceSum = 0.0
+
+		private var _totalDistance = 0.0f
+
+		private var segmentDistance = 0f
+		private var hasPrev = false
+		private var prevLat = 0.0
+		private var prevLon = 0.0
+		private var prevTime: Long = 0
+		private var speed = 0f
+		private var elevation = 0f
+		private var metricEndZero = true
+		private var generalSegment = false
+		private var elevationApproximator = StreamElevationApproximator()
+
+		init {
+			points = 0
+			pointAttributes = mutableListOf()
+			availableAttributes = mutableSetOf()
+		}
 
-					_totalDistance += calculations[0]
-					segmentDistance += calculations[0]
-					point.distance = segmentDistance.toDouble()
+		fun startSegment(metricEndZero: Boolean, generalSegment: Boolean) {
+			this.metricEndZero = metricEndZero
+			this.generalSegment = generalSegment
+			segmentDistance = 0f
+			hasPrev = false
+			elevationApproximator = StreamElevationApproximator()
+		}
 
-					timeDiffMillis = maxOf(0, point.time - prev.time)
-					timeDiff = (timeDiffMillis / 1000).toInt()
+		fun addPoint(point: WptPt) {
+			val first = !hasPrev
+			if (first && locationStart == null) {
+				locationStart = point
+				setLatLonStart(point.lat, point.lon)
+			}
+			locationEnd = point
+			analysePoint(point.lat, point.lon, point.ele, point.time, point.speed, point.hdop,
+				point.firstPoint, point.lastPoint)
+			if (!first) {
+				point.distance = segmentDistance.toDouble()
+			}
+			analyseAttribute(point, first)
+		}
 
-					if (!hasSpeedInTrack && speed == 0f && timeDiff > 0) {
-						speed = calculations[0] / timeDiff
-					}
+		fun addPoint(segment: PackedTrkSegment, index: Int) {
+			val first = !hasPrev
+			if (first && locationStart == null) {
+				locationStart = segment.getPoint(index)
+				setLatLonStart(segment.lat[index], segment.lon[index])
+			}
+			analysePoint(segment.lat[index], segment.lon[index], segment.ele[index], segment.time[index],
+				segment.speed[index], segment.hdop[index], false, false)
+			if (!first) {
+				segment.setDistance(index, segmentDistance.toDouble())
+			}
+			segment.setAnalysedSpeed(index, speed)
+			if (pointsAnalyser != null || keepAttributes) {
+				analyseAttribute(segment.getPoint(index), first)
+			} else {
+				updateHasData(speed, elevation)
+			}
+		}
 
-					val timeSpecified = point.time != 0L && prev.time != 0L
-					if (speed > 0 && timeSpecified && calculations[0] > timeDiffMillis / 10000f) {
-						timeMoving += timeDiffMillis
-						totalDistanceMoving += calculations[0]
-						if (s.segment.generalSegment && !point.firstPoint) {
-							timeMovingOfSingleSegment += timeDiffMillis
-							distanceMovingOfSingleSegment += calculations[0]
+		private fun analysePoint(lat: Double, lon: Double, ele: Double, time: Long, pointSpeed: Double,
+		                         hdop: Double, firstPoint: Boolean, lastPoint: Boolean) {
+			points++
+			if (time != 0L) {
+				if (metricEndZero) {
+					if (generalSegment) {
+						if (firstPoint) {
+							startTimeOfSingleSegment = time
+						} else if (lastPoint) {
+							endTimeOfSingleSegment = time
+						}
+						if (startTimeOfSingleSegment != 0L && endTimeOfSingleSegment != 0L) {
+							timeSpanWithoutGaps += endTimeOfSingleSegment - startTimeOfSingleSegment
+							startTimeOfSingleSegment = 0
+							endTimeOfSingleSegment = 0
 						}
 					}
 				}
+				startTime = minOf(startTime, time)
+				endTime = maxOf(endTime, time)
+			}
+			updateBounds(lat, lon)
+
+			var speed = pointSpeed.toFloat()
+			if (speed > 0) {
+				hasSpeedInTrack = true
+			}
+			updateHdop(hdop)
+
+			if (hasPrev) {
+				distance = KMapUtils.getEllipsoidDistance(prevLat, prevLon, lat, lon).toFloat()
 
-				minSpeed = minOf(speed, minSpeed)
-				if (speed > 0 && !speed.isInfinite()) {
-					totalSpeedSum += speed
-					maxSpeed = maxOf(speed, maxSpeed)
-					speedCount++
+				if (distance > maxDistanceBetweenPoints) {
+					maxDistanceBetweenPoints = distance
 				}
-				val isNaN = point.ele.isNaN()
-				val elevation = if (isNaN) Float.NaN else point.ele.toFloat()
-				if (!isNaN) {
-					totalElevation += point.ele.toFloat()
-					elevationPoints++
-					minElevation = minOf(point.ele, minElevation)
-					maxElevation = maxOf(point.ele, maxElevation)
+
+				_totalDistance += distance
+				segmentDistance += distance
+
+				timeDiffMillis = maxOf(0, time - prevTime)
+				timeDiff = (timeDiffMillis / 1000).toInt()
+
+				if (!hasSpeedInTrack && speed == 0f && timeDiff > 0) {
+					speed = distance / timeDiff
 				}
 
-				val firstPoint = false
-				val lastPoint = false
-				if (s.segment.generalSegment) {
-					distanceOfSingleSegment += calculations[0]
-					if (point.firstPoint) {
-						distanceOfSingleSegment = 0f
-						timeMovingOfSingleSegment = 0
-						distanceMovingOfSingleSegment = 0f
-					}
-					if (point.lastPoint) {
-						totalDistanceWithoutGaps += distanceOfSingleSegment
-						timeMovingWithoutGaps += timeMovingOfSingleSegment
-						totalDistanceMovingWithoutGaps += distanceMovingOfSingleSegment
+				val timeSpecified = time != 0L && prevTime != 0L
+				if (speed > 0 && timeSpecified && distance > timeDiffMillis / 10000f) {
+					timeMoving += timeDiffMillis
+					totalDistanceMoving += distance
+					if (generalSegment && !firstPoint) {
+						timeMovingOfSingleSegment += timeDiffMillis
+						distanceMovingOfSingleSegment += distance
 					}
 				}
-				val distance = if (j > 0) calculations[0] else 0f
-				val attribute = PointAttributes(distance, timeDiff.toFloat(), firstPoint, lastPoint).apply {
-					this.speed = speed
-					this.elevation = elevation
+			}
+
+			minSpeed = minOf(speed, minSpeed)
+			if (speed > 0 && !speed.isInfinite()) {
+				totalSpeedSum += speed
+				maxSpeed = maxOf(speed, maxSpeed)
+				speedCount++
+			}
+			val isNaN = ele.isNaN()
+			val elevation = if (isNaN) Float.NaN else ele.toFloat()
+			if (!isNaN) {
+				totalElevation += ele.toFloat()
+				elevationPoints++
+				minElevation = minOf(ele, minElevation)
+				maxElevation = maxOf(ele, maxElevation)
+			}
+			elevationApproximator.addPoint(lat, lon, ele)
+
+			if (generalSegment) {
+				distanceOfSingleSegment += distance
+				if (firstPoint) {
+					distanceOfSingleSegment = 0f
+					timeMovingOfSingleSegment = 0
+					distanceMovingOfSingleSegment = 0f
 				}
-				addWptAttribute(point, attribute, pointsAnalyser)
-				if (attribute.sensorSpeed > 0 && !attribute.sensorSpeed.isInfinite()) {
-					maxSensorSpeed = maxOf(attribute.sensorSpeed, maxSensorSpeed)
-					sensorSpeedCount++
-					totalSensorSpeedSum += attribute.sensorSpeed
+				if (lastPoint) {
+					totalDistanceWithoutGaps += distanceOfSingleSegment
+					timeMovingWithoutGaps += timeMovingOfSingleSegment
+					totalDistanceMovingWithoutGaps += distanceMovingOfSingleSegment
 				}
+			}
+			this.speed = speed
+			this.elevation = elevation
+			hasPrev = true
+			prevLat = lat
+			prevLon = lon
+			prevTime = time
+		}
 
-				if (attribute.bikeCadence > 0) {
-					maxSensorCadence = maxOf(attribute.bikeCadence, maxSensorCadence)
-					sensorCadenceCount++
-					totalSensorCadenceSum += attribute.bikeCadence
-				}
+		private fun analyseAttribute(point: WptPt, first: Boolean) {
+			val firstPoint = false
+			val lastPoint = false
+			val pointDistance = if (!first) distance else 0f
+			val attribute = PointAttributes(pointDistance, timeDiff.toFloat(), firstPoint, lastPoint).apply {
+				this.speed = this@PointsCalculator.speed
+				this.elevation = this@PointsCalculator.elevation
+			}
+			addWptAttribute(point, attribute, pointsAnalyser, keepAttributes)
+			if (attribute.sensorSpeed > 0 && !attribute.sensorSpeed.isInfinite()) {
+				maxSensorSpeed = maxOf(attribute.sensorSpeed, maxSensorSpeed)
+				sensorSpeedCount++
+				totalSensorSpeedSum += attribute.sensorSpeed
+			}
 
-				if (attribute.heartRate > 0) {
-					maxSensorHr = maxOf(attribute.heartRate.toInt(), maxSensorHr)
-					sensorHrCount++
-					totalSensorHrSum += attribute.heartRate
-				}
+			if (attribute.bikeCadence > 0) {
+				maxSensorCadence = maxOf(attribute.bikeCadence, maxSensorCadence)
+				sensorCadenceCount++
+				totalSensorCadenceSum += attribute.bikeCadence
+			}
 
-				val temperature = attribute.getTemperature()
-				if (temperature > 0) {
-					maxSensorTemperature = maxOf(temperature.toInt(), maxSensorTemperature)
-					sensorTemperatureCount++
-					totalSensorTemperatureSum += temperature
-				}
+			if (attribute.heartRate > 0) {
+				maxSensorHr = maxOf(attribute.heartRate.toInt(), maxSensorHr)
+				sensorHrCount++
+				totalSensorHrSum += attribute.heartRate
+			}
 
-				if (attribute.bikePower > 0) {
-					maxSensorPower = maxOf(attribute.bikePower.toInt(), maxSensorPower)
-					sensorPowerCount++
-					totalSensorPowerSum += attribute.bikePower
-				}
+			val temperature = attribute.getTemperature()
+			if (temperature > 0) {
+				maxSensorTemperature = maxOf(temperature.toInt(), maxSensorTemperature)
+				sensorTemperatureCount++
+				totalSensorTemperatureSum += temperature
 			}
-			processElevationDiff(s)
-		}
 
+			if (attribute.bikePower > 0) {
+				maxSensorPower = maxOf(attribute.bikePower.toInt(), maxSensorPower)
+				sensorPowerCount++
+				totalSensorPowerSum += attribute.bikePower
+			}
+		}
 
-		if (!joinSegments && totalDistanceWithoutGaps > 0) {
-			totalDistance = totalDistanceWithoutGaps
-		} else {
-			totalDistance = _totalDistance
+		fun finishSegment() {
+			processElevationDiff(elevationApproximator)
 		}
 
-		checkUnspecifiedValues(fileTimeStamp)
-		processAverageValues(totalElevation, elevationPoints, totalSpeedSum, speedCount)
+		fun finish(fileTimeStamp: Long) {
+			if (!joinSegments && totalDistanceWithoutGaps > 0) {
+				totalDistance = totalDistanceWithoutGaps
+			} else {
+				totalDistance = _totalDistance
+			}
 
-		avgSensorSpeed = processAverageValue(totalSensorSpeedSum, sensorSpeedCount)
-		avgSensorCadence = processAverageValue(totalSensorCadenceSum, sensorCadenceCount)
-		avgSensorHr = processAverageValue(totalSensorHrSum, sensorHrCount)
-		avgSensorPower = processAverageValue(totalSensorPowerSum, sensorPowerCount)
-		avgSensorTemperature =
-			processAverageValue(totalSensorTemperatureSum, sensorTemperatureCount)
-		return this
+			checkUnspecifiedValues(fileTimeStamp)
+			processAverageValues(totalElevation, elevationPoints, totalSpeedSum, speedCount)
+
+			avgSensorSpeed = processAverageValue(totalSensorSpeedSum, sensorSpeedCount)
+			avgSensorCadence = processAverageValue(totalSensorCadenceSum, sensorCadenceCount)
+			avgSensorHr = processAverageValue(totalSensorHrSum, sensorHrCount)
+			avgSensorPower = processAverageValue(totalSensorPowerSum, sensorPowerCount)
+			avgSensorTemperature =
+				processAverageValue(totalSensorTemperatureSum, sensorTemperatureCount)
+		}
 	}
 
 	private fun addWptAttribute(
-		point: WptPt, attribute: PointAttributes, pointsAnalyser: TrackPointsAnalyser?
+		point: WptPt, attribute: PointAttributes, pointsAnalyser: TrackPointsAnalyser?,
+		keepAttributes: Boolean
 	) {
-		if (!hasSpeedData() && attribute.speed > 0) {
+		updateHasData(attribute.speed, attribute.elevation)
+		point.attributes = attribute
+		pointsAnalyser?.onAnalysePoint(this, point, attribute)
+		if (keepAttributes) {
+			pointAttributes.add(attribute)
+		}
+	}
+
+	private fun updateHasData(speed: Float, elevation: Float) {
+		if (!hasSpeedData() && speed > 0) {
 			setHasData(POINT_SPEED, true)
 		}
-		if (!hasElevationData() && !attribute.elevation.isNaN()) {
+		if (!hasElevationData() && !elevation.isNaN()) {
 			setHasData(POINT_ELEVATION, true)
 		}
-		point.attributes = attribute
-		pointsAnalyser?.onAnalysePoint(this, point, attribute)
-		pointAttributes.add(attribute)
 	}
 
-	private fun updateBounds(point: WptPt) {
+	private fun updateBounds(lat: Double, lon: Double) {
 		if (left == 0.0 && right == 0.0) {
-			left = point.getLongitude()
-			right = point.getLongitude()
-			top = point.getLatitude()
-			bottom = point.getLatitude()
+			left = lon
+			right = lon
+			top = lat
+			bottom = lat
 		} else {
-			left = minOf(left, point.getLongitude())
-			right = maxOf(right, point.getLongitude())
-			top = maxOf(top, point.getLatitude())
-			bottom = minOf(bottom, point.getLatitude())
+			left = minOf(left, lon)
+			right = maxOf(right, lon)
+			top = maxOf(top, lat)
+			bottom = minOf(bottom, lat)
 		}
 	}
 
-	private fun updateHdop(point: WptPt) {
-		val hdop = point.hdop
+	private fun updateHdop(hdop: Double) {
 		if (hdop > 0) {
 			if (minHdop.isNaN() || hdop < minHdop) {
 				minHdop = hdop
@@ -576,8 +760,7 @@ class GpxTrackAnalysis {
 		return if (valuesCount > 0) (totalSum.toDouble() / valuesCount).toFloat() else -1f
 	}
 
-	private fun processElevationDiff(segment: SplitSegment) {
-		val approximator = getElevationApproximator(segment)
+	private fun processElevationDiff(approximator: StreamElevationApproximator) {
 		approximator.approximate()
 		val distances = approximator.getDistances()
 		val elevations = approximator.getElevations()
@@ -590,26 +773,6 @@ class GpxTrackAnalysis {
 		}
 	}
 
-	private fun getElevationApproximator(segment: SplitSegment): ElevationApproximator {
-		return object : ElevationApproximator() {
-			override fun getPointLatitude(index: Int): Double {
-				return segment[index].lat
-			}
-
-			override fun getPointLongitude(index: Int): Double {
-				return segment[index].lon
-			}
-
-			override fun getPointElevation(index: Int): Double {
-				return segment[index].ele
-			}
-
-			override fun getPointsCount(): Int {
-				return segment.getNumberOfPoints()
-			}
-		}
-	}
-
 	private fun getElevationDiffsCalculator(
 		distances: DoubleArray, elevations: DoubleArray, indexes: IntArray
 	): ElevationDiffsCalculator {
@@ -1078,22 +1078,7 @@ object GpxUtilities {
 												getExtensionsSupportedTag(t.lowercase())
 											parse.getExtensionsToWrite()[supportedTag] = value
 											if (parse is WptPt) {
-												when (tag) {
-													POINT_SPEED -> {
-														try {
-															parse.speed = value.toDouble()
-														} catch (e: NumberFormatException) {
-															println(e.message)
-														}
-													}
-
-													POINT_BEARING -> {
-														try {
-															parse.bearing = value.toFloat()
-														} catch (ignored: NumberFormatException) {
-														}
-													}
-												}
+												readPointExtension(tag, value, parse)
 											}
 										}
 									}
@@ -1274,56 +1259,12 @@ object GpxUtilities {
 							}
 
 							is WptPt -> {
-								when (tag) {
-									"name" -> parse.name = readText(parser, "name")
-									"desc" -> parse.desc = readText(parser, "desc")
-									"cmt" -> parse.comment = readText(parser, "cmt")
-									POINT_SPEED -> {
-										try {
-											val value = readText(parser, POINT_SPEED)
-											if (!value.isNullOrEmpty()) {
-												parse.speed = value.toDouble()
-												parse.getExtensionsToWrite()[POINT_SPEED] = value
-											}
-										} catch (_: NumberFormatException) {
-										}
-									}
-									"link" -> {
-										val link = Link(parser.getAttributeValue("", "href"))
-										parse.link = link
-										parserState.add(link)
-									}
-									"category" -> parse.category = readText(parser, "category")
-									"type" -> {
-										if (parse.category == null) {
-											parse.category = readText(parser, "type")
-										}
-									}
-
-									POINT_ELEVATION -> {
-										val text = readText(parser, POINT_ELEVATION)
-										if (text != null) {
-											try {
-												parse.ele = text.toDouble()
-											} catch (_: NumberFormatException) {
-											}
-										}
-									}
-
-									"hdop" -> {
-										val text = readText(parser, "hdop")
-										if (text != null) {
-											try {
-												parse.hdop = text.toDouble()
-											} catch (_: NumberFormatException) {
-											}
-										}
-									}
-
-									"time" -> {
-										val text = readText(parser, "time")
-										parse.time = parseTime(text!!)
-									}
+								if (tag == "link") {
+									val link = Link(parser.getAttributeValue("", "href"))
+									parse.link = link
+									parserState.add(link)
+								} else {
+									readPointTag(parser, tag, parse)
 								}
 							}
 						}
@@ -1446,7 +1387,75 @@ object GpxUtilities {
 		return gpxFile
 	}
 
-	private fun getExtensionsSupportedTag(tag: String): String {
+	internal fun readPointTag(parser: XmlPullParser, tag: String, parse: WptPt) {
+		when (tag) {
+			"name" -> parse.name = readText(parser, "name")
+			"desc" -> parse.desc = readText(parser, "desc")
+			"cmt" -> parse.comment = readText(parser, "cmt")
+			POINT_SPEED -> {
+				try {
+					val value = readText(parser, POINT_SPEED)
+					if (!value.isNullOrEmpty()) {
+						parse.speed = value.toDouble()
+						parse.getExtensionsToWrite()[POINT_SPEED] = value
+					}
+				} catch (_: NumberFormatException) {
+				}
+			}
+			"category" -> parse.category = readText(parser, "category")
+			"type" -> {
+				if (parse.category == null) {
+					parse.category = readText(parser, "type")
+				}
+			}
+
+			POINT_ELEVATION -> {
+				val text = readText(parser, POINT_ELEVATION)
+				if (text != null) {
+					try {
+						parse.ele = text.toDouble()
+					} catch (_: NumberFormatException) {
+					}
+				}
+			}
+
+			"hdop" -> {
+				val text = readText(parser, "hdop")
+				if (text != null) {
+					try {
+						parse.hdop = text.toDouble()
+					} catch (_: NumberFormatException) {
+					}
+				}
+			}
+
+			"time" -> {
+				val text = readText(parser, "time")
+				parse.time = parseTime(text!!)
+			}
+		}
+	}
+
+	internal fun readPointExtension(tag: String, value: String, parse: WptPt) {
+		when (tag) {
+			POINT_SPEED -> {
+				try {
+					parse.speed = value.toDouble()
+				} catch (e: NumberFormatException) {
+					println(e.message)
+				}
+			}
+
+			POINT_BEARING -> {
+				try {
+					parse.bearing = value.toFloat()
+				} catch (ignored: NumberFormatException) {
+				}
+			}
+		}
+	}
+
+	internal fun getExtensionsSupportedTag(tag: String): String {
 		val supportedTag = SUPPORTED_EXTENSION_TAGS[tag]
 		return supportedTag ?: tag.replace(XML_COLON, ":")
 	}
@@ -1505,7 +1514,7 @@ object GpxUtilities {
 		return pointsGroups
 	}
 
-	private fun parseWptAttributes(parser: XmlPullParser): WptPt {
+	internal fun parseWptAttributes(parser: XmlPullParser): WptPt {
 		val wpt = WptPt()
 		try {
 			val latStr = parser.getAttributeValue("", "lat")
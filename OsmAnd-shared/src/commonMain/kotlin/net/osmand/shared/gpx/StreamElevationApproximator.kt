@@ -0,0 +1,115 @@
+package net.osmand.shared.gpx
+
+import net.osmand.shared.util.KMapUtils
+
+// Same approximation as ElevationApproximator but points are added one by one
+// and only surviving points are kept (points count is not limited)
+class StreamElevationApproximator {
+
+	private val SLOPE_THRESHOLD = 70.0
+
+	private var pointsCount = 0
+	private var firstEle = 0.0
+
+	private var prevLat = 0.0
+	private var prevLon = 0.0
+	private var prevEle = 0.0
+
+	private var lastExtremumEle = 0.0
+	private var extremumsCount = 0
+
+	private var lastSurvivedIndex = 0
+	private var lastSurvivedLat = 0.0
+	private var lastSurvivedLon = 0.0
+	private var lastSurvivedEle = 0.0
+	private var survivedCount = 0
+
+	private var survivedDistances = DoubleArray(64)
+	private var survivedElevations = DoubleArray(64)
+	private var survivedIndexes = IntArray(64)
+
+	private var distances: DoubleArray? = null
+	private var elevations: DoubleArray? = null
+	private var indexes: IntArray? = null
+
+	fun getDistances(): DoubleArray? {
+		return distances
+	}
+
+	fun getElevations(): DoubleArray? {
+		return elevations
+	}
+
+	fun getSurvivedIndexes(): IntArray? {
+		return indexes
+	}
+
+	fun getPointsCount(): Int {
+		return pointsCount
+	}
+
+	fun addPoint(lat: Double, lon: Double, ele: Double) {
+		if (pointsCount == 0) {
+			firstEle = ele
+			lastExtremumEle = ele
+			lastSurvivedLat = lat
+			lastSurvivedLon = lon
+			lastSurvivedEle = ele
+		} else if (pointsCount > 1) {
+			// previous point is not the first and not the last one
+			if ((prevEle - lastExtremumEle) * (ele - prevEle) > 0) {
+				lastExtremumEle = prevEle
+				extremumsCount++
+				checkSlope(pointsCount - 1, prevLat, prevLon, prevEle)
+			}
+		}
+		prevLat = lat
+		prevLon = lon
+		prevEle = ele
+		pointsCount++
+	}
+
+	private fun checkSlope(index: Int, lat: Double, lon: Double, ele: Double) {
+		val dist = KMapUtils.getDistance(lat, lon, lastSurvivedLat, lastSurvivedLon)
+		val slope = (ele - lastSurvivedEle) * 100 / dist
+		if (kotlin.math.abs(slope) > SLOPE_THRESHOLD) {
+			return
+		}
+		if (survivedCount == survivedIndexes.size) {
+			survivedDistances = survivedDistances.copyOf(survivedCount * 2)
+			survivedElevations = survivedElevations.copyOf(survivedCount * 2)
+			survivedIndexes = survivedIndexes.copyOf(survivedCount * 2)
+		}
+		survivedDistances[survivedCount] = if (lastSurvivedIndex == 0) 0.0 else dist
+		survivedElevations[survivedCount] = ele
+		survivedIndexes[survivedCount] = index
+		survivedCount++
+		lastSurvivedIndex = index
+		lastSurvivedLat = lat
+		lastSurvivedLon = lon
+		lastSurvivedEle = ele
+	}
+
+	fun approximate(): Boolean {
+		distances = null
+		elevations = null
+		indexes = null
+		if (pointsCount < 4 || extremumsCount == 0 || survivedCount < 2) {
+			return false
+		}
+		val distances = DoubleArray(survivedCount + 2)
+		val elevations = DoubleArray(survivedCount + 2)
+		val indexes = IntArray(survivedCount + 2)
+		elevations[0] = firstEle
+		survivedDistances.copyInto(distances, 1, 0, survivedCount)
+		survivedElevations.copyInto(elevations, 1, 0, survivedCount)
+		survivedIndexes.copyInto(indexes, 1, 0, survivedCount)
+		distances[survivedCount + 1] = KMapUtils.getDistance(prevLat, prevLon, lastSurvivedLat, lastSurvivedLon)
+		elevations[survivedCount + 1] = prevEle
+		indexes[survivedCount + 1] = pointsCount - 1
+		this.distances = distances
+		this.elevations = elevations
+		this.indexes = indexes
+		return true
+	}
+}
@@ -0,0 +1,160 @@
+package net.osmand.shared.gpx.primitives
+
+import net.osmand.shared.gpx.ElevationApproximator
+import net.osmand.shared.gpx.GpxStreamReader
+import net.osmand.shared.gpx.GpxUtilities.POINT_SPEED
+
+// Track segment stored as primitive columns (point i is lat[i], lon[i], ...), extensions are kept
+// only for points which have them. Used for long tracks instead of TrkSegment with WptPt objects,
+// getPoint creates WptPt on demand. Arrays could be larger than size.
+class PackedTrkSegment(capacity: Int = 16) {
+
+	var name: String? = null
+	var size = 0
+		private set
+
+	var lat = DoubleArray(capacity)
+		private set
+	var lon = DoubleArray(capacity)
+		private set
+	var ele = DoubleArray(capacity)
+		private set
+	var time = LongArray(capacity)
+		private set
+	var speed = DoubleArray(capacity)
+		private set
+	var hdop = DoubleArray(capacity)
+		private set
+	var heading = FloatArray(capacity)
+		private set
+	// distance from segment start and speed calculated by track analysis
+	var distance = DoubleArray(capacity)
+		private set
+	var analysedSpeed: FloatArray? = null
+		private set
+
+	private val extensions = mutableMapOf<Int, Map<String, String>>()
+
+	fun add(lat: Double, lon: Double, ele: Double, time: Long, speed: Double, hdop: Double, heading: Float) {
+		if (size == this.lat.size) {
+			val capacity = maxOf(size * 2, 16)
+			this.lat = this.lat.copyOf(capacity)
+			this.lon = this.lon.copyOf(capacity)
+			this.ele = this.ele.copyOf(capacity)
+			this.time = this.time.copyOf(capacity)
+			this.speed = this.speed.copyOf(capacity)
+			this.hdop = this.hdop.copyOf(capacity)
+			this.heading = this.heading.copyOf(capacity)
+			this.distance = this.distance.copyOf(capacity)
+			analysedSpeed = analysedSpeed?.copyOf(capacity)
+		}
+		this.lat[size] = lat
+		this.lon[size] = lon
+		this.ele[size] = ele
+		this.time[size] = time
+		this.speed[size] = speed
+		this.hdop[size] = hdop
+		this.heading[size] = heading
+		size++
+	}
+
+	// speed extension is kept in speed column
+	fun add(point: WptPt) {
+		add(point.lat, point.lon, point.ele, point.time, point.speed, point.hdop, point.heading)
+		distance[size - 1] = point.distance
+		val ext = point.getExtensionsToRead()
+		if (ext.isNotEmpty() && (ext.size > 1 || !ext.containsKey(POINT_SPEED))) {
+			extensions[size - 1] = ext.filterKeys { it != POINT_SPEED }
+		}
+	}
+
+	fun getExtensions(index: Int): Map<String, String> {
+		return extensions[index] ?: emptyMap()
+	}
+
+	fun setExtensions(index: Int, ext: Map<String, String>?) {
+		if (ext.isNullOrEmpty()) {
+			extensions.remove(index)
+		} else {
+			extensions[index] = ext
+		}
+	}
+
+	fun getPoint(index: Int): WptPt {
+		if (index < 0 || index >= size) {
+			throw IndexOutOfBoundsException("Index: $index, size: $size")
+		}
+		val point = WptPt(lat[index], lon[index], time[index], ele[index], speed[index], hdop[index], heading[index])
+		point.distance = distance[index]
+		extensions[index]?.let { point.getExtensionsToWrite().putAll(it) }
+		return point
+	}
+
+	fun setDistance(index: Int, distance: Double) {
+		this.distance[index] = distance
+	}
+
+	fun setAnalysedSpeed(index: Int, speed: Float) {
+		val speeds = analysedSpeed ?: FloatArray(lat.size).also { analysedSpeed = it }
+		speeds[index] = speed
+	}
+
+	fun getElevationApproximator(): ElevationApproximator {
+		return object : ElevationApproximator() {
+			override fun getPointLatitude(index: Int): Double {
+				return lat[index]
+			}
+
+			override fun getPointLongitude(index: Int): Double {
+				return lon[index]
+			}
+
+			override fun getPointElevation(index: Int): Double {
+				return ele[index]
+			}
+
+			override fun getPointsCount(): Int {
+				return size
+			}
+		}
+	}
+
+	fun isEmpty(): Boolean {
+		return size == 0
+	}
+
+	fun toTrkSegment(): TrkSegment {
+		val segment = TrkSegment()
+		segment.name = name
+		for (i in 0 until size) {
+			segment.points.add(getPoint(i))
+		}
+		return segment
+	}
+
+	companion object {
+		fun fromTrkSegment(segment: TrkSegment): PackedTrkSegment {
+			val packed = PackedTrkSegment(maxOf(segment.points.size, 1))
+			packed.name = segment.name
+			for (point in segment.points) {
+				packed.add(point)
+			}
+			return packed
+		}
+
+		// reads all track segments, points are not kept as objects
+		fun readTrackSegments(reader: GpxStreamReader): List<PackedTrkSegment> {
+			val segments = mutableListOf<PackedTrkSegment>()
+			var event = reader.next()
+			while (event != null) {
+				when (event) {
+					GpxStreamReader.Event.SEGMENT -> segments.add(PackedTrkSegment())
+					GpxStreamReader.Event.TRACK_POINT -> segments.last().add(reader.getPoint()!!)
+					else -> {}
+				}
+				event = reader.next()
+			}
+			return segments
+		}
+	}
+}
@@ -4,6 +4,7 @@ import net.osmand.shared.ColorPalette
 import net.osmand.shared.extensions.currentTimeMillis
 import net.osmand.shared.gpx.GpxFile
 import net.osmand.shared.gpx.GpxTrackAnalysis
+import net.osmand.shared.gpx.primitives.PackedTrkSegment
 import net.osmand.shared.util.KAlgorithms
 import net.osmand.shared.util.KMapUtils
 import net.osmand.shared.util.LoggerFactory
@@ -104,18 +105,69 @@ class RouteColorize {
 				}
 			}
 		}
-		colorizationType = type
 		latitudes = listToArray(latList)
 		longitudes = listToArray(lonList)
-		values = if (type == ColorizationType.SLOPE) {
+		setValues(type, listToArray(valList), analysis, palette, maxProfileSpeed)
+	}
+
+	/**
+	 * Colorize packed track segments, values are taken from segment columns
+	 * (speed calculated by analysis if segments were analysed)
+	 */
+	constructor(
+		segments: List<PackedTrkSegment>,
+		analysis: GpxTrackAnalysis?,
+		type: ColorizationType,
+		palette: ColorPalette?,
+		maxProfileSpeed: Float
+	) {
+		val trackAnalysis = analysis
+			?: GpxTrackAnalysis().prepareInformation(currentTimeMillis(), null, segments)
+		var size = 0
+		for (ts in segments) {
+			if (ts.size >= 2) {
+				size += ts.size
+			}
+		}
+		latitudes = DoubleArray(size)
+		longitudes = DoubleArray(size)
+		val vals = DoubleArray(size)
+		var wptIdx = 0
+		for (ts in segments) {
+			if (ts.size < 2) {
+				continue
+			}
+			ts.lat.copyInto(latitudes, wptIdx, 0, ts.size)
+			ts.lon.copyInto(longitudes, wptIdx, 0, ts.size)
+			val speeds = ts.analysedSpeed
+			for (i in 0 until ts.size) {
+				vals[wptIdx++] = if (type == ColorizationType.SPEED) {
+					speeds?.get(i)?.toDouble() ?: ts.speed[i].toFloat().toDouble()
+				} else {
+					ts.ele[i].toFloat().toDouble()
+				}
+			}
+		}
+		setValues(type, vals, trackAnalysis, palette, maxProfileSpeed)
+	}
+
+	private fun setValues(
+		type: ColorizationType,
+		values: DoubleArray,
+		analysis: GpxTrackAnalysis,
+		palette: ColorPalette?,
+		maxProfileSpeed: Float
+	) {
+		colorizationType = type
+		this.values = if (type == ColorizationType.SLOPE) {
 			calculateSlopesByElevations(
 				latitudes,
 				longitudes,
-				listToArray(valList),
+				values,
 				SLOPE_RANGE.toDouble()
 			)
 		} else {
-			listToArray(valList)
+			values
 		}
 		calculateMinMaxValue(analysis, maxProfileSpeed)
 		if (type == ColorizationType.SLOPE) {
@@ -0,0 +1,92 @@
+package net.osmand.shared.gpx
+
+import okio.Buffer
+import kotlin.random.Random
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertNull
+
+class GpxStreamReaderTest {
+
+    @Test
+    fun testReadPoints() {
+        val gpx = "<gpx><metadata><name>test</name></metadata>" +
+                "<wpt lat=\"1.5\" lon=\"2.5\"><name>A</name><type>food</type><ele>12.5</ele></wpt>" +
+                "<trk><name>t</name><extensions><route><segment id=\"1\"/></route></extensions>" +
+                "<trkseg><trkpt lat=\"1\" lon=\"2\"><time>2024-01-01T10:00:00Z</time>" +
+                "<extensions><speed>3.5</speed></extensions></trkpt>" +
+                "<trkpt lat=\"1.001\" lon=\"2\"><link href=\"x\"><text>l</text></link><hdop>2</hdop></trkpt></trkseg></trk>" +
+                "<rte><rtept lat=\"3\" lon=\"4\"/></rte></gpx>"
+        val reader = GpxStreamReader.open(Buffer().writeUtf8(gpx))
+        assertEquals(GpxStreamReader.Event.WAYPOINT, reader.next())
+        val wpt = reader.getPoint()!!
+        assertEquals("A", wpt.name)
+        assertEquals("food", wpt.category)
+        assertEquals(12.5, wpt.ele)
+        assertEquals(GpxStreamReader.Event.TRACK, reader.next())
+        assertEquals(GpxStreamReader.Event.SEGMENT, reader.next())
+        assertEquals(GpxStreamReader.Event.TRACK_POINT, reader.next())
+        val first = reader.getPoint()!!
+        assertEquals(3.5, first.speed)
+        assertEquals(GpxUtilities.parseTime("2024-01-01T10:00:00Z"), first.time)
+        assertEquals(GpxStreamReader.Event.TRACK_POINT, reader.next())
+        assertEquals("x", reader.getPoint()!!.link?.href)
+        assertEquals(2.0, reader.getPoint()!!.hdop)
+        assertEquals(GpxStreamReader.Event.ROUTE, reader.next())
+        assertEquals(GpxStreamReader.Event.ROUTE_POINT, reader.next())
+        assertEquals(4.0, reader.getPoint()!!.lon)
+        assertNull(reader.next())
+        reader.close()
+    }
+
+    @Test
+    fun testSameAnalysis() {
+        for (segments in intArrayOf(1, 3)) {
+            val gpx = randomGpx(Random(segments), segments)
+            val file = GpxUtilities.loadGpxFile(Buffer().writeUtf8(gpx))
+            val expected = file.getAnalysis(0, null)
+            val reader = GpxStreamReader.open(Buffer().writeUtf8(gpx))
+            val analysis = GpxTrackAnalysis.prepareInformation(0, reader, null, null)
+            reader.close()
+            assertEquals(expected.points, analysis.points)
+            assertEquals(expected.wptPoints, analysis.wptPoints)
+            assertEquals(expected.getWptCategoryNamesSet(), analysis.getWptCategoryNamesSet())
+            assertEquals(expected.totalTracks, analysis.totalTracks)
+            assertEquals(expected.totalDistance, analysis.totalDistance)
+            assertEquals(expected.totalDistanceWithoutGaps, analysis.totalDistanceWithoutGaps)
+            assertEquals(expected.timeSpan, analysis.timeSpan)
+            assertEquals(expected.timeSpanWithoutGaps, analysis.timeSpanWithoutGaps)
+            assertEquals(expected.timeMoving, analysis.timeMoving)
+            assertEquals(expected.avgSpeed, analysis.avgSpeed)
+            assertEquals(expected.maxSpeed, analysis.maxSpeed)
+            assertEquals(expected.minElevation, analysis.minElevation)
+            assertEquals(expected.maxElevation, analysis.maxElevation)
+            assertEquals(expected.avgElevation, analysis.avgElevation)
+            assertEquals(expected.diffElevationUp, analysis.diffElevationUp)
+            assertEquals(expected.diffElevationDown, analysis.diffElevationDown)
+        }
+    }
+
+    private fun randomGpx(rnd: Random, segments: Int): String {
+        val sb = StringBuilder("<gpx>")
+        sb.append("<wpt lat=\"50\" lon=\"10\"><type>a</type></wpt><wpt lat=\"50.1\" lon=\"10\"/>")
+        sb.append("<trk>")
+        var lat = 50.0
+        var ele = 300.0
+        var time = 1_700_000_000L
+        for (s in 0 until segments) {
+            sb.append("<trkseg>")
+            for (i in 0 until 500) {
+                lat += rnd.nextDouble(0.0, 0.0005)
+                ele += rnd.nextDouble(-3.0, 3.0)
+                time += rnd.nextInt(1, 10)
+                sb.append("<trkpt lat=\"").append(lat).append("\" lon=\"10\"><ele>").append(ele)
+                    .append("</ele><time>").append(GpxUtilities.formatTime(time * 1000)).append("</time></trkpt>")
+            }
+            sb.append("</trkseg>")
+            time += 600
+        }
+        sb.append("</trk></gpx>")
+        return sb.toString()
+    }
+}
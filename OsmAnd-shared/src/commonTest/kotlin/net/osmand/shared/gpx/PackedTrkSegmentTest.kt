@@ -0,0 +1,64 @@
+package net.osmand.shared.gpx
+
+import net.osmand.shared.gpx.primitives.PackedTrkSegment
+import net.osmand.shared.gpx.primitives.TrkSegment
+import net.osmand.shared.gpx.primitives.WptPt
+import kotlin.random.Random
+import kotlin.test.Test
+import kotlin.test.assertEquals
+
+class PackedTrkSegmentTest {
+
+    @Test
+    fun testSameAnalysis() {
+        val rnd = Random(5)
+        val segment = TrkSegment()
+        var lat = 45.0
+        var ele = 1000.0
+        var time = 1_700_000_000_000L
+        for (i in 0 until 2000) {
+            lat += rnd.nextDouble(0.0, 0.0003)
+            ele += rnd.nextDouble(-2.0, 2.5)
+            time += rnd.nextLong(1000, 8000)
+            val speed = if (i > 1000) rnd.nextDouble(0.0, 5.0) else 0.0
+            val point = WptPt(lat, 7.0, time, if (i % 100 == 7) Double.NaN else ele, speed, 3.0)
+            if (i % 10 == 0) {
+                point.getExtensionsToWrite()["hr"] = "120"
+            }
+            segment.points.add(point)
+        }
+        val packed = PackedTrkSegment.fromTrkSegment(segment)
+        assertEquals(2000, packed.size)
+        assertEquals("120", packed.getExtensions(10)["hr"])
+        assertEquals(0, packed.getExtensions(11).size)
+        assertEquals(segment.points[5].ele, packed.getPoint(5).ele)
+
+        var analysedPoints = 0
+        val analyser = object : GpxTrackAnalysis.TrackPointsAnalyser {
+            override fun onAnalysePoint(analysis: GpxTrackAnalysis, point: WptPt, attribute: PointAttributes) {
+                analysedPoints++
+            }
+        }
+        val expected = GpxTrackAnalysis.prepareInformation(0, false, analyser, segment)
+        val analysis = GpxTrackAnalysis.prepareInformation(0, false, null, packed)
+        assertEquals(2000, analysedPoints)
+        assertEquals(expected.points, analysis.points)
+        assertEquals(expected.totalDistance, analysis.totalDistance)
+        assertEquals(expected.timeSpan, analysis.timeSpan)
+        assertEquals(expected.timeMoving, analysis.timeMoving)
+        assertEquals(expected.avgSpeed, analysis.avgSpeed)
+        assertEquals(expected.maxSpeed, analysis.maxSpeed)
+        assertEquals(expected.avgElevation, analysis.avgElevation)
+        assertEquals(expected.diffElevationUp, analysis.diffElevationUp)
+        assertEquals(expected.diffElevationDown, analysis.diffElevationDown)
+        assertEquals(expected.hasSpeedData(), analysis.hasSpeedData())
+        assertEquals(expected.hasElevationData(), analysis.hasElevationData())
+        assertEquals(expected.left, analysis.left)
+        assertEquals(expected.top, analysis.top)
+        assertEquals(0, analysis.pointAttributes.size)
+        for (i in 0 until packed.size) {
+            assertEquals(segment.points[i].distance, packed.distance[i])
+            assertEquals(expected.pointAttributes[i].speed, packed.analysedSpeed!![i])
+        }
+    }
+}
@@ -33,6 +33,7 @@ import net.osmand.plus.settings.backend.OsmAndAppCustomization.OsmAndAppCustomiz
 import net.osmand.plus.settings.backend.OsmandSettings;
 import net.osmand.plus.views.layers.base.OsmandMapLayer.DrawSettings;
 import net.osmand.render.RenderingRuleProperty;
+import net.osmand.render.RenderingRuleSearchCache;
 import net.osmand.render.RenderingRuleSearchRequest;
 import net.osmand.render.RenderingRuleStorageProperties;
 import net.osmand.render.RenderingRulesStorage;
@@ -82,6 +83,8 @@ public class MapRenderRepositories {
 	private final Set<String> hiddenFileNames = new HashSet<>();
 	private final Set<String> hiddenFileExtensions = new HashSet<>();
 	private final OsmandRenderer renderer;
+	// style results of java renderer, kept while style and custom properties are same
+	private final RenderingRuleSearchCache searchCache = new RenderingRuleSearchCache();
 
 	// lat/lon box of requested vector data
 	private QuadRect cObjectsBox = new QuadRect();
@@ -778,6 +781,7 @@ public class MapRenderRepositories {
 			if(nativeLib != null) {
 				renderer.generateNewBitmapNative(currentRenderingContext, nativeLib, cNativeObjects, bmp, renderingReq, mapTileDownloader);
 			} else {
+				renderingReq.setSearchCache(searchCache);
 				renderer.generateNewBitmap(currentRenderingContext, cObjects, bmp, renderingReq, mapTileDownloader);
 			}
 			// Force to use rendering request in order to prevent Garbage Collector when it is used in C++
@@ -814,6 +818,9 @@ public class MapRenderRepositories {
 				if (renderingDebugInfo != null) {
 					timeInfo += "\n" + renderingDebugInfo;
 				}
+				if (nativeLib == null) {
+					timeInfo += "\n" + searchCache;
+				}
 				String msg = timeInfo;
 				log.info(msg);
 				app.showToastMessage(msg);